@@ -58,7 +58,6 @@ import org.n52.shetland.ogc.gml.time.TimeInstant;
 import org.n52.shetland.ogc.om.ObservationStream;
 import org.n52.shetland.ogc.om.OmConstants;
 import org.n52.shetland.ogc.om.OmObservableProperty;
-import org.n52.shetland.ogc.om.values.Value;
 import org.n52.shetland.ogc.ows.OwsAddress;
 import org.n52.shetland.ogc.ows.OwsContact;
 import org.n52.shetland.ogc.ows.OwsOnlineResource;
@@ -91,6 +90,7 @@ import org.n52.sos.netcdf.Nc4ForceTimeChunkingStategy;
 import org.n52.sos.netcdf.NetCDFUtil;
 import org.n52.sos.netcdf.NetcdfConstants;
 import org.n52.sos.netcdf.NetcdfHelper;
+import org.n52.sos.netcdf.SensorDatasetColumns;
 import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
 import org.n52.sos.netcdf.data.dataset.StaticLocationDataset;
 import org.n52.sos.netcdf.data.subsensor.BinProfileSubSensor;
@@ -399,8 +399,10 @@ public abstract class AbstractNetcdfEncoder
         if (numTimes > 1 && writer.getVersion().isNetdf4format()) {
             vTime.addAttribute(new Attribute(CDM.CHUNK_SIZES, getNetcdfHelper().getChunkSizeTime()));
         }
-        ArrayDouble timeArray = new ArrayDouble(getDimShapes(timeDims));
-        initArrayWithFillValue(timeArray, getNetcdfHelper().getFillValue());
+        // collect the times and values in a single pass into primitive arrays
+        SensorDatasetColumns columns = SensorDatasetColumns.assemble(sensorDataset, getDataType(),
+                getNetcdfHelper().getFillValue(), this::getTimeValue);
+        Array timeArray = columns.getTimeArray();
 
         Array latArray = getLatitudeArray(sensorDataset);
         Array lonArray = getLongitudeArray(sensorDataset);
@@ -447,17 +449,13 @@ public abstract class AbstractNetcdfEncoder
                         Lists.newArrayList(vTime.getFullName(), vLat.getFullName(), vLon.getFullName(),
                                 vHeightDepth.getFullName()));
 
-        Map<OmObservableProperty, Variable> obsPropVarMap = Maps.newHashMap();
         Map<Variable, Array> varDataArrayMap = Maps.newHashMap();
         for (OmObservableProperty obsProp : sensorDataset.getPhenomena()) {
             // obs prop var
             Variable vObsProp = addVariableForObservedProperty(writer, obsProp, obsPropDims, coordinateString);
-            obsPropVarMap.put(obsProp, vObsProp);
 
-            // init obs prop data array
-            Array obsPropArray = getArray(obsPropDims);
-            initArrayWithFillValue(obsPropArray, getNetcdfHelper().getFillValue());
-            varDataArrayMap.put(vObsProp, obsPropArray);
+            // obs prop data array, missing values are set to the fill value
+            varDataArrayMap.put(vObsProp, columns.getValueArray(obsProp));
         }
 
         // populate heights array for profile
@@ -478,58 +476,6 @@ public abstract class AbstractNetcdfEncoder
 
         }
 
-        // iterate through sensorDataset, set values
-        int timeCounter = 0;
-        for (Time time : sensorDataset.getTimes()) {
-            // set time value
-            Index timeIndex = timeArray.getIndex();
-            int timeIndexCounter = 0;
-            // if (hasDimension(timeDims, dFeatureTypeInstance)) {
-            // timeIndex.setDim(timeIndexCounter++, 0);
-            // }
-            if (hasDimension(timeDims, dTime)) {
-                timeIndex.setDim(timeIndexCounter++, timeCounter++);
-            }
-            timeArray.set(timeIndex, getTimeValue(time));
-
-            // data values
-            Map<OmObservableProperty, Map<SubSensor, Value<?>>> obsPropMap = sensorDataset.getDataValues().get(time);
-            for (Entry<OmObservableProperty, Map<SubSensor, Value<?>>> entry : obsPropMap.entrySet()) {
-                OmObservableProperty obsProp = entry.getKey();
-                Variable variable = obsPropVarMap.get(obsProp);
-                Array array = varDataArrayMap.get(variable);
-                for (Entry<SubSensor, Value<?>> subSensorEntry : obsPropMap.get(obsProp).entrySet()) {
-                    SubSensor subSensor = subSensorEntry.getKey();
-                    Value<?> value = subSensorEntry.getValue();
-                    Object valObj = value.getValue();
-                    if (!(valObj instanceof Number)) {
-                        throw new EncodingException("Value class %s not supported",
-                                valObj.getClass().getCanonicalName());
-                    }
-                    Index index = array.getIndex();
-                    int obsPropDimCounter = 0;
-                    for (Dimension dim : obsPropDims) {
-                        // if (dim.equals(dFeatureTypeInstance)){
-                        // feature type instance index
-                        // index.setDim(obsPropDimCounter++, 0);
-                        // } else if (dim.equals(dTime)){
-                        if (dim.equals(dTime)) {
-                            // time index dim
-                            index.setDim(obsPropDimCounter++, timeCounter - 1);
-                        } else if (dim.equals(dZ) && dim.getLength() > 1) {
-                            // height/depth index dim
-                            index.setDim(obsPropDimCounter++, sensorDataset.getSubSensors().indexOf(subSensor));
-                        }
-                    }
-                    if (array instanceof ArrayFloat) {
-                        ((ArrayFloat) array).set(index, ((Number) valObj).floatValue());
-                    } else {
-                        ((ArrayDouble) array).set(index, ((Number) valObj).doubleValue());
-                    }
-                }
-            }
-        }
-
         // create the empty netCDF with dims/vars/attributes defined
         variableArrayMap.put(vTime, timeArray);
         if (latArray != null) {
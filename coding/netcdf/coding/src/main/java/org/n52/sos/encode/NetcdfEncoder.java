@@ -27,7 +27,6 @@
  */
 package org.n52.sos.encode;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
@@ -48,6 +47,7 @@ import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.netcdf.NetcdfConstants;
 import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
 import org.n52.sos.netcdf.om.NetCDFObservation;
+import org.n52.sos.response.FileAttachmentResponse;
 import org.n52.svalbard.encode.EncoderKey;
 import org.n52.svalbard.encode.OperationResponseEncoderKey;
 import org.n52.svalbard.encode.exception.EncodingException;
@@ -55,7 +55,6 @@ import org.n52.svalbard.encode.exception.EncodingException;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 
 import ucar.nc2.NetcdfFileWriter.Version;
 
@@ -119,7 +118,7 @@ public class NetcdfEncoder extends AbstractBasicNetcdfEncoder {
     }
 
     protected BinaryAttachmentResponse encodeNetCDFObsToNetcdf(List<NetCDFObservation> netCDFObsList, Version version)
-            throws EncodingException {
+            throws EncodingException, IOException {
         if (CollectionHelper.isEmptyOrNull(netCDFObsList)) {
             throw new EncodingException("No feature types to encode");
         } else if (netCDFObsList.size() > 1) {
@@ -136,18 +135,20 @@ public class NetcdfEncoder extends AbstractBasicNetcdfEncoder {
         }
 
         AbstractSensorDataset sensorDataset = netCDFObservation.getSensorDatasets().get(0);
-        File tempDir = Files.createTempDir();
         String filename = getFilename(sensorDataset);
-        File netcdfFile = new File(tempDir, filename);
+        FileAttachmentResponse response = FileAttachmentResponse.createTemporary(getContentType(),
+                String.format(filename, makeDateSafe(new DateTime(DateTimeZone.UTC))), false);
         try {
-            encodeSensorDataToNetcdf(netcdfFile, sensorDataset, version);
-            return new BinaryAttachmentResponse(Files.toByteArray(netcdfFile), getContentType(),
-                    String.format(filename, makeDateSafe(new DateTime(DateTimeZone.UTC))));
+            encodeSensorDataToNetcdf(response.createFile(filename), sensorDataset, version);
         } catch (IOException e) {
+            response.close();
             throw new EncodingException("Couldn't create netCDF file", e);
-        } finally {
-            LOGGER.debug("Temporary file deleted: {}", tempDir.delete());
+        } catch (EncodingException | RuntimeException e) {
+            response.close();
+            throw e;
         }
+        LOGGER.debug("Encoded netCDF file to temporary directory {}", response.getDirectory());
+        return response;
     }
 
     private void throwTooManyFeatureTypesOrSensorsException(List<NetCDFObservation> netCDFObsList,
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.netcdf;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.n52.janmayen.function.ThrowingFunction;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
+import org.n52.sos.netcdf.data.subsensor.SubSensor;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+
+/**
+ * Columnar representation of the values of an {@link AbstractSensorDataset}.
+ * The time axis and the values of each observable property are collected in a
+ * single pass into primitive arrays, indexed by the position of the time in the
+ * sorted times of the dataset and the position of the sub sensor. The netCDF
+ * {@link Array}s returned by this class are backed by these arrays, so the
+ * values are neither boxed nor copied again.
+ *
+ * @since 6.1.2
+ *
+ */
+public final class SensorDatasetColumns {
+
+    private final double[] times;
+
+    private final int heightDepthSize;
+
+    private final DataType dataType;
+
+    private final Map<OmObservableProperty, Object> values;
+
+    private SensorDatasetColumns(double[] times, int heightDepthSize, DataType dataType,
+            Map<OmObservableProperty, Object> values) {
+        this.times = times;
+        this.heightDepthSize = heightDepthSize;
+        this.dataType = dataType;
+        this.values = values;
+    }
+
+    public int getTimeSize() {
+        return times.length;
+    }
+
+    public int getHeightDepthSize() {
+        return heightDepthSize;
+    }
+
+    public DataType getDataType() {
+        return dataType;
+    }
+
+    /**
+     * @return the one dimensional time array
+     */
+    public Array getTimeArray() {
+        return Array.factory(DataType.DOUBLE, new int[] { times.length }, times);
+    }
+
+    /**
+     * Get the values of the observable property with the shape
+     * <code>[time, height/depth]</code>. Missing values are set to the fill
+     * value.
+     *
+     * @param observableProperty
+     *            the observable property
+     * @return the value array or <code>null</code> if the dataset has no values
+     *         for the observable property
+     */
+    public Array getValueArray(OmObservableProperty observableProperty) {
+        Object storage = values.get(observableProperty);
+        if (storage == null) {
+            return null;
+        }
+        return Array.factory(dataType, new int[] { times.length, heightDepthSize }, storage);
+    }
+
+    /**
+     * Assemble the columns of the dataset.
+     *
+     * @param dataset
+     *            the dataset
+     * @param dataType
+     *            the data type of the value variables, {@link DataType#FLOAT}
+     *            or {@link DataType#DOUBLE}
+     * @param fillValue
+     *            the fill value for missing values
+     * @param timeConverter
+     *            the conversion of a time to its numeric value
+     * @return the columns
+     * @throws EncodingException
+     *             If a value is not numeric or the time could not be converted
+     */
+    public static SensorDatasetColumns assemble(AbstractSensorDataset dataset, DataType dataType,
+            double fillValue, ThrowingFunction<Time, Double, EncodingException> timeConverter)
+            throws EncodingException {
+        List<Time> sortedTimes = dataset.getTimes();
+        List<SubSensor> subSensors = dataset.getSubSensors();
+        int heightDepthSize = subSensors.isEmpty() ? 1 : subSensors.size();
+        Map<SubSensor, Integer> subSensorIndex = new HashMap<>(subSensors.size());
+        for (int i = 0; i < subSensors.size(); i++) {
+            subSensorIndex.put(subSensors.get(i), i);
+        }
+        boolean useFloat = DataType.FLOAT.equals(dataType);
+        int size = sortedTimes.size() * heightDepthSize;
+
+        double[] times = new double[sortedTimes.size()];
+        Map<OmObservableProperty, Object> values = new HashMap<>(dataset.getPhenomena().size());
+        for (OmObservableProperty observableProperty : dataset.getPhenomena()) {
+            values.put(observableProperty, createStorage(useFloat, size, fillValue));
+        }
+
+        for (int t = 0; t < times.length; t++) {
+            Time time = sortedTimes.get(t);
+            times[t] = timeConverter.apply(time);
+            Map<OmObservableProperty, Map<SubSensor, Value<?>>> obsPropMap = dataset.getDataValues().get(time);
+            if (obsPropMap == null) {
+                continue;
+            }
+            for (Entry<OmObservableProperty, Map<SubSensor, Value<?>>> entry : obsPropMap.entrySet()) {
+                Object storage = values.get(entry.getKey());
+                for (Entry<SubSensor, Value<?>> subSensorEntry : entry.getValue().entrySet()) {
+                    Object value = subSensorEntry.getValue().getValue();
+                    if (!(value instanceof Number)) {
+                        throw new EncodingException("Value class %s not supported",
+                                value.getClass().getCanonicalName());
+                    }
+                    int position = t * heightDepthSize
+                            + getHeightDepthIndex(subSensorIndex, subSensorEntry.getKey(), heightDepthSize);
+                    if (useFloat) {
+                        ((float[]) storage)[position] = ((Number) value).floatValue();
+                    } else {
+                        ((double[]) storage)[position] = ((Number) value).doubleValue();
+                    }
+                }
+            }
+        }
+        return new SensorDatasetColumns(times, heightDepthSize, useFloat ? DataType.FLOAT : DataType.DOUBLE,
+                values);
+    }
+
+    private static Object createStorage(boolean useFloat, int size, double fillValue) {
+        if (useFloat) {
+            float[] storage = new float[size];
+            Arrays.fill(storage, (float) fillValue);
+            return storage;
+        }
+        double[] storage = new double[size];
+        Arrays.fill(storage, fillValue);
+        return storage;
+    }
+
+    private static int getHeightDepthIndex(Map<SubSensor, Integer> subSensorIndex, SubSensor subSensor,
+            int heightDepthSize) throws EncodingException {
+        if (heightDepthSize == 1) {
+            return 0;
+        }
+        Integer index = subSensorIndex.get(subSensor);
+        if (index == null) {
+            throw new EncodingException("Value without height/depth in profile dataset");
+        }
+        return index;
+    }
+}
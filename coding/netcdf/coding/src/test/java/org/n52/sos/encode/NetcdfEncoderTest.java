@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.encode;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+import org.n52.shetland.ogc.sos.response.BinaryAttachmentResponse;
+import org.n52.shetland.util.DateTimeHelper;
+import org.n52.sos.netcdf.NetcdfHelper;
+import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
+import org.n52.sos.netcdf.data.dataset.IdentifierDatasetSensor;
+import org.n52.sos.netcdf.data.dataset.TimeSeriesProfileSensorDataset;
+import org.n52.sos.netcdf.data.subsensor.PointProfileSubSensor;
+import org.n52.sos.netcdf.data.subsensor.SubSensor;
+import org.n52.sos.netcdf.om.NetCDFObservation;
+import org.n52.sos.response.FileAttachmentResponse;
+
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.NetcdfFileWriter.Version;
+import ucar.nc2.constants.CF;
+
+/**
+ * Test that the time and value variables of the encoded netCDF file contain
+ * the dataset values at their sorted time and height position.
+ *
+ * @since 6.1.2
+ */
+public class NetcdfEncoderTest {
+
+    private static final double FILL_VALUE = -9999.9;
+
+    private static final String SENSOR = "sensor";
+
+    private static final OmObservableProperty TEMPERATURE =
+            new OmObservableProperty("sea_water_temperature", null, "Cel", null);
+
+    private static final DateTime START = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private static final int TIMES = 100;
+
+    // profile sub sensors are sorted by descending height
+    private static final List<Double> HEIGHTS = Arrays.asList(0.0, -5.0, -10.0);
+
+    private NetcdfEncoder encoder;
+
+    @Before
+    public void setUp() {
+        NetcdfHelper netcdfHelper = new NetcdfHelper();
+        netcdfHelper.setNetcdfVersion(Version.netcdf3.name());
+        netcdfHelper.setChunkSizeTime(1000);
+        netcdfHelper.setFillValue(FILL_VALUE);
+        netcdfHelper.setHeightDepth("height");
+        netcdfHelper.setVariableType("Double");
+        encoder = new TestNetcdfEncoder();
+        encoder.setNetcdfHelper(netcdfHelper);
+    }
+
+    @Test
+    public void shouldEncodeProfileValuesAtTimeAndHeightPosition() throws Exception {
+        Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> values = new HashMap<>();
+        double[] expectedTimes = new double[TIMES];
+        double[] expectedValues = new double[TIMES * HEIGHTS.size()];
+        Arrays.fill(expectedValues, FILL_VALUE);
+        // insert in reverse order, the encoded values are sorted by time
+        for (int t = TIMES - 1; t >= 0; t--) {
+            DateTime time = START.plusMinutes(t);
+            expectedTimes[t] = DateTimeHelper.getSecondsSinceEpoch(time);
+            Map<SubSensor, Value<?>> profile = new HashMap<>();
+            for (int h = 0; h < HEIGHTS.size(); h++) {
+                // leave gaps to check the fill values
+                if ((t + h) % 4 != 0) {
+                    double value = t + h / 10.0;
+                    profile.put(new PointProfileSubSensor(HEIGHTS.get(h)), new QuantityValue(value, "Cel"));
+                    expectedValues[t * HEIGHTS.size() + h] = value;
+                }
+            }
+            values.put(new TimeInstant(time), Collections.singletonMap(TEMPERATURE, profile));
+        }
+
+        BinaryAttachmentResponse response =
+                encoder.encodeNetCDFObsToNetcdf(Collections.singletonList(createObservation(values)),
+                        Version.netcdf3);
+
+        assertThat(response, instanceOf(FileAttachmentResponse.class));
+        FileAttachmentResponse fileResponse = (FileAttachmentResponse) response;
+        try {
+            assertThat(fileResponse.getFiles().size(), is(1));
+            File file = fileResponse.getFiles().get(0);
+            try (NetcdfFile netcdfFile = NetcdfFile.open(file.getAbsolutePath())) {
+                assertArrayEquals(expectedTimes,
+                        (double[]) netcdfFile.findVariable("time").read().copyTo1DJavaArray(), 0.0);
+                assertArrayEquals(new int[] { TIMES, HEIGHTS.size() },
+                        netcdfFile.findVariable(TEMPERATURE.getIdentifier()).getShape());
+                assertArrayEquals(expectedValues, (double[]) netcdfFile.findVariable(TEMPERATURE.getIdentifier())
+                        .read().copyTo1DJavaArray(), 0.0);
+            }
+        } finally {
+            fileResponse.close();
+        }
+    }
+
+    private NetCDFObservation createObservation(
+            Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> values) {
+        org.n52.shetland.ogc.sensorML.System system = new org.n52.shetland.ogc.sensorML.System();
+        system.setIdentifier(SENSOR);
+        AbstractSensorDataset dataset = new TimeSeriesProfileSensorDataset(new IdentifierDatasetSensor(SENSOR), 7.0,
+                52.0, values, new SosProcedureDescription<>(system));
+        return new NetCDFObservation(CF.FeatureType.timeSeriesProfile,
+                new TimePeriod(START, START.plusMinutes(TIMES - 1)), Collections.singletonMap(SENSOR, dataset),
+                Collections.singleton(TEMPERATURE), null);
+    }
+
+    private static class TestNetcdfEncoder extends NetcdfEncoder {
+
+        @Override
+        protected boolean addPublisher(NetcdfFileWriter writer, AbstractSensorDataset sensorDataset) {
+            // no service metadata available
+            return false;
+        }
+
+        @Override
+        protected boolean addContributor(NetcdfFileWriter writer, AbstractSensorDataset sensorDataset) {
+            // no service metadata available
+            return false;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.encode;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+import org.n52.shetland.ogc.sos.response.BinaryAttachmentResponse;
+import org.n52.sos.coding.encode.BinaryAttachmentResponseWriter;
+import org.n52.sos.netcdf.NetcdfHelper;
+import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
+import org.n52.sos.netcdf.data.dataset.IdentifierDatasetSensor;
+import org.n52.sos.netcdf.data.dataset.TimeSeriesSensorDataset;
+import org.n52.sos.netcdf.data.subsensor.SubSensor;
+import org.n52.sos.netcdf.om.NetCDFObservation;
+import org.n52.sos.response.FileAttachmentResponse;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+import com.google.common.collect.Maps;
+
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.NetcdfFileWriter.Version;
+import ucar.nc2.constants.CF;
+
+/**
+ * Test for the streamed netCDF zip encoding. This test is run by a separate
+ * surefire execution of this module with a capped heap, so the encoded
+ * response is larger than the available memory.
+ *
+ * @since 6.1.2
+ */
+public class NetcdfZipEncoderTest {
+
+    private static final long MAX_CAPPED_HEAP = 256L * 1024 * 1024;
+
+    private static final int TIMES = 20000;
+
+    private static final OmObservableProperty OBSERVABLE_PROPERTY =
+            new OmObservableProperty("sea_water_temperature", null, "Cel", null);
+
+    private static final DateTime START = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private NetcdfZipEncoder encoder;
+
+    @Before
+    public void setUp() {
+        NetcdfHelper netcdfHelper = new NetcdfHelper();
+        netcdfHelper.setNetcdfVersion(Version.netcdf3.name());
+        netcdfHelper.setChunkSizeTime(1000);
+        netcdfHelper.setFillValue(-9999.9);
+        netcdfHelper.setHeightDepth("height");
+        netcdfHelper.setVariableType("Double");
+        encoder = new TestNetcdfZipEncoder();
+        encoder.setNetcdfHelper(netcdfHelper);
+    }
+
+    @Test
+    public void shouldStreamMultiStationResponseLargerThanHeap() throws Exception {
+        long maxMemory = Runtime.getRuntime().maxMemory();
+        Assume.assumeTrue("Requires the capped heap of the surefire configuration", maxMemory <= MAX_CAPPED_HEAP);
+        // each station file contains at least the time and the value variable
+        int stations = (int) (maxMemory / (TIMES * 2L * Double.BYTES)) + 1;
+        BinaryAttachmentResponse response =
+                encoder.encodeNetCDFObsToNetcdf(Collections.singletonList(createObservation(stations)),
+                        Version.netcdf3);
+
+        assertThat(response, instanceOf(FileAttachmentResponse.class));
+        File directory = ((FileAttachmentResponse) response).getDirectory();
+        assertThat(directory.exists(), is(true));
+
+        File zip = folder.newFile("response.zip");
+        try (OutputStream out = new FileOutputStream(zip)) {
+            new BinaryAttachmentResponseWriter(null).write(response, out);
+        }
+        assertThat(directory.exists(), is(false));
+
+        long size = 0;
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            assertThat(zipFile.size(), is(stations));
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                assertThat(readMagicNumber(zipFile, entry), is("CDF"));
+                size += entry.getSize();
+            }
+        }
+        assertThat(size, greaterThan(maxMemory));
+    }
+
+    @Test
+    public void shouldDeleteTemporaryFilesIfEncodingFails() throws Exception {
+        FailingNetcdfZipEncoder failingEncoder = new FailingNetcdfZipEncoder();
+        failingEncoder.setNetcdfHelper(encoder.getNetcdfHelper());
+        try {
+            failingEncoder.encodeNetCDFObsToNetcdf(Collections.singletonList(createObservation(2)),
+                    Version.netcdf3);
+            fail("Expected encoding to fail");
+        } catch (EncodingException e) {
+            assertThat(e.getCause(), instanceOf(IOException.class));
+        }
+        assertThat(failingEncoder.getNetcdfFile().getParentFile().exists(), is(false));
+    }
+
+    private NetCDFObservation createObservation(int stations) {
+        Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> values = Maps.newHashMap();
+        for (int i = 0; i < TIMES; i++) {
+            Map<SubSensor, Value<?>> value = Collections.singletonMap(null, new QuantityValue(Math.sin(i), "Cel"));
+            values.put(new TimeInstant(START.plusMinutes(i)), Collections.singletonMap(OBSERVABLE_PROPERTY, value));
+        }
+        // the values are shared by the stations to keep the test data small
+        Map<String, AbstractSensorDataset> datasets = new LinkedHashMap<>();
+        for (int i = 0; i < stations; i++) {
+            String station = "station_" + i;
+            org.n52.shetland.ogc.sensorML.System system = new org.n52.shetland.ogc.sensorML.System();
+            system.setIdentifier(station);
+            datasets.put(station, new TimeSeriesSensorDataset(new IdentifierDatasetSensor(station), 7.0 + i,
+                    52.0, 0.0, values, new SosProcedureDescription<>(system)));
+        }
+        return new NetCDFObservation(CF.FeatureType.timeSeries,
+                new TimePeriod(START, START.plusMinutes(TIMES - 1)), datasets,
+                Collections.singleton(OBSERVABLE_PROPERTY), null);
+    }
+
+    private String readMagicNumber(ZipFile zipFile, ZipEntry entry) throws IOException {
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            byte[] magic = new byte[3];
+            int read = in.read(magic);
+            return new String(magic, 0, Math.max(read, 0), StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static class TestNetcdfZipEncoder extends NetcdfZipEncoder {
+
+        @Override
+        protected boolean addPublisher(NetcdfFileWriter writer, AbstractSensorDataset sensorDataset) {
+            // no service metadata available
+            return false;
+        }
+
+        @Override
+        protected boolean addContributor(NetcdfFileWriter writer, AbstractSensorDataset sensorDataset) {
+            // no service metadata available
+            return false;
+        }
+    }
+
+    private static class FailingNetcdfZipEncoder extends TestNetcdfZipEncoder {
+
+        private File netcdfFile;
+
+        @Override
+        protected void encodeSensorDataToNetcdf(File netcdfFile, AbstractSensorDataset sensorDataset,
+                Version version) throws IOException {
+            if (this.netcdfFile != null) {
+                throw new IOException("Test failure");
+            }
+            this.netcdfFile = netcdfFile;
+            try (OutputStream out = new FileOutputStream(netcdfFile)) {
+                out.write(new byte[] { 'C', 'D', 'F', 1 });
+            }
+        }
+
+        File getNetcdfFile() {
+            return netcdfFile;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.netcdf;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.TextValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.util.DateTimeHelper;
+import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
+import org.n52.sos.netcdf.data.dataset.IdentifierDatasetSensor;
+import org.n52.sos.netcdf.data.dataset.TimeSeriesProfileSensorDataset;
+import org.n52.sos.netcdf.data.dataset.TimeSeriesSensorDataset;
+import org.n52.sos.netcdf.data.subsensor.PointProfileSubSensor;
+import org.n52.sos.netcdf.data.subsensor.SubSensor;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+import ucar.ma2.Array;
+import ucar.ma2.ArrayDouble;
+import ucar.ma2.ArrayFloat;
+import ucar.ma2.DataType;
+import ucar.ma2.Index;
+import ucar.ma2.IndexIterator;
+
+/**
+ * Compares the {@link SensorDatasetColumns} with the previous assembly of the
+ * netCDF arrays by {@link Index} and boxed values.
+ *
+ * @since 6.1.2
+ */
+public class SensorDatasetColumnsTest {
+
+    private static final double FILL_VALUE = -9999.9;
+
+    private static final DateTime START = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private static final OmObservableProperty TEMPERATURE = new OmObservableProperty("sea_water_temperature");
+
+    private static final OmObservableProperty SALINITY = new OmObservableProperty("sea_water_salinity");
+
+    @Test
+    public void shouldAssembleProfileLikePreviousEncoding() throws EncodingException {
+        AbstractSensorDataset dataset = createProfileDataset();
+        for (DataType dataType : Arrays.asList(DataType.DOUBLE, DataType.FLOAT)) {
+            SensorDatasetColumns columns = SensorDatasetColumns.assemble(dataset, dataType, FILL_VALUE,
+                    this::getTimeValue);
+
+            assertThat(columns.getHeightDepthSize(), is(3));
+            assertThat(columns.getTimeSize(), is(dataset.getTimes().size()));
+            assertArrayEquals((double[]) getLegacyTimeArray(dataset).copyTo1DJavaArray(),
+                    (double[]) columns.getTimeArray().copyTo1DJavaArray(), 0.0);
+            for (OmObservableProperty observableProperty : dataset.getPhenomena()) {
+                assertEquals(getLegacyValueArray(dataset, observableProperty, dataType),
+                        columns.getValueArray(observableProperty));
+            }
+        }
+    }
+
+    @Test
+    public void shouldAssembleTimeSeriesLikePreviousEncoding() throws EncodingException {
+        Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> values = new HashMap<>();
+        // insert in reverse order, the columns are sorted by time
+        for (int i = 99; i >= 0; i--) {
+            put(values, i, TEMPERATURE, null, 10.0 + i / 10.0);
+            if (i % 3 != 0) {
+                put(values, i, SALINITY, null, 35.0 - i / 100.0);
+            }
+        }
+        AbstractSensorDataset dataset = new TimeSeriesSensorDataset(new IdentifierDatasetSensor("sensor"), 7.0,
+                52.0, 0.0, values, null);
+
+        SensorDatasetColumns columns = SensorDatasetColumns.assemble(dataset, DataType.DOUBLE, FILL_VALUE,
+                this::getTimeValue);
+
+        assertThat(columns.getHeightDepthSize(), is(1));
+        assertArrayEquals((double[]) getLegacyTimeArray(dataset).copyTo1DJavaArray(),
+                (double[]) columns.getTimeArray().copyTo1DJavaArray(), 0.0);
+        assertEquals(getLegacyValueArray(dataset, TEMPERATURE, DataType.DOUBLE),
+                columns.getValueArray(TEMPERATURE));
+        assertEquals(getLegacyValueArray(dataset, SALINITY, DataType.DOUBLE), columns.getValueArray(SALINITY));
+        assertThat(columns.getValueArray(new OmObservableProperty("unknown")), is(nullValue()));
+    }
+
+    @Test(expected = EncodingException.class)
+    public void shouldRejectNonNumericValues() throws EncodingException {
+        Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> values = new HashMap<>();
+        Map<SubSensor, Value<?>> value = new HashMap<>();
+        value.put(null, new TextValue("text"));
+        values.computeIfAbsent(new TimeInstant(START), t -> new HashMap<>()).put(TEMPERATURE, value);
+        SensorDatasetColumns.assemble(new TimeSeriesSensorDataset(new IdentifierDatasetSensor("sensor"), 7.0, 52.0,
+                0.0, values, null), DataType.DOUBLE, FILL_VALUE, this::getTimeValue);
+    }
+
+    private AbstractSensorDataset createProfileDataset() {
+        Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> values = new HashMap<>();
+        SubSensor[] heights = { new PointProfileSubSensor(-10.0), new PointProfileSubSensor(-5.0),
+            new PointProfileSubSensor(0.0) };
+        for (int i = 0; i < 50; i++) {
+            for (int h = 0; h < heights.length; h++) {
+                // leave gaps to check the fill values
+                if ((i + h) % 4 != 0) {
+                    put(values, i, TEMPERATURE, heights[h], 10.0 + i + h / 10.0);
+                }
+                if ((i * h) % 5 != 1) {
+                    put(values, i, SALINITY, heights[h], 35.0 - h - i / 100.0);
+                }
+            }
+        }
+        return new TimeSeriesProfileSensorDataset(new IdentifierDatasetSensor("sensor"), 7.0, 52.0, values, null);
+    }
+
+    private void put(Map<Time, Map<OmObservableProperty, Map<SubSensor, Value<?>>>> values, int minutes,
+            OmObservableProperty observableProperty, SubSensor subSensor, double value) {
+        values.computeIfAbsent(new TimeInstant(START.plusMinutes(minutes)), t -> new HashMap<>())
+                .computeIfAbsent(observableProperty, p -> new HashMap<>())
+                .put(subSensor, new QuantityValue(value, "unit"));
+    }
+
+    private Double getTimeValue(Time time) {
+        return DateTimeHelper.getSecondsSinceEpoch(((TimeInstant) time).getValue());
+    }
+
+    private void assertEquals(Array expected, Array actual) {
+        assertArrayEquals(expected.getShape(), actual.getShape());
+        assertThat(actual.getDataType(), is(expected.getDataType()));
+        if (expected instanceof ArrayFloat) {
+            assertArrayEquals((float[]) expected.copyTo1DJavaArray(), (float[]) actual.copyTo1DJavaArray(), 0f);
+        } else {
+            assertArrayEquals((double[]) expected.copyTo1DJavaArray(), (double[]) actual.copyTo1DJavaArray(), 0.0);
+        }
+    }
+
+    /*
+     * previous time array assembly of the AbstractNetcdfEncoder
+     */
+    private Array getLegacyTimeArray(AbstractSensorDataset dataset) {
+        ArrayDouble timeArray = new ArrayDouble(new int[] { dataset.getTimes().size() });
+        initArrayWithFillValue(timeArray);
+        int timeCounter = 0;
+        for (Time time : dataset.getTimes()) {
+            Index timeIndex = timeArray.getIndex();
+            timeIndex.setDim(0, timeCounter++);
+            timeArray.set(timeIndex, getTimeValue(time));
+        }
+        return timeArray;
+    }
+
+    /*
+     * previous value array assembly of the AbstractNetcdfEncoder
+     */
+    private Array getLegacyValueArray(AbstractSensorDataset dataset, OmObservableProperty observableProperty,
+            DataType dataType) {
+        List<SubSensor> subSensors = dataset.getSubSensors();
+        int[] shape = { dataset.getTimes().size(), subSensors.isEmpty() ? 1 : subSensors.size() };
+        Array array = DataType.FLOAT.equals(dataType) ? new ArrayFloat(shape) : new ArrayDouble(shape);
+        initArrayWithFillValue(array);
+        int timeCounter = 0;
+        for (Time time : dataset.getTimes()) {
+            timeCounter++;
+            Map<SubSensor, Value<?>> subSensorMap = dataset.getDataValues().get(time).get(observableProperty);
+            if (subSensorMap == null) {
+                continue;
+            }
+            for (Entry<SubSensor, Value<?>> subSensorEntry : subSensorMap.entrySet()) {
+                Number value = (Number) subSensorEntry.getValue().getValue();
+                Index index = array.getIndex();
+                index.setDim(0, timeCounter - 1);
+                if (shape[1] > 1) {
+                    index.setDim(1, subSensors.indexOf(subSensorEntry.getKey()));
+                }
+                if (array instanceof ArrayFloat) {
+                    ((ArrayFloat) array).set(index, value.floatValue());
+                } else {
+                    ((ArrayDouble) array).set(index, value.doubleValue());
+                }
+            }
+        }
+        return array;
+    }
+
+    private void initArrayWithFillValue(Array array) {
+        IndexIterator indexIterator = array.getIndexIterator();
+        while (indexIterator.hasNext()) {
+            indexIterator.setObjectNext(FILL_VALUE);
+        }
+    }
+}
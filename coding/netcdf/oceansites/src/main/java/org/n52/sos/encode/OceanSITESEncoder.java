@@ -27,7 +27,6 @@
  */
 package org.n52.sos.encode;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
@@ -48,6 +47,7 @@ import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.netcdf.data.dataset.AbstractSensorDataset;
 import org.n52.sos.netcdf.oceansites.OceanSITESConstants;
 import org.n52.sos.netcdf.om.NetCDFObservation;
+import org.n52.sos.response.FileAttachmentResponse;
 import org.n52.svalbard.encode.EncoderKey;
 import org.n52.svalbard.encode.OperationResponseEncoderKey;
 import org.n52.svalbard.encode.exception.EncodingException;
@@ -55,7 +55,6 @@ import org.n52.svalbard.encode.exception.EncodingException;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 
 import ucar.nc2.NetcdfFileWriter.Version;
 
@@ -140,19 +139,16 @@ public class OceanSITESEncoder extends AbstractOceanSITESEncoder {
         }
 
         AbstractSensorDataset sensorDataset = netCDFObservation.getSensorDatasets().get(0);
-        File tempDir = Files.createTempDir();
         String filename = getFilename(sensorDataset);
-        File netcdfFile = new File(tempDir, filename);
-        encodeSensorDataToNetcdf(netcdfFile, sensorDataset, version);
-
-        BinaryAttachmentResponse response = null;
+        FileAttachmentResponse response = FileAttachmentResponse.createTemporary(getContentType(),
+                String.format(filename, makeDateSafe(new DateTime(DateTimeZone.UTC))), false);
         try {
-            response = new BinaryAttachmentResponse(Files.toByteArray(netcdfFile), getContentType(),
-                    String.format(filename, makeDateSafe(new DateTime(DateTimeZone.UTC))));
-        } finally {
-            LOGGER.debug("Temporary file deleted: {}", tempDir.delete());
+            encodeSensorDataToNetcdf(response.createFile(filename), sensorDataset, version);
+        } catch (EncodingException | IOException | RuntimeException e) {
+            response.close();
+            throw e;
         }
-
+        LOGGER.debug("Encoded netCDF file to temporary directory {}", response.getDirectory());
         return response;
     }
 
@@ -29,6 +29,7 @@ package org.n52.sos.converter;
 
 import static java.util.stream.Collectors.toList;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -941,8 +942,11 @@ public class CoordinateTransformator implements RequestResponseModifier, Constru
 
     private void checkMultiPointCoverageForGeometry(MultiPointCoverage value, int targetCRS)
             throws OwsExceptionReport {
-        for (PointValuePair pvp : value.getValue()) {
-            pvp.setPoint((Point) getGeomtryHandler().transform(pvp.getPoint(), targetCRS));
+        List<PointValuePair> pointValuePairs = value.getValue();
+        List<Geometry> points = getGeomtryHandler()
+                .transform(pointValuePairs.stream().map(PointValuePair::getPoint).collect(toList()), targetCRS);
+        for (int i = 0; i < pointValuePairs.size(); i++) {
+            pointValuePairs.get(i).setPoint((Point) points.get(i));
         }
     }
 
@@ -952,8 +956,11 @@ public class CoordinateTransformator implements RequestResponseModifier, Constru
     }
 
     private void checkTLVTValueForGeometry(TLVTValue value, int targetCRS) throws OwsExceptionReport {
-        for (TimeLocationValueTriple tlvt : value.getValue()) {
-            tlvt.setLocation(getGeomtryHandler().transform(tlvt.getLocation(), targetCRS));
+        List<TimeLocationValueTriple> triples = value.getValue();
+        List<Geometry> locations = getGeomtryHandler()
+                .transform(triples.stream().map(TimeLocationValueTriple::getLocation).collect(toList()), targetCRS);
+        for (int i = 0; i < triples.size(); i++) {
+            triples.get(i).setLocation(locations.get(i));
         }
     }
 
@@ -1017,18 +1024,52 @@ public class CoordinateTransformator implements RequestResponseModifier, Constru
         if (feature != null) {
             if (feature instanceof FeatureCollection) {
                 FeatureCollection featureCollection = (FeatureCollection) feature;
+                List<AbstractSamplingFeature> features = new ArrayList<>();
+                List<AbstractSamplingFeature> features3D = new ArrayList<>();
                 for (AbstractFeature abstractFeature : featureCollection.getMembers().values()) {
-                    if (abstractFeature instanceof AbstractSamplingFeature) {
-                        checkResponseGeometryOfSamplingFeature((AbstractSamplingFeature) abstractFeature, targetCRS,
-                                target3DCRS);
+                    if (abstractFeature instanceof AbstractSamplingFeature
+                            && ((AbstractSamplingFeature) abstractFeature).isSetGeometry()) {
+                        AbstractSamplingFeature samplingFeature = (AbstractSamplingFeature) abstractFeature;
+                        if (Double.isNaN(samplingFeature.getGeometry().getCoordinate().z)) {
+                            features.add(samplingFeature);
+                        } else {
+                            features3D.add(samplingFeature);
+                        }
                     }
                 }
+                transformGeometryOfSamplingFeatures(features, targetCRS);
+                transformGeometryOfSamplingFeatures(features3D, target3DCRS);
             } else if (feature instanceof AbstractSamplingFeature) {
                 checkResponseGeometryOfSamplingFeature((AbstractSamplingFeature) feature, targetCRS, target3DCRS);
             }
         }
     }
 
+    /**
+     * Transform the geometries of the {@link SamplingFeature}s together to the
+     * target EPSG code
+     *
+     * @param samplingFeatures
+     *            the {@link SamplingFeature}s with geometry
+     * @param targetCRS
+     *            Target EPSG code
+     * @throws OwsExceptionReport
+     *             If the transformation fails
+     */
+    private void transformGeometryOfSamplingFeatures(List<AbstractSamplingFeature> samplingFeatures, int targetCRS)
+            throws OwsExceptionReport {
+        if (samplingFeatures.isEmpty()) {
+            return;
+        }
+        List<Geometry> geometries = getGeomtryHandler().transform(
+                samplingFeatures.stream().map(AbstractSamplingFeature::getGeometry).collect(toList()), targetCRS);
+        for (int i = 0; i < samplingFeatures.size(); i++) {
+            if (geometries.get(i) != samplingFeatures.get(i).getGeometry()) {
+                samplingFeatures.get(i).setGeometry(geometries.get(i));
+            }
+        }
+    }
+
     /**
      * Checks if the O&M parameter contains a geometry and transform to target
      * EPSG code, e.g. SOS 2.0 Spatial Filtering Profile
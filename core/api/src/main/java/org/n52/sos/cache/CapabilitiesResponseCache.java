@@ -0,0 +1,398 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.n52.faroe.SettingsChangeEvent;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.janmayen.http.MediaType;
+import org.n52.shetland.ogc.ows.extension.Extension;
+import org.n52.shetland.ogc.ows.extension.Value;
+import org.n52.shetland.ogc.ows.service.GetCapabilitiesRequest;
+
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+/**
+ * Bounded cache of encoded dynamic GetCapabilities responses, keyed by
+ * service, version, sections, language, acceptFormats, request extensions,
+ * request and response content type and the visibility of transactional
+ * operations. Each entry holds the encoded document and the lazily created
+ * gzip and deflate variants together with their entity tags.
+ *
+ * The entries are only valid for the updateSequence (the last update time of
+ * the content cache) they were created for. The cache is cleared if the
+ * updateSequence changes or if settings are changed. Changes that are made in
+ * the administration interface without a settings change (e.g. the activation
+ * of operations or edited capabilities extensions) have to {@link #clear()}
+ * the cache explicitly.
+ *
+ * @since 6.1.2
+ *
+ */
+@Configurable
+public class CapabilitiesResponseCache implements EventListener {
+
+    public static final String CACHE_SIZE = "service.capabilities.responseCacheSize";
+
+    private static final Set<Class<? extends Event>> TYPES = Collections.singleton(SettingsChangeEvent.class);
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Cache<Key, Entry> cache;
+
+    private volatile String updateSequence;
+
+    @Setting(value = CACHE_SIZE, required = false)
+    public void setCacheSize(Integer size) {
+        if (size != null && size > 0) {
+            this.cache = CacheBuilder.newBuilder().maximumSize(size).build();
+        } else {
+            this.cache = null;
+        }
+        generation.incrementAndGet();
+    }
+
+    /**
+     * @return <code>true</code>, if responses are cached
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Create the cache key for the request.
+     *
+     * @param request
+     *            the GetCapabilities request with negotiated version
+     * @param showTransactionalOperations
+     *            if transactional operations are shown
+     * @return the key or <code>null</code> if the cache is disabled or the
+     *         request contains extensions without simple values
+     */
+    public Key createKey(GetCapabilitiesRequest request, boolean showTransactionalOperations) {
+        if (!isEnabled()) {
+            return null;
+        }
+        SortedSet<String> extensions = new TreeSet<>();
+        for (Extension<?> extension : request.getExtensions().getExtensions()) {
+            Object value = extension.getValue();
+            if (value instanceof Value) {
+                value = ((Value<?, ?>) value).getValue();
+            }
+            if (value != null && !(value instanceof String || value instanceof Number || value instanceof Boolean)) {
+                return null;
+            }
+            extensions.add(extension.getNamespace() + '|' + extension.getIdentifier() + '|'
+                    + extension.getDefinition() + '|' + value);
+        }
+        return new Key(request, showTransactionalOperations, extensions, generation.get());
+    }
+
+    /**
+     * Get the cached response for the key.
+     *
+     * @param key
+     *            the cache key
+     * @param currentUpdateSequence
+     *            the current updateSequence
+     * @return the cached response or <code>null</code> if it is not cached or
+     *         stale
+     */
+    public Entry get(Key key, String currentUpdateSequence) {
+        Cache<Key, Entry> current = this.cache;
+        if (current == null || key == null) {
+            return null;
+        }
+        checkUpdateSequence(currentUpdateSequence);
+        Entry entry = current.getIfPresent(key);
+        if (entry != null && !Objects.equals(entry.getUpdateSequence(), currentUpdateSequence)) {
+            current.invalidate(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Cache the encoded response. The response is not cached if the cache was
+     * cleared since the key was created.
+     *
+     * @param key
+     *            the cache key
+     * @param responseUpdateSequence
+     *            the updateSequence of the response
+     * @param document
+     *            the encoded document
+     * @return the entry for the document
+     */
+    public Entry put(Key key, String responseUpdateSequence, byte[] document) {
+        Entry entry = new Entry(responseUpdateSequence, document);
+        Cache<Key, Entry> current = this.cache;
+        if (current != null && key != null && key.generation == generation.get()
+                && Objects.equals(responseUpdateSequence, updateSequence)) {
+            current.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    public long size() {
+        Cache<Key, Entry> current = this.cache;
+        return current != null ? current.size() : 0;
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        Cache<Key, Entry> current = this.cache;
+        if (current != null) {
+            current.invalidateAll();
+        }
+    }
+
+    private void checkUpdateSequence(String currentUpdateSequence) {
+        if (!Objects.equals(currentUpdateSequence, updateSequence)) {
+            // stale responses are rejected by the updateSequence check in put()
+            updateSequence = currentUpdateSequence;
+            Cache<Key, Entry> current = this.cache;
+            if (current != null) {
+                current.invalidateAll();
+            }
+        }
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return TYPES;
+    }
+
+    @Override
+    public void handle(Event event) {
+        clear();
+    }
+
+    /**
+     * HTTP content codings of the cached documents.
+     */
+    public enum ContentCoding {
+        IDENTITY(""),
+        GZIP("gzip"),
+        DEFLATE("deflate");
+
+        private final String name;
+
+        ContentCoding(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the HTTP name of the coding
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Encoded capabilities document with its compressed variants.
+     */
+    public static final class Entry {
+        private final String updateSequence;
+        private final byte[] document;
+        private final String etag;
+        private volatile byte[] gzip;
+        private volatile byte[] deflate;
+
+        Entry(String updateSequence, byte[] document) {
+            this.updateSequence = updateSequence;
+            this.document = document.clone();
+            this.etag = Hashing.murmur3_128().hashBytes(document).toString();
+        }
+
+        public String getUpdateSequence() {
+            return updateSequence;
+        }
+
+        /**
+         * Get the document in the coding. Compressed variants are created once.
+         *
+         * @param coding
+         *            the content coding
+         * @return the document bytes, must not be modified
+         */
+        public byte[] getDocument(ContentCoding coding) {
+            switch (coding) {
+                case GZIP:
+                    if (gzip == null) {
+                        gzip = compress(GZIPOutputStream::new);
+                    }
+                    return gzip;
+                case DEFLATE:
+                    if (deflate == null) {
+                        deflate = compress(DeflaterOutputStream::new);
+                    }
+                    return deflate;
+                default:
+                    return document;
+            }
+        }
+
+        /**
+         * @param coding
+         *            the content coding
+         * @return the quoted strong entity tag of the document in the coding
+         */
+        public String getETag(ContentCoding coding) {
+            if (coding == ContentCoding.IDENTITY) {
+                return '"' + etag + '"';
+            }
+            return '"' + etag + '-' + coding.getName() + '"';
+        }
+
+        /**
+         * Check if an entity tag of the If-None-Match header matches any coding
+         * of this document.
+         *
+         * @param ifNoneMatch
+         *            the If-None-Match header value
+         * @return <code>true</code>, if the client has a current copy
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+                return false;
+            }
+            for (String tag : Splitter.on(',').trimResults().omitEmptyStrings().split(ifNoneMatch)) {
+                if ("*".equals(tag)) {
+                    return true;
+                }
+                String strong = tag.startsWith("W/") ? tag.substring(2) : tag;
+                for (ContentCoding coding : ContentCoding.values()) {
+                    if (getETag(coding).equals(strong)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private byte[] compress(Compressor compressor) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(document.length / 4 + 64);
+            try (OutputStream compressed = compressor.create(out)) {
+                compressed.write(document);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Compressor {
+        OutputStream create(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Key of a cached GetCapabilities response.
+     */
+    public static final class Key {
+        private final String service;
+        private final String version;
+        private final List<String> sections;
+        private final String language;
+        private final List<String> acceptFormats;
+        private final SortedSet<String> extensions;
+        private final String requestContentType;
+        private final List<MediaType> acceptType;
+        private final boolean showTransactionalOperations;
+        private final long generation;
+
+        Key(GetCapabilitiesRequest request, boolean showTransactionalOperations, SortedSet<String> extensions,
+                long generation) {
+            this.service = request.getService();
+            this.version = request.getVersion();
+            this.sections = request.isSetSections() ? new ArrayList<>(request.getSections()) : null;
+            this.language = request.getRequestedLanguage();
+            this.acceptFormats = request.isSetAcceptFormats() ? new ArrayList<>(request.getAcceptFormats()) : null;
+            this.extensions = extensions;
+            if (request.isSetRequestContext()) {
+                this.requestContentType = request.getRequestContext().getContentType().orElse(null);
+                this.acceptType = request.getRequestContext().getAcceptType().orElse(null);
+            } else {
+                this.requestContentType = null;
+                this.acceptType = null;
+            }
+            this.showTransactionalOperations = showTransactionalOperations;
+            this.generation = generation;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(service, version, sections, language, acceptFormats, extensions,
+                    requestContentType, acceptType, showTransactionalOperations);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(service, other.service) && Objects.equals(version, other.version)
+                    && Objects.equals(sections, other.sections) && Objects.equals(language, other.language)
+                    && Objects.equals(acceptFormats, other.acceptFormats)
+                    && Objects.equals(extensions, other.extensions)
+                    && Objects.equals(requestContentType, other.requestContentType)
+                    && Objects.equals(acceptType, other.acceptType)
+                    && showTransactionalOperations == other.showTransactionalOperations;
+        }
+    }
+
+}
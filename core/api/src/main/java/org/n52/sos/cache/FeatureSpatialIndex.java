@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventListener;
+import org.n52.janmayen.function.ThrowingFunction;
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.event.events.CompleteCacheUpdateEvent;
+import org.n52.sos.event.events.DeleteObservationEvent;
+import org.n52.sos.event.events.FeatureInsertion;
+import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.event.events.ResultInsertion;
+import org.n52.sos.event.events.ResultTemplateInsertion;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.sos.event.events.UpdateCache;
+
+import com.google.common.collect.Sets;
+
+/**
+ * In-memory spatial index of the featureOfInterest geometries for datasources
+ * without spatial support. The geometries are stored in a JTS {@link STRtree}
+ * together with their precomputed envelopes, so that spatial filters can be
+ * answered by an index lookup followed by an exact geometry check and feature
+ * envelopes can be aggregated without loading the features.
+ *
+ * The index is (re)built by the first query after a complete update of the
+ * content cache. Features of inserted or deleted observations, inserted
+ * results and result templates and inserted features are reloaded by the next
+ * query, the deletion of sensors invalidates the whole index. As an
+ * {@link STRtree} can not be modified after it is built, updated features are
+ * kept in a separate list until the tree is rebuilt.
+ *
+ * @since 6.1.2
+ *
+ */
+@Configurable
+public class FeatureSpatialIndex implements EventListener {
+
+    public static final String ENABLED = "service.nonSpatialDatasource.featureIndex";
+
+    private static final int NODE_CAPACITY = 10;
+
+    private static final int MIN_REBUILD_THRESHOLD = 1024;
+
+    @SuppressWarnings("unchecked")
+    private static final Set<Class<? extends Event>> TYPES =
+            Collections.unmodifiableSet(Sets.<Class<? extends Event>> newHashSet(FeatureInsertion.class,
+                    ObservationInsertion.class, ResultInsertion.class, ResultTemplateInsertion.class,
+                    DeleteObservationEvent.class, SensorDeletion.class, UpdateCache.class,
+                    CompleteCacheUpdateEvent.class));
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private final List<Entry> pending = new ArrayList<>();
+
+    private STRtree tree;
+
+    private volatile long builtGeneration = -1;
+
+    private volatile boolean enabled = true;
+
+    @Setting(value = ENABLED, required = false)
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled == null || enabled;
+        invalidate();
+    }
+
+    /**
+     * @return <code>true</code>, if the index should be used
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Bring the index up to date. The index is rebuilt if it was invalidated,
+     * otherwise the features which were
+     * modified since the last call are reloaded.
+     *
+     * @param loader
+     *            loads the geometries of the features with the identifiers
+     *            (all features if the identifiers are <code>null</code>)
+     *            mapped by feature identifier
+     * @throws OwsExceptionReport
+     *             If the loader fails
+     */
+    public synchronized void update(
+            ThrowingFunction<Collection<String>, Map<String, Geometry>, OwsExceptionReport> loader)
+            throws OwsExceptionReport {
+        long expected = generation.get();
+        if (builtGeneration != expected) {
+            Map<String, Geometry> geometries = loader.apply(null);
+            lock.writeLock().lock();
+            try {
+                entries.clear();
+                pending.clear();
+                geometries.forEach((identifier, geometry) -> {
+                    if (geometry != null && !geometry.isEmpty()) {
+                        entries.put(identifier, new Entry(identifier, geometry));
+                    }
+                });
+                buildTree();
+                builtGeneration = expected;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } else if (!dirty.isEmpty()) {
+            Set<String> identifiers = new HashSet<>(dirty.size());
+            for (Iterator<String> it = dirty.iterator(); it.hasNext();) {
+                identifiers.add(it.next());
+                it.remove();
+            }
+            Map<String, Geometry> geometries = loader.apply(identifiers);
+            lock.writeLock().lock();
+            try {
+                for (String identifier : identifiers) {
+                    Geometry geometry = geometries.get(identifier);
+                    if (geometry == null || geometry.isEmpty()) {
+                        entries.remove(identifier);
+                    } else {
+                        Entry entry = new Entry(identifier, geometry);
+                        entries.put(identifier, entry);
+                        pending.add(entry);
+                    }
+                }
+                if (pending.size() > Math.max(MIN_REBUILD_THRESHOLD, entries.size() / 10)) {
+                    buildTree();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Get the identifiers of the features whose geometry is contained in one
+     * of the filter geometries.
+     *
+     * @param filters
+     *            the filter geometries in the storage CRS and axis order
+     * @return the feature identifiers
+     */
+    public Set<String> getFeatures(Collection<Geometry> filters) {
+        Set<String> identifiers = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            for (Geometry filter : filters) {
+                Envelope envelope = filter.getEnvelopeInternal();
+                if (tree != null) {
+                    for (Object item : tree.query(envelope)) {
+                        Entry entry = (Entry) item;
+                        if (isCurrent(entry) && entry.isContainedIn(filter, envelope)) {
+                            identifiers.add(entry.identifier);
+                        }
+                    }
+                }
+                for (Entry entry : pending) {
+                    if (isCurrent(entry) && entry.isContainedIn(filter, envelope)) {
+                        identifiers.add(entry.identifier);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return identifiers;
+    }
+
+    /**
+     * Get the aggregated envelope of the features.
+     *
+     * @param identifiers
+     *            the feature identifiers
+     * @return the envelope, which is null if none of the features has a
+     *         geometry
+     */
+    public Envelope getEnvelope(Collection<String> identifiers) {
+        Envelope envelope = new Envelope();
+        lock.readLock().lock();
+        try {
+            for (String identifier : identifiers) {
+                Entry entry = entries.get(identifier);
+                if (entry != null) {
+                    envelope.expandToInclude(entry.envelope);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return envelope;
+    }
+
+    /**
+     * @return the number of indexed features
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mark the features as modified, they are reloaded by the next update.
+     *
+     * @param identifiers
+     *            the feature identifiers
+     */
+    public void invalidate(Collection<String> identifiers) {
+        identifiers.stream().filter(Objects::nonNull).forEach(dirty::add);
+    }
+
+    /**
+     * Invalidate the whole index, it is rebuilt by the next update.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return TYPES;
+    }
+
+    @Override
+    public void handle(Event event) {
+        if (event instanceof FeatureInsertion) {
+            invalidateFeatures(((FeatureInsertion) event).getRequest().getFeatureMembers());
+        } else if (event instanceof ObservationInsertion) {
+            invalidateObservations(((ObservationInsertion) event).getRequest().getObservations());
+        } else if (event instanceof ResultInsertion) {
+            invalidateObservations(((ResultInsertion) event).getResponse().getObservations());
+        } else if (event instanceof ResultTemplateInsertion) {
+            OmObservationConstellation template =
+                    ((ResultTemplateInsertion) event).getRequest().getObservationTemplate();
+            if (template != null) {
+                invalidateFeatures(Collections.singleton(template.getFeatureOfInterest()));
+            }
+        } else if (event instanceof DeleteObservationEvent
+                && ((DeleteObservationEvent) event).isSetDeletedObservation()) {
+            invalidateObservations(Collections.singleton(((DeleteObservationEvent) event).getDeletedObservation()));
+        } else {
+            invalidate();
+        }
+    }
+
+    private void invalidateFeatures(Collection<AbstractFeature> features) {
+        if (features != null) {
+            invalidate(features.stream().filter(f -> f != null && f.isSetIdentifier())
+                    .map(AbstractFeature::getIdentifier).collect(Collectors.toSet()));
+        }
+    }
+
+    private void invalidateObservations(Collection<OmObservation> observations) {
+        if (observations != null) {
+            List<AbstractFeature> features = new ArrayList<>(observations.size());
+            for (OmObservation observation : observations) {
+                if (observation.getObservationConstellation() != null) {
+                    features.add(observation.getObservationConstellation().getFeatureOfInterest());
+                }
+            }
+            invalidateFeatures(features);
+        }
+    }
+
+    private boolean isCurrent(Entry entry) {
+        return entries.get(entry.identifier) == entry;
+    }
+
+    private void buildTree() {
+        pending.clear();
+        if (entries.isEmpty()) {
+            tree = null;
+        } else {
+            STRtree strTree = new STRtree(NODE_CAPACITY);
+            for (Entry entry : entries.values()) {
+                strTree.insert(entry.envelope, entry);
+            }
+            strTree.build();
+            tree = strTree;
+        }
+    }
+
+    private static final class Entry {
+        private final String identifier;
+        private final Geometry geometry;
+        private final Envelope envelope;
+
+        Entry(String identifier, Geometry geometry) {
+            this.identifier = identifier;
+            this.geometry = geometry;
+            this.envelope = geometry.getEnvelopeInternal();
+        }
+
+        boolean isContainedIn(Geometry filter, Envelope filterEnvelope) {
+            return filterEnvelope.contains(envelope) && filter.contains(geometry);
+        }
+    }
+
+}
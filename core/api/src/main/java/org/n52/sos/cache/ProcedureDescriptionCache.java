@@ -0,0 +1,484 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
+import org.n52.faroe.SettingsChangeEvent;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.iceland.cache.ContentCacheController;
+import org.n52.iceland.event.events.ResponseEvent;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventBus;
+import org.n52.janmayen.event.EventListener;
+import org.n52.janmayen.function.ThrowingFunction;
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.OWSConstants;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.extension.Extension;
+import org.n52.shetland.ogc.ows.extension.Extensions;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sensorML.AbstractProcess;
+import org.n52.shetland.ogc.sensorML.SensorML;
+import org.n52.shetland.ogc.sos.Sos1Constants;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+import org.n52.shetland.ogc.sos.SosProcedureDescriptionUnknownType;
+import org.n52.shetland.ogc.sos.request.DescribeSensorRequest;
+import org.n52.shetland.ogc.sos.response.DescribeSensorResponse;
+import org.n52.shetland.ogc.swe.simpleType.SweAbstractSimpleType;
+import org.n52.sos.event.events.CompleteCacheUpdateEvent;
+import org.n52.sos.event.events.DeleteObservationEvent;
+import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.event.events.ResultInsertion;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.sos.event.events.SensorInsertion;
+import org.n52.sos.event.events.SensorModification;
+import org.n52.svalbard.encode.Encoder;
+import org.n52.svalbard.encode.EncoderRepository;
+import org.n52.svalbard.encode.EncodingContext;
+import org.n52.svalbard.encode.XmlEncoderKey;
+import org.n52.svalbard.encode.exception.EncodingException;
+import org.n52.svalbard.util.XmlOptionsHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Sets;
+
+import net.opengis.sensorML.x101.SensorMLDocument;
+
+/**
+ * Bounded cache of encoded DescribeSensor responses, keyed by service,
+ * version, procedure, procedure description format, valid time, requested
+ * language and the crs and returnHumanReadableIdentifier extensions the
+ * response modifiers depend on.
+ *
+ * The procedure descriptions are encoded once after the response modifiers
+ * were applied. The encoders change the description objects in place (e.g.
+ * gml:ids and identifier code spaces), so no description object is shared
+ * between responses: every response gets new descriptions that carry the
+ * cached XML, which the DescribeSensor response encoders write as it is.
+ *
+ * The cache is cleared if sensors are inserted, updated or deleted, if
+ * settings are changed and after complete content cache updates. Inserted
+ * observations and results and deleted observations only invalidate the
+ * descriptions of their procedures and the parents of these procedures,
+ * because the descriptions contain offerings, features, observed area and
+ * time ranges. Inserted features are not related to a procedure before
+ * observations are inserted for them and do not invalidate the cache.
+ *
+ * @since 6.1.2
+ *
+ */
+@Configurable
+public class ProcedureDescriptionCache implements EventListener {
+
+    public static final String CACHE_SIZE = "procedureDesc.DESCRIPTION_CACHE_SIZE";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcedureDescriptionCache.class);
+
+    @SuppressWarnings("unchecked")
+    private static final Set<Class<? extends Event>> TYPES =
+            Collections.unmodifiableSet(Sets.<Class<? extends Event>> newHashSet(SensorInsertion.class,
+                    SensorModification.class, SensorDeletion.class, ObservationInsertion.class,
+                    ResultInsertion.class, DeleteObservationEvent.class, SettingsChangeEvent.class,
+                    CompleteCacheUpdateEvent.class));
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<String, Long> invalidations = new ConcurrentHashMap<>();
+
+    private volatile long cleared;
+
+    private volatile Cache<Key, Entry> cache;
+
+    private EncoderRepository encoderRepository;
+
+    private ContentCacheController contentCacheController;
+
+    private XmlOptionsHelper xmlOptionsHelper;
+
+    @Inject
+    public void setEncoderRepository(EncoderRepository encoderRepository) {
+        this.encoderRepository = encoderRepository;
+    }
+
+    @Inject
+    public void setContentCacheController(ContentCacheController contentCacheController) {
+        this.contentCacheController = contentCacheController;
+    }
+
+    @Inject
+    public void setXmlOptionsHelper(XmlOptionsHelper xmlOptionsHelper) {
+        this.xmlOptionsHelper = xmlOptionsHelper;
+    }
+
+    @Setting(value = CACHE_SIZE, required = false)
+    public void setCacheSize(Integer size) {
+        if (size != null && size > 0) {
+            this.cache = CacheBuilder.newBuilder().maximumSize(size).build();
+        } else {
+            this.cache = null;
+        }
+        clear();
+    }
+
+    /**
+     * Get the cached response for the request or create it with the loader
+     * and cache it. Cached responses are submitted as {@link ResponseEvent}
+     * because the loader is not called for them.
+     *
+     * @param request
+     *            the checked and modified DescribeSensor request
+     * @param loader
+     *            creates the response and applies the response modifiers
+     * @param serviceEventBus
+     *            the event bus to submit the response events to
+     * @return the modified response
+     * @throws OwsExceptionReport
+     *             If the loader fails
+     */
+    public OwsServiceResponse get(DescribeSensorRequest request,
+            ThrowingFunction<DescribeSensorRequest, OwsServiceResponse, OwsExceptionReport> loader,
+            EventBus serviceEventBus) throws OwsExceptionReport {
+        Cache<Key, Entry> current = this.cache;
+        if (current == null || encoderRepository == null) {
+            return loader.apply(request);
+        }
+        Key key = new Key(request);
+        Entry cached = current.getIfPresent(key);
+        if (cached != null) {
+            DescribeSensorResponse response = cached.toResponse();
+            serviceEventBus.submit(new ResponseEvent(response));
+            return response;
+        }
+        long started = sequence.get();
+        OwsServiceResponse response = loader.apply(request);
+        if (!(response instanceof DescribeSensorResponse)) {
+            return response;
+        }
+        Entry entry = encode((DescribeSensorResponse) response);
+        if (entry == null) {
+            return response;
+        }
+        if (isValid(key, started)) {
+            current.put(key, entry);
+            if (!isValid(key, started)) {
+                // invalidated while the entry was added
+                current.invalidate(key);
+            }
+        }
+        return entry.toResponse();
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    public long size() {
+        Cache<Key, Entry> current = this.cache;
+        return current != null ? current.size() : 0;
+    }
+
+    public void clear() {
+        cleared = sequence.incrementAndGet();
+        invalidations.clear();
+        Cache<Key, Entry> current = this.cache;
+        if (current != null) {
+            current.invalidateAll();
+        }
+    }
+
+    /**
+     * Remove the cached responses of the procedures and their parent
+     * procedures.
+     *
+     * @param procedures
+     *            the procedure identifiers
+     */
+    public void invalidate(Collection<String> procedures) {
+        Set<String> invalid = new HashSet<>(procedures);
+        if (contentCacheController != null && contentCacheController.getCache() instanceof SosContentCache) {
+            invalid.addAll(((SosContentCache) contentCacheController.getCache()).getParentProcedures(invalid, true,
+                    false));
+        }
+        long current = sequence.incrementAndGet();
+        invalid.forEach(procedure -> invalidations.put(procedure, current));
+        Cache<Key, Entry> cached = this.cache;
+        if (cached != null) {
+            cached.asMap().keySet().removeIf(key -> invalid.contains(key.procedure));
+        }
+    }
+
+    private boolean isValid(Key key, long started) {
+        return cleared <= started && invalidations.getOrDefault(key.procedure, 0L) <= started;
+    }
+
+    private Entry encode(DescribeSensorResponse response) {
+        List<EncodedDescription> descriptions = new ArrayList<>();
+        if (response.isSetProcedureDescriptions()) {
+            boolean sos1 = Sos1Constants.SERVICEVERSION.equals(response.getVersion());
+            for (SosProcedureDescription<?> description : response.getProcedureDescriptions()) {
+                String xml = encode(response.getOutputFormat(), description, sos1);
+                if (xml == null) {
+                    return null;
+                }
+                descriptions.add(new EncodedDescription(description, xml));
+            }
+        }
+        return new Entry(response, descriptions);
+    }
+
+    private String encode(String format, SosProcedureDescription<?> description, boolean sos1) {
+        if (description instanceof SosProcedureDescriptionUnknownType) {
+            return description.getXml();
+        }
+        AbstractFeature feature = description.getProcedureDescription();
+        if (sos1 && feature instanceof AbstractProcess && !(feature instanceof SensorML)) {
+            // SOS 1.0.0 responses contain sml:SensorML documents
+            feature = new SensorML().addMember((AbstractProcess) feature);
+        }
+        try {
+            Encoder<XmlObject, AbstractFeature> encoder =
+                    encoderRepository.getEncoder(new XmlEncoderKey(format, feature.getClass()));
+            if (encoder == null) {
+                LOGGER.debug("No encoder for {} descriptions of type {}, not cached", format, feature.getClass());
+                return null;
+            }
+            XmlObject encoded = encoder.encode(feature, EncodingContext.empty());
+            if (sos1 && !(encoded instanceof SensorMLDocument)) {
+                return null;
+            }
+            return encoded.xmlText(getXmlOptions());
+        } catch (EncodingException e) {
+            LOGGER.debug("Error while encoding procedure description, not cached", e);
+            return null;
+        }
+    }
+
+    private XmlOptions getXmlOptions() {
+        XmlOptions options =
+                xmlOptionsHelper != null ? new XmlOptions(xmlOptionsHelper.getXmlOptions()) : new XmlOptions();
+        // the XML is inserted into the response documents, which are
+        // indented when they are written
+        options.remove(XmlOptions.SAVE_PRETTY_PRINT);
+        return options.setSaveOuter();
+    }
+
+    @Override
+    public Set<Class<? extends Event>> getTypes() {
+        return TYPES;
+    }
+
+    @Override
+    public void handle(Event event) {
+        Set<String> procedures = null;
+        if (event instanceof ObservationInsertion) {
+            ObservationInsertion insertion = (ObservationInsertion) event;
+            procedures = getProcedures(insertion.getRequest().getObservations());
+            if (procedures != null && insertion.getRequest().isSetAssignedSensorId()) {
+                procedures.add(insertion.getRequest().getAssignedSensorId());
+            }
+        } else if (event instanceof ResultInsertion) {
+            procedures = getProcedures(((ResultInsertion) event).getResponse().getObservations());
+        } else if (event instanceof DeleteObservationEvent) {
+            DeleteObservationEvent deletion = (DeleteObservationEvent) event;
+            if (deletion.isSetDeletedObservation()) {
+                procedures = getProcedures(Collections.singletonList(deletion.getDeletedObservation()));
+            }
+        }
+        if (procedures != null) {
+            invalidate(procedures);
+        } else {
+            clear();
+        }
+    }
+
+    /**
+     * @return the procedures of the observations or <code>null</code> if an
+     *         observation has no procedure
+     */
+    private Set<String> getProcedures(List<OmObservation> observations) {
+        if (observations == null || observations.isEmpty()) {
+            return null;
+        }
+        Set<String> procedures = new HashSet<>();
+        for (OmObservation observation : observations) {
+            if (observation.getObservationConstellation() == null
+                    || observation.getObservationConstellation().getProcedureIdentifier() == null) {
+                return null;
+            }
+            procedures.add(observation.getObservationConstellation().getProcedureIdentifier());
+        }
+        return procedures;
+    }
+
+    /**
+     * Encoded response.
+     */
+    private static final class Entry {
+        private final String service;
+        private final String version;
+        private final String outputFormat;
+        private final List<Extension<?>> extensions;
+        private final List<EncodedDescription> descriptions;
+
+        Entry(DescribeSensorResponse response, List<EncodedDescription> descriptions) {
+            this.service = response.getService();
+            this.version = response.getVersion();
+            this.outputFormat = response.getOutputFormat();
+            this.extensions = response.hasExtensions()
+                    ? new ArrayList<>(response.getExtensions().getExtensions())
+                    : Collections.emptyList();
+            this.descriptions = descriptions;
+        }
+
+        DescribeSensorResponse toResponse() {
+            DescribeSensorResponse response = new DescribeSensorResponse(service, version);
+            response.setOutputFormat(outputFormat);
+            if (!extensions.isEmpty()) {
+                Extensions copy = new Extensions();
+                copy.addExtension(extensions);
+                response.setExtensions(copy);
+            }
+            if (!descriptions.isEmpty()) {
+                List<SosProcedureDescription<?>> list = new ArrayList<>(descriptions.size());
+                for (EncodedDescription description : descriptions) {
+                    list.add(description.toDescription(Sos1Constants.SERVICEVERSION.equals(version)));
+                }
+                response.setSensorDescriptions(list);
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Encoded procedure description.
+     */
+    private static final class EncodedDescription {
+        private final String identifier;
+        private final String format;
+        private final Time validTime;
+        private final String xml;
+
+        EncodedDescription(SosProcedureDescription<?> description, String xml) {
+            this.identifier = description.getIdentifier();
+            this.format = description.getDescriptionFormat();
+            this.validTime = description.getValidTime();
+            this.xml = xml;
+        }
+
+        SosProcedureDescription<?> toDescription(boolean sos1) {
+            SosProcedureDescription<?> description;
+            if (sos1) {
+                // the SOS 1.0.0 encoder writes the XML of a SensorML without
+                // members as it is
+                SensorML sensorML = new SensorML();
+                sensorML.setIdentifier(identifier);
+                sensorML.setXml(xml);
+                description = new SosProcedureDescription<>(sensorML);
+            } else {
+                description = new SosProcedureDescriptionUnknownType(identifier, format, xml);
+            }
+            description.setIdentifier(identifier);
+            description.setDescriptionFormat(format);
+            description.setValidTime(validTime);
+            return description;
+        }
+    }
+
+    private static final class Key {
+        private final String service;
+        private final String version;
+        private final String procedure;
+        private final String format;
+        private final Time validTime;
+        private final String language;
+        private final Object crs;
+        private final Object returnHumanReadableIdentifier;
+
+        Key(DescribeSensorRequest request) {
+            this.service = request.getService();
+            this.version = request.getVersion();
+            this.procedure = request.getProcedure();
+            this.format = request.getProcedureDescriptionFormat();
+            this.validTime = request.getValidTime();
+            this.language = request.getRequestedLanguage();
+            this.crs = getExtensionValue(request, OWSConstants.AdditionalRequestParams.crs);
+            this.returnHumanReadableIdentifier =
+                    getExtensionValue(request, OWSConstants.AdditionalRequestParams.returnHumanReadableIdentifier);
+        }
+
+        private static Object getExtensionValue(DescribeSensorRequest request, Enum<?> name) {
+            return request.getExtension(name).map(Extension::getValue)
+                    .map(value -> value instanceof SweAbstractSimpleType
+                            ? ((SweAbstractSimpleType<?>) value).getValue()
+                            : value)
+                    .orElse(null);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(service, version, procedure, format, validTime, language, crs,
+                    returnHumanReadableIdentifier);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(service, other.service) && Objects.equals(version, other.version)
+                    && Objects.equals(procedure, other.procedure) && Objects.equals(format, other.format)
+                    && Objects.equals(validTime, other.validTime) && Objects.equals(language, other.language)
+                    && Objects.equals(crs, other.crs)
+                    && Objects.equals(returnHumanReadableIdentifier, other.returnHumanReadableIdentifier);
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.coding.decode;
+
+import org.n52.janmayen.Copyable;
+import org.n52.janmayen.function.ThrowingFunction;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded cache of the decoded result structures and encodings of result
+ * templates, keyed by the stored XML. The decoded objects are mutable, so the
+ * cache keeps a copy and hands out copies. Decoded objects which can not be
+ * copied without loss are decoded each time. As the entries are keyed by the
+ * XML itself, a changed or deleted result template can not hit a stale entry,
+ * so the cache does not listen for result template events. Entries of deleted
+ * result templates are evicted by the size bound.
+ *
+ * @since 6.1.2
+ *
+ */
+public class ResultTemplateDecodingCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 1000;
+
+    private static final Object NOT_COPYABLE = new Object();
+
+    private final Cache<String, Object> cache;
+
+    public ResultTemplateDecodingCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public ResultTemplateDecodingCache(int maximumSize) {
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * Get a copy of the decoded XML or decode it with the decoder
+     *
+     * @param <X>
+     *            the exception type of the decoder
+     * @param xml
+     *            the stored structure or encoding XML
+     * @param decoder
+     *            the decoder to use if the XML is not cached
+     * @return the decoded object
+     * @throws X
+     *             If the decoding fails
+     */
+    public <X extends Exception> Object decode(String xml, ThrowingFunction<String, Object, X> decoder) throws X {
+        if (xml == null || xml.isEmpty()) {
+            return decoder.apply(xml);
+        }
+        Object cached = cache.getIfPresent(xml);
+        if (cached instanceof Copyable) {
+            return ((Copyable<?>) cached).copy();
+        }
+        Object decoded = decoder.apply(xml);
+        if (cached == null && decoded != null) {
+            cache.put(xml, copyIfEqual(decoded));
+        }
+        return decoded;
+    }
+
+    private Object copyIfEqual(Object decoded) {
+        if (decoded instanceof Copyable) {
+            Object copy = ((Copyable<?>) decoded).copy();
+            if (decoded.equals(copy)) {
+                return copy;
+            }
+        }
+        return NOT_COPYABLE;
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+}
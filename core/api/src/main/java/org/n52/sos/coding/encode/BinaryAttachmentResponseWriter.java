@@ -37,6 +37,7 @@ import org.n52.iceland.coding.encode.AbstractResponseWriter;
 import org.n52.iceland.coding.encode.ResponseProxy;
 import org.n52.iceland.coding.encode.ResponseWriterKey;
 import org.n52.shetland.ogc.sos.response.BinaryAttachmentResponse;
+import org.n52.sos.response.FileAttachmentResponse;
 import org.n52.svalbard.encode.EncoderRepository;
 import org.n52.svalbard.encode.exception.EncodingException;
 
@@ -69,10 +70,17 @@ public class BinaryAttachmentResponseWriter extends AbstractResponseWriter<Binar
             return;
         }
 
-        byte[] bytes = response.getBytes();
+        byte[] bytes = null;
+        int contentLength;
+        if (response instanceof FileAttachmentResponse) {
+            contentLength = response.getSize();
+        } else {
+            bytes = response.getBytes();
+            contentLength = bytes.length;
+        }
 
-        if (!(out instanceof GZIPOutputStream)) {
-            responseProxy.setContentLength(bytes.length);
+        if (!(out instanceof GZIPOutputStream) && contentLength >= 0) {
+            responseProxy.setContentLength(contentLength);
         }
 
         //binary
@@ -88,7 +96,11 @@ public class BinaryAttachmentResponseWriter extends AbstractResponseWriter<Binar
         }
 
         //write output now that headers and content length are in place
-        out.write(bytes);
+        if (bytes != null) {
+            out.write(bytes);
+        } else {
+            writeFiles((FileAttachmentResponse) response, out);
+        }
 
     }
 
@@ -97,11 +109,24 @@ public class BinaryAttachmentResponseWriter extends AbstractResponseWriter<Binar
         if (response == null) {
             return;
         }
+        if (response instanceof FileAttachmentResponse) {
+            writeFiles((FileAttachmentResponse) response, out);
+            return;
+        }
         byte[] bytes = response.getBytes();
         //write output now that headers and content length are in place
         out.write(bytes);
     }
 
+    private void writeFiles(FileAttachmentResponse response, OutputStream out) throws IOException {
+        // stream the files and remove them afterwards, even if writing fails
+        try {
+            response.writeTo(out);
+        } finally {
+            response.close();
+        }
+    }
+
     @Override
     public boolean supportsGZip(BinaryAttachmentResponse t) {
         return false;
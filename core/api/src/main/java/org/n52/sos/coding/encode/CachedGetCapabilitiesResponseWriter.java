@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.coding.encode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.n52.iceland.coding.encode.ResponseProxy;
+import org.n52.iceland.coding.encode.ResponseWriter;
+import org.n52.iceland.coding.encode.ResponseWriterKey;
+import org.n52.iceland.coding.encode.ResponseWriterRepository;
+import org.n52.janmayen.http.HTTPHeaders;
+import org.n52.janmayen.http.HTTPStatus;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.sos.cache.CapabilitiesResponseCache;
+import org.n52.sos.cache.CapabilitiesResponseCache.ContentCoding;
+import org.n52.sos.cache.CapabilitiesResponseCache.Entry;
+import org.n52.sos.response.CachedGetCapabilitiesResponse;
+import org.n52.svalbard.encode.EncoderRepository;
+import org.n52.svalbard.encode.exception.EncodingException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.google.common.net.HttpHeaders;
+
+/**
+ * {@link ResponseWriter} for {@link CachedGetCapabilitiesResponse}. Cached
+ * documents are written without encoding in the content coding accepted by
+ * the client, other responses are encoded by the
+ * {@link AbstractServiceResponseWriter} and stored in the
+ * {@link CapabilitiesResponseCache}. The responses carry an entity tag and
+ * requests with a matching If-None-Match header are answered with
+ * {@link HTTPStatus#NOT_MODIFIED}.
+ *
+ * @since 6.1.2
+ *
+ */
+public class CachedGetCapabilitiesResponseWriter extends AbstractServiceResponseWriter {
+
+    public static final ResponseWriterKey KEY = new ResponseWriterKey(CachedGetCapabilitiesResponse.class);
+
+    private final CapabilitiesResponseCache capabilitiesResponseCache;
+
+    public CachedGetCapabilitiesResponseWriter(EncoderRepository encoderRepository,
+            ResponseWriterRepository responseWriterRepository, CapabilitiesResponseCache capabilitiesResponseCache) {
+        super(encoderRepository, responseWriterRepository);
+        this.capabilitiesResponseCache = capabilitiesResponseCache;
+    }
+
+    @Override
+    public Set<ResponseWriterKey> getKeys() {
+        return Collections.singleton(KEY);
+    }
+
+    @Override
+    public void write(OwsServiceResponse asr, OutputStream out, ResponseProxy responseProxy)
+            throws IOException, EncodingException {
+        if (!(asr instanceof CachedGetCapabilitiesResponse)) {
+            super.write(asr, out, responseProxy);
+            return;
+        }
+        if (isNotModified(asr)) {
+            return;
+        }
+        Entry entry = getEntry((CachedGetCapabilitiesResponse) asr);
+        ContentCoding coding = getContentCoding(getRequest());
+        byte[] document = entry.getDocument(coding);
+        responseProxy.addHeader(HttpHeaders.ETAG, entry.getETag(coding));
+        responseProxy.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (coding != ContentCoding.IDENTITY) {
+            responseProxy.addHeader(HttpHeaders.CONTENT_ENCODING, coding.getName());
+        }
+        responseProxy.setContentLength(document.length);
+        out.write(document);
+    }
+
+    @Override
+    public void write(OwsServiceResponse asr, OutputStream out) throws IOException, EncodingException {
+        if (asr instanceof CachedGetCapabilitiesResponse) {
+            out.write(getEntry((CachedGetCapabilitiesResponse) asr).getDocument(ContentCoding.IDENTITY));
+        } else {
+            super.write(asr, out);
+        }
+    }
+
+    @Override
+    public boolean supportsGZip(OwsServiceResponse asr) {
+        // the content coding of cached responses is applied by this writer
+        return !(asr instanceof CachedGetCapabilitiesResponse) && super.supportsGZip(asr);
+    }
+
+    @Override
+    public boolean hasForcedHttpStatus(OwsServiceResponse asr) {
+        return isNotModified(asr);
+    }
+
+    @Override
+    public HTTPStatus getForcedHttpStatus(OwsServiceResponse asr) {
+        return isNotModified(asr) ? HTTPStatus.NOT_MODIFIED : super.getForcedHttpStatus(asr);
+    }
+
+    private Entry getEntry(CachedGetCapabilitiesResponse response) throws IOException, EncodingException {
+        if (response.isCached()) {
+            return response.getEntry();
+        }
+        ByteArrayOutputStream document = new ByteArrayOutputStream();
+        super.write(response, document);
+        return capabilitiesResponseCache.put(response.getCacheKey(), response.getUpdateSequence(),
+                document.toByteArray());
+    }
+
+    private boolean isNotModified(OwsServiceResponse asr) {
+        if (asr instanceof CachedGetCapabilitiesResponse && ((CachedGetCapabilitiesResponse) asr).isCached()) {
+            HttpServletRequest request = getRequest();
+            return request != null && ((CachedGetCapabilitiesResponse) asr).getEntry()
+                    .matches(request.getHeader(HttpHeaders.IF_NONE_MATCH));
+        }
+        return false;
+    }
+
+    private ContentCoding getContentCoding(HttpServletRequest request) {
+        if (request == null) {
+            return ContentCoding.IDENTITY;
+        }
+        if (HTTPHeaders.supportsGzipEncoding(request)) {
+            return ContentCoding.GZIP;
+        }
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null
+                && acceptEncoding.toLowerCase(Locale.ROOT).contains(ContentCoding.DEFLATE.getName())) {
+            return ContentCoding.DEFLATE;
+        }
+        return ContentCoding.IDENTITY;
+    }
+
+    private HttpServletRequest getRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            return ((ServletRequestAttributes) attributes).getRequest();
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.coding.encode;
+
+import javax.inject.Inject;
+
+import org.n52.iceland.coding.encode.ResponseWriter;
+import org.n52.iceland.coding.encode.ResponseWriterFactory;
+import org.n52.iceland.coding.encode.ResponseWriterKey;
+import org.n52.iceland.coding.encode.ResponseWriterRepository;
+import org.n52.janmayen.component.SingleTypeComponentFactory;
+import org.n52.sos.cache.CapabilitiesResponseCache;
+import org.n52.sos.response.CachedGetCapabilitiesResponse;
+import org.n52.svalbard.encode.EncoderRepository;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * {@link ResponseWriterFactory} implementation for
+ * {@link CachedGetCapabilitiesResponse} and
+ * {@link CachedGetCapabilitiesResponseWriter}
+ *
+ * @since 6.1.2
+ *
+ */
+@SuppressFBWarnings({"EI_EXPOSE_REP2"})
+public class CachedGetCapabilitiesResponseWriterFactory
+        implements ResponseWriterFactory,
+                   SingleTypeComponentFactory<ResponseWriterKey, ResponseWriter<?>> {
+
+    private EncoderRepository encoderRepository;
+
+    private ResponseWriterRepository responseWriterRepository;
+
+    private CapabilitiesResponseCache capabilitiesResponseCache;
+
+    @Inject
+    public void setEncoderRepository(EncoderRepository encoderRepository) {
+        this.encoderRepository = encoderRepository;
+    }
+
+    @Inject
+    public void setResponseWriterRepository(ResponseWriterRepository responseWriterRepository) {
+        this.responseWriterRepository = responseWriterRepository;
+    }
+
+    @Inject
+    public void setCapabilitiesResponseCache(CapabilitiesResponseCache capabilitiesResponseCache) {
+        this.capabilitiesResponseCache = capabilitiesResponseCache;
+    }
+
+    @Override
+    public ResponseWriterKey getKey() {
+        return CachedGetCapabilitiesResponseWriter.KEY;
+    }
+
+    @Override
+    public CachedGetCapabilitiesResponseWriter create() {
+        return new CachedGetCapabilitiesResponseWriter(this.encoderRepository, this.responseWriterRepository,
+                this.capabilitiesResponseCache);
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.coding.encode;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.xmlbeans.XmlObject;
+import org.n52.iceland.coding.encode.ResponseProxy;
+import org.n52.iceland.coding.encode.ResponseWriter;
+import org.n52.iceland.coding.encode.ResponseWriterKey;
+import org.n52.iceland.coding.encode.ResponseWriterRepository;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsOperationKey;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sos.response.GetResultResponse;
+import org.n52.sos.response.StreamingGetResultResponse;
+import org.n52.svalbard.encode.Encoder;
+import org.n52.svalbard.encode.EncoderRepository;
+import org.n52.svalbard.encode.OperationResponseEncoderKey;
+import org.n52.svalbard.encode.StreamingEncoder;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+/**
+ * {@link ResponseWriter} for {@link StreamingGetResultResponse}. The XML
+ * document is created by the {@link GetResultResponse} encoder with a
+ * placeholder as result values, either by a {@link StreamingEncoder} or by the
+ * writer of the encoded {@link XmlObject}. The result values are written in
+ * place of the placeholder directly to the output stream. Documents without the
+ * placeholder are written by the {@link AbstractServiceResponseWriter}.
+ *
+ * @since 6.1.2
+ *
+ */
+public class StreamingGetResultResponseWriter extends AbstractServiceResponseWriter {
+
+    public static final ResponseWriterKey KEY = new ResponseWriterKey(StreamingGetResultResponse.class);
+
+    private static final Pattern XML_ENCODING = Pattern.compile("^<\\?xml[^>]*encoding=[\"']([^\"']+)[\"']");
+
+    public StreamingGetResultResponseWriter(EncoderRepository encoderRepository,
+            ResponseWriterRepository responseWriterRepository) {
+        super(encoderRepository, responseWriterRepository);
+    }
+
+    @Override
+    public Set<ResponseWriterKey> getKeys() {
+        return Collections.singleton(KEY);
+    }
+
+    @Override
+    public void write(OwsServiceResponse asr, OutputStream out, ResponseProxy responseProxy)
+            throws IOException, EncodingException {
+        if (!writeStreaming(asr, out)) {
+            super.write(asr, out, responseProxy);
+        }
+    }
+
+    @Override
+    public void write(OwsServiceResponse asr, OutputStream out) throws IOException, EncodingException {
+        if (!writeStreaming(asr, out)) {
+            super.write(asr, out);
+        }
+    }
+
+    private boolean writeStreaming(OwsServiceResponse asr, OutputStream out) throws IOException, EncodingException {
+        if (!(asr instanceof StreamingGetResultResponse) || !((StreamingGetResultResponse) asr).isStreaming()) {
+            return false;
+        }
+        StreamingGetResultResponse response = (StreamingGetResultResponse) asr;
+        Encoder<Object, OwsServiceResponse> encoder =
+                getEncoder(new OperationResponseEncoderKey(new OwsOperationKey(response), getContentType()));
+        if (encoder == null) {
+            return false;
+        }
+        String placeholder = "resultValues" + UUID.randomUUID().toString().replace("-", "");
+        GetResultResponse template = new GetResultResponse(response.getService(), response.getVersion());
+        template.setExtensions(response.getExtensions());
+        template.setResultValues(placeholder);
+        ByteArrayOutputStream document = new ByteArrayOutputStream();
+        if (encoder instanceof StreamingEncoder) {
+            ((StreamingEncoder<?, OwsServiceResponse>) encoder).encode(template, document);
+        } else {
+            Object encoded = encoder.encode(template);
+            if (!(encoded instanceof XmlObject)) {
+                return false;
+            }
+            ResponseWriter<Object> writer = getResponseWriterRepository().getWriter(encoded.getClass());
+            if (writer == null) {
+                return false;
+            }
+            writer.write(encoded, document);
+        }
+        // one char per byte to find the ASCII placeholder in ASCII compatible encodings
+        String xml = document.toString(StandardCharsets.ISO_8859_1);
+        int index = xml.indexOf(placeholder);
+        if (index < 0) {
+            return false;
+        }
+        byte[] bytes = document.toByteArray();
+        out.write(bytes, 0, index);
+        Writer values = new BufferedWriter(new OutputStreamWriter(new NonClosingOutputStream(out), getCharset(xml)));
+        try {
+            response.writeResultValues(new XmlTextWriter(values));
+        } catch (OwsExceptionReport owse) {
+            throw new EncodingException(owse);
+        }
+        values.flush();
+        int end = index + placeholder.length();
+        out.write(bytes, end, bytes.length - end);
+        return true;
+    }
+
+    private Charset getCharset(String xml) {
+        Matcher matcher = XML_ENCODING.matcher(xml);
+        if (matcher.find() && Charset.isSupported(matcher.group(1))) {
+            return Charset.forName(matcher.group(1));
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Escapes the XML markup characters of text content.
+     */
+    private static final class XmlTextWriter extends FilterWriter {
+
+        XmlTextWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            switch (c) {
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                default:
+                    out.write(c);
+                    break;
+            }
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                write(cbuf[i]);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                write(str.charAt(i));
+            }
+        }
+    }
+
+    /**
+     * Keeps the response output stream open if the value writer is closed.
+     */
+    private static final class NonClosingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        NonClosingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+}
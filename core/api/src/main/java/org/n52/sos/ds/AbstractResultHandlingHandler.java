@@ -39,6 +39,7 @@ import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
 import org.n52.shetland.ogc.swe.SweDataArray;
 import org.n52.shetland.ogc.swe.SweDataRecord;
 import org.n52.shetland.ogc.swe.encoding.SweAbstractEncoding;
+import org.n52.sos.coding.decode.ResultTemplateDecodingCache;
 import org.n52.svalbard.decode.Decoder;
 import org.n52.svalbard.decode.DecoderKey;
 import org.n52.svalbard.decode.DecoderRepository;
@@ -63,6 +64,8 @@ public abstract class AbstractResultHandlingHandler extends AbstractSosOperation
 
     private DecoderRepository decodingRepository;
 
+    private ResultTemplateDecodingCache resultTemplateDecodingCache;
+
     public AbstractResultHandlingHandler(String service, String operationName) {
         super(service, operationName);
     }
@@ -72,6 +75,11 @@ public abstract class AbstractResultHandlingHandler extends AbstractSosOperation
         this.decodingRepository = decodingRepository;
     }
 
+    @Inject
+    public void setResultTemplateDecodingCache(ResultTemplateDecodingCache resultTemplateDecodingCache) {
+        this.resultTemplateDecodingCache = resultTemplateDecodingCache;
+    }
+
     /**
      * Get internal SweDataRecord from internal ResultStructure
      *
@@ -112,6 +120,13 @@ public abstract class AbstractResultHandlingHandler extends AbstractSosOperation
     }
 
     protected Object decode(String xml) throws CodedException {
+        if (resultTemplateDecodingCache != null) {
+            return resultTemplateDecodingCache.decode(xml, this::decodeXml);
+        }
+        return decodeXml(xml);
+    }
+
+    private Object decodeXml(String xml) throws CodedException {
         try {
             XmlObject xmlObject = XmlHelper.parseXmlString(xml);
             DecoderKey decoderKey = CodingHelper.getDecoderKey(xmlObject);
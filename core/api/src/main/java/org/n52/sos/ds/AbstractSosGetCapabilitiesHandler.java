@@ -51,6 +51,7 @@ import java.util.stream.Stream;
 import javax.inject.Inject;
 import javax.xml.namespace.QName;
 
+import org.joda.time.DateTime;
 import org.n52.iceland.binding.Binding;
 import org.n52.iceland.binding.MediaTypeBindingKey;
 import org.n52.iceland.cache.ctrl.StaticCapabilitiesProvider;
@@ -91,6 +92,7 @@ import org.n52.shetland.ogc.ows.OwsServiceIdentification;
 import org.n52.shetland.ogc.ows.OwsValue;
 import org.n52.shetland.ogc.ows.exception.CompositeOwsException;
 import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+import org.n52.shetland.ogc.ows.exception.InvalidUpdateSequenceException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.ows.exception.VersionNegotiationFailedException;
 import org.n52.shetland.ogc.ows.extension.MergableExtension;
@@ -105,12 +107,14 @@ import org.n52.shetland.ogc.sos.SosObservationOffering;
 import org.n52.shetland.util.CollectionHelper;
 import org.n52.shetland.util.DateTimeHelper;
 import org.n52.shetland.util.ReferencedEnvelope;
+import org.n52.sos.cache.CapabilitiesResponseCache;
 import org.n52.sos.coding.encode.ProcedureDescriptionFormatRepository;
 import org.n52.sos.coding.encode.ResponseFormatRepository;
 import org.n52.sos.config.CapabilitiesExtensionService;
 import org.n52.sos.ogc.sos.SosObservationOfferingExtensionRepository;
 import org.n52.sos.request.operator.AbstractTransactionalRequestOperator;
 import org.n52.sos.request.operator.TransactionalRequestChecker;
+import org.n52.sos.response.CachedGetCapabilitiesResponse;
 import org.n52.sos.service.TransactionalSecurityConfiguration;
 import org.n52.sos.util.GeometryHandler;
 import org.n52.svalbard.ConformanceClass;
@@ -190,6 +194,9 @@ public abstract class AbstractSosGetCapabilitiesHandler extends AbstractGetCapab
     @Inject
     private Optional<StaticCapabilitiesProvider> staticCapabilitiesProvider;
 
+    @Inject
+    private Optional<CapabilitiesResponseCache> capabilitiesResponseCache;
+
     public AbstractSosGetCapabilitiesHandler() {
         this(SosConstants.SOS);
     }
@@ -204,6 +211,7 @@ public abstract class AbstractSosGetCapabilitiesHandler extends AbstractGetCapab
         String service = request.getService();
         String version = negotiateVersion(request);
         boolean showTransactionalOperations = checkForTransactionalOperations(request);
+        String updateSequence = getUpdateSequence();
 
         GetCapabilitiesResponse response = new GetCapabilitiesResponse(service, version);
 
@@ -218,17 +226,85 @@ public abstract class AbstractSosGetCapabilitiesHandler extends AbstractGetCapab
                 getStaticCapabilities(request, response);
             }
             if (!response.isStatic()) {
+                if (isCurrentUpdateSequence(request, updateSequence)) {
+                    // the client has the current capabilities, return only the updateSequence
+                    response.setCapabilities(createEmptyCapabilities(service, version, updateSequence));
+                    return response;
+                }
+                CapabilitiesResponseCache.Key key = getCapabilitiesResponseCacheKey(request,
+                        showTransactionalOperations);
+                if (key != null) {
+                    CapabilitiesResponseCache.Entry entry =
+                            this.capabilitiesResponseCache.get().get(key, updateSequence);
+                    response = new CachedGetCapabilitiesResponse(service, version, key, updateSequence, entry);
+                    if (entry != null) {
+                        response.setCapabilities(createEmptyCapabilities(service, version, updateSequence));
+                        return response;
+                    }
+                }
                 createDynamicCapabilities(request, response, showTransactionalOperations);
             }
         }
-        if (getCache().getLastUpdateTime() != null && response.getCapabilities() != null
+        if (updateSequence != null && response.getCapabilities() != null
                 && !response.getCapabilities().getUpdateSequence().isPresent()) {
-            response.getCapabilities()
-                    .setUpdateSequence(DateTimeHelper.formatDateTime2IsoString(getCache().getLastUpdateTime()));
+            response.getCapabilities().setUpdateSequence(updateSequence);
         }
         return response;
     }
 
+    private String getUpdateSequence() {
+        DateTime lastUpdateTime = getCache().getLastUpdateTime();
+        return lastUpdateTime != null ? DateTimeHelper.formatDateTime2IsoString(lastUpdateTime) : null;
+    }
+
+    /**
+     * Check the requested updateSequence against the current one.
+     *
+     * @param request
+     *            the request
+     * @param updateSequence
+     *            the current updateSequence
+     * @return <code>true</code>, if the requested updateSequence is the
+     *         current one
+     * @throws OwsExceptionReport
+     *             If the requested updateSequence is later than the current
+     */
+    private boolean isCurrentUpdateSequence(GetCapabilitiesRequest request, String updateSequence)
+            throws OwsExceptionReport {
+        if (!request.isSetUpdateSequence() || updateSequence == null) {
+            return false;
+        }
+        if (request.getUpdateSequence().equals(updateSequence)) {
+            return true;
+        }
+        try {
+            DateTime requested = DateTimeHelper.parseIsoString2DateTime(request.getUpdateSequence());
+            DateTime current = DateTimeHelper.parseIsoString2DateTime(updateSequence);
+            if (requested.isAfter(current)) {
+                throw new InvalidUpdateSequenceException().at(GetCapabilitiesParams.updateSequence).withMessage(
+                        "The requested updateSequence '%s' is later than the current updateSequence '%s'!",
+                        request.getUpdateSequence(), updateSequence);
+            }
+            return requested.isEqual(current);
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("The requested updateSequence '{}' is not a time, return full capabilities",
+                    request.getUpdateSequence());
+            return false;
+        }
+    }
+
+    private SosCapabilities createEmptyCapabilities(String service, String version, String updateSequence) {
+        return new SosCapabilities(service, version, updateSequence, null, null, null, null, null, null, null);
+    }
+
+    private CapabilitiesResponseCache.Key getCapabilitiesResponseCacheKey(GetCapabilitiesRequest request,
+            boolean showTransactionalOperations) {
+        if (this.capabilitiesResponseCache == null || !this.capabilitiesResponseCache.isPresent()) {
+            return null;
+        }
+        return this.capabilitiesResponseCache.get().createKey(request, showTransactionalOperations);
+    }
+
     private String negotiateVersion(GetCapabilitiesRequest request) throws OwsExceptionReport {
         if (request.isSetVersion()) {
             return request.getVersion();
@@ -27,11 +27,22 @@
  */
 package org.n52.sos.ds;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.inject.Inject;
 
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.exception.ows.concrete.InvalidAcceptVersionsParameterException;
 import org.n52.iceland.exception.ows.concrete.InvalidServiceOrVersionException;
 import org.n52.iceland.exception.ows.concrete.InvalidServiceParameterException;
@@ -39,20 +50,33 @@ import org.n52.iceland.exception.ows.concrete.VersionNotSupportedException;
 import org.n52.iceland.service.operator.ServiceOperator;
 import org.n52.iceland.service.operator.ServiceOperatorRepository;
 import org.n52.janmayen.Comparables;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.shetland.ogc.ows.exception.CompositeOwsException;
 import org.n52.shetland.ogc.ows.exception.MissingServiceParameterException;
 import org.n52.shetland.ogc.ows.exception.MissingVersionParameterException;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.ows.service.GetCapabilitiesRequest;
 import org.n52.shetland.ogc.ows.service.OwsServiceKey;
 import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
 import org.n52.shetland.ogc.sos.BatchConstants;
+import org.n52.shetland.ogc.sos.Sos2Constants;
 import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityConstants;
 import org.n52.shetland.ogc.sos.request.BatchRequest;
 import org.n52.shetland.ogc.sos.response.BatchResponse;
+import org.n52.shetland.ogc.sos.response.BatchResponse.ExceptionOrResponse;
+import org.n52.sos.service.metrics.RequestMetricsContext;
+
+import com.google.common.collect.ImmutableSet;
 
 /**
- * TODO JavaDoc
+ * Executes the sub-requests of a Batch operation. If more than one parallel
+ * request is configured, consecutive read-only sub-requests are executed
+ * concurrently, while all other sub-requests are executed sequentially in
+ * their original order after the preceding sub-requests have finished. The
+ * responses are always returned in request order.
  *
  * Renamed, in version 4.x called BatchOperationDAO
  *
@@ -60,10 +84,21 @@ import org.n52.shetland.ogc.sos.response.BatchResponse;
  *
  * @since 5.0.0
  */
-public class BatchOperationHandler extends AbstractSosOperationHandler {
+@Configurable
+public class BatchOperationHandler extends AbstractSosOperationHandler implements Destroyable {
+
+    public static final String PARALLEL_REQUESTS = "service.batch.parallelRequests";
+
+    private static final Set<String> READ_ONLY_OPERATIONS = ImmutableSet.of(
+            SosConstants.Operations.GetCapabilities.name(), SosConstants.Operations.GetObservation.name(),
+            SosConstants.Operations.GetObservationById.name(), SosConstants.Operations.DescribeSensor.name(),
+            SosConstants.Operations.GetFeatureOfInterest.name(), SosConstants.Operations.GetResult.name(),
+            Sos2Constants.Operations.GetResultTemplate.name(), GetDataAvailabilityConstants.OPERATION_NAME);
 
     private ServiceOperatorRepository serviceOperatorRepository;
 
+    private volatile ExecutorService executor;
+
     public BatchOperationHandler() {
         super(SosConstants.SOS, BatchConstants.OPERATION_NAME);
     }
@@ -73,21 +108,107 @@ public class BatchOperationHandler extends AbstractSosOperationHandler {
         this.serviceOperatorRepository = serviceOperatorRepository;
     }
 
+    @Setting(value = PARALLEL_REQUESTS, required = false)
+    public void setParallelRequests(Integer parallelRequests) {
+        ExecutorService previous = this.executor;
+        if (parallelRequests != null && parallelRequests > 1) {
+            this.executor = Executors.newFixedThreadPool(parallelRequests,
+                    new GroupedAndNamedThreadFactory("batch-request-executor"));
+        } else {
+            this.executor = null;
+        }
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
     public BatchResponse executeRequests(BatchRequest request) throws OwsExceptionReport {
         BatchResponse response = new BatchResponse();
         response.setService(request.getService());
         response.setVersion(request.getVersion());
-        for (OwsServiceRequest r : request) {
+        ExecutorService currentExecutor = this.executor;
+        List<OwsServiceRequest> requests = request.getRequests();
+        int start = 0;
+        while (start < requests.size()) {
+            int end = start + 1;
+            if (currentExecutor != null && isReadOnly(requests.get(start))) {
+                while (end < requests.size() && isReadOnly(requests.get(end))) {
+                    end++;
+                }
+            }
+            List<ExceptionOrResponse> results = end - start > 1
+                    ? executeConcurrently(requests.subList(start, end), request, currentExecutor)
+                    : Collections.singletonList(execute(requests.get(start), request));
+            for (ExceptionOrResponse result : results) {
+                response.add(result);
+                if (result.isException() && request.isStopAtFailure()) {
+                    return response;
+                }
+            }
+            start = end;
+        }
+        return response;
+    }
+
+    private ExceptionOrResponse execute(OwsServiceRequest r, BatchRequest request) {
+        try {
+            return new ExceptionOrResponse(getServiceOperator(r).receiveRequest(r));
+        } catch (OwsExceptionReport e) {
+            return new ExceptionOrResponse(
+                    e.setVersion(r.getVersion() != null ? r.getVersion() : request.getVersion()));
+        }
+    }
+
+    private List<ExceptionOrResponse> executeConcurrently(List<OwsServiceRequest> requests, BatchRequest request,
+            ExecutorService currentExecutor) throws OwsExceptionReport {
+        List<Future<ExceptionOrResponse>> futures = new ArrayList<>(requests.size());
+        for (OwsServiceRequest r : requests) {
             try {
-                response.add(getServiceOperator(r).receiveRequest(r));
-            } catch (OwsExceptionReport e) {
-                response.add(e.setVersion(r.getVersion() != null ? r.getVersion() : request.getVersion()));
-                if (request.isStopAtFailure()) {
+                // measure the phases of the sub-request as part of the Batch request
+                futures.add(currentExecutor.submit(RequestMetricsContext.bind(() -> execute(r, request))));
+            } catch (RejectedExecutionException e) {
+                // the executor was replaced because the setting was changed
+                futures.add(CompletableFuture.completedFuture(execute(r, request)));
+            }
+        }
+        List<ExceptionOrResponse> results = new ArrayList<>(requests.size());
+        try {
+            for (Future<ExceptionOrResponse> future : futures) {
+                ExceptionOrResponse result = future.get();
+                results.add(result);
+                if (result.isException() && request.isStopAtFailure()) {
                     break;
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NoApplicableCodeException().causedBy(e)
+                    .withMessage("Interrupted while executing the batch requests");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new NoApplicableCodeException().causedBy(e.getCause())
+                    .withMessage("Error while executing the batch requests");
+        } finally {
+            // the remaining requests are not required after a failure
+            futures.forEach(future -> future.cancel(false));
         }
-        return response;
+        return results;
+    }
+
+    /**
+     * Check if the request does not modify the data and can be executed
+     * concurrently to other read-only requests
+     *
+     * @param request
+     *            the request to check
+     * @return <code>true</code>, if the request is read-only
+     */
+    protected boolean isReadOnly(OwsServiceRequest request) {
+        return READ_ONLY_OPERATIONS.contains(request.getOperationName());
     }
 
     protected ServiceOperator getServiceOperator(OwsServiceRequest request) throws OwsExceptionReport {
@@ -169,4 +290,13 @@ public class BatchOperationHandler extends AbstractSosOperationHandler {
     public boolean isSupported() {
         return true;
     }
+
+    @Override
+    public void destroy() {
+        ExecutorService current = this.executor;
+        this.executor = null;
+        if (current != null) {
+            current.shutdown();
+        }
+    }
 }
@@ -55,6 +55,7 @@ import org.n52.iceland.request.operator.RequestOperator;
 import org.n52.iceland.request.operator.RequestOperatorKey;
 import org.n52.iceland.service.operator.ServiceOperatorRepository;
 import org.n52.janmayen.event.EventBus;
+import org.n52.janmayen.function.ThrowingFunction;
 import org.n52.shetland.ogc.filter.BinaryLogicFilter;
 import org.n52.shetland.ogc.filter.ComparisonFilter;
 import org.n52.shetland.ogc.filter.Filter;
@@ -98,6 +99,8 @@ import org.n52.sos.exception.ows.concrete.InvalidResponseFormatParameterExceptio
 import org.n52.sos.exception.ows.concrete.InvalidValueReferenceException;
 import org.n52.sos.exception.ows.concrete.MissingProcedureParameterException;
 import org.n52.sos.exception.ows.concrete.MissingResponseFormatParameterException;
+import org.n52.sos.service.metrics.RequestMetricsContext;
+import org.n52.sos.service.metrics.RequestPhase;
 import org.n52.sos.service.profile.Profile;
 import org.n52.sos.service.profile.ProfileHandler;
 import org.n52.svalbard.encode.EncoderRepository;
@@ -341,6 +344,23 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
                         requestOperatorKey.getOperationName())));
     }
 
+    /**
+     * Call the operation handler and record the duration as
+     * {@link RequestPhase#DAO} of the request metrics.
+     *
+     * @param <T>
+     *            the result type
+     * @param call
+     *            the call of the operation handler
+     * @return the result of the operation handler
+     * @throws OwsExceptionReport
+     *             if the operation handler fails
+     */
+    protected <T> T callOperationHandler(ThrowingFunction<D, T, OwsExceptionReport> call) throws OwsExceptionReport {
+        D handler = getOperationHandler();
+        return RequestMetricsContext.measure(RequestPhase.DAO, () -> call.apply(handler));
+    }
+
     protected Optional<D> getOptionalOperationHandler() {
         return getOptionalOperationHandler(this.requestOperatorKey.getService(),
                 this.requestOperatorKey.getOperationName());
@@ -373,21 +393,38 @@ public abstract class AbstractRequestOperator<D extends OperationHandler,
 
     @Override
     public OwsServiceResponse receiveRequest(OwsServiceRequest abstractRequest) throws OwsExceptionReport {
+        RequestMetricsContext.decoded(abstractRequest);
         this.serviceEventBus.submit(new RequestEvent(abstractRequest));
         if (requestType.isAssignableFrom(abstractRequest.getClass()) && isSupported()) {
             Q request = requestType.cast(abstractRequest);
             preProcessRequest(request);
-            checkForModifierAndProcess(request);
-            checkParameters(request);
-            A response = receive(request);
-            this.serviceEventBus.submit(new ResponseEvent(response));
-            postProcessResponse(response);
-            return checkForModifierAndProcess(request, response);
+            RequestMetricsContext.run(RequestPhase.MODIFIER, () -> checkForModifierAndProcess(request));
+            RequestMetricsContext.run(RequestPhase.HANDLER, () -> checkParameters(request));
+            return receiveModifiedResponse(request);
         } else {
             throw new OperationNotSupportedException(abstractRequest.getOperationName());
         }
     }
 
+    /**
+     * Receive the response for the checked request, post process it and
+     * apply the response modifiers. Operators may override it to cache the
+     * modified responses, because the modifiers change the response in place.
+     *
+     * @param request
+     *            the checked and modified request
+     * @return the modified response
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    protected OwsServiceResponse receiveModifiedResponse(Q request) throws OwsExceptionReport {
+        A response = RequestMetricsContext.measure(RequestPhase.HANDLER, () -> receive(request));
+        this.serviceEventBus.submit(new ResponseEvent(response));
+        postProcessResponse(response);
+        return RequestMetricsContext.measure(RequestPhase.MODIFIER,
+                () -> checkForModifierAndProcess(request, response));
+    }
+
     protected void preProcessRequest(Q request) {
         // nothing to do
     }
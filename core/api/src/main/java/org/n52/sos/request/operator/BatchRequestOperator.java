@@ -58,7 +58,7 @@ public class BatchRequestOperator extends AbstractRequestOperator<BatchOperation
         for (OwsServiceRequest r : request) {
             r.setRequestContext(request.getRequestContext());
         }
-        return getOperationHandler().executeRequests(request);
+        return callOperationHandler(handler -> handler.executeRequests(request));
     }
 
     @Override
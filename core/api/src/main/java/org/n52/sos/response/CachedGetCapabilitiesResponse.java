@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.response;
+
+import org.n52.shetland.ogc.ows.service.GetCapabilitiesResponse;
+import org.n52.sos.cache.CapabilitiesResponseCache;
+
+/**
+ * {@link GetCapabilitiesResponse} of a dynamic capabilities document which can
+ * be written from or stored in the {@link CapabilitiesResponseCache}. If the
+ * response is cached, the capabilities only contain the updateSequence and the
+ * cached document is written instead of encoding the capabilities.
+ *
+ * @since 6.1.2
+ *
+ */
+public class CachedGetCapabilitiesResponse extends GetCapabilitiesResponse {
+
+    private final CapabilitiesResponseCache.Key key;
+
+    private final String updateSequence;
+
+    private final CapabilitiesResponseCache.Entry entry;
+
+    public CachedGetCapabilitiesResponse(String service, String version, CapabilitiesResponseCache.Key key,
+            String updateSequence) {
+        this(service, version, key, updateSequence, null);
+    }
+
+    public CachedGetCapabilitiesResponse(String service, String version, CapabilitiesResponseCache.Key key,
+            String updateSequence, CapabilitiesResponseCache.Entry entry) {
+        super(service, version);
+        this.key = key;
+        this.updateSequence = updateSequence;
+        this.entry = entry;
+    }
+
+    /**
+     * @return the key to store the encoded response in the cache
+     */
+    public CapabilitiesResponseCache.Key getCacheKey() {
+        return key;
+    }
+
+    /**
+     * @return the updateSequence of the capabilities
+     */
+    public String getUpdateSequence() {
+        return updateSequence;
+    }
+
+    /**
+     * @return the cached document or <code>null</code> if the capabilities
+     *         have to be encoded
+     */
+    public CapabilitiesResponseCache.Entry getEntry() {
+        return entry;
+    }
+
+    /**
+     * @return <code>true</code>, if the cached document is written
+     */
+    public boolean isCached() {
+        return entry != null;
+    }
+
+}
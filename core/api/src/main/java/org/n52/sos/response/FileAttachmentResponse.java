@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.n52.janmayen.http.MediaType;
+import org.n52.shetland.ogc.sos.response.BinaryAttachmentResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link BinaryAttachmentResponse} whose content is kept in files of a
+ * temporary directory instead of a byte array. The content is copied from the
+ * files to the response output stream when the response is written, either as
+ * is for a single file or as entries of a zip archive. The temporary directory
+ * is deleted when the response is closed, which is done by the
+ * {@link org.n52.sos.coding.encode.BinaryAttachmentResponseWriter} after
+ * writing. Content read with {@link #getBytes()} or set with
+ * {@link #setBytes(byte[])} replaces the files, is kept in memory and is
+ * written as is. If a response is discarded without being closed, the
+ * temporary directory is deleted once the response is garbage collected.
+ *
+ * @since 6.1.2
+ *
+ */
+public class FileAttachmentResponse extends BinaryAttachmentResponse implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileAttachmentResponse.class);
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private static final String TEMP_DIRECTORY_PREFIX = "sos-attachment";
+
+    private final File directory;
+
+    private final Cleaner.Cleanable cleanable;
+
+    private boolean zip;
+
+    private final List<File> files = new LinkedList<>();
+
+    private boolean inMemory;
+
+    private boolean closed;
+
+    public FileAttachmentResponse(File directory, MediaType contentType, String filename, boolean zip) {
+        super(null, contentType, filename);
+        this.directory = directory;
+        this.zip = zip;
+        this.cleanable = CLEANER.register(this, new DirectoryCleanup(directory));
+    }
+
+    /**
+     * Create a response backed by a new temporary directory.
+     *
+     * @param contentType
+     *            the content type
+     * @param filename
+     *            the attachment file name
+     * @param zip
+     *            if the files should be written as zip archive
+     * @return the response
+     * @throws IOException
+     *             If the temporary directory could not be created
+     */
+    public static FileAttachmentResponse createTemporary(MediaType contentType, String filename, boolean zip)
+            throws IOException {
+        return new FileAttachmentResponse(Files.createTempDirectory(TEMP_DIRECTORY_PREFIX).toFile(), contentType,
+                filename, zip);
+    }
+
+    /**
+     * Register a new file in the directory of this response. The file is not
+     * created, only its content is written when the response is written.
+     *
+     * @param name
+     *            the file name
+     * @return the file to write the content to
+     */
+    public synchronized File createFile(String name) {
+        if (closed || inMemory) {
+            throw new IllegalStateException("The file attachment is already closed or kept in memory");
+        }
+        File file = new File(directory, name);
+        files.add(file);
+        return file;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public synchronized List<File> getFiles() {
+        return Collections.unmodifiableList(new LinkedList<>(files));
+    }
+
+    public synchronized boolean isZip() {
+        return zip;
+    }
+
+    /**
+     * @return the length of the content or <code>-1</code> if it is unknown
+     *         before writing, e.g. for zip archives
+     */
+    public synchronized long getLength() {
+        if (inMemory) {
+            byte[] bytes = super.getBytes();
+            return bytes == null ? 0 : bytes.length;
+        }
+        if (zip || files.size() != 1) {
+            return -1;
+        }
+        return files.get(0).length();
+    }
+
+    @Override
+    public int getSize() {
+        long length = getLength();
+        return length > Integer.MAX_VALUE ? -1 : (int) length;
+    }
+
+    /**
+     * Read the content into memory and delete the temporary directory. Only
+     * for consumers which can not handle this response as stream, use
+     * {@link #writeTo(OutputStream)} otherwise.
+     */
+    @Override
+    public synchronized byte[] getBytes() {
+        if (!inMemory) {
+            try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+                writeTo(out);
+                setBytes(out.toByteArray());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return super.getBytes();
+    }
+
+    /**
+     * Replace the files with the content, which is kept in memory and written
+     * as is, even if the response was created as zip archive.
+     */
+    @Override
+    public synchronized void setBytes(byte[] bytes) {
+        if (closed) {
+            throw new IllegalStateException("The file attachment is already closed");
+        }
+        files.clear();
+        zip = false;
+        inMemory = true;
+        super.setBytes(bytes);
+        cleanable.clean();
+    }
+
+    /**
+     * Copy the content to the output stream. The output stream is not closed.
+     *
+     * @param out
+     *            the output stream
+     * @throws IOException
+     *             If reading the files or writing fails
+     */
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        if (closed) {
+            throw new IOException("The file attachment is already closed");
+        }
+        if (inMemory) {
+            byte[] bytes = super.getBytes();
+            if (bytes != null) {
+                out.write(bytes);
+            }
+        } else if (zip) {
+            ZipOutputStream zipOut = new ZipOutputStream(out);
+            for (File file : files) {
+                zipOut.putNextEntry(new ZipEntry(file.getName()));
+                Files.copy(file.toPath(), zipOut);
+                zipOut.closeEntry();
+            }
+            // finish instead of close to keep the response stream open
+            zipOut.finish();
+        } else {
+            for (File file : files) {
+                Files.copy(file.toPath(), out);
+            }
+        }
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            super.setBytes(null);
+            cleanable.clean();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            LOGGER.warn("Could not delete temporary file {}", file);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileAttachmentResponse [files = " + getFiles() + ", zip = " + isZip() + ", contentType="
+                + getContentType() + ", filename=" + getFilename() + "]";
+    }
+
+    /**
+     * Deletes the temporary directory. Must not reference the response, so it
+     * can be run by the {@link Cleaner} once the response is unreachable.
+     */
+    private static final class DirectoryCleanup implements Runnable {
+
+        private final File directory;
+
+        DirectoryCleanup(File directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public void run() {
+            delete(directory);
+        }
+    }
+}
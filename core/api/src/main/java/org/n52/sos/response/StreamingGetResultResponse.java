@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.response;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Objects;
+
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.response.GetResultResponse;
+
+/**
+ * {@link GetResultResponse} which writes the result values to the response
+ * output stream when the response is written instead of keeping them as
+ * {@link String}. The result values can be written once. If the result values
+ * are requested as {@link String}, e.g. by a non streaming encoder, they are
+ * created and kept in memory.
+ *
+ * @since 6.1.2
+ *
+ */
+public class StreamingGetResultResponse extends GetResultResponse {
+
+    private final ResultValuesProvider resultValuesProvider;
+
+    private boolean resultValuesSet;
+
+    private boolean written;
+
+    public StreamingGetResultResponse(String service, String version, ResultValuesProvider resultValuesProvider) {
+        super(service, version);
+        this.resultValuesProvider = Objects.requireNonNull(resultValuesProvider);
+    }
+
+    /**
+     * @return <code>true</code>, if the result values are not yet written or
+     *         created as {@link String}
+     */
+    public boolean isStreaming() {
+        return !resultValuesSet && !written;
+    }
+
+    /**
+     * Write the result values to the writer
+     *
+     * @param writer
+     *            the writer
+     * @throws IOException
+     *             If writing fails
+     * @throws OwsExceptionReport
+     *             If the result values could not be created
+     */
+    public void writeResultValues(Writer writer) throws IOException, OwsExceptionReport {
+        if (!isStreaming()) {
+            if (super.hasResultValues()) {
+                writer.write(super.getResultValues());
+            }
+            return;
+        }
+        written = true;
+        resultValuesProvider.write(writer);
+    }
+
+    @Override
+    public void setResultValues(String resultValues) {
+        this.resultValuesSet = true;
+        super.setResultValues(resultValues);
+    }
+
+    @Override
+    public String getResultValues() {
+        if (isStreaming()) {
+            StringWriter writer = new StringWriter();
+            try {
+                writeResultValues(writer);
+            } catch (IOException | OwsExceptionReport e) {
+                throw new IllegalStateException("Error while creating the result values", e);
+            }
+            setResultValues(writer.toString());
+        }
+        return super.getResultValues();
+    }
+
+    @Override
+    public boolean hasResultValues() {
+        return isStreaming() || super.hasResultValues();
+    }
+
+    /**
+     * Provider of the result values of a {@link StreamingGetResultResponse}
+     */
+    @FunctionalInterface
+    public interface ResultValuesProvider {
+
+        /**
+         * Write the result values to the writer
+         *
+         * @param writer
+         *            the writer
+         * @throws IOException
+         *             If writing fails
+         * @throws OwsExceptionReport
+         *             If the result values could not be created
+         */
+        void write(Writer writer) throws IOException, OwsExceptionReport;
+    }
+
+}
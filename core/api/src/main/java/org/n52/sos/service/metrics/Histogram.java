@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.service.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Lock free histogram with fixed bucket boundaries. Recording a value is a
+ * binary search and a few {@link LongAdder} increments, so it can be used on
+ * the request path of every operation. Percentiles are estimated as the upper
+ * bound of the bucket containing the requested rank.
+ *
+ * @since 6.1.2
+ */
+public class Histogram {
+
+    private final long[] bounds;
+
+    private final LongAdder[] buckets;
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * @param bounds
+     *            the inclusive upper bounds of the buckets in ascending order,
+     *            larger values are counted in an additional overflow bucket
+     */
+    public Histogram(long... bounds) {
+        Preconditions.checkArgument(bounds.length > 0, "at least one bucket bound is required");
+        for (int i = 1; i < bounds.length; i++) {
+            Preconditions.checkArgument(bounds[i - 1] < bounds[i], "bucket bounds have to be ascending");
+        }
+        this.bounds = Arrays.copyOf(bounds, bounds.length);
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Create a histogram with exponentially growing bucket bounds.
+     *
+     * @param first
+     *            the upper bound of the first bucket
+     * @param factor
+     *            the factor between two consecutive bounds
+     * @param count
+     *            the number of bounds
+     * @return the histogram
+     */
+    public static Histogram exponential(long first, int factor, int count) {
+        Preconditions.checkArgument(first > 0 && factor > 1 && count > 0);
+        long[] bounds = new long[count];
+        bounds[0] = first;
+        for (int i = 1; i < count; i++) {
+            bounds[i] = bounds[i - 1] * factor;
+        }
+        return new Histogram(bounds);
+    }
+
+    public void record(long value) {
+        int index = Arrays.binarySearch(bounds, value);
+        buckets[index < 0 ? -index - 1 : index].increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return new Snapshot(bounds, counts, sum.sum(), max.get());
+    }
+
+    /**
+     * Point in time copy of a {@link Histogram}. As the values are read
+     * without locking, a snapshot taken during concurrent updates may be off
+     * by the values recorded meanwhile.
+     */
+    public static class Snapshot {
+
+        private final long[] bounds;
+
+        private final long[] counts;
+
+        private final long count;
+
+        private final long sum;
+
+        private final long max;
+
+        Snapshot(long[] bounds, long[] counts, long sum, long max) {
+            this.bounds = bounds;
+            this.counts = counts;
+            this.count = Arrays.stream(counts).sum();
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public long getMean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        public long getP50() {
+            return getPercentile(0.5);
+        }
+
+        public long getP90() {
+            return getPercentile(0.9);
+        }
+
+        public long getP99() {
+            return getPercentile(0.99);
+        }
+
+        /**
+         * @return the inclusive upper bounds of the buckets, the last bucket
+         *         of {@link #getCounts()} is unbounded
+         */
+        public long[] getBounds() {
+            return Arrays.copyOf(bounds, bounds.length);
+        }
+
+        public long[] getCounts() {
+            return Arrays.copyOf(counts, counts.length);
+        }
+
+        /**
+         * Estimate the percentile as the upper bound of the bucket containing
+         * it, limited by the maximum recorded value.
+         *
+         * @param quantile
+         *            the quantile between 0 and 1
+         * @return the estimated value or 0 if nothing was recorded
+         */
+        public long getPercentile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bounds[i], max);
+                }
+            }
+            return max;
+        }
+    }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.service.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.janmayen.lifecycle.Constructable;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.ows.service.ResponseFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records latency histograms of the {@link RequestPhase}s and the response
+ * size of every service request, grouped by service, version, operation and
+ * response format. The timings are collected in a thread bound
+ * {@link RequestMetricsContext}, which the {@link RequestMetricsFilter} starts
+ * and records on the request thread, as the request flow events may be
+ * handled by any thread. Sub-requests which a Batch request executes on
+ * worker threads are bound to the context of the Batch request. Failed requests are recorded without the requested
+ * response format and the number of distinct groups is limited, further
+ * groups are recorded as unknown operation. The metrics are kept in memory,
+ * independent of the Elasticsearch based statistics, and are available in the
+ * administrator interface and as MXBean {@value #OBJECT_NAME}.
+ *
+ * @since 6.1.2
+ */
+@Configurable
+public class RequestMetrics implements Constructable, Destroyable, RequestMetricsMXBean {
+
+    public static final String ENABLED = "service.metrics.enabled";
+
+    public static final String OBJECT_NAME = "org.n52.sos:type=RequestMetrics";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestMetrics.class);
+
+    /**
+     * Latency buckets from 100 µs to about 52 s.
+     */
+    private static final long LATENCY_BUCKET_START = 100;
+
+    private static final int LATENCY_BUCKETS = 20;
+
+    /**
+     * Size buckets from 1 KiB to 4 GiB.
+     */
+    private static final long SIZE_BUCKET_START = 1024;
+
+    private static final int SIZE_BUCKETS = 12;
+
+    private static final String UNKNOWN_OPERATION = "unknown";
+
+    /**
+     * Maximum number of distinct service, version, operation and response
+     * format groups.
+     */
+    private static final int MAX_KEYS = 256;
+
+    private static final Key UNKNOWN = new Key(null, null, UNKNOWN_OPERATION, null);
+
+    private final ConcurrentMap<Key, OperationMetrics> metrics = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled = true;
+
+    private ObjectName objectName;
+
+    @Setting(value = ENABLED, required = false)
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled == null || enabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void init() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            server.registerMBean(this, name);
+            this.objectName = name;
+        } catch (InstanceAlreadyExistsException e) {
+            LOGGER.warn("MXBean {} is already registered by another application", OBJECT_NAME);
+        } catch (JMException e) {
+            LOGGER.warn("Could not register MXBean " + OBJECT_NAME, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOGGER.warn("Could not unregister MXBean " + OBJECT_NAME, e);
+            }
+            objectName = null;
+        }
+    }
+
+    void record(RequestMetricsContext context, long now) {
+        Key key = context.getKey() != null ? context.getKey() : UNKNOWN;
+        if (context.isFailed()) {
+            // the response format of a failed request may not have been validated
+            key = key.withoutResponseFormat();
+        }
+        OperationMetrics operation = metrics.get(key);
+        if (operation == null) {
+            operation = metrics.computeIfAbsent(metrics.size() < MAX_KEYS ? key : UNKNOWN,
+                    k -> new OperationMetrics());
+        }
+        operation.requests.increment();
+        if (context.isFailed()) {
+            operation.errors.increment();
+        }
+        for (RequestPhase phase : RequestPhase.values()) {
+            long duration = context.getDuration(phase, now);
+            if (duration >= 0) {
+                operation.latencies.get(phase).record(TimeUnit.NANOSECONDS.toMicros(duration));
+            }
+        }
+        if (context.getBytesWritten() >= 0) {
+            operation.responseSize.record(context.getBytesWritten());
+        }
+    }
+
+    @Override
+    public List<RequestMetricsSnapshot> getOperations() {
+        List<RequestMetricsSnapshot> snapshots = new ArrayList<>(metrics.size());
+        metrics.forEach((key, operation) -> snapshots.add(operation.snapshot(key)));
+        snapshots.sort(Comparator.comparing(RequestMetricsSnapshot::getOperation)
+                .thenComparing(RequestMetricsSnapshot::getService, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(RequestMetricsSnapshot::getVersion, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(RequestMetricsSnapshot::getResponseFormat,
+                        Comparator.nullsFirst(Comparator.naturalOrder())));
+        return snapshots;
+    }
+
+    @Override
+    public void reset() {
+        metrics.clear();
+    }
+
+    static Key createKey(OwsServiceRequest request) {
+        if (request == null) {
+            return UNKNOWN;
+        }
+        String responseFormat = request instanceof ResponseFormat
+                ? ((ResponseFormat) request).getResponseFormat()
+                : null;
+        return new Key(request.getService(), request.getVersion(), request.getOperationName(), responseFormat);
+    }
+
+    static final class Key {
+
+        private final String service;
+
+        private final String version;
+
+        private final String operation;
+
+        private final String responseFormat;
+
+        Key(String service, String version, String operation, String responseFormat) {
+            this.service = service;
+            this.version = version;
+            this.operation = operation != null ? operation : UNKNOWN_OPERATION;
+            this.responseFormat = responseFormat;
+        }
+
+        Key withoutResponseFormat() {
+            return responseFormat == null ? this : new Key(service, version, operation, null);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(service, version, operation, responseFormat);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(service, other.service) && Objects.equals(version, other.version)
+                    && Objects.equals(operation, other.operation)
+                    && Objects.equals(responseFormat, other.responseFormat);
+        }
+
+    }
+
+    private static final class OperationMetrics {
+
+        private final LongAdder requests = new LongAdder();
+
+        private final LongAdder errors = new LongAdder();
+
+        private final Map<RequestPhase, Histogram> latencies = new EnumMap<>(RequestPhase.class);
+
+        private final Histogram responseSize = Histogram.exponential(SIZE_BUCKET_START, 4, SIZE_BUCKETS);
+
+        OperationMetrics() {
+            for (RequestPhase phase : RequestPhase.values()) {
+                latencies.put(phase, Histogram.exponential(LATENCY_BUCKET_START, 2, LATENCY_BUCKETS));
+            }
+        }
+
+        RequestMetricsSnapshot snapshot(Key key) {
+            Map<String, Histogram.Snapshot> phases = new LinkedHashMap<>();
+            latencies.forEach((phase, histogram) -> {
+                Histogram.Snapshot snapshot = histogram.snapshot();
+                if (snapshot.getCount() > 0) {
+                    phases.put(phase.name(), snapshot);
+                }
+            });
+            Histogram.Snapshot size = responseSize.snapshot();
+            return new RequestMetricsSnapshot(key.service, key.version, key.operation, key.responseFormat,
+                    requests.sum(), errors.sum(), phases, size.getCount() > 0 ? size : null);
+        }
+
+    }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.service.metrics;
+
+import java.util.concurrent.Callable;
+
+import org.n52.janmayen.function.ThrowingRunnable;
+import org.n52.janmayen.function.ThrowingSupplier;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+
+/**
+ * Timings of the service request processed by the current thread. The context
+ * is created and recorded by the {@link RequestMetricsFilter} on the request
+ * thread, the request operators mark the decoded request with
+ * {@link #decoded(OwsServiceRequest)}. Code on the request path marks its phases
+ * with {@link #measure(RequestPhase, ThrowingSupplier)}, which always executes
+ * the supplier and only skips the timing if no context is active (e.g. metrics
+ * are disabled or the code runs on a worker thread). Tasks which are executed
+ * by a worker thread on behalf of the request, e.g. concurrent Batch
+ * sub-requests, are bound to the context with {@link #bind(Callable)}. Nested
+ * or concurrent executions of the same phase are counted once, i.e. the phase
+ * lasts as long as at least one execution is active.
+ *
+ * @since 6.1.2
+ */
+public final class RequestMetricsContext {
+
+    private static final ThreadLocal<RequestMetricsContext> CURRENT = new ThreadLocal<>();
+
+    private final long start;
+
+    private final long[] durations = new long[RequestPhase.values().length];
+
+    private final int[] active = new int[RequestPhase.values().length];
+
+    private final long[] since = new long[RequestPhase.values().length];
+
+    private long dispatched = -1;
+
+    private long handled = -1;
+
+    private long bytesWritten = -1;
+
+    private boolean failed;
+
+    private RequestMetrics.Key key;
+
+    private RequestMetricsContext(long start) {
+        this.start = start;
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = -1;
+        }
+    }
+
+    static RequestMetricsContext start(long now) {
+        RequestMetricsContext context = new RequestMetricsContext(now);
+        CURRENT.set(context);
+        return context;
+    }
+
+    static RequestMetricsContext current() {
+        return CURRENT.get();
+    }
+
+    static RequestMetricsContext end() {
+        RequestMetricsContext context = CURRENT.get();
+        CURRENT.remove();
+        return context;
+    }
+
+    /**
+     * Bind the context of the current thread to the task, so that the phases
+     * measured while the task is executed by another thread are added to the
+     * current request.
+     *
+     * @param <T>
+     *            the result type
+     * @param task
+     *            the task
+     * @return the bound task or the task itself if no context is active
+     */
+    public static <T> Callable<T> bind(Callable<T> task) {
+        RequestMetricsContext context = CURRENT.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            RequestMetricsContext previous = CURRENT.get();
+            CURRENT.set(context);
+            try {
+                return task.call();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Mark the request of the current thread as decoded. Only the first
+     * request is used, e.g. the Batch request and not its sub-requests.
+     *
+     * @param request
+     *            the decoded request
+     */
+    public static void decoded(OwsServiceRequest request) {
+        RequestMetricsContext context = CURRENT.get();
+        if (context != null) {
+            context.dispatched(RequestMetrics.createKey(request), System.nanoTime());
+        }
+    }
+
+    /**
+     * Execute the supplier and add its execution time to the phase of the
+     * current request.
+     *
+     * @param <T>
+     *            the result type
+     * @param <X>
+     *            the exception type
+     * @param phase
+     *            the phase
+     * @param supplier
+     *            the supplier
+     * @return the result of the supplier
+     * @throws X
+     *             if the supplier fails
+     */
+    public static <T, X extends Exception> T measure(RequestPhase phase, ThrowingSupplier<T, X> supplier)
+            throws X {
+        RequestMetricsContext context = CURRENT.get();
+        if (context == null) {
+            return supplier.get();
+        }
+        context.begin(phase);
+        try {
+            return supplier.get();
+        } finally {
+            context.end(phase);
+        }
+    }
+
+    /**
+     * Execute the runnable and add its execution time to the phase of the
+     * current request.
+     *
+     * @param <X>
+     *            the exception type
+     * @param phase
+     *            the phase
+     * @param runnable
+     *            the runnable
+     * @throws X
+     *             if the runnable fails
+     */
+    public static <X extends Exception> void run(RequestPhase phase, ThrowingRunnable<X> runnable) throws X {
+        RequestMetricsContext context = CURRENT.get();
+        if (context == null) {
+            runnable.run();
+            return;
+        }
+        context.begin(phase);
+        try {
+            runnable.run();
+        } finally {
+            context.end(phase);
+        }
+    }
+
+    private synchronized void begin(RequestPhase phase) {
+        int i = phase.ordinal();
+        if (active[i]++ == 0) {
+            since[i] = System.nanoTime();
+        }
+    }
+
+    private synchronized void end(RequestPhase phase) {
+        int i = phase.ordinal();
+        if (--active[i] == 0) {
+            long now = System.nanoTime();
+            durations[i] = Math.max(durations[i], 0) + now - since[i];
+            handled = Math.max(handled, now);
+        }
+    }
+
+    synchronized void dispatched(RequestMetrics.Key requestKey, long now) {
+        if (key == null) {
+            this.key = requestKey;
+            this.dispatched = now;
+        }
+    }
+
+    synchronized void setBytesWritten(long bytesWritten) {
+        this.bytesWritten = bytesWritten;
+    }
+
+    synchronized void failed() {
+        this.failed = true;
+    }
+
+    synchronized RequestMetrics.Key getKey() {
+        return key;
+    }
+
+    synchronized boolean isFailed() {
+        return failed;
+    }
+
+    synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * @param phase
+     *            the phase
+     * @param now
+     *            the time the response was written
+     * @return the duration of the phase in nanoseconds or <code>-1</code> if
+     *         it was not passed
+     */
+    synchronized long getDuration(RequestPhase phase, long now) {
+        switch (phase) {
+            case DECODE:
+                return dispatched < 0 ? -1 : dispatched - start;
+            case ENCODE:
+                return handled < 0 ? -1 : now - handled;
+            case TOTAL:
+                return now - start;
+            default:
+                return durations[phase.ordinal()];
+        }
+    }
+
+}
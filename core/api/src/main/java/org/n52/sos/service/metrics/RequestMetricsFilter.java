@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.service.metrics;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+
+/**
+ * Starts the {@link RequestMetricsContext} of a service request on the request
+ * thread and records it in the {@link RequestMetrics} when the response is
+ * written. Requests are passed through if the service is not configured or the
+ * metrics are disabled.
+ *
+ * @since 6.1.2
+ */
+public class RequestMetricsFilter implements Filter {
+
+    private volatile RequestMetrics metrics;
+
+    private ServletContext servletContext;
+
+    public RequestMetricsFilter() {
+    }
+
+    RequestMetricsFilter(RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        this.servletContext = filterConfig.getServletContext();
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        RequestMetrics requestMetrics = getRequestMetrics();
+        if (requestMetrics == null || !requestMetrics.isEnabled() || !(response instanceof HttpServletResponse)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        CountingResponse countingResponse = new CountingResponse((HttpServletResponse) response);
+        RequestMetricsContext context = RequestMetricsContext.start(System.nanoTime());
+        boolean failed = true;
+        try {
+            chain.doFilter(request, countingResponse);
+            failed = countingResponse.getStatus() >= HttpServletResponse.SC_BAD_REQUEST;
+        } finally {
+            RequestMetricsContext.end();
+            if (failed) {
+                context.failed();
+            }
+            context.setBytesWritten(countingResponse.getBytesWritten());
+            requestMetrics.record(context, System.nanoTime());
+        }
+    }
+
+    private RequestMetrics getRequestMetrics() {
+        if (metrics == null && servletContext != null) {
+            WebApplicationContext applicationContext =
+                    WebApplicationContextUtils.getWebApplicationContext(servletContext);
+            if (applicationContext != null) {
+                metrics = applicationContext.getBeanProvider(RequestMetrics.class).getIfAvailable();
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Counts the bytes written to the output stream of the response.
+     */
+    private static class CountingResponse extends HttpServletResponseWrapper {
+
+        private CountingOutputStream outputStream;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new CountingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        /**
+         * @return the number of bytes written or <code>-1</code> if the output
+         *         stream was not used
+         */
+        long getBytesWritten() {
+            return outputStream != null ? outputStream.count : -1;
+        }
+
+    }
+
+    private static class CountingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        private long count;
+
+        CountingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.service.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Point in time copy of the metrics of one operation and response format.
+ * Latencies are given in microseconds, response sizes in bytes.
+ *
+ * @since 6.1.2
+ */
+public class RequestMetricsSnapshot {
+
+    private final String service;
+
+    private final String version;
+
+    private final String operation;
+
+    private final String responseFormat;
+
+    private final long requests;
+
+    private final long errors;
+
+    private final Map<String, Histogram.Snapshot> latencies;
+
+    private final Histogram.Snapshot responseSize;
+
+    public RequestMetricsSnapshot(String service, String version, String operation, String responseFormat,
+            long requests, long errors, Map<String, Histogram.Snapshot> latencies, Histogram.Snapshot responseSize) {
+        this.service = service;
+        this.version = version;
+        this.operation = operation;
+        this.responseFormat = responseFormat;
+        this.requests = requests;
+        this.errors = errors;
+        this.latencies = Collections.unmodifiableMap(latencies);
+        this.responseSize = responseSize;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the requested response format or <code>null</code> if the
+     *         request has none
+     */
+    public String getResponseFormat() {
+        return responseFormat;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the latency histograms by {@link RequestPhase} name, phases a
+     *         request did not pass are omitted
+     */
+    public Map<String, Histogram.Snapshot> getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return the size of the written responses, only available if the
+     *         counting output stream is enabled
+     */
+    public Histogram.Snapshot getResponseSize() {
+        return responseSize;
+    }
+
+}
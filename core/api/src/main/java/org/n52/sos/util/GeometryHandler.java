@@ -27,6 +27,7 @@
  */
 package org.n52.sos.util;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -42,8 +43,11 @@ import org.geotools.referencing.ReferencingFactoryFinder;
 import org.geotools.referencing.factory.AbstractAuthorityFactory;
 import org.geotools.referencing.factory.DeferredAuthorityFactory;
 import org.geotools.util.factory.Hints;
+import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
 import org.n52.faroe.ConfigurationError;
 import org.n52.faroe.Validation;
 import org.n52.faroe.annotation.Configurable;
@@ -122,6 +126,11 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
 
     private final Map<Integer, CoordinateReferenceSystem> crsCache = Maps.newConcurrentMap();
 
+    private final Map<Integer, Boolean> northingFirstCache = Maps.newConcurrentMap();
+
+    /* source EPSG code in the upper, target EPSG code in the lower 32 bits */
+    private final Map<Long, MathTransform> mathTransformCache = Maps.newConcurrentMap();
+
     private String srsNamePrefixUrl;
 
     @Setting(CodingSettings.SRS_NAME_PREFIX_URL)
@@ -446,11 +455,17 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
      *             If an error occurs
      */
     public boolean isNorthingFirstEpsgCode(int epsgCode) throws CodedException {
-        try {
-            return AxisOrder.NORTH_EAST.equals(CRS.getAxisOrder(CRS.decode(EPSG_PREFIX + epsgCode)));
-        } catch (FactoryException e) {
-            throw new NoApplicableCodeException().causedBy(e).withMessage("The EPSG '%d' is invalid", epsgCode);
+        Boolean northingFirst = northingFirstCache.get(epsgCode);
+        if (northingFirst == null) {
+            try {
+                northingFirst = AxisOrder.NORTH_EAST.equals(CRS.getAxisOrder(CRS.decode(EPSG_PREFIX + epsgCode)));
+            } catch (FactoryException e) {
+                throw new NoApplicableCodeException().causedBy(e).withMessage("The EPSG '%d' is invalid",
+                        epsgCode);
+            }
+            northingFirstCache.put(epsgCode, northingFirst);
         }
+        return northingFirst;
         // return this.epsgsWithNorthingFirstAxisOrder.stream()
         // .filter(r -> r.contains(epsgCode))
         // .findAny().isPresent();
@@ -701,7 +716,7 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
         }
         Geometry switchedCoordiantes = switchCoordinateAxisIfNeeded(geometry, targetSRID);
         try {
-            MathTransform transform = CRS.findMathTransform(sourceCRS, targetCRS);
+            MathTransform transform = getMathTransform(geometry.getSRID(), sourceCRS, targetSRID, targetCRS);
             Geometry transformed = JTS.transform(switchedCoordiantes, transform);
             transformed.setSRID(targetSRID);
             return transformed;
@@ -711,6 +726,132 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
         }
     }
 
+    /**
+     * Transform the geometries to this EPSG code. The points of each source
+     * EPSG code are transformed together with one call of the
+     * {@link MathTransform}, other geometries are transformed one by one.
+     *
+     * @param geometries
+     *            Geometries to transform
+     * @param targetSRID
+     *            Target EPSG code
+     *
+     * @return Transformed geometries in the order of the geometries
+     *
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    public List<Geometry> transform(List<? extends Geometry> geometries, int targetSRID) throws OwsExceptionReport {
+        List<Geometry> transformed = new ArrayList<>(geometries);
+        Map<Integer, List<Integer>> pointsBySRID = Maps.newHashMap();
+        for (int i = 0; i < geometries.size(); i++) {
+            Geometry geometry = geometries.get(i);
+            if (geometry instanceof Point && !geometry.isEmpty() && geometry.getSRID() != targetSRID) {
+                pointsBySRID.computeIfAbsent(geometry.getSRID(), srid -> new ArrayList<>()).add(i);
+            } else {
+                transformed.set(i, transform(geometry, targetSRID));
+            }
+        }
+        for (Map.Entry<Integer, List<Integer>> points : pointsBySRID.entrySet()) {
+            List<Integer> indices = points.getValue();
+            Coordinate[] coordinates = new Coordinate[indices.size()];
+            for (int i = 0; i < coordinates.length; i++) {
+                coordinates[i] = geometries.get(indices.get(i)).getCoordinate();
+            }
+            Coordinate[] transformedCoordinates = transform(coordinates, points.getKey(), targetSRID);
+            if (transformedCoordinates != coordinates) {
+                GeometryFactory factory = JTSHelper.getGeometryFactoryForSRID(targetSRID);
+                for (int i = 0; i < coordinates.length; i++) {
+                    transformed.set(indices.get(i), factory.createPoint(transformedCoordinates[i]));
+                }
+            }
+        }
+        return transformed;
+    }
+
+    /**
+     * Transform the coordinates from source to target EPSG code with one call
+     * of the {@link MathTransform}. The coordinates are not modified.
+     *
+     * @param coordinates
+     *            Coordinates to transform
+     * @param sourceSRID
+     *            Source EPSG code
+     * @param targetSRID
+     *            Target EPSG code
+     *
+     * @return Transformed coordinates or the coordinates if source and target
+     *         CRS are equal
+     *
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    public Coordinate[] transform(Coordinate[] coordinates, int sourceSRID, int targetSRID)
+            throws OwsExceptionReport {
+        if (coordinates == null || coordinates.length == 0 || sourceSRID == targetSRID) {
+            return coordinates;
+        }
+        CoordinateReferenceSystem sourceCRS = getCRS(sourceSRID);
+        CoordinateReferenceSystem targetCRS = getCRS(targetSRID);
+        if (sourceCRS.equals(targetCRS)) {
+            return coordinates;
+        }
+        boolean switchAxis = isNorthingFirstEpsgCode(sourceSRID) != isNorthingFirstEpsgCode(targetSRID);
+        try {
+            MathTransform transform = getMathTransform(sourceSRID, sourceCRS, targetSRID, targetCRS);
+            int sourceDim = transform.getSourceDimensions();
+            int targetDim = transform.getTargetDimensions();
+            double[] source = new double[coordinates.length * sourceDim];
+            for (int i = 0, j = 0; i < coordinates.length; i++, j += sourceDim) {
+                source[j] = switchAxis ? coordinates[i].getY() : coordinates[i].getX();
+                source[j + 1] = switchAxis ? coordinates[i].getX() : coordinates[i].getY();
+                if (sourceDim > 2) {
+                    source[j + 2] = coordinates[i].getZ();
+                }
+            }
+            double[] target = new double[coordinates.length * targetDim];
+            transform.transform(source, 0, target, 0, coordinates.length);
+            Coordinate[] transformed = new Coordinate[coordinates.length];
+            for (int i = 0, j = 0; i < coordinates.length; i++, j += targetDim) {
+                transformed[i] = new Coordinate(target[j], target[j + 1], targetDim > 2 ? target[j + 2] : Double.NaN);
+            }
+            return transformed;
+        } catch (FactoryException fe) {
+            throw new NoApplicableCodeException().causedBy(fe).withMessage(EPSG_NOT_SUPPORTED_TMEPLATE, sourceSRID);
+        } catch (TransformException te) {
+            throw new NoApplicableCodeException().causedBy(te)
+                    .withMessage("Transformation from EPSG code '%s' to '%s' fails!", sourceSRID, targetSRID);
+        }
+    }
+
+    /**
+     * Get the cached {@link MathTransform} from source to target CRS.
+     *
+     * @param sourceSRID
+     *            Source EPSG code
+     * @param sourceCRS
+     *            Source CRS
+     * @param targetSRID
+     *            Target EPSG code
+     * @param targetCRS
+     *            Target CRS
+     *
+     * @return the transformation
+     *
+     * @throws FactoryException
+     *             If no transformation could be found
+     */
+    private MathTransform getMathTransform(int sourceSRID, CoordinateReferenceSystem sourceCRS, int targetSRID,
+            CoordinateReferenceSystem targetCRS) throws FactoryException {
+        Long key = ((long) sourceSRID << 32) | (targetSRID & 0xFFFFFFFFL);
+        MathTransform transform = mathTransformCache.get(key);
+        if (transform == null) {
+            transform = CRS.findMathTransform(sourceCRS, targetCRS);
+            mathTransformCache.put(key, transform);
+        }
+        return transform;
+    }
+
     /**
      * Get CRS from EPSG code.
      *
@@ -791,7 +932,7 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
             CoordinateReferenceSystem targetCRS = getCRS(targetSRID);
             try {
                 if (sourceCRS.getCoordinateSystem().getDimension() == targetCRS.getCoordinateSystem().getDimension()) {
-                    MathTransform transform = CRS.findMathTransform(sourceCRS, targetCRS);
+                    MathTransform transform = getMathTransform(sourceSRID, sourceCRS, targetSRID, targetCRS);
                     Envelope transformed = JTS.transform(envelope, transform);
                     return transformed;
                 }
@@ -808,11 +949,13 @@ public class GeometryHandler implements GeometryTransformer, Constructable, Dest
     }
 
     /**
-     * Clears the supported Coordinate Reference Systems map.
+     * Clears the cached Coordinate Reference Systems, axis orders and transformations.
      */
     @VisibleForTesting
     protected void clearSupportedCRSMap() {
         crsCache.clear();
+        northingFirstCache.clear();
+        mathTransformCache.clear();
     }
 
     public Set<String> addAuthorityCrsPrefix(Collection<String> crses) {
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
+
+/**
+ * Single pass tokenizer for SWE text encoded result values. Block and token
+ * separators are matched literally, so separators like {@code |} or {@code .}
+ * which are meta characters for {@link String#split(String)} are supported.
+ * <p>
+ * A preceding element count (a first block without a token separator) and
+ * empty blocks are skipped, empty tokens are kept. The returned rows are views
+ * on a buffer which is reused by the next call of {@link #next()}, callers
+ * which keep a row have to copy it.
+ *
+ * @since 6.1.2
+ */
+public class ResultBlockTokenizer implements Iterator<List<String>> {
+
+    private final String values;
+
+    private final String tokenSeparator;
+
+    private final String blockSeparator;
+
+    private final Row row = new Row();
+
+    private int position;
+
+    private boolean first = true;
+
+    private boolean ready;
+
+    /**
+     * constructor
+     *
+     * @param values
+     *            the result values
+     * @param encoding
+     *            the text encoding providing the separators
+     */
+    public ResultBlockTokenizer(String values, SweTextEncoding encoding) {
+        this(values, encoding.getTokenSeparator(), encoding.getBlockSeparator());
+    }
+
+    /**
+     * constructor
+     *
+     * @param values
+     *            the result values
+     * @param tokenSeparator
+     *            the token separator
+     * @param blockSeparator
+     *            the block separator
+     */
+    public ResultBlockTokenizer(String values, String tokenSeparator, String blockSeparator) {
+        this.values = values == null ? "" : values;
+        this.tokenSeparator = requireSeparator(tokenSeparator, "tokenSeparator");
+        this.blockSeparator = requireSeparator(blockSeparator, "blockSeparator");
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready) {
+            ready = advance();
+        }
+        return ready;
+    }
+
+    @Override
+    public List<String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        return row;
+    }
+
+    private boolean advance() {
+        int length = values.length();
+        while (position <= length) {
+            int start = position;
+            int end = indexOf(values, blockSeparator, start, length);
+            if (end < 0) {
+                end = length;
+                position = length + 1;
+            } else {
+                position = end + blockSeparator.length();
+            }
+            int token = indexOf(values, tokenSeparator, start, end);
+            if (first) {
+                first = false;
+                if (token < 0) {
+                    // preceding element count
+                    continue;
+                }
+            }
+            if (start == end) {
+                continue;
+            }
+            row.clear();
+            while (token >= 0) {
+                row.add(values.substring(start, token));
+                start = token + tokenSeparator.length();
+                token = indexOf(values, tokenSeparator, start, end);
+            }
+            row.add(values.substring(start, end));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Literal search for {@code separator} which has to end before
+     * {@code to}.
+     */
+    private static int indexOf(String values, String separator, int from, int to) {
+        char c = separator.charAt(0);
+        int last = to - separator.length();
+        for (int i = from; i <= last; i++) {
+            if (values.charAt(i) == c && values.startsWith(separator, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String requireSeparator(String separator, String name) {
+        Objects.requireNonNull(separator, name);
+        if (separator.isEmpty()) {
+            throw new IllegalArgumentException(name + " is empty");
+        }
+        return separator;
+    }
+
+    /**
+     * Reusable row view.
+     */
+    private static final class Row extends AbstractList<String> implements RandomAccess {
+
+        private String[] tokens = new String[16];
+
+        private int size;
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            return tokens[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean add(String token) {
+            if (size == tokens.length) {
+                tokens = Arrays.copyOf(tokens, size * 2);
+            }
+            tokens[size++] = token;
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(tokens, 0, size, null);
+            size = 0;
+        }
+    }
+}
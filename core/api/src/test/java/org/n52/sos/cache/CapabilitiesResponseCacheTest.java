@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.faroe.SettingsChangeEvent;
+import org.n52.shetland.ogc.ows.service.GetCapabilitiesRequest;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.sos.cache.CapabilitiesResponseCache.ContentCoding;
+import org.n52.sos.cache.CapabilitiesResponseCache.Entry;
+import org.n52.sos.cache.CapabilitiesResponseCache.Key;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * @since 6.1.2
+ */
+public class CapabilitiesResponseCacheTest {
+
+    private static final String SEQUENCE = "2020-01-01T00:00:00.000Z";
+
+    private static final String NEXT_SEQUENCE = "2020-01-01T00:01:00.000Z";
+
+    private static final byte[] DOCUMENT = "<sos:Capabilities/>".getBytes(StandardCharsets.UTF_8);
+
+    private CapabilitiesResponseCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new CapabilitiesResponseCache();
+        cache.setCacheSize(10);
+    }
+
+    @Test
+    public void shouldReturnCachedEntry() {
+        Key key = cache.createKey(request(), true);
+        assertThat(cache.get(key, SEQUENCE), is(nullValue()));
+        Entry entry = cache.put(key, SEQUENCE, DOCUMENT);
+        assertThat(cache.get(cache.createKey(request(), true), SEQUENCE), is(sameInstance(entry)));
+        assertThat(cache.size(), is(1L));
+    }
+
+    @Test
+    public void shouldDistinguishSectionsAndTransactionalOperations() {
+        cache.get(cache.createKey(request(), true), SEQUENCE);
+        cache.put(cache.createKey(request(), true), SEQUENCE, DOCUMENT);
+        GetCapabilitiesRequest request = request();
+        request.setSections(Collections.singletonList(SosConstants.CapabilitiesSections.Contents.name()));
+        assertThat(cache.get(cache.createKey(request, true), SEQUENCE), is(nullValue()));
+        assertThat(cache.get(cache.createKey(request(), false), SEQUENCE), is(nullValue()));
+        request = request();
+        request.addSweTextExtension("language", "ger");
+        assertThat(cache.get(cache.createKey(request, true), SEQUENCE), is(nullValue()));
+    }
+
+    @Test
+    public void shouldBeClearedOnUpdateSequenceChange() {
+        Key key = cache.createKey(request(), true);
+        cache.get(key, SEQUENCE);
+        cache.put(key, SEQUENCE, DOCUMENT);
+        assertThat(cache.get(key, NEXT_SEQUENCE), is(nullValue()));
+        assertThat(cache.size(), is(0L));
+        // responses created for the previous updateSequence are not cached
+        cache.put(key, SEQUENCE, DOCUMENT);
+        assertThat(cache.get(key, NEXT_SEQUENCE), is(nullValue()));
+    }
+
+    @Test
+    public void shouldNotCacheResponsesCreatedBeforeSettingsChange() {
+        Key key = cache.createKey(request(), true);
+        cache.get(key, SEQUENCE);
+        cache.handle(new SettingsChangeEvent<>(null, null, null));
+        cache.put(key, SEQUENCE, DOCUMENT);
+        assertThat(cache.get(key, SEQUENCE), is(nullValue()));
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void shouldBeDisabledWithoutSize() {
+        cache.setCacheSize(0);
+        assertThat(cache.isEnabled(), is(false));
+        assertThat(cache.createKey(request(), true), is(nullValue()));
+    }
+
+    @Test
+    public void shouldProvideCompressedVariantsAndETags() throws IOException {
+        Entry entry = cache.put(cache.createKey(request(), true), SEQUENCE, DOCUMENT);
+        byte[] gzip = entry.getDocument(ContentCoding.GZIP);
+        assertThat(entry.getDocument(ContentCoding.GZIP), is(sameInstance(gzip)));
+        assertThat(ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(gzip))), is(DOCUMENT));
+        assertThat(entry.getDocument(ContentCoding.DEFLATE), is(notNullValue()));
+        assertThat(entry.getETag(ContentCoding.IDENTITY).equals(entry.getETag(ContentCoding.GZIP)), is(false));
+        assertThat(entry.matches(entry.getETag(ContentCoding.GZIP)), is(true));
+        assertThat(entry.matches("\"other\", W/" + entry.getETag(ContentCoding.IDENTITY)), is(true));
+        assertThat(entry.matches("\"other\""), is(false));
+        assertThat(entry.matches(null), is(false));
+    }
+
+    private GetCapabilitiesRequest request() {
+        GetCapabilitiesRequest request = new GetCapabilitiesRequest(SosConstants.SOS);
+        request.setVersion(Sos2Constants.SERVICEVERSION);
+        return request;
+    }
+
+}
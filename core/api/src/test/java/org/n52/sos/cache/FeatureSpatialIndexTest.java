@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.n52.janmayen.function.ThrowingFunction;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.DeleteSensorRequest;
+import org.n52.shetland.ogc.sos.request.InsertResultTemplateRequest;
+import org.n52.shetland.ogc.sos.response.DeleteSensorResponse;
+import org.n52.shetland.ogc.sos.response.InsertResultTemplateResponse;
+import org.n52.sos.event.events.CompleteCacheUpdateEvent;
+import org.n52.sos.event.events.ResultTemplateInsertion;
+import org.n52.sos.event.events.SensorDeletion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @since 6.1.2
+ */
+public class FeatureSpatialIndexTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FeatureSpatialIndexTest.class);
+
+    private static final int FEATURES = 200000;
+
+    private static final int QUERIES = 100;
+
+    private final GeometryFactory factory = new GeometryFactory();
+
+    private FeatureSpatialIndex index;
+
+    private Map<String, Geometry> geometries;
+
+    private AtomicInteger loads;
+
+    @Before
+    public void setUp() throws OwsExceptionReport {
+        index = new FeatureSpatialIndex();
+        loads = new AtomicInteger();
+        geometries = new HashMap<>();
+        geometries.put("a", point(1, 1));
+        geometries.put("b", point(5, 5));
+        geometries.put("c", factory.createLineString(new Coordinate[] { new Coordinate(2, 2),
+                new Coordinate(8, 8) }));
+        index.update(loader());
+    }
+
+    @Test
+    public void shouldReturnContainedFeatures() {
+        assertThat(index.getFeatures(Collections.singleton(bbox(0, 0, 6, 6))), containsInAnyOrder("a", "b"));
+        assertThat(index.getFeatures(Collections.singleton(bbox(0, 0, 10, 10))),
+                containsInAnyOrder("a", "b", "c"));
+        assertThat(index.getFeatures(Arrays.asList(bbox(0, 0, 2, 2), bbox(4, 4, 6, 6))),
+                containsInAnyOrder("a", "b"));
+        assertThat(index.getFeatures(Collections.singleton(bbox(10, 10, 20, 20))), is(empty()));
+    }
+
+    @Test
+    public void shouldAggregateEnvelopes() {
+        assertThat(index.getEnvelope(Arrays.asList("a", "b")), is(new Envelope(1, 5, 1, 5)));
+        assertThat(index.getEnvelope(Arrays.asList("a", "c", "unknown")), is(new Envelope(1, 8, 1, 8)));
+        assertThat(index.getEnvelope(Collections.singleton("unknown")).isNull(), is(true));
+    }
+
+    @Test
+    public void shouldOnlyReloadInvalidatedFeatures() throws OwsExceptionReport {
+        index.update(loader());
+        assertThat(loads.get(), is(1));
+
+        geometries.put("a", point(20, 20));
+        geometries.remove("b");
+        geometries.put("d", point(3, 3));
+        index.invalidate(Arrays.asList("a", "b", "d"));
+        index.update(loader());
+
+        assertThat(loads.get(), is(2));
+        assertThat(index.size(), is(3));
+        assertThat(index.getFeatures(Collections.singleton(bbox(0, 0, 6, 6))), containsInAnyOrder("d"));
+        assertThat(index.getFeatures(Collections.singleton(bbox(19, 19, 21, 21))), containsInAnyOrder("a"));
+    }
+
+    @Test
+    public void shouldRebuildAfterSensorDeletion() throws OwsExceptionReport {
+        geometries.remove("a");
+        index.handle(new SensorDeletion(new DeleteSensorRequest(), new DeleteSensorResponse()));
+        index.update(loader());
+
+        assertThat(loads.get(), is(2));
+        assertThat(index.size(), is(2));
+        assertThat(index.getFeatures(Collections.singleton(bbox(0, 0, 6, 6))), containsInAnyOrder("b"));
+    }
+
+    @Test
+    public void shouldRebuildAfterCompleteCacheUpdate() throws OwsExceptionReport {
+        geometries.put("d", point(3, 3));
+        index.handle(new CompleteCacheUpdateEvent());
+        index.update(loader());
+
+        assertThat(loads.get(), is(2));
+        assertThat(index.size(), is(4));
+        assertThat(index.getFeatures(Collections.singleton(bbox(0, 0, 6, 6))), containsInAnyOrder("a", "b", "d"));
+    }
+
+    @Test
+    public void shouldReloadFeatureOfInsertedResultTemplate() throws OwsExceptionReport {
+        geometries.put("d", point(3, 3));
+        InsertResultTemplateRequest request = new InsertResultTemplateRequest();
+        OmObservationConstellation template = new OmObservationConstellation();
+        template.setFeatureOfInterest(new SamplingFeature(new CodeWithAuthority("d")));
+        request.setObservationTemplate(template);
+        index.handle(new ResultTemplateInsertion(request, new InsertResultTemplateResponse()));
+        index.update(loader());
+
+        assertThat(loads.get(), is(2));
+        assertThat(index.getFeatures(Collections.singleton(bbox(0, 0, 6, 6))), containsInAnyOrder("a", "b", "d"));
+    }
+
+    @Test
+    public void shouldAnswerBBoxQueriesOnManyFeatures() throws OwsExceptionReport {
+        geometries.clear();
+        int side = (int) Math.sqrt(FEATURES);
+        for (int i = 0; i < FEATURES; i++) {
+            geometries.put("feature-" + i, point(i % side, i / side));
+        }
+        index.handle(new CompleteCacheUpdateEvent());
+        index.update(loader());
+        assertThat(index.size(), is(FEATURES));
+
+        long indexed = 0;
+        long scanned = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            double x = (i * 37) % (side - 10);
+            double y = (i * 53) % (side - 10);
+            Geometry filter = bbox(x, y, x + 10, y + 10);
+            long start = System.nanoTime();
+            Set<String> features = index.getFeatures(Collections.singleton(filter));
+            indexed += System.nanoTime() - start;
+            start = System.nanoTime();
+            Set<String> expected = scan(filter);
+            scanned += System.nanoTime() - start;
+            assertThat(features, is(expected));
+        }
+        // the latency is only reported, the test does not fail on slow machines
+        LOG.info("BBOX query on {} features took {} us with the index and {} us with a full scan", FEATURES,
+                TimeUnit.NANOSECONDS.toMicros(indexed / QUERIES), TimeUnit.NANOSECONDS.toMicros(scanned / QUERIES));
+    }
+
+    private Set<String> scan(Geometry filter) {
+        Set<String> features = new HashSet<>();
+        geometries.forEach((identifier, geometry) -> {
+            if (filter.contains(geometry)) {
+                features.add(identifier);
+            }
+        });
+        return features;
+    }
+
+    private ThrowingFunction<Collection<String>, Map<String, Geometry>, OwsExceptionReport> loader() {
+        return identifiers -> {
+            loads.incrementAndGet();
+            Map<String, Geometry> result = new HashMap<>(geometries);
+            if (identifiers != null) {
+                result.keySet().retainAll(identifiers);
+            }
+            return result;
+        };
+    }
+
+    private Geometry point(double x, double y) {
+        return factory.createPoint(new Coordinate(x, y));
+    }
+
+    private Geometry bbox(double minX, double minY, double maxX, double maxY) {
+        return factory.toGeometry(new Envelope(minX, maxX, minY, maxY));
+    }
+
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.xmlbeans.XmlOptions;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.event.events.ResponseEvent;
+import org.n52.janmayen.event.Event;
+import org.n52.janmayen.event.EventBus;
+import org.n52.janmayen.event.EventListener;
+import org.n52.janmayen.function.ThrowingFunction;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.CountValue;
+import org.n52.shetland.ogc.ows.OWSConstants;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sensorML.SensorML;
+import org.n52.shetland.ogc.sensorML.SensorMLConstants;
+import org.n52.shetland.ogc.sensorML.System;
+import org.n52.shetland.ogc.sensorML.v20.PhysicalSystem;
+import org.n52.shetland.ogc.sos.Sos1Constants;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+import org.n52.shetland.ogc.sos.SosProcedureDescriptionUnknownType;
+import org.n52.shetland.ogc.sos.request.DeleteSensorRequest;
+import org.n52.shetland.ogc.sos.request.DescribeSensorRequest;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.shetland.ogc.sos.response.DeleteSensorResponse;
+import org.n52.shetland.ogc.sos.response.DescribeSensorResponse;
+import org.n52.shetland.ogc.sos.response.InsertObservationResponse;
+import org.n52.shetland.ogc.swe.simpleType.SweBoolean;
+import org.n52.shetland.ogc.swe.simpleType.SweText;
+import org.n52.shetland.ogc.swes.SwesExtension;
+import org.n52.sos.event.events.CompleteCacheUpdateEvent;
+import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.event.events.SensorDeletion;
+import org.n52.svalbard.encode.AbstractXmlEncoder;
+import org.n52.svalbard.encode.EncoderRepository;
+import org.n52.svalbard.encode.GmlEncoderv321;
+import org.n52.svalbard.encode.SensorMLEncoderv101;
+import org.n52.svalbard.encode.SensorMLEncoderv20;
+
+/**
+ * @since 6.1.2
+ */
+public class ProcedureDescriptionCacheTest {
+
+    private static final String PROCEDURE = "http://example.org/procedure";
+
+    private static final String OTHER_PROCEDURE = "http://example.org/procedure/other";
+
+    private static final String SML_20 = "http://www.opengis.net/sensorml/2.0";
+
+    private ProcedureDescriptionCache cache;
+
+    private AtomicInteger loads;
+
+    private AtomicInteger events;
+
+    private EventBus eventBus;
+
+    @Before
+    public void setUp() {
+        EncoderRepository encoderRepository = new EncoderRepository();
+        SensorMLEncoderv20 sensorMLEncoderv20 = new SensorMLEncoderv20();
+        SensorMLEncoderv101 sensorMLEncoderv101 = new SensorMLEncoderv101();
+        GmlEncoderv321 gmlEncoderv321 = new GmlEncoderv321();
+        for (AbstractXmlEncoder<?, ?> encoder : Arrays.<AbstractXmlEncoder<?, ?>> asList(sensorMLEncoderv20,
+                sensorMLEncoderv101, gmlEncoderv321)) {
+            encoder.setXmlOptions(XmlOptions::new);
+            encoder.setEncoderRepository(encoderRepository);
+        }
+        encoderRepository.setEncoders(Arrays.asList(sensorMLEncoderv20, sensorMLEncoderv101, gmlEncoderv321));
+        encoderRepository.init();
+        cache = new ProcedureDescriptionCache();
+        cache.setEncoderRepository(encoderRepository);
+        cache.setCacheSize(10);
+        loads = new AtomicInteger();
+        events = new AtomicInteger();
+        eventBus = new EventBus();
+        eventBus.register(new EventListener() {
+            @Override
+            public Set<Class<? extends Event>> getTypes() {
+                return Collections.singleton(ResponseEvent.class);
+            }
+
+            @Override
+            public void handle(Event event) {
+                events.incrementAndGet();
+            }
+        });
+    }
+
+    @Test
+    public void shouldLoadOnlyOnce() throws OwsExceptionReport {
+        DescribeSensorResponse first = get(request(SML_20));
+        DescribeSensorResponse second = get(request(SML_20));
+        assertThat(loads.get(), is(1));
+        assertThat(events.get(), is(1));
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(second.getOutputFormat(), is(SML_20));
+        assertThat(cache.size(), is(1L));
+    }
+
+    @Test
+    public void shouldNotShareDescriptions() throws OwsExceptionReport {
+        get(request(SML_20));
+        SosProcedureDescription<?> first = get(request(SML_20)).getProcedureDescriptions().get(0);
+        SosProcedureDescription<?> second = get(request(SML_20)).getProcedureDescriptions().get(0);
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(second.getProcedureDescription(), is(not(sameInstance(first.getProcedureDescription()))));
+        // the encoded description, the encoder set the code space of the
+        // identifier of the loaded description
+        assertThat(second, is(instanceOf(SosProcedureDescriptionUnknownType.class)));
+        assertThat(second.getIdentifier(), is(PROCEDURE));
+        assertThat(second.getXml(), containsString("PhysicalSystem"));
+        assertThat(second.getXml(), containsString("uniqueID"));
+    }
+
+    @Test
+    public void shouldCacheSensorMLDocumentsForSos1() throws OwsExceptionReport {
+        DescribeSensorRequest request = new DescribeSensorRequest("SOS", Sos1Constants.SERVICEVERSION);
+        request.setProcedure(PROCEDURE);
+        request.setProcedureDescriptionFormat(SensorMLConstants.SENSORML_OUTPUT_FORMAT_MIME_TYPE);
+        get(request);
+        SosProcedureDescription<?> description = get(request).getProcedureDescriptions().get(0);
+        assertThat(loads.get(), is(1));
+        assertThat(description.getProcedureDescription(), is(instanceOf(SensorML.class)));
+        SensorML sensorML = (SensorML) description.getProcedureDescription();
+        assertThat(sensorML.isSetMembers(), is(false));
+        assertThat(sensorML.getXml(), containsString("SensorML"));
+        assertThat(sensorML.getXml(), containsString("System"));
+    }
+
+    @Test
+    public void shouldDistinguishFormatAndValidTime() throws OwsExceptionReport {
+        get(request(SML_20));
+        get(request(SensorMLConstants.SENSORML_OUTPUT_FORMAT_URL));
+        DescribeSensorRequest request = request(SML_20);
+        request.setValidTime(new TimeInstant());
+        get(request);
+        assertThat(loads.get(), is(3));
+    }
+
+    @Test
+    public void shouldDistinguishCrsAndHumanReadableIdentifier() throws OwsExceptionReport {
+        get(request(SML_20));
+        DescribeSensorRequest crs = request(SML_20);
+        crs.addExtension(new SwesExtension<>(new SweText().setValue("4326"))
+                .setIdentifier(OWSConstants.AdditionalRequestParams.crs.name()));
+        get(crs);
+        DescribeSensorRequest humanReadable = request(SML_20);
+        humanReadable.addExtension(new SwesExtension<>(new SweBoolean().setValue(true))
+                .setIdentifier(OWSConstants.AdditionalRequestParams.returnHumanReadableIdentifier.name()));
+        get(humanReadable);
+        assertThat(loads.get(), is(3));
+        get(crs);
+        get(humanReadable);
+        assertThat(loads.get(), is(3));
+    }
+
+    @Test
+    public void shouldBeClearedOnSensorDeletion() throws OwsExceptionReport {
+        get(request(SML_20));
+        cache.handle(new SensorDeletion(new DeleteSensorRequest(), new DeleteSensorResponse()));
+        assertThat(cache.size(), is(0L));
+        get(request(SML_20));
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void shouldBeClearedOnCompleteCacheUpdate() throws OwsExceptionReport {
+        get(request(SML_20));
+        cache.handle(new CompleteCacheUpdateEvent());
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void shouldInvalidateProcedureOfInsertedObservations() throws OwsExceptionReport {
+        get(request(SML_20));
+        get(request(OTHER_PROCEDURE, SML_20));
+        cache.handle(observationInsertion(PROCEDURE));
+        assertThat(cache.size(), is(1L));
+        get(request(OTHER_PROCEDURE, SML_20));
+        assertThat(loads.get(), is(2));
+        get(request(SML_20));
+        assertThat(loads.get(), is(3));
+    }
+
+    @Test
+    public void shouldBeClearedOnObservationInsertionWithoutProcedure() throws OwsExceptionReport {
+        get(request(SML_20));
+        cache.handle(new ObservationInsertion(new InsertObservationRequest(), new InsertObservationResponse()));
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void shouldNotCacheDescriptionsLoadedDuringClear() throws OwsExceptionReport {
+        cache.get(request(SML_20), r -> {
+            cache.clear();
+            return loader().apply(r);
+        }, eventBus);
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void shouldNotCacheDescriptionsLoadedDuringInvalidation() throws OwsExceptionReport {
+        cache.get(request(SML_20), r -> {
+            cache.handle(observationInsertion(PROCEDURE));
+            return loader().apply(r);
+        }, eventBus);
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void shouldBeDisabledWithoutSize() throws OwsExceptionReport {
+        cache.setCacheSize(0);
+        get(request(SML_20));
+        get(request(SML_20));
+        assertThat(loads.get(), is(2));
+    }
+
+    private DescribeSensorResponse get(DescribeSensorRequest request) throws OwsExceptionReport {
+        return (DescribeSensorResponse) cache.get(request, loader(), eventBus);
+    }
+
+    private ObservationInsertion observationInsertion(String procedure) {
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(
+                new OmObservationConstellation().setProcedure(new SosProcedureDescriptionUnknownType(procedure)));
+        observation.setValue(new SingleObservationValue<>(new TimeInstant(new DateTime()), new CountValue(1)));
+        InsertObservationRequest request = new InsertObservationRequest();
+        request.setObservation(Collections.singletonList(observation));
+        return new ObservationInsertion(request, new InsertObservationResponse());
+    }
+
+    private DescribeSensorRequest request(String format) {
+        return request(PROCEDURE, format);
+    }
+
+    private DescribeSensorRequest request(String procedure, String format) {
+        DescribeSensorRequest request = new DescribeSensorRequest("SOS", "2.0.0");
+        request.setProcedure(procedure);
+        request.setProcedureDescriptionFormat(format);
+        return request;
+    }
+
+    private ThrowingFunction<DescribeSensorRequest, OwsServiceResponse, OwsExceptionReport> loader() {
+        return request -> {
+            loads.incrementAndGet();
+            SosProcedureDescription<?> description;
+            if (SML_20.equals(request.getProcedureDescriptionFormat())) {
+                PhysicalSystem system = new PhysicalSystem();
+                system.setIdentifier(request.getProcedure());
+                description = new SosProcedureDescription<>(system);
+            } else {
+                System system = new System();
+                system.setIdentifier(request.getProcedure());
+                description = new SosProcedureDescription<>(system);
+            }
+            description.setIdentifier(request.getProcedure());
+            description.setDescriptionFormat(request.getProcedureDescriptionFormat());
+            DescribeSensorResponse response = new DescribeSensorResponse(request.getService(), request.getVersion());
+            response.setOutputFormat(request.getProcedureDescriptionFormat());
+            response.setSensorDescriptions(Collections.singletonList(description));
+            return response;
+        };
+    }
+
+}
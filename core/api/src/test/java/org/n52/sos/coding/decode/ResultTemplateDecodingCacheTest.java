@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.coding.decode;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.xmlbeans.XmlOptions;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.janmayen.function.ThrowingFunction;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.svalbard.decode.DecoderRepository;
+import org.n52.svalbard.decode.SweCommonDecoderV20;
+import org.n52.svalbard.decode.exception.DecodingException;
+import org.n52.svalbard.util.XmlHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @since 6.1.2
+ */
+public class ResultTemplateDecodingCacheTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResultTemplateDecodingCacheTest.class);
+
+    private static final int ITERATIONS = 500;
+
+    private static final int FIELDS = 20;
+
+    private static final String STRUCTURE = "<swe:DataRecord>structure</swe:DataRecord>";
+
+    private static final String ENCODING = "<swe:TextEncoding>encoding</swe:TextEncoding>";
+
+    private ResultTemplateDecodingCache cache;
+
+    private AtomicInteger decodings;
+
+    @Before
+    public void setUp() {
+        cache = new ResultTemplateDecodingCache();
+        decodings = new AtomicInteger();
+    }
+
+    @Test
+    public void shouldDecodeOnlyOnce() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.decode(STRUCTURE, decoder()), instanceOf(SweDataRecord.class));
+            assertThat(cache.decode(ENCODING, decoder()), instanceOf(SweTextEncoding.class));
+        }
+        assertThat(decodings.get(), is(2));
+        assertThat(cache.size(), is(2L));
+    }
+
+    @Test
+    public void shouldHandOutCopies() {
+        SweDataRecord first = (SweDataRecord) cache.decode(STRUCTURE, decoder());
+        first.addField(new SweField("modified", new SweQuantity()));
+        SweDataRecord second = (SweDataRecord) cache.decode(STRUCTURE, decoder());
+        SweDataRecord third = (SweDataRecord) cache.decode(STRUCTURE, decoder());
+        assertThat(second, is(not(sameInstance(third))));
+        assertThat(second.getFields().size(), is(1));
+        assertThat(third.getFields().size(), is(1));
+        assertThat(decodings.get(), is(1));
+    }
+
+    @Test
+    public void shouldNotCacheObjectsWhichCanNotBeCopied() {
+        ThrowingFunction<String, Object, RuntimeException> decoder = xml -> {
+            decodings.incrementAndGet();
+            return new Object();
+        };
+        cache.decode(STRUCTURE, decoder);
+        cache.decode(STRUCTURE, decoder);
+        assertThat(decodings.get(), is(2));
+    }
+
+    @Test
+    public void shouldDecodeChangedContentAgain() {
+        cache.decode(STRUCTURE, decoder());
+        SweDataRecord changed = (SweDataRecord) cache.decode(STRUCTURE.replace("structure", "changed"), decoder());
+        cache.decode(STRUCTURE, decoder());
+        assertThat(changed.getFields().size(), is(1));
+        assertThat(decodings.get(), is(2));
+        assertThat(cache.size(), is(2L));
+    }
+
+    @Test
+    public void shouldDecodeResultStructureFromCache() throws DecodingException {
+        DecoderRepository decoderRepository = new DecoderRepository();
+        SweCommonDecoderV20 sweCommonDecoder = new SweCommonDecoderV20();
+        sweCommonDecoder.setDecoderRepository(decoderRepository);
+        sweCommonDecoder.setXmlOptions(XmlOptions::new);
+        decoderRepository.setDecoders(Collections.singletonList(sweCommonDecoder));
+        decoderRepository.init();
+        String structure = createResultStructure();
+        ThrowingFunction<String, Object, DecodingException> decoder = xml -> {
+            decodings.incrementAndGet();
+            return sweCommonDecoder.decode(XmlHelper.parseXmlString(xml));
+        };
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertThat(decoder.apply(structure), instanceOf(SweDataRecord.class));
+        }
+        long uncached = System.nanoTime() - start;
+        decodings.set(0);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            SweDataRecord record = (SweDataRecord) cache.decode(structure, decoder);
+            assertThat(record.getFields().size(), is(FIELDS + 1));
+        }
+        long cached = System.nanoTime() - start;
+
+        assertThat(decodings.get(), is(1));
+        LOG.info("Decoded a result structure with {} fields {} times: uncached {} ms, cached {} ms", FIELDS + 1,
+                ITERATIONS, TimeUnit.NANOSECONDS.toMillis(uncached), TimeUnit.NANOSECONDS.toMillis(cached));
+    }
+
+    private ThrowingFunction<String, Object, RuntimeException> decoder() {
+        return xml -> {
+            decodings.incrementAndGet();
+            if (xml.startsWith("<swe:DataRecord>")) {
+                SweDataRecord record = new SweDataRecord();
+                record.addField(new SweField("value", new SweQuantity().setUom("m")));
+                return record;
+            }
+            SweTextEncoding encoding = new SweTextEncoding();
+            encoding.setTokenSeparator(",");
+            encoding.setBlockSeparator("@");
+            return encoding;
+        };
+    }
+
+    private String createResultStructure() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("<swe:DataRecord xmlns:swe=\"http://www.opengis.net/swe/2.0\" ")
+                .append("xmlns:xlink=\"http://www.w3.org/1999/xlink\">")
+                .append("<swe:field name=\"phenomenonTime\">")
+                .append("<swe:Time definition=\"http://www.opengis.net/def/property/OGC/0/PhenomenonTime\">")
+                .append("<swe:uom xlink:href=\"http://www.opengis.net/def/uom/ISO-8601/0/Gregorian\"/>")
+                .append("</swe:Time></swe:field>");
+        for (int i = 0; i < FIELDS; i++) {
+            builder.append("<swe:field name=\"value").append(i).append("\">")
+                    .append("<swe:Quantity definition=\"http://www.52north.org/test/observableProperty/").append(i)
+                    .append("\"><swe:uom code=\"m\"/></swe:Quantity></swe:field>");
+        }
+        return builder.append("</swe:DataRecord>").toString();
+    }
+
+}
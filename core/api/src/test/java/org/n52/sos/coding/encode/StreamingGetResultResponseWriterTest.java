@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.coding.encode;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
+import org.junit.Test;
+import org.n52.iceland.coding.encode.ResponseWriterRepository;
+import org.n52.janmayen.http.MediaType;
+import org.n52.janmayen.http.MediaTypes;
+import org.n52.shetland.ogc.ows.service.OwsOperationKey;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.ogc.sos.response.GetResultResponse;
+import org.n52.sos.response.StreamingGetResultResponse;
+import org.n52.svalbard.encode.Encoder;
+import org.n52.svalbard.encode.EncoderKey;
+import org.n52.svalbard.encode.EncoderRepository;
+import org.n52.svalbard.encode.EncodingContext;
+import org.n52.svalbard.encode.GetResultResponseEncoder;
+import org.n52.svalbard.encode.OperationResponseEncoderKey;
+import org.n52.svalbard.encode.SchemaRepository;
+import org.n52.svalbard.encode.StreamingEncoder;
+import org.n52.svalbard.encode.exception.EncodingException;
+
+import net.opengis.sos.x20.GetResultResponseDocument;
+
+/**
+ * @since 6.1.2
+ */
+public class StreamingGetResultResponseWriterTest {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("resultValues[0-9a-f]{32}");
+
+    private static final String VALUES = "2@2020-01-01T00:00:00Z,1.5,a<b&c>d@2020-01-01T00:01:00Z,2.5,]]>";
+
+    @Test
+    public void shouldSpliceEscapedResultValuesIntoEncodedDocument() throws Exception {
+        StreamingGetResultResponseWriter writer = createWriter(new GetResultResponseEncoder(), new XmlOptions());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtomicInteger writtenBeforeValues = new AtomicInteger(-1);
+        StreamingGetResultResponse response =
+                new StreamingGetResultResponse(SosConstants.SOS, Sos2Constants.SERVICEVERSION, w -> {
+                    writtenBeforeValues.set(out.size());
+                    w.write(VALUES);
+                });
+
+        writer.write(response, out);
+        byte[] document = out.toByteArray();
+
+        // the values are written to the output stream after the start of the document
+        assertThat(writtenBeforeValues.get() > 0, is(true));
+        assertThat(response.isStreaming(), is(false));
+        String xml = new String(document, StandardCharsets.UTF_8);
+        assertThat(xml, containsString("a&lt;b&amp;c&gt;d"));
+        assertThat(PLACEHOLDER.matcher(xml).find(), is(false));
+        assertThat(getResultValues(document), is(VALUES));
+        assertThat(getResultValues(document), is(getResultValues(writeNonStreaming(new XmlOptions()))));
+    }
+
+    @Test
+    public void shouldWriteResultValuesInDocumentCharset() throws Exception {
+        XmlOptions options = new XmlOptions();
+        options.setCharacterEncoding(StandardCharsets.ISO_8859_1.name());
+        StreamingGetResultResponseWriter writer = createWriter(new GetResultResponseEncoder(), options);
+        String values = "1@Temperatur,20.5\u00b0C,\u00e4\u00f6\u00fc";
+        StreamingGetResultResponse response =
+                new StreamingGetResultResponse(SosConstants.SOS, Sos2Constants.SERVICEVERSION, w -> w.write(values));
+
+        byte[] document = write(writer, response);
+
+        assertThat(new String(document, StandardCharsets.ISO_8859_1), containsString(values));
+        assertThat(getResultValues(document), is(values));
+    }
+
+    @Test
+    public void shouldFallBackIfResultValuesAreAlreadyCreated() throws Exception {
+        StreamingGetResultResponseWriter writer = createWriter(new GetResultResponseEncoder(), new XmlOptions());
+        AtomicInteger calls = new AtomicInteger();
+        StreamingGetResultResponse response = createResponse(calls);
+        response.getResultValues();
+
+        byte[] document = write(writer, response);
+
+        assertThat(calls.get(), is(1));
+        assertThat(getResultValues(document), is(VALUES));
+    }
+
+    @Test
+    public void shouldFallBackIfDocumentHasNoPlaceholder() throws Exception {
+        StreamingGetResultResponseWriter writer = createWriter(new UpperCaseEncoder(), new XmlOptions());
+        AtomicInteger calls = new AtomicInteger();
+        StreamingGetResultResponse response = createResponse(calls);
+
+        byte[] document = write(writer, response);
+
+        assertThat(calls.get(), is(1));
+        assertThat(new String(document, StandardCharsets.UTF_8), is(VALUES.toUpperCase()));
+    }
+
+    private StreamingGetResultResponseWriter createWriter(Encoder<?, ?> encoder, XmlOptions options) {
+        EncoderRepository encoderRepository = new EncoderRepository();
+        if (encoder instanceof GetResultResponseEncoder) {
+            GetResultResponseEncoder getResultResponseEncoder = (GetResultResponseEncoder) encoder;
+            SchemaRepository schemaRepository = new SchemaRepository();
+            schemaRepository.setEncoderRepository(encoderRepository);
+            getResultResponseEncoder.setEncoderRepository(encoderRepository);
+            getResultResponseEncoder.setSchemaRepository(schemaRepository);
+            getResultResponseEncoder.setXmlOptions(() -> new XmlOptions(options));
+            encoderRepository.setEncoders(Arrays.asList(encoder));
+            encoderRepository.init();
+            schemaRepository.init();
+        } else {
+            encoderRepository.setEncoders(Arrays.asList(encoder));
+            encoderRepository.init();
+        }
+        StreamingGetResultResponseWriter writer =
+                new StreamingGetResultResponseWriter(encoderRepository, new ResponseWriterRepository());
+        writer.setContentType(MediaTypes.APPLICATION_XML);
+        return writer;
+    }
+
+    private StreamingGetResultResponse createResponse(AtomicInteger calls) {
+        return new StreamingGetResultResponse(SosConstants.SOS, Sos2Constants.SERVICEVERSION, w -> {
+            calls.incrementAndGet();
+            w.write(VALUES);
+        });
+    }
+
+    private byte[] write(StreamingGetResultResponseWriter writer, GetResultResponse response)
+            throws IOException, EncodingException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(response, out);
+        return out.toByteArray();
+    }
+
+    private byte[] writeNonStreaming(XmlOptions options) throws IOException, EncodingException {
+        GetResultResponse response = new GetResultResponse(SosConstants.SOS, Sos2Constants.SERVICEVERSION);
+        response.setResultValues(VALUES);
+        return write(createWriter(new GetResultResponseEncoder(), options), response);
+    }
+
+    private String getResultValues(byte[] document) throws XmlException, IOException {
+        XmlObject resultValues = GetResultResponseDocument.Factory.parse(new ByteArrayInputStream(document))
+                .getGetResultResponse().getResultValues();
+        XmlCursor cursor = resultValues.newCursor();
+        try {
+            return cursor.getTextValue();
+        } finally {
+            cursor.dispose();
+        }
+    }
+
+    /**
+     * Streaming encoder of a format which does not contain the result values
+     * unchanged.
+     */
+    private static class UpperCaseEncoder implements StreamingEncoder<Object, GetResultResponse> {
+
+        @Override
+        public Set<EncoderKey> getKeys() {
+            return Collections.singleton(new OperationResponseEncoderKey(
+                    new OwsOperationKey(SosConstants.SOS, Sos2Constants.SERVICEVERSION,
+                            SosConstants.Operations.GetResult.name()),
+                    MediaTypes.APPLICATION_XML));
+        }
+
+        @Override
+        public Object encode(GetResultResponse response) throws EncodingException {
+            return encode(response, EncodingContext.empty());
+        }
+
+        @Override
+        public Object encode(GetResultResponse response, EncodingContext context) throws EncodingException {
+            return response.getResultValues().toUpperCase();
+        }
+
+        @Override
+        public void encode(GetResultResponse response, OutputStream outputStream, EncodingContext context)
+                throws EncodingException {
+            try {
+                outputStream.write(response.getResultValues().toUpperCase().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException ioe) {
+                throw new EncodingException(ioe);
+            }
+        }
+
+        @Override
+        public MediaType getContentType() {
+            return MediaTypes.APPLICATION_XML;
+        }
+    }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.service.operator.ServiceOperator;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceKey;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.ogc.sos.request.BatchRequest;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.shetland.ogc.sos.response.BatchResponse;
+import org.n52.shetland.ogc.sos.response.GetObservationResponse;
+import org.n52.shetland.ogc.sos.response.InsertObservationResponse;
+
+/**
+ * @since 6.1.2
+ */
+public class BatchOperationHandlerTest {
+
+    private final Map<OwsServiceRequest, RequestBehaviour> behaviours = new ConcurrentHashMap<>();
+
+    private final Map<OwsServiceRequest, OwsServiceResponse> responses = new ConcurrentHashMap<>();
+
+    private final AtomicInteger finishedReads = new AtomicInteger();
+
+    private BatchOperationHandler handler;
+
+    @Before
+    public void setUp() {
+        handler = new BatchOperationHandler() {
+            @Override
+            protected ServiceOperator getServiceOperator(OwsServiceRequest request) {
+                return new TestServiceOperator();
+            }
+        };
+        handler.setParallelRequests(4);
+    }
+
+    @After
+    public void tearDown() {
+        handler.destroy();
+    }
+
+    @Test
+    public void shouldReturnResponsesInRequestOrder() throws OwsExceptionReport {
+        List<OwsServiceRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            long delay = (10 - i) * 5L;
+            requests.add(read(() -> Thread.sleep(delay)));
+        }
+        BatchResponse response = handler.executeRequests(new BatchRequest(requests));
+
+        assertThat(response.getResponses().size(), is(10));
+        for (int i = 0; i < 10; i++) {
+            assertThat(response.getResponses().get(i).getResponse(), is(sameInstance(responses.get(requests.get(i)))));
+        }
+    }
+
+    @Test
+    public void shouldExecuteReadOnlyRequestsConcurrently() throws OwsExceptionReport {
+        CountDownLatch latch = new CountDownLatch(3);
+        RequestBehaviour waitForOthers = () -> {
+            latch.countDown();
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new NoApplicableCodeException().withMessage("requests were not executed concurrently");
+            }
+        };
+        BatchResponse response = handler.executeRequests(
+                new BatchRequest(list(read(waitForOthers), read(waitForOthers), read(waitForOthers))));
+
+        assertThat(response.getResponses().stream().anyMatch(BatchResponse.ExceptionOrResponse::isException),
+                is(false));
+    }
+
+    @Test
+    public void shouldExecuteTransactionalRequestsAfterPrecedingRequests() throws OwsExceptionReport {
+        AtomicInteger readsBeforeInsert = new AtomicInteger(-1);
+        AtomicInteger readsBeforeLastRead = new AtomicInteger(-1);
+        OwsServiceRequest insert = new InsertObservationRequest(SosConstants.SOS, Sos2Constants.SERVICEVERSION);
+        behaviours.put(insert, () -> readsBeforeInsert.set(finishedReads.get()));
+        handler.executeRequests(new BatchRequest(list(read(() -> Thread.sleep(50)), read(() -> Thread.sleep(20)),
+                insert, read(() -> readsBeforeLastRead.set(finishedReads.get())))));
+
+        assertThat(readsBeforeInsert.get(), is(2));
+        assertThat(readsBeforeLastRead.get(), is(2));
+    }
+
+    @Test
+    public void shouldStopAtFailure() throws OwsExceptionReport {
+        BatchRequest request = new BatchRequest(list(read(() -> {
+        }), read(() -> {
+            throw new NoApplicableCodeException().withMessage("failure");
+        }), read(() -> {
+        })));
+        request.setStopAtFailure(true);
+        BatchResponse response = handler.executeRequests(request);
+
+        assertThat(response.getResponses().size(), is(2));
+        assertThat(response.getResponses().get(0).isException(), is(false));
+        assertThat(response.getResponses().get(1).isException(), is(true));
+    }
+
+    @Test
+    public void shouldContinueAfterFailure() throws OwsExceptionReport {
+        handler.setParallelRequests(0);
+        BatchResponse response = handler.executeRequests(new BatchRequest(list(read(() -> {
+            throw new NoApplicableCodeException().withMessage("failure");
+        }), read(() -> {
+        }))));
+
+        assertThat(response.getResponses().size(), is(2));
+        assertThat(response.getResponses().get(0).isException(), is(true));
+        assertThat(response.getResponses().get(1).isException(), is(false));
+    }
+
+    private OwsServiceRequest read(RequestBehaviour behaviour) {
+        OwsServiceRequest request = new GetObservationRequest(SosConstants.SOS, Sos2Constants.SERVICEVERSION);
+        behaviours.put(request, () -> {
+            behaviour.execute();
+            finishedReads.incrementAndGet();
+        });
+        return request;
+    }
+
+    private static List<OwsServiceRequest> list(OwsServiceRequest... requests) {
+        List<OwsServiceRequest> list = new ArrayList<>();
+        Collections.addAll(list, requests);
+        return list;
+    }
+
+    @FunctionalInterface
+    private interface RequestBehaviour {
+        void execute() throws OwsExceptionReport, InterruptedException;
+    }
+
+    private class TestServiceOperator implements ServiceOperator {
+
+        @Override
+        public Set<OwsServiceKey> getKeys() {
+            return Collections.singleton(new OwsServiceKey(SosConstants.SOS, Sos2Constants.SERVICEVERSION));
+        }
+
+        @Override
+        public OwsServiceResponse receiveRequest(OwsServiceRequest request) throws OwsExceptionReport {
+            try {
+                behaviours.get(request).execute();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NoApplicableCodeException().causedBy(e);
+            }
+            OwsServiceResponse response = request instanceof InsertObservationRequest
+                    ? new InsertObservationResponse()
+                    : new GetObservationResponse();
+            responses.put(request, response);
+            return response;
+        }
+    }
+
+}
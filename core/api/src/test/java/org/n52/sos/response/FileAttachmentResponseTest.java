@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.response;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.janmayen.http.MediaTypes;
+import org.n52.sos.coding.encode.BinaryAttachmentResponseWriter;
+
+import com.google.common.io.ByteStreams;
+
+public class FileAttachmentResponseTest {
+
+    private static final String FILENAME = "attachment.zip";
+
+    private FileAttachmentResponse response;
+
+    @Before
+    public void setUp() throws IOException {
+        response = FileAttachmentResponse.createTemporary(MediaTypes.APPLICATION_ZIP, FILENAME, true);
+    }
+
+    @After
+    public void tearDown() {
+        response.close();
+    }
+
+    @Test
+    public void shouldStreamFilesAsZipEntries() throws IOException {
+        write(response.createFile("a.nc"), "first");
+        write(response.createFile("b.nc"), "second");
+
+        assertThat(response.getLength(), is(-1L));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.writeTo(out);
+
+        List<String> names = new LinkedList<>();
+        List<String> contents = new LinkedList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                contents.add(new String(ByteStreams.toByteArray(zip), StandardCharsets.UTF_8));
+            }
+        }
+        assertThat(names, contains("a.nc", "b.nc"));
+        assertThat(contents, contains("first", "second"));
+    }
+
+    @Test
+    public void shouldStreamSingleFile() throws IOException {
+        FileAttachmentResponse single =
+                FileAttachmentResponse.createTemporary(MediaTypes.APPLICATION_OCTET_STREAM, "a.nc", false);
+        try {
+            write(single.createFile("a.nc"), "content");
+
+            assertThat(single.getLength(), is(7L));
+            assertThat(single.getSize(), is(7));
+            assertThat(new String(single.getBytes(), StandardCharsets.UTF_8), is("content"));
+        } finally {
+            single.close();
+        }
+    }
+
+    @Test
+    public void shouldDeleteFilesAfterWriting() throws Exception {
+        File file = response.createFile("a.nc");
+        write(file, "content");
+
+        new BinaryAttachmentResponseWriter(null).write(response, new ByteArrayOutputStream());
+
+        assertThat(file.exists(), is(false));
+        assertThat(response.getDirectory().exists(), is(false));
+    }
+
+    @Test
+    public void shouldDeleteFilesAfterReadingBytes() throws IOException {
+        File file = response.createFile("a.nc");
+        write(file, "content");
+
+        byte[] bytes = response.getBytes();
+
+        assertThat(file.exists(), is(false));
+        assertThat(response.getDirectory().exists(), is(false));
+        assertThat(response.getBytes(), is(bytes));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.writeTo(out);
+        assertThat(out.toByteArray(), is(bytes));
+    }
+
+    @Test
+    public void shouldReplaceFilesWithBytes() throws IOException {
+        File file = response.createFile("a.nc");
+        write(file, "first");
+
+        response.setBytes("second".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(file.exists(), is(false));
+        assertThat(response.getDirectory().exists(), is(false));
+        assertThat(response.isZip(), is(false));
+        assertThat(response.getLength(), is(6L));
+        assertThat(new String(response.getBytes(), StandardCharsets.UTF_8), is("second"));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldNotWriteClosedResponse() throws IOException {
+        response.close();
+        response.writeTo(new ByteArrayOutputStream());
+    }
+
+    private void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
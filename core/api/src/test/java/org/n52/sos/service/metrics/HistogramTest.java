@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.service.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.Test;
+
+/**
+ * @since 6.1.2
+ */
+public class HistogramTest {
+
+    @Test
+    public void emptySnapshot() {
+        Histogram.Snapshot snapshot = new Histogram(10, 100).snapshot();
+
+        assertThat(snapshot.getCount(), is(0L));
+        assertThat(snapshot.getMean(), is(0L));
+        assertThat(snapshot.getP99(), is(0L));
+    }
+
+    @Test
+    public void recordsIntoBuckets() {
+        Histogram histogram = new Histogram(10, 100, 1000);
+        histogram.record(1);
+        histogram.record(10);
+        histogram.record(11);
+        histogram.record(5000);
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCounts(), is(new long[] { 2, 1, 0, 1 }));
+        assertThat(snapshot.getCount(), is(4L));
+        assertThat(snapshot.getSum(), is(5022L));
+        assertThat(snapshot.getMax(), is(5000L));
+        assertThat(snapshot.getMean(), is(1255L));
+    }
+
+    @Test
+    public void estimatesPercentilesByBucketBounds() {
+        Histogram histogram = Histogram.exponential(1, 2, 10);
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i <= 90 ? 3 : 100);
+        }
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getP50(), is(4L));
+        assertThat(snapshot.getP90(), is(4L));
+        assertThat(snapshot.getP99(), is(100L));
+        assertThat(snapshot.getPercentile(1.0), is(100L));
+    }
+
+    @Test
+    public void resetDiscardsValues() {
+        Histogram histogram = new Histogram(10);
+        histogram.record(20);
+        histogram.reset();
+
+        assertThat(histogram.snapshot().getCount(), is(0L));
+        assertThat(histogram.snapshot().getMax(), is(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnorderedBounds() {
+        new Histogram(10, 5);
+    }
+
+}
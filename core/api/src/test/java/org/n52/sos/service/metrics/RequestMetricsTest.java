@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.service.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+
+/**
+ * @since 6.1.2
+ */
+public class RequestMetricsTest {
+
+    private static final String RESPONSE_FORMAT = "http://www.opengis.net/om/2.0";
+
+    private RequestMetrics metrics;
+
+    @Before
+    public void setUp() {
+        metrics = new RequestMetrics();
+    }
+
+    @After
+    public void tearDown() {
+        metrics.destroy();
+        RequestMetricsContext.end();
+    }
+
+    @Test
+    public void recordsPhasesOfRequest() throws Exception {
+        Object[] result = new Object[1];
+        filter((request, response) -> {
+            RequestMetricsContext.decoded(createRequest());
+            result[0] = RequestMetricsContext.measure(RequestPhase.HANDLER,
+                    () -> RequestMetricsContext.measure(RequestPhase.DAO, () -> "result"));
+            response.getOutputStream().write(new byte[2048]);
+        });
+
+        assertThat(result[0], is("result"));
+        List<RequestMetricsSnapshot> operations = metrics.getOperations();
+        assertThat(operations.size(), is(1));
+        RequestMetricsSnapshot snapshot = operations.get(0);
+        assertThat(snapshot.getService(), is(SosConstants.SOS));
+        assertThat(snapshot.getVersion(), is(Sos2Constants.SERVICEVERSION));
+        assertThat(snapshot.getOperation(), is(SosConstants.Operations.GetObservation.name()));
+        assertThat(snapshot.getResponseFormat(), is(RESPONSE_FORMAT));
+        assertThat(snapshot.getRequests(), is(1L));
+        assertThat(snapshot.getErrors(), is(0L));
+        assertThat(snapshot.getLatencies().keySet(), contains(RequestPhase.DECODE.name(),
+                RequestPhase.HANDLER.name(), RequestPhase.DAO.name(), RequestPhase.ENCODE.name(),
+                RequestPhase.TOTAL.name()));
+        assertThat(snapshot.getLatencies().get(RequestPhase.DAO.name()).getCount(), is(1L));
+        assertThat(snapshot.getResponseSize().getSum(), is(2048L));
+        assertThat(RequestMetricsContext.current(), is(nullValue()));
+    }
+
+    @Test
+    public void groupsRequestsByOperationAndResponseFormat() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            filter((request, response) -> RequestMetricsContext.decoded(createRequest()));
+        }
+        filter((request, response) -> RequestMetricsContext.decoded(createRequest("text/csv")));
+
+        List<RequestMetricsSnapshot> operations = metrics.getOperations();
+        assertThat(operations.size(), is(2));
+        assertThat(operations.get(0).getRequests(), is(3L));
+        assertThat(operations.get(1).getResponseFormat(), is("text/csv"));
+        assertThat(operations.get(1).getRequests(), is(1L));
+        assertThat(operations.get(0).getResponseSize(), is(nullValue()));
+    }
+
+    @Test
+    public void countsFailedAndUndecodableRequests() throws Exception {
+        filter((request, response) -> ((HttpServletResponse) response)
+                .setStatus(HttpServletResponse.SC_BAD_REQUEST));
+
+        RequestMetricsSnapshot snapshot = metrics.getOperations().get(0);
+        assertThat(snapshot.getOperation(), is("unknown"));
+        assertThat(snapshot.getErrors(), is(1L));
+        assertThat(snapshot.getLatencies().keySet(), contains(RequestPhase.TOTAL.name()));
+    }
+
+    @Test
+    public void recordsFailedRequestsWithoutResponseFormat() throws Exception {
+        filter((request, response) -> {
+            RequestMetricsContext.decoded(createRequest("invalid"));
+            throw new ServletException();
+        });
+
+        RequestMetricsSnapshot snapshot = metrics.getOperations().get(0);
+        assertThat(snapshot.getOperation(), is(SosConstants.Operations.GetObservation.name()));
+        assertThat(snapshot.getResponseFormat(), is(nullValue()));
+        assertThat(snapshot.getErrors(), is(1L));
+    }
+
+    @Test
+    public void limitsNumberOfGroups() throws Exception {
+        for (int i = 0; i < 300; i++) {
+            String responseFormat = "format-" + i;
+            filter((request, response) -> RequestMetricsContext.decoded(createRequest(responseFormat)));
+        }
+
+        List<RequestMetricsSnapshot> operations = metrics.getOperations();
+        assertThat(operations.size(), is(257));
+        RequestMetricsSnapshot unknown = operations.get(operations.size() - 1);
+        assertThat(unknown.getOperation(), is("unknown"));
+        assertThat(unknown.getRequests(), is(44L));
+    }
+
+    @Test
+    public void ignoresRequestsOfOtherThreads() throws Exception {
+        filter((request, response) -> {
+            Thread other = new Thread(() -> RequestMetricsContext.decoded(createRequest("text/csv")));
+            other.start();
+            try {
+                other.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            RequestMetricsContext.decoded(createRequest());
+        });
+
+        List<RequestMetricsSnapshot> operations = metrics.getOperations();
+        assertThat(operations.size(), is(1));
+        assertThat(operations.get(0).getResponseFormat(), is(RESPONSE_FORMAT));
+    }
+
+    @Test
+    public void recordsPhasesOfBoundTasks() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            filter((request, response) -> {
+                RequestMetricsContext.decoded(createRequest());
+                Callable<String> task = () -> RequestMetricsContext.measure(RequestPhase.DAO,
+                        () -> RequestMetricsContext.current() != null ? "bound" : "unbound");
+                List<Future<String>> futures = new ArrayList<>();
+                futures.add(executor.submit(RequestMetricsContext.bind(task)));
+                futures.add(executor.submit(RequestMetricsContext.bind(task)));
+                futures.add(executor.submit(task));
+                try {
+                    assertThat(futures.get(0).get(), is("bound"));
+                    assertThat(futures.get(1).get(), is("bound"));
+                    assertThat(futures.get(2).get(), is("unbound"));
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new ServletException(e);
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+
+        List<RequestMetricsSnapshot> operations = metrics.getOperations();
+        assertThat(operations.size(), is(1));
+        assertThat(operations.get(0).getLatencies().get(RequestPhase.DAO.name()).getCount(), is(1L));
+    }
+
+    @Test
+    public void measureWithoutContextOnlyExecutes() throws Exception {
+        assertThat(RequestMetricsContext.measure(RequestPhase.DAO, () -> "result"), is("result"));
+        RequestMetricsContext.decoded(createRequest());
+
+        assertThat(metrics.getOperations(), is(empty()));
+    }
+
+    @Test
+    public void disabledMetricsDoNotRecord() throws Exception {
+        metrics.setEnabled(false);
+        filter((request, response) -> {
+            RequestMetricsContext.decoded(createRequest());
+            assertThat(RequestMetricsContext.current(), is(nullValue()));
+        });
+
+        assertThat(metrics.getOperations(), is(empty()));
+    }
+
+    @Test
+    public void resetDiscardsMetrics() throws Exception {
+        filter((request, response) -> RequestMetricsContext.decoded(createRequest()));
+        metrics.reset();
+
+        assertThat(metrics.getOperations(), is(empty()));
+    }
+
+    @Test
+    public void exposesMetricsAsMXBean() throws Exception {
+        metrics.init();
+        filter((request, response) -> RequestMetricsContext.decoded(createRequest()));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(RequestMetrics.OBJECT_NAME);
+        Object operations = server.getAttribute(name, "Operations");
+        assertThat(operations, is(instanceOf(CompositeData[].class)));
+        CompositeData operation = ((CompositeData[]) operations)[0];
+        assertThat(operation.get("operation"), is(SosConstants.Operations.GetObservation.name()));
+        assertThat(operation.get("requests"), is(1L));
+        assertThat(operation.get("latencies"), is(notNullValue()));
+
+        metrics.destroy();
+        assertThat(server.isRegistered(name), is(false));
+    }
+
+    private void filter(FilterChain chain) throws IOException {
+        try {
+            new RequestMetricsFilter(metrics).doFilter(null, createResponse(), chain);
+        } catch (ServletException e) {
+            // failed requests are recorded by the filter
+        }
+    }
+
+    private static GetObservationRequest createRequest() {
+        return createRequest(RESPONSE_FORMAT);
+    }
+
+    private static GetObservationRequest createRequest(String responseFormat) {
+        GetObservationRequest request = new GetObservationRequest(SosConstants.SOS, Sos2Constants.SERVICEVERSION);
+        request.setResponseFormat(responseFormat);
+        return request;
+    }
+
+    private static HttpServletResponse createResponse() {
+        int[] status = { HttpServletResponse.SC_OK };
+        ServletOutputStream outputStream = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+        return (HttpServletResponse) Proxy.newProxyInstance(RequestMetricsTest.class.getClassLoader(),
+                new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getStatus":
+                            return status[0];
+                        case "setStatus":
+                            status[0] = (Integer) args[0];
+                            return null;
+                        case "getOutputStream":
+                            return outputStream;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+}
@@ -27,6 +27,11 @@
  */
 package org.n52.sos.util;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.core.Is;
 import org.junit.Assert;
@@ -43,11 +48,17 @@ import org.locationtech.jts.io.ParseException;
 import org.n52.faroe.ConfigurationError;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.util.JTSHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Joiner;
 
 public class GeometryHandlerTest {
 
+    private static final Logger LOG = LoggerFactory.getLogger(GeometryHandlerTest.class);
+
+    private static final int BATCH_POINTS = 100000;
+
     private static final double DISTANCE = 0.0001;
 
     private static final double DISTANCE_TRANSFORMED = 10.0;
@@ -366,6 +377,63 @@ public class GeometryHandlerTest {
                 .distance(get31467Polygon()) < DISTANCE, Is.is(true));
     }
 
+    @Test
+    public void shouldTransformPointsLikeSingleGeometries() throws OwsExceptionReport {
+        List<Geometry> geometries = Arrays.asList(get31467Point(), get31467LineString(), null, get4326Point());
+        List<Geometry> transformed = geometryHandler.transform(geometries, EPSG_4326);
+        Assert.assertEquals(geometries.size(), transformed.size());
+        Assert.assertEquals(EPSG_4326, transformed.get(0).getSRID());
+        MatcherAssert.assertThat(transformed.get(0)
+                .distance(geometryHandler.transform(get31467Point(), EPSG_4326)) < DISTANCE, Is.is(true));
+        MatcherAssert.assertThat(transformed.get(1)
+                .distance(geometryHandler.transform(get31467LineString(), EPSG_4326)) < DISTANCE, Is.is(true));
+        Assert.assertNull(transformed.get(2));
+        Assert.assertSame(geometries.get(3), transformed.get(3));
+    }
+
+    @Test
+    public void shouldTransformManyPointsLikeSingleGeometries() throws OwsExceptionReport {
+        GeometryFactory f31467 = JTSHelper.getGeometryFactoryForSRID(EPSG_31467);
+        List<Geometry> geometries = new ArrayList<>(BATCH_POINTS);
+        for (int i = 0; i < BATCH_POINTS; i++) {
+            geometries.add(f31467.createPoint(new Coordinate(5841822 + i % 1000, 3400029 + i / 1000)));
+        }
+        // warm up the cached transforms
+        geometryHandler.transform(geometries.subList(0, 1000), EPSG_4326);
+
+        long start = System.nanoTime();
+        List<Geometry> single = new ArrayList<>(BATCH_POINTS);
+        for (Geometry geometry : geometries) {
+            single.add(geometryHandler.transform(geometry, EPSG_4326));
+        }
+        long singleNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        List<Geometry> batched = geometryHandler.transform(geometries, EPSG_4326);
+        long batchedNanos = System.nanoTime() - start;
+
+        // the timing is only reported, the test does not fail on slow machines
+        LOG.info("Transformed {} points in {} ms one by one and in {} ms batched", BATCH_POINTS,
+                TimeUnit.NANOSECONDS.toMillis(singleNanos), TimeUnit.NANOSECONDS.toMillis(batchedNanos));
+        Assert.assertEquals(BATCH_POINTS, batched.size());
+        for (int i = 0; i < BATCH_POINTS; i++) {
+            Assert.assertEquals(EPSG_4326, batched.get(i).getSRID());
+            MatcherAssert.assertThat(batched.get(i).distance(single.get(i)) < DISTANCE, Is.is(true));
+        }
+    }
+
+    @Test
+    public void shouldTransformCoordinates() throws OwsExceptionReport {
+        Coordinate[] coordinates = get31467LineString().getCoordinates();
+        Coordinate[] transformed = geometryHandler.transform(coordinates, EPSG_31467, EPSG_4326);
+        Coordinate[] expected =
+                geometryHandler.transform(get31467LineString(), EPSG_4326).getCoordinates();
+        Assert.assertEquals(expected.length, transformed.length);
+        for (int i = 0; i < expected.length; i++) {
+            MatcherAssert.assertThat(expected[i].distance(transformed[i]) < DISTANCE, Is.is(true));
+        }
+        Assert.assertSame(coordinates, geometryHandler.transform(coordinates, EPSG_31467, EPSG_31467));
+    }
+
     @Test
     public void changeEpsgCodesWithNorthingFirstAxisOrder() throws OwsExceptionReport {
         MatcherAssert.assertThat(geometryHandler.isNorthingFirstEpsgCode(EPSG_31467), Is.is(true));
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * @since 6.1.2
+ */
+public class ResultBlockTokenizerTest {
+
+    private static final String VALUES = "3@2012-11-19T13:30:00+02:00,0.2,,a@@2012-11-19T13:31:00+02:00,1.5,x,@"
+            + "2012-11-19T13:32:00+02:00,-1.0,y,b@";
+
+    @Test
+    public void shouldMatchSplitForPlainSeparators() {
+        assertParity(VALUES, ",", "@", false);
+        assertParity(VALUES.replace(",", "#").replace("@", ";"), "#", ";", false);
+    }
+
+    @Test
+    public void shouldMatchLiteralSplitForRegexMetaCharacters() {
+        assertParity(VALUES.replace(",", "|").replace("@", "\n"), "|", "\n", true);
+        assertParity(VALUES.replace(".", ":").replace(",", ".").replace("@", "|"), ".", "|", true);
+        assertParity(VALUES.replace(",", "*").replace("@", "+"), "*", "+", true);
+    }
+
+    @Test
+    public void shouldMatchLiteralSplitForMultiCharacterSeparators() {
+        assertParity(VALUES.replace(",", "||").replace("@", "@@"), "||", "@@", true);
+        assertParity(VALUES.replace(",", "::").replace("@", "\r\n"), "::", "\r\n", true);
+        assertParity("1,,2;3,,,4;;5,,6,,", ",,", ";", true);
+    }
+
+    @Test
+    public void shouldSkipCountAndEmptyBlocks() {
+        assertThat(tokenize("2@a,b@@c,d@", ",", "@"),
+                contains(Arrays.asList("a", "b"), Arrays.asList("c", "d")));
+        assertThat(tokenize("a,b@c", ",", "@"), contains(Arrays.asList("a", "b"), Arrays.asList("c")));
+        assertThat(tokenize("", ",", "@"), is(empty()));
+        assertThat(tokenize("5", ",", "@"), is(empty()));
+    }
+
+    @Test
+    public void shouldKeepEmptyTokens() {
+        assertThat(tokenize("a,,b,@,c,", ",", "@"),
+                contains(Arrays.asList("a", "", "b", ""), Arrays.asList("", "c", "")));
+    }
+
+    @Test
+    public void shouldReuseRow() {
+        ResultBlockTokenizer tokenizer = new ResultBlockTokenizer("a,b@c,d", ",", "@");
+        List<String> first = tokenizer.next();
+        List<String> second = tokenizer.next();
+        assertThat(first == second, is(true));
+        assertThat(second, contains("c", "d"));
+        assertThat(tokenizer.hasNext(), is(false));
+    }
+
+    private void assertParity(String values, String tokenSeparator, String blockSeparator, boolean quote) {
+        assertThat(tokenize(values, tokenSeparator, blockSeparator),
+                is(split(values, tokenSeparator, blockSeparator, quote)));
+    }
+
+    private static List<List<String>> tokenize(String values, String tokenSeparator, String blockSeparator) {
+        List<List<String>> rows = new ArrayList<>();
+        ResultBlockTokenizer tokenizer = new ResultBlockTokenizer(values, tokenSeparator, blockSeparator);
+        while (tokenizer.hasNext()) {
+            rows.add(new ArrayList<>(tokenizer.next()));
+        }
+        return rows;
+    }
+
+    /**
+     * The former split based parsing of the InsertResult handler.
+     */
+    private static List<List<String>> split(String values, String tokenSeparator, String blockSeparator,
+            boolean quote) {
+        String tokenRegex = quote ? Pattern.quote(tokenSeparator) : tokenSeparator;
+        String blockRegex = quote ? Pattern.quote(blockSeparator) : blockSeparator;
+        List<String> blocks = new ArrayList<>(Arrays.asList(values.split(blockRegex, Integer.MAX_VALUE)));
+        if (!blocks.isEmpty() && !blocks.get(0).contains(tokenSeparator)) {
+            blocks.remove(0);
+        }
+        List<List<String>> rows = new ArrayList<>();
+        for (String block : blocks) {
+            if (!block.isEmpty()) {
+                rows.add(Arrays.asList(block.split(tokenRegex, Integer.MAX_VALUE)));
+            }
+        }
+        return rows;
+    }
+}
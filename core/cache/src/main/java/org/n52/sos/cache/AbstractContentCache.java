@@ -27,15 +27,17 @@
  */
 package org.n52.sos.cache;
 
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 
 import org.locationtech.jts.geom.Envelope;
@@ -47,6 +49,7 @@ import org.n52.shetland.util.ReferencedEnvelope;
 
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 
 /**
@@ -202,6 +205,97 @@ public abstract class AbstractContentCache implements ContentCache {
         }
     }
 
+    /**
+     * Creates a set view of the specified set. Immutable sets of a frozen cache
+     * are returned as they are, everything else is copied.
+     *
+     * @param <T> the element type
+     * @param set the set
+     *
+     * @return a unmodifiable view
+     */
+    protected static <T> Set<T> viewOf(Set<T> set) {
+        if (isImmutable(set)) {
+            return set;
+        }
+        return copyOf(set);
+    }
+
+    /**
+     * Get the set for the specified key that can safely be modified by this
+     * cache. Missing sets are created and sets shared with a frozen cache are
+     * copied before.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param map the map
+     * @param key the key
+     *
+     * @return the modifiable set
+     */
+    protected static <K, V> Set<V> writable(Map<K, Set<V>> map, K key) {
+        return map.compute(key, (k, v) -> v == null || isImmutable(v) ? newSynchronizedSet(v) : v);
+    }
+
+    /**
+     * Adds the value to the set for the specified key. A set shared with a
+     * frozen cache is only copied if it does not contain the value yet.
+     *
+     * @param <K>   the key type
+     * @param <V>   the value type
+     * @param map   the map
+     * @param key   the key
+     * @param value the value to add
+     */
+    protected static <K, V> void addValue(Map<K, Set<V>> map, K key, V value) {
+        Set<V> set = map.get(key);
+        if (set == null || !set.contains(value)) {
+            writable(map, key).add(value);
+        }
+    }
+
+    /**
+     * Adds the values to the set for the specified key. A set shared with a
+     * frozen cache is only copied if it does not contain all values yet.
+     *
+     * @param <K>    the key type
+     * @param <V>    the value type
+     * @param map    the map
+     * @param key    the key
+     * @param values the values to add
+     */
+    protected static <K, V> void addValues(Map<K, Set<V>> map, K key, Collection<? extends V> values) {
+        Set<V> set = map.get(key);
+        if (set == null || !set.containsAll(values)) {
+            writable(map, key).addAll(values);
+        }
+    }
+
+    /**
+     * Remove value from the set for the specified key, copying the set if it
+     * is shared with a frozen cache.
+     *
+     * @param <K>   the key type
+     * @param <V>   the value type
+     * @param map   map to check
+     * @param key   the key
+     * @param value the value to remove
+     */
+    protected static <K, V> void removeValue(Map<K, Set<V>> map, K key, V value) {
+        map.computeIfPresent(key, (k, v) -> {
+            if (isImmutable(v)) {
+                if (!v.contains(value)) {
+                    return v;
+                }
+                Set<V> copy = newSynchronizedSet(v);
+                copy.remove(value);
+                return copy;
+            }
+            v.remove(value);
+            return v;
+        });
+    }
+
     /**
      * Remove value from map or complete entry if values for key are empty.
      *
@@ -211,13 +305,136 @@ public abstract class AbstractContentCache implements ContentCache {
      * @param value the value to remove
      */
     protected static <K, V> void removeValue(Map<K, Set<V>> map, V value) {
-        Iterator<K> iterator = map.keySet().iterator();
-        while (iterator.hasNext()) {
-            Set<V> set = map.get(iterator.next());
-            if (set.remove(value) && set.isEmpty()) {
-                iterator.remove();
+        List<K> keys = map.entrySet().stream().filter(e -> e.getValue().contains(value)).map(Entry::getKey)
+                .collect(toList());
+        keys.forEach(key -> map.computeIfPresent(key, (k, set) -> {
+            if (!set.contains(value)) {
+                return set;
+            } else if (set.size() == 1) {
+                return null;
+            } else if (isImmutable(set)) {
+                Set<V> copy = newSynchronizedSet(set);
+                copy.remove(value);
+                return copy;
             }
+            set.remove(value);
+            return set;
+        }));
+    }
+
+    /**
+     * Removes the entry with the specified value from the map.
+     *
+     * @param <K>   the key type
+     * @param <V>   the value type
+     * @param map   the map
+     * @param value the value to remove
+     */
+    protected static <K, V> void removeInverse(BiMap<K, V> map, V value) {
+        K key = map.inverse().get(value);
+        if (key != null) {
+            map.remove(key);
+        }
+    }
+
+    /**
+     * Creates a new synchronized map from the specified map of sets. Immutable
+     * sets are shared, all other sets are copied.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param map the map
+     *
+     * @return the synchronized map
+     */
+    protected static <K, V> Map<K, Set<V>> thawSetMap(Map<K, Set<V>> map) {
+        Map<K, Set<V>> copy = new HashMap<>(map.size());
+        map.forEach((k, v) -> copy.put(k, isImmutable(v) ? v : newSynchronizedSet(v)));
+        return Collections.synchronizedMap(copy);
+    }
+
+    /**
+     * Creates a new synchronized {@link BiMap} from the specified map.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param map the map
+     *
+     * @return the synchronized map
+     */
+    protected static <K, V> BiMap<K, V> thawBiMap(BiMap<K, V> map) {
+        return newSynchronizedBiMap(HashBiMap.create(map));
+    }
+
+    /**
+     * Creates an immutable copy of the specified set. {@code null} elements are
+     * dropped. Sets that are still shared with a frozen cache are returned
+     * without copying.
+     *
+     * @param <T> the element type
+     * @param set the set
+     *
+     * @return the immutable set
+     */
+    protected static <T> Set<T> freezeSet(Set<T> set) {
+        if (set == null) {
+            return ImmutableSet.of();
+        } else if (isImmutable(set)) {
+            return set;
+        }
+        Set<T> unchanged = CopyOnWriteCollections.unchanged(set);
+        if (unchanged != null) {
+            return unchanged;
         }
+        return set.stream().filter(Objects::nonNull).collect(ImmutableSet.toImmutableSet());
+    }
+
+    /**
+     * Creates an unmodifiable copy of the specified map. Maps that are still
+     * shared with a frozen cache are returned without copying.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param map the map
+     *
+     * @return the unmodifiable map
+     */
+    protected static <K, V> Map<K, V> freezeMap(Map<K, V> map) {
+        Map<K, V> unchanged = CopyOnWriteCollections.unchanged(map);
+        if (unchanged != null) {
+            return unchanged;
+        }
+        return Collections.unmodifiableMap(new HashMap<>(map));
+    }
+
+    /**
+     * Creates an unmodifiable copy of the specified {@link BiMap}. Maps that are
+     * still shared with a frozen cache are returned without copying.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param map the map
+     *
+     * @return the unmodifiable map
+     */
+    protected static <K, V> BiMap<K, V> freezeBiMap(BiMap<K, V> map) {
+        BiMap<K, V> unchanged = CopyOnWriteCollections.unchanged(map);
+        if (unchanged != null) {
+            return unchanged;
+        }
+        return Maps.unmodifiableBiMap(HashBiMap.create(map));
+    }
+
+    /**
+     * Checks if the set is one of the immutable sets of a frozen cache, that
+     * may be shared between caches.
+     *
+     * @param set the set
+     *
+     * @return if the set is immutable
+     */
+    protected static boolean isImmutable(Set<?> set) {
+        return set instanceof ImmutableSet || set instanceof InternedIdentifierSet;
     }
 
 }
@@ -0,0 +1,381 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.ForwardingMap;
+import com.google.common.collect.ForwardingSet;
+
+/**
+ * Collections of a writable {@link InMemoryCacheImpl#copy() copy} that share
+ * the immutable collection of the frozen cache they were copied from. The
+ * shared collection is only copied on the first modification, so an update
+ * only copies the collections it actually touches and {@link
+ * InMemoryCacheImpl#freeze()} can reuse all others as they are.
+ *
+ * <p>
+ * The collections record the keys respectively elements that were modified,
+ * so that the {@link InMemoryCacheDelta} of an update can be created without
+ * comparing the complete collections.
+ * <p>
+ * Views ({@code keySet()}, {@code entrySet()}, {@code values()}, {@code
+ * iterator()}, {@code inverse()}) are views of the current collection and can
+ * not be used to modify a collection that is still shared.
+ *
+ * @since 6.1.2
+ */
+final class CopyOnWriteCollections {
+
+    private CopyOnWriteCollections() {
+    }
+
+    static <K, V> Map<K, V> map(Map<K, V> base) {
+        return new CopyOnWriteMap<>(base);
+    }
+
+    static <T> Set<T> set(Set<T> base) {
+        return new CopyOnWriteSet<>(base);
+    }
+
+    static <K, V> BiMap<K, V> biMap(BiMap<K, V> base) {
+        return new CopyOnWriteBiMap<>(base);
+    }
+
+    /**
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param map the map
+     *
+     * @return the shared immutable map if {@code map} is a copy-on-write map
+     *         that was not modified, {@code null} otherwise
+     */
+    static <K, V> Map<K, V> unchanged(Map<K, V> map) {
+        if (map instanceof CopyOnWriteMap) {
+            return ((CopyOnWriteMap<K, V>) map).unchanged();
+        } else if (map instanceof CopyOnWriteBiMap) {
+            return ((CopyOnWriteBiMap<K, V>) map).unchanged();
+        }
+        return null;
+    }
+
+    /**
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param map the map
+     *
+     * @return the shared immutable map if {@code map} is a copy-on-write map
+     *         that was not modified, {@code null} otherwise
+     */
+    static <K, V> BiMap<K, V> unchanged(BiMap<K, V> map) {
+        if (map instanceof CopyOnWriteBiMap) {
+            return ((CopyOnWriteBiMap<K, V>) map).unchanged();
+        }
+        return null;
+    }
+
+    /**
+     * @param <T> the element type
+     * @param set the set
+     *
+     * @return the shared immutable set if {@code set} is a copy-on-write set
+     *         that was not modified, {@code null} otherwise
+     */
+    static <T> Set<T> unchanged(Set<T> set) {
+        if (set instanceof CopyOnWriteSet) {
+            return ((CopyOnWriteSet<T>) set).unchanged();
+        }
+        return null;
+    }
+
+    static class CopyOnWriteMap<K, V> extends ForwardingMap<K, V> implements Serializable {
+        private static final long serialVersionUID = 8164281512358235401L;
+        private final Map<K, V> base;
+        private final Set<Object> modifiedKeys = ConcurrentHashMap.newKeySet();
+        private volatile Map<K, V> delegate;
+
+        CopyOnWriteMap(Map<K, V> base) {
+            this.base = base;
+            this.delegate = base;
+        }
+
+        @Override
+        protected Map<K, V> delegate() {
+            return this.delegate;
+        }
+
+        Map<K, V> base() {
+            return this.base;
+        }
+
+        Map<K, V> unchanged() {
+            return this.delegate == this.base ? this.base : null;
+        }
+
+        /**
+         * @return the keys that were possibly modified since the copy was created
+         */
+        Set<Object> modifiedKeys() {
+            return this.modifiedKeys;
+        }
+
+        Map<K, V> thaw(Object key) {
+            this.modifiedKeys.add(key);
+            return thaw();
+        }
+
+        Map<K, V> thawAll(Collection<?> keys) {
+            this.modifiedKeys.addAll(keys);
+            return thaw();
+        }
+
+        synchronized Map<K, V> thaw() {
+            if (this.delegate == this.base) {
+                this.delegate = copy(this.base);
+            }
+            return this.delegate;
+        }
+
+        protected Map<K, V> copy(Map<K, V> map) {
+            return AbstractContentCache.newSynchronizedMap(map);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            return thaw(key).put(key, value);
+        }
+
+        @Override
+        public void putAll(Map<? extends K, ? extends V> map) {
+            if (!map.isEmpty()) {
+                thawAll(map.keySet()).putAll(map);
+            }
+        }
+
+        @Override
+        public V remove(Object key) {
+            return containsKey(key) ? thaw(key).remove(key) : null;
+        }
+
+        @Override
+        public boolean remove(Object key, Object value) {
+            return containsKey(key) && thaw(key).remove(key, value);
+        }
+
+        @Override
+        public void clear() {
+            if (!isEmpty()) {
+                thawAll(keySet()).clear();
+            }
+        }
+
+        @Override
+        public V putIfAbsent(K key, V value) {
+            return thaw(key).putIfAbsent(key, value);
+        }
+
+        @Override
+        public boolean replace(K key, V oldValue, V newValue) {
+            return thaw(key).replace(key, oldValue, newValue);
+        }
+
+        @Override
+        public V replace(K key, V value) {
+            return thaw(key).replace(key, value);
+        }
+
+        @Override
+        public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+            thawAll(keySet()).replaceAll(function);
+        }
+
+        @Override
+        public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+            return thaw(key).computeIfAbsent(key, mappingFunction);
+        }
+
+        @Override
+        public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            return containsKey(key) ? thaw(key).computeIfPresent(key, remappingFunction) : null;
+        }
+
+        @Override
+        public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            return thaw(key).compute(key, remappingFunction);
+        }
+
+        @Override
+        public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+            return thaw(key).merge(key, value, remappingFunction);
+        }
+    }
+
+    static class CopyOnWriteBiMap<K, V> extends CopyOnWriteMap<K, V> implements BiMap<K, V> {
+        private static final long serialVersionUID = -2620212883125512425L;
+
+        CopyOnWriteBiMap(BiMap<K, V> base) {
+            super(base);
+        }
+
+        @Override
+        protected BiMap<K, V> delegate() {
+            return (BiMap<K, V>) super.delegate();
+        }
+
+        @Override
+        BiMap<K, V> unchanged() {
+            return (BiMap<K, V>) super.unchanged();
+        }
+
+        @Override
+        BiMap<K, V> thaw(Object key) {
+            return (BiMap<K, V>) super.thaw(key);
+        }
+
+        @Override
+        protected Map<K, V> copy(Map<K, V> map) {
+            return AbstractContentCache.thawBiMap((BiMap<K, V>) map);
+        }
+
+        @Override
+        public V forcePut(K key, V value) {
+            // forcePut removes the entry that had the value before
+            K previous = inverse().get(value);
+            if (previous != null) {
+                thaw(previous);
+            }
+            return thaw(key).forcePut(key, value);
+        }
+
+        @Override
+        public Set<V> values() {
+            return delegate().values();
+        }
+
+        @Override
+        public BiMap<V, K> inverse() {
+            return delegate().inverse();
+        }
+    }
+
+    static class CopyOnWriteSet<T> extends ForwardingSet<T> implements Serializable {
+        private static final long serialVersionUID = -4785012412409329633L;
+        private final Set<T> base;
+        private final Set<Object> modifiedElements = ConcurrentHashMap.newKeySet();
+        private volatile Set<T> delegate;
+
+        CopyOnWriteSet(Set<T> base) {
+            this.base = base;
+            this.delegate = base;
+        }
+
+        @Override
+        protected Set<T> delegate() {
+            return this.delegate;
+        }
+
+        Set<T> base() {
+            return this.base;
+        }
+
+        Set<T> unchanged() {
+            return this.delegate == this.base ? this.base : null;
+        }
+
+        /**
+         * @return the elements that were possibly added or removed since the
+         *         copy was created
+         */
+        Set<Object> modifiedElements() {
+            return this.modifiedElements;
+        }
+
+        Set<T> thaw(Object element) {
+            this.modifiedElements.add(element);
+            return thaw();
+        }
+
+        Set<T> thawAll(Collection<?> elements) {
+            this.modifiedElements.addAll(elements);
+            return thaw();
+        }
+
+        synchronized Set<T> thaw() {
+            if (this.delegate == this.base) {
+                this.delegate = AbstractContentCache.newSynchronizedSet(this.base);
+            }
+            return this.delegate;
+        }
+
+        @Override
+        public boolean add(T element) {
+            return !contains(element) && thaw(element).add(element);
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends T> collection) {
+            return !collection.isEmpty() && thawAll(collection).addAll(collection);
+        }
+
+        @Override
+        public boolean remove(Object element) {
+            return contains(element) && thaw(element).remove(element);
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> collection) {
+            return !collection.isEmpty() && !isEmpty() && thawAll(collection).removeAll(collection);
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> collection) {
+            return !isEmpty() && thawAll(this).retainAll(collection);
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super T> filter) {
+            return !isEmpty() && thawAll(this).removeIf(filter);
+        }
+
+        @Override
+        public void clear() {
+            if (!isEmpty()) {
+                thawAll(this).clear();
+            }
+        }
+    }
+
+}
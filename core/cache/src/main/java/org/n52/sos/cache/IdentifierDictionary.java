@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Append-only dictionary that maps identifiers to dense {@code int} ids. The
+ * dictionary is shared between a cache and its copies, so every identifier is
+ * only stored once and nested identifier sets can be stored as {@code int}
+ * arrays (see {@link InternedIdentifierSet}).
+ * <p>
+ * Interning is synchronized, lookups are lock free.
+ *
+ * @since 6.1.2
+ */
+final class IdentifierDictionary implements Serializable {
+    private static final long serialVersionUID = 2367102659536045262L;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>(INITIAL_CAPACITY);
+
+    private volatile String[] identifiers = new String[INITIAL_CAPACITY];
+
+    private int size;
+
+    /**
+     * Get the id of the identifier, assigning a new one if the identifier is
+     * unknown.
+     *
+     * @param identifier the identifier
+     *
+     * @return the id
+     */
+    int intern(String identifier) {
+        Integer id = ids.get(identifier);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(identifier);
+            if (id != null) {
+                return id;
+            }
+            String[] current = this.identifiers;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+                this.identifiers = current;
+            }
+            current[size] = identifier;
+            ids.put(identifier, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Get the id of the identifier without interning it.
+     *
+     * @param identifier the identifier
+     *
+     * @return the id or {@code -1} if the identifier is unknown
+     */
+    int indexOf(Object identifier) {
+        if (!(identifier instanceof String)) {
+            return -1;
+        }
+        Integer id = ids.get(identifier);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Get the identifier for the id.
+     *
+     * @param id the id
+     *
+     * @return the identifier
+     */
+    String get(int id) {
+        return this.identifiers[id];
+    }
+
+    /**
+     * @return the number of interned identifiers
+     */
+    int size() {
+        return ids.size();
+    }
+
+}
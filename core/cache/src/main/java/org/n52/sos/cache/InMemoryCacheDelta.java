@@ -0,0 +1,363 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.n52.sos.cache.CopyOnWriteCollections.CopyOnWriteMap;
+import org.n52.sos.cache.CopyOnWriteCollections.CopyOnWriteSet;
+
+import com.google.common.collect.BiMap;
+
+/**
+ * The difference between two {@link InMemoryCacheImpl} instances, e.g. the
+ * effect of a partial cache update. The delta contains the changed entries of
+ * all maps, the added and removed elements of all sets and of the sets of all
+ * set valued maps, and the values that were changed. It is recorded from the
+ * keys and elements that the update modified in the
+ * {@link InMemoryCacheImpl#copy() copy} of a frozen cache, so that both its
+ * size and the cost to create it scale with the size of the change and not
+ * with the size of the cache.
+ * <p>
+ * Applying a delta sets absolute values, so applying it more than once has the
+ * same effect as applying it once.
+ *
+ * @since 6.1.2
+ */
+public final class InMemoryCacheDelta implements Serializable {
+    private static final long serialVersionUID = 6262409226436880774L;
+
+    private final Map<String, Map<Object, Object>> putEntries = new HashMap<>();
+
+    private final Map<String, Set<Object>> removedKeys = new HashMap<>();
+
+    private final Map<String, Map<Object, Set<Object>>> addedValues = new HashMap<>();
+
+    private final Map<String, Map<Object, Set<Object>>> removedValues = new HashMap<>();
+
+    private final Map<String, Set<Object>> addedElements = new HashMap<>();
+
+    private final Map<String, Set<Object>> removedElements = new HashMap<>();
+
+    private final Map<String, Object> values = new HashMap<>();
+
+    private InMemoryCacheDelta() {
+    }
+
+    /**
+     * Get the delta that transforms {@code previous} into {@code current}.
+     *
+     * @param previous the previous cache
+     * @param current  the current cache
+     *
+     * @return the delta or nothing if {@code current} is not a frozen copy of
+     *         {@code previous}, so that no delta was recorded
+     */
+    public static Optional<InMemoryCacheDelta> between(InMemoryCacheImpl previous, InMemoryCacheImpl current) {
+        Objects.requireNonNull(previous, "previous");
+        Objects.requireNonNull(current, "current");
+        return Optional.ofNullable(current.getRecordedDelta(previous));
+    }
+
+    /**
+     * Records the modifications of a {@link InMemoryCacheImpl#copy() copy} of a
+     * frozen cache.
+     *
+     * @param previous the frozen cache the copy was created from
+     * @param cache    the copy, before it is frozen
+     *
+     * @return the delta or {@code null} if the modifications were not recorded
+     */
+    static InMemoryCacheDelta record(InMemoryCacheImpl previous, InMemoryCacheImpl cache) {
+        Map<String, Object> previousValues = new HashMap<>();
+        previous.visitState(new StateVisitor() {
+            @Override
+            public <T> void value(String name, T value, Consumer<T> setter) {
+                previousValues.put(name, value);
+            }
+        });
+        Recorder recorder = new InMemoryCacheDelta().new Recorder(previousValues);
+        cache.visitState(recorder);
+        return recorder.complete ? recorder.delta() : null;
+    }
+
+    /**
+     * @return if this delta doesn't change anything
+     */
+    public boolean isEmpty() {
+        return putEntries.isEmpty() && removedKeys.isEmpty() && addedValues.isEmpty() && removedValues.isEmpty()
+                && addedElements.isEmpty() && removedElements.isEmpty() && values.isEmpty();
+    }
+
+    /**
+     * Applies this delta to the specified cache.
+     *
+     * @param cache the cache, may not be frozen
+     */
+    public void applyTo(InMemoryCacheImpl cache) {
+        if (cache.isFrozen()) {
+            throw new IllegalStateException("Can not apply a delta to a frozen cache");
+        }
+        cache.visitState(new Applier());
+    }
+
+    private static <K, V> Map<K, V> entries(Map<String, Map<K, V>> map, String name) {
+        return map.getOrDefault(name, Collections.emptyMap());
+    }
+
+    private static <T> Set<T> elements(Map<String, Set<T>> map, String name) {
+        return map.getOrDefault(name, Collections.emptySet());
+    }
+
+    private static <T> void putIfNotEmpty(Map<String, T> map, String name, T value, boolean empty) {
+        if (!empty) {
+            map.put(name, value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InMemoryCacheDelta[maps=%s, setMaps=%s, sets=%s, values=%s]",
+                putEntries.keySet(), addedValues.keySet(), addedElements.keySet(), values.keySet());
+    }
+
+    /**
+     * Visitor for the state of a {@link InMemoryCacheImpl} that is covered by
+     * a delta.
+     *
+     * @see InMemoryCacheImpl#visitState(StateVisitor)
+     */
+    interface StateVisitor {
+        /**
+         * @param name the name of the map
+         * @param map  the map, whose values are replaced as a whole
+         */
+        default <K, V> void map(String name, Map<K, V> map) {
+        }
+
+        /**
+         * @param name the name of the map
+         * @param map  the map, whose sets are modified element by element
+         */
+        default <K, V> void setMap(String name, Map<K, Set<V>> map) {
+        }
+
+        /**
+         * @param name the name of the set
+         * @param set  the set
+         */
+        default <T> void set(String name, Set<T> set) {
+        }
+
+        /**
+         * @param name   the name of the value
+         * @param value  the value, which is replaced and never modified
+         * @param setter the setter for the value
+         */
+        default <T> void value(String name, T value, Consumer<T> setter) {
+        }
+    }
+
+    private final class Recorder implements StateVisitor {
+        private final Map<String, Object> previousValues;
+        private boolean complete = true;
+
+        Recorder(Map<String, Object> previousValues) {
+            this.previousValues = previousValues;
+        }
+
+        InMemoryCacheDelta delta() {
+            return InMemoryCacheDelta.this;
+        }
+
+        @Override
+        public <K, V> void map(String name, Map<K, V> map) {
+            if (!(map instanceof CopyOnWriteMap)) {
+                complete = false;
+                return;
+            }
+            CopyOnWriteMap<K, V> cow = (CopyOnWriteMap<K, V>) map;
+            if (cow.unchanged() != null) {
+                return;
+            }
+            Map<K, V> before = cow.base();
+            Map<Object, Object> put = new HashMap<>();
+            Set<Object> removed = new HashSet<>();
+            for (Object key : cow.modifiedKeys()) {
+                V value = cow.get(key);
+                if (value == null && !cow.containsKey(key)) {
+                    if (before.containsKey(key)) {
+                        removed.add(key);
+                    }
+                } else if (!before.containsKey(key) || !Objects.equals(before.get(key), value)) {
+                    put.put(key, value);
+                }
+            }
+            putIfNotEmpty(putEntries, name, put, put.isEmpty());
+            putIfNotEmpty(removedKeys, name, removed, removed.isEmpty());
+        }
+
+        @Override
+        public <K, V> void setMap(String name, Map<K, Set<V>> map) {
+            if (!(map instanceof CopyOnWriteMap)) {
+                complete = false;
+                return;
+            }
+            CopyOnWriteMap<K, Set<V>> cow = (CopyOnWriteMap<K, Set<V>>) map;
+            if (cow.unchanged() != null) {
+                return;
+            }
+            Map<K, Set<V>> before = cow.base();
+            Map<Object, Object> put = new HashMap<>();
+            Set<Object> removed = new HashSet<>();
+            Map<Object, Set<Object>> added = new HashMap<>();
+            Map<Object, Set<Object>> removedFromSets = new HashMap<>();
+            for (Object key : cow.modifiedKeys()) {
+                Set<V> value = cow.get(key);
+                Set<V> previous = before.get(key);
+                if (value == null && !cow.containsKey(key)) {
+                    if (before.containsKey(key)) {
+                        removed.add(key);
+                    }
+                } else if (previous == null || value == null) {
+                    put.put(key, value == null ? null : new HashSet<>(value));
+                } else if (previous != value && !previous.equals(value)) {
+                    // only the elements of the set that changed
+                    Set<Object> elements = difference(value, previous);
+                    if (!elements.isEmpty()) {
+                        added.put(key, elements);
+                    }
+                    elements = difference(previous, value);
+                    if (!elements.isEmpty()) {
+                        removedFromSets.put(key, elements);
+                    }
+                }
+            }
+            putIfNotEmpty(putEntries, name, put, put.isEmpty());
+            putIfNotEmpty(removedKeys, name, removed, removed.isEmpty());
+            putIfNotEmpty(addedValues, name, added, added.isEmpty());
+            putIfNotEmpty(removedValues, name, removedFromSets, removedFromSets.isEmpty());
+        }
+
+        @Override
+        public <T> void set(String name, Set<T> set) {
+            if (!(set instanceof CopyOnWriteSet)) {
+                complete = false;
+                return;
+            }
+            CopyOnWriteSet<T> cow = (CopyOnWriteSet<T>) set;
+            if (cow.unchanged() != null) {
+                return;
+            }
+            Set<T> before = cow.base();
+            Set<Object> added = new HashSet<>();
+            Set<Object> removed = new HashSet<>();
+            for (Object element : cow.modifiedElements()) {
+                boolean contained = before.contains(element);
+                if (cow.contains(element)) {
+                    if (!contained) {
+                        added.add(element);
+                    }
+                } else if (contained) {
+                    removed.add(element);
+                }
+            }
+            putIfNotEmpty(addedElements, name, added, added.isEmpty());
+            putIfNotEmpty(removedElements, name, removed, removed.isEmpty());
+        }
+
+        @Override
+        public <T> void value(String name, T value, Consumer<T> setter) {
+            if (!Objects.equals(previousValues.get(name), value)) {
+                values.put(name, value);
+            }
+        }
+
+        private Set<Object> difference(Set<?> set, Set<?> other) {
+            Set<Object> difference = new HashSet<>();
+            synchronized (set) {
+                for (Object element : set) {
+                    if (!other.contains(element)) {
+                        difference.add(element);
+                    }
+                }
+            }
+            return difference;
+        }
+    }
+
+    private final class Applier implements StateVisitor {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <K, V> void map(String name, Map<K, V> map) {
+            elements(removedKeys, name).forEach(map::remove);
+            entries(putEntries, name).forEach((k, v) -> {
+                if (map instanceof BiMap) {
+                    ((BiMap<K, V>) map).forcePut((K) k, (V) v);
+                } else {
+                    map.put((K) k, (V) v);
+                }
+            });
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <K, V> void setMap(String name, Map<K, Set<V>> map) {
+            elements(removedKeys, name).forEach(map::remove);
+            entries(putEntries, name).forEach((k, v) -> map.put((K) k,
+                    v == null ? null : AbstractContentCache.newSynchronizedSet((Set<V>) v)));
+            entries(removedValues, name).forEach((k, v) -> v.forEach(e -> AbstractContentCache.removeValue(map, (K) k,
+                    (V) e)));
+            entries(addedValues, name).forEach((k, v) -> AbstractContentCache.addValues(map, (K) k, (Set<V>) v));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> void set(String name, Set<T> set) {
+            set.removeAll(elements(removedElements, name));
+            set.addAll((Set<T>) elements(addedElements, name));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> void value(String name, T value, Consumer<T> setter) {
+            if (values.containsKey(name)) {
+                setter.accept((T) values.get(name));
+            }
+        }
+    }
+
+}
@@ -27,22 +27,22 @@
  */
 package org.n52.sos.cache;
 
+import static java.util.stream.Collectors.toList;
+
+import java.lang.ref.WeakReference;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
 
 import org.joda.time.DateTime;
 import org.locationtech.jts.geom.Envelope;
 import org.n52.janmayen.function.Functions;
-import org.n52.janmayen.function.Suppliers;
 import org.n52.janmayen.i18n.LocalizedString;
 import org.n52.janmayen.i18n.MultilingualString;
 import org.n52.shetland.ogc.gml.time.TimePeriod;
@@ -56,146 +56,155 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.BiMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 @SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
 public class InMemoryCacheImpl extends AbstractStaticSosContentCache
-        implements SosWritableContentCache, CacheConstants {
+        implements SosWritableContentCache, SnapshotContentCache, CacheConstants {
     private static final Logger LOG = LoggerFactory.getLogger(InMemoryCacheImpl.class);
 
     private static final long serialVersionUID = 3630601584420744019L;
 
-    private final Map<String, DateTime> maxPhenomenonTimeForOfferings = newSynchronizedMap();
+    private Map<String, DateTime> maxPhenomenonTimeForOfferings = newSynchronizedMap();
 
-    private final Map<String, DateTime> minPhenomenonTimeForOfferings = newSynchronizedMap();
+    private Map<String, DateTime> minPhenomenonTimeForOfferings = newSynchronizedMap();
 
-    private final Map<String, DateTime> maxResultTimeForOfferings = newSynchronizedMap();
+    private Map<String, DateTime> maxResultTimeForOfferings = newSynchronizedMap();
 
-    private final Map<String, DateTime> minResultTimeForOfferings = newSynchronizedMap();
+    private Map<String, DateTime> minResultTimeForOfferings = newSynchronizedMap();
 
-    private final Map<String, DateTime> maxPhenomenonTimeForProcedures = newSynchronizedMap();
+    private Map<String, DateTime> maxPhenomenonTimeForProcedures = newSynchronizedMap();
 
-    private final Map<String, DateTime> minPhenomenonTimeForProcedures = newSynchronizedMap();
+    private Map<String, DateTime> minPhenomenonTimeForProcedures = newSynchronizedMap();
 
-    private final Map<String, Set<String>> allowedObservationTypeForOfferings = newSynchronizedMap();
+    private Map<String, Set<String>> allowedObservationTypeForOfferings = newSynchronizedMap();
 
-    private final Map<String, Set<String>> allowedFeatureOfInterestTypeForOfferings = newSynchronizedMap();
+    private Map<String, Set<String>> allowedFeatureOfInterestTypeForOfferings = newSynchronizedMap();
 
-    private final Map<String, Set<String>> childFeaturesForFeatureOfInterest = newSynchronizedMap();
+    private Map<String, Set<String>> childFeaturesForFeatureOfInterest = newSynchronizedMap();
 
-    private final Map<String, Set<String>> childProceduresForProcedures = newSynchronizedMap();
+    private Map<String, Set<String>> childProceduresForProcedures = newSynchronizedMap();
 
-    private final Map<String, Set<String>> childOfferingsForOfferings = newSynchronizedMap();
+    private Map<String, Set<String>> childOfferingsForOfferings = newSynchronizedMap();
 
-    private final Map<String, Set<String>> compositePhenomenonsForProcedure = newSynchronizedMap();
+    private Map<String, Set<String>> compositePhenomenonsForProcedure = newSynchronizedMap();
 
-    private final Map<String, Set<String>> compositePhenomenonsForOffering = newSynchronizedMap();
+    private Map<String, Set<String>> compositePhenomenonsForOffering = newSynchronizedMap();
 
-    private final Map<String, Set<String>> compositePhenomenonsForObservableProperty = newSynchronizedMap();
+    private Map<String, Set<String>> compositePhenomenonsForObservableProperty = newSynchronizedMap();
 
-    private final Map<String, Set<String>> featuresOfInterestForOfferings = newSynchronizedMap();
+    private Map<String, Set<String>> featuresOfInterestForOfferings = newSynchronizedMap();
 
-    private final Map<String, Set<String>> offeringsForFeaturesOfInterest = newSynchronizedMap();
+    private Map<String, Set<String>> offeringsForFeaturesOfInterest = newSynchronizedMap();
 
-    private final Map<String, Set<String>> featuresOfInterestForResultTemplates = newSynchronizedMap();
+    private Map<String, Set<String>> featuresOfInterestForResultTemplates = newSynchronizedMap();
 
-    private final Map<String, Set<String>> observablePropertiesForCompositePhenomenons = newSynchronizedMap();
+    private Map<String, Set<String>> observablePropertiesForCompositePhenomenons = newSynchronizedMap();
 
-    private final Map<String, Set<String>> observablePropertiesForOfferings = newSynchronizedMap();
+    private Map<String, Set<String>> observablePropertiesForOfferings = newSynchronizedMap();
 
-    private final Map<String, Set<String>> observablePropertiesForProcedures = newSynchronizedMap();
+    private Map<String, Set<String>> observablePropertiesForProcedures = newSynchronizedMap();
 
-    private final Map<String, Set<String>> observationTypesForOfferings = newSynchronizedMap();
+    private Map<String, Set<String>> observationTypesForOfferings = newSynchronizedMap();
 
-    private final Map<String, Set<String>> featureOfInterestTypesForOfferings = newSynchronizedMap();
+    private Map<String, Set<String>> featureOfInterestTypesForOfferings = newSynchronizedMap();
 
-    private final Map<String, Set<String>> observedPropertiesForResultTemplates = newSynchronizedMap();
+    private Map<String, Set<String>> observedPropertiesForResultTemplates = newSynchronizedMap();
 
-    private final Map<String, Set<String>> offeringsForObservableProperties = newSynchronizedMap();
+    private Map<String, Set<String>> offeringsForObservableProperties = newSynchronizedMap();
 
-    private final Map<String, Set<String>> offeringsForProcedures = newSynchronizedMap();
+    private Map<String, Set<String>> offeringsForProcedures = newSynchronizedMap();
 
-    private final Map<String, Set<String>> parentFeaturesForFeaturesOfInterest = newSynchronizedMap();
+    private Map<String, Set<String>> parentFeaturesForFeaturesOfInterest = newSynchronizedMap();
 
-    private final Map<String, Set<String>> parentProceduresForProcedures = newSynchronizedMap();
+    private Map<String, Set<String>> parentProceduresForProcedures = newSynchronizedMap();
 
-    private final Map<String, Set<String>> parentOfferingsForOfferings = newSynchronizedMap();
+    private Map<String, Set<String>> parentOfferingsForOfferings = newSynchronizedMap();
 
-    private final Map<String, Set<String>> proceduresForFeaturesOfInterest = newSynchronizedMap();
+    private Map<String, Set<String>> proceduresForFeaturesOfInterest = newSynchronizedMap();
 
-    private final Map<String, Set<String>> proceduresForObservableProperties = newSynchronizedMap();
+    private Map<String, Set<String>> proceduresForObservableProperties = newSynchronizedMap();
 
-    private final Map<String, Set<String>> proceduresForOfferings = newSynchronizedMap();
+    private Map<String, Set<String>> proceduresForOfferings = newSynchronizedMap();
 
-    private final Map<String, Set<String>> hiddenChildProceduresForOfferings = newSynchronizedMap();
+    private Map<String, Set<String>> hiddenChildProceduresForOfferings = newSynchronizedMap();
 
-    private final Map<String, Set<String>> relatedFeaturesForOfferings = newSynchronizedMap();
+    private Map<String, Set<String>> relatedFeaturesForOfferings = newSynchronizedMap();
 
-    private final Map<String, Set<String>> resultTemplatesForOfferings = newSynchronizedMap();
+    private Map<String, Set<String>> resultTemplatesForOfferings = newSynchronizedMap();
 
-    private final Map<String, Set<String>> rolesForRelatedFeatures = newSynchronizedMap();
+    private Map<String, Set<String>> rolesForRelatedFeatures = newSynchronizedMap();
 
-    private final Map<String, ReferencedEnvelope> envelopeForOfferings = newSynchronizedMap();
+    private Map<String, ReferencedEnvelope> envelopeForOfferings = newSynchronizedMap();
 
-    private final Map<String, String> nameForOfferings = newSynchronizedMap();
+    private Map<String, String> nameForOfferings = newSynchronizedMap();
 
-    private final Map<String, MultilingualString> i18nNameForOfferings = newSynchronizedMap();
+    private Map<String, MultilingualString> i18nNameForOfferings = newSynchronizedMap();
 
-    private final Map<String, MultilingualString> i18nDescriptionForOfferings = newSynchronizedMap();
+    private Map<String, MultilingualString> i18nDescriptionForOfferings = newSynchronizedMap();
 
-    private final Set<Integer> epsgCodes = newSynchronizedSet();
+    private Set<Integer> epsgCodes = newSynchronizedSet();
 
-    private final Set<String> featuresOfInterest = newSynchronizedSet();
+    private Set<String> featuresOfInterest = newSynchronizedSet();
 
-    private final Set<String> procedures = newSynchronizedSet();
+    private Set<String> procedures = newSynchronizedSet();
 
-    private final Set<String> resultTemplates = newSynchronizedSet();
+    private Set<String> resultTemplates = newSynchronizedSet();
 
-    private final Set<String> offerings = newSynchronizedSet();
+    private Set<String> offerings = newSynchronizedSet();
 
-    private final Set<String> compositePhenomenons = newSynchronizedSet();
+    private Set<String> compositePhenomenons = newSynchronizedSet();
 
-    private final TimePeriod globalPhenomenonTimeEnvelope = new TimePeriod();
+    private TimePeriod globalPhenomenonTimeEnvelope = new TimePeriod();
 
-    private final TimePeriod globalResultTimeEnvelope = new TimePeriod();
+    private TimePeriod globalResultTimeEnvelope = new TimePeriod();
 
-    private final Map<String, ReferencedEnvelope> spatialFilteringProfileEnvelopeForOfferings = newSynchronizedMap();
+    private Map<String, ReferencedEnvelope> spatialFilteringProfileEnvelopeForOfferings = newSynchronizedMap();
 
-    private final Set<Locale> supportedLanguages = newSynchronizedSet();
+    private Set<Locale> supportedLanguages = newSynchronizedSet();
 
-    private final Set<String> requestableProcedureDescriptionFormats = newSynchronizedSet();
+    private Set<String> requestableProcedureDescriptionFormats = newSynchronizedSet();
 
-    private final BiMap<String, String> featureOfInterestIdentifierHumanReadableName = newSynchronizedBiMap();
+    private BiMap<String, String> featureOfInterestIdentifierHumanReadableName = newSynchronizedBiMap();
 
-    private final BiMap<String, String> observablePropertyIdentifierHumanReadableName = newSynchronizedBiMap();
+    private BiMap<String, String> observablePropertyIdentifierHumanReadableName = newSynchronizedBiMap();
 
-    private final BiMap<String, String> procedureIdentifierHumanReadableName = newSynchronizedBiMap();
+    private BiMap<String, String> procedureIdentifierHumanReadableName = newSynchronizedBiMap();
 
-    private final BiMap<String, String> offeringIdentifierHumanReadableName = newSynchronizedBiMap();
+    private BiMap<String, String> offeringIdentifierHumanReadableName = newSynchronizedBiMap();
 
-    private final Map<TypeInstance, Set<String>> typeInstanceProcedures = newSynchronizedMap();
+    private Map<TypeInstance, Set<String>> typeInstanceProcedures = newSynchronizedMap();
 
-    private final Map<ComponentAggregation, Set<String>> componentAggregationProcedures = newSynchronizedMap();
+    private Map<ComponentAggregation, Set<String>> componentAggregationProcedures = newSynchronizedMap();
 
-    private final Map<String, Set<String>> typeOfProceduresMap = newSynchronizedMap();
+    private Map<String, Set<String>> typeOfProceduresMap = newSynchronizedMap();
 
     private int defaultEpsgCode = 4326;
 
     private ReferencedEnvelope globalEnvelope = new ReferencedEnvelope(null, defaultEpsgCode);
 
-    private DateTime updateTime;
+    private volatile DateTime updateTime;
+
+    private boolean frozen;
+
+    private transient WeakReference<InMemoryCacheImpl> copiedFrom;
+
+    private transient InMemoryCacheDelta recordedDelta;
 
-    private final Map<String, Set<String>> procedureProcedureDescriptionFormats = newSynchronizedMap();
+    private IdentifierDictionary identifierDictionary = new IdentifierDictionary();
 
-    private final Set<String> publishedFeatureOfInterest = newSynchronizedSet();
+    private Map<String, Set<String>> procedureProcedureDescriptionFormats = newSynchronizedMap();
 
-    private final Set<String> publishedProcedure = newSynchronizedSet();
+    private Set<String> publishedFeatureOfInterest = newSynchronizedSet();
 
-    private final Set<String> publishedOffering = newSynchronizedSet();
+    private Set<String> publishedProcedure = newSynchronizedSet();
 
-    private final Set<String> publishedObservableProperty = newSynchronizedSet();
+    private Set<String> publishedOffering = newSynchronizedSet();
+
+    private Set<String> publishedObservableProperty = newSynchronizedSet();
 
     @Override
     public DateTime getLastUpdateTime() {
@@ -204,6 +213,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public void setLastUpdateTime(DateTime time) {
+        checkNotFrozen();
         this.updateTime = time;
     }
 
@@ -215,7 +225,9 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     @Override
     public void setMaxPhenomenonTime(DateTime maxEventTime) {
         LOG.trace("Setting Maximal EventTime to {}", maxEventTime);
-        this.globalPhenomenonTimeEnvelope.setEnd(DateTimeHelper.toUTC(maxEventTime));
+        checkNotFrozen();
+        this.globalPhenomenonTimeEnvelope = new TimePeriod(this.globalPhenomenonTimeEnvelope.getStart(),
+                DateTimeHelper.toUTC(maxEventTime));
     }
 
     @Override
@@ -226,36 +238,42 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     @Override
     public void setMinPhenomenonTime(DateTime minEventTime) {
         LOG.trace("Setting Minimal EventTime to {}", minEventTime);
-        this.globalPhenomenonTimeEnvelope.setStart(DateTimeHelper.toUTC(minEventTime));
+        checkNotFrozen();
+        this.globalPhenomenonTimeEnvelope = new TimePeriod(DateTimeHelper.toUTC(minEventTime),
+                this.globalPhenomenonTimeEnvelope.getEnd());
     }
 
     /**
-     * @return the global phenomenon time envelope
+     * @return a copy of the global phenomenon time envelope
      */
     protected TimePeriod getGlobalPhenomenonTimeEnvelope() {
-        return this.globalPhenomenonTimeEnvelope;
+        return copyOf(this.globalPhenomenonTimeEnvelope);
     }
 
     /**
-     * @return the global result time envelope
+     * @return a copy of the global result time envelope
      */
     protected TimePeriod getGlobalResultTimeEnvelope() {
-        return this.globalResultTimeEnvelope;
+        return copyOf(this.globalResultTimeEnvelope);
     }
 
     /**
-     * @return the global spatial envelope
+     * @return a copy of the global spatial envelope
      */
     protected ReferencedEnvelope getGlobalSpatialEnvelope() {
-        return this.globalEnvelope;
+        return copyOf(this.globalEnvelope);
     }
 
     /**
+     * The global envelopes are shared between a frozen cache and its copies,
+     * so they are never modified but replaced.
+     *
      * @param envelope
      *            the new global spatial envelope
      */
     protected void setGlobalSpatialEnvelope(ReferencedEnvelope envelope) {
-        this.globalEnvelope = Objects.requireNonNull(envelope, "envelope");
+        checkNotFrozen();
+        this.globalEnvelope = copyOf(Objects.requireNonNull(envelope, "envelope"));
     }
 
     /**
@@ -270,6 +288,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
      *            the updateTime to set
      */
     public void setUpdateTime(DateTime updateTime) {
+        checkNotFrozen();
         this.updateTime = updateTime;
     }
 
@@ -278,6 +297,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
      *            the new default EPSG code
      */
     public void setDefaultEPSGCode(int defaultEpsgCode) {
+        checkNotFrozen();
         this.defaultEpsgCode = defaultEpsgCode;
     }
 
@@ -288,7 +308,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getFeaturesOfInterest() {
-        return copyOf(this.featuresOfInterest);
+        return viewOf(this.featuresOfInterest);
     }
 
     @Override
@@ -300,7 +320,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getProcedures() {
-        return copyOf(this.procedures);
+        return viewOf(this.procedures);
     }
 
     @Override
@@ -312,7 +332,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getResultTemplates() {
-        return copyOf(this.resultTemplates);
+        return viewOf(this.resultTemplates);
     }
 
     @Override
@@ -333,52 +353,52 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getOfferings() {
-        return copyOf(this.offerings);
+        return viewOf(this.offerings);
     }
 
     @Override
     public Set<String> getOfferingsForObservableProperty(String observableProperty) {
-        return copyOf(this.offeringsForObservableProperties.get(observableProperty));
+        return viewOf(this.offeringsForObservableProperties.get(observableProperty));
     }
 
     @Override
     public Set<String> getOfferingsForProcedure(String procedure) {
-        return copyOf(this.offeringsForProcedures.get(procedure));
+        return viewOf(this.offeringsForProcedures.get(procedure));
     }
 
     @Override
     public Set<String> getProceduresForFeatureOfInterest(String featureOfInterest) {
-        return copyOf(this.proceduresForFeaturesOfInterest.get(featureOfInterest));
+        return viewOf(this.proceduresForFeaturesOfInterest.get(featureOfInterest));
     }
 
     @Override
     public Set<String> getProceduresForObservableProperty(String observableProperty) {
-        return copyOf(this.proceduresForObservableProperties.get(observableProperty));
+        return viewOf(this.proceduresForObservableProperties.get(observableProperty));
     }
 
     @Override
     public Set<String> getProceduresForOffering(String offering) {
-        return copyOf(this.proceduresForOfferings.get(offering));
+        return viewOf(this.proceduresForOfferings.get(offering));
     }
 
     @Override
     public Set<String> getHiddenChildProceduresForOffering(String offering) {
-        return copyOf(this.hiddenChildProceduresForOfferings.get(offering));
+        return viewOf(this.hiddenChildProceduresForOfferings.get(offering));
     }
 
     @Override
     public Set<String> getRelatedFeaturesForOffering(String offering) {
-        return copyOf(this.relatedFeaturesForOfferings.get(offering));
+        return viewOf(this.relatedFeaturesForOfferings.get(offering));
     }
 
     @Override
     public Set<String> getResultTemplatesForOffering(String offering) {
-        return copyOf(this.resultTemplatesForOfferings.get(offering));
+        return viewOf(this.resultTemplatesForOfferings.get(offering));
     }
 
     @Override
     public Set<String> getRolesForRelatedFeature(String relatedFeature) {
-        return copyOf(this.rolesForRelatedFeatures.get(relatedFeature));
+        return viewOf(this.rolesForRelatedFeatures.get(relatedFeature));
     }
 
     @Override
@@ -448,39 +468,39 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getAllowedObservationTypesForOffering(String offering) {
-        return copyOf(this.allowedObservationTypeForOfferings.get(offering));
+        return viewOf(this.allowedObservationTypeForOfferings.get(offering));
     }
 
     @Override
     public Set<String> getAllObservationTypesForOffering(final String offering) {
-        Set<String> observationTypes = Sets.newHashSet(copyOf(this.allowedObservationTypeForOfferings.get(offering)));
+        Set<String> observationTypes = Sets.newHashSet(viewOf(this.allowedObservationTypeForOfferings.get(offering)));
         observationTypes.addAll(getObservationTypesForOffering(offering));
         return observationTypes;
     }
 
     @Override
     public Set<String> getFeaturesOfInterestForOffering(String offering) {
-        return copyOf(this.featuresOfInterestForOfferings.get(offering));
+        return viewOf(this.featuresOfInterestForOfferings.get(offering));
     }
 
     @Override
     public Set<String> getOfferingsForFeatureOfInterest(final String featureOfInterest) {
-        return copyOf(this.offeringsForFeaturesOfInterest.get(featureOfInterest));
+        return viewOf(this.offeringsForFeaturesOfInterest.get(featureOfInterest));
     }
 
     @Override
     public Set<String> getFeaturesOfInterestForResultTemplate(String resultTemplate) {
-        return copyOf(this.featuresOfInterestForResultTemplates.get(resultTemplate));
+        return viewOf(this.featuresOfInterestForResultTemplates.get(resultTemplate));
     }
 
     @Override
     public Set<String> getObservablePropertiesForOffering(String offering) {
-        return copyOf(this.observablePropertiesForOfferings.get(offering));
+        return viewOf(this.observablePropertiesForOfferings.get(offering));
     }
 
     @Override
     public Set<String> getObservablePropertiesForProcedure(String procedure) {
-        return copyOf(this.observablePropertiesForProcedures.get(procedure));
+        return viewOf(this.observablePropertiesForProcedures.get(procedure));
     }
 
     @Override
@@ -491,12 +511,12 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getObservationTypesForOffering(String offering) {
-        return copyOf(this.observationTypesForOfferings.get(offering));
+        return viewOf(this.observationTypesForOfferings.get(offering));
     }
 
     @Override
     public Set<String> getObservablePropertiesForResultTemplate(String resultTemplate) {
-        return copyOf(this.observedPropertiesForResultTemplates.get(resultTemplate));
+        return viewOf(this.observedPropertiesForResultTemplates.get(resultTemplate));
     }
 
     @Override
@@ -596,7 +616,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getOfferingsWithResultTemplate() {
-        return copyOf(this.resultTemplatesForOfferings.keySet());
+        return viewOf(this.resultTemplatesForOfferings.keySet());
     }
 
     @Override
@@ -644,7 +664,9 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     @Override
     public void setMaxResultTime(DateTime maxResultTime) {
         LOG.trace("Setting Maximal ResultTime to {}", maxResultTime);
-        this.globalResultTimeEnvelope.setEnd(DateTimeHelper.toUTC(maxResultTime));
+        checkNotFrozen();
+        this.globalResultTimeEnvelope = new TimePeriod(this.globalResultTimeEnvelope.getStart(),
+                DateTimeHelper.toUTC(maxResultTime));
     }
 
     @Override
@@ -660,7 +682,9 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     @Override
     public void setMinResultTime(DateTime minResultTime) {
         LOG.trace("Setting Minimal ResultTime to {}", minResultTime);
-        this.globalResultTimeEnvelope.setStart(DateTimeHelper.toUTC(minResultTime));
+        checkNotFrozen();
+        this.globalResultTimeEnvelope = new TimePeriod(DateTimeHelper.toUTC(minResultTime),
+                this.globalResultTimeEnvelope.getEnd());
     }
 
     @Override
@@ -675,17 +699,17 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getFeatureOfInterestTypesForOffering(String offering) {
-        return copyOf(this.featureOfInterestTypesForOfferings.get(offering));
+        return viewOf(this.featureOfInterestTypesForOfferings.get(offering));
     }
 
     @Override
     public Set<String> getAllowedFeatureOfInterestTypesForOffering(String offering) {
-        return copyOf(this.allowedFeatureOfInterestTypeForOfferings.get(offering));
+        return viewOf(this.allowedFeatureOfInterestTypeForOfferings.get(offering));
     }
 
     @Override
     public Set<Locale> getSupportedLanguages() {
-        return copyOf(this.supportedLanguages);
+        return viewOf(this.supportedLanguages);
     }
 
     @Override
@@ -961,8 +985,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(ALLOWED_OBSERVATION_TYPE, allowedObservationType);
         LOG.trace("Adding AllowedObservationType {} to Offering {}", allowedObservationType, offering);
-        this.allowedObservationTypeForOfferings.computeIfAbsent(offering, createSynchronizedSet())
-                .add(allowedObservationType);
+        addValue(this.allowedObservationTypeForOfferings, offering, allowedObservationType);
     }
 
     @Override
@@ -970,8 +993,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.noNullValues(ALLOWED_OBSERVATION_TYPES, allowedObservationTypes);
         LOG.trace("Adding AllowedObservationTypes {} to Offering {}", allowedObservationTypes, offering);
-        this.allowedObservationTypeForOfferings.computeIfAbsent(offering, createSynchronizedSet())
-                .addAll(allowedObservationTypes);
+        addValues(this.allowedObservationTypeForOfferings, offering, allowedObservationTypes);
     }
 
     @Override
@@ -979,8 +1001,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         LOG.trace("Adding featureOfInterest {} to Offering {}", featureOfInterest, offering);
-        this.featuresOfInterestForOfferings.computeIfAbsent(offering, createSynchronizedSet()).add(featureOfInterest);
-        this.offeringsForFeaturesOfInterest.computeIfAbsent(featureOfInterest, createSynchronizedSet()).add(offering);
+        addValue(this.featuresOfInterestForOfferings, offering, featureOfInterest);
+        addValue(this.offeringsForFeaturesOfInterest, featureOfInterest, offering);
     }
 
     @Override
@@ -988,8 +1010,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         LOG.trace("Adding FeatureOfInterest {} to SosResultTemplate {}", featureOfInterest, resultTemplate);
-        this.featuresOfInterestForResultTemplates.computeIfAbsent(resultTemplate, createSynchronizedSet())
-                .add(featureOfInterest);
+        addValue(this.featuresOfInterestForResultTemplates, resultTemplate, featureOfInterest);
     }
 
     @Override
@@ -997,8 +1018,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
         CacheValidation.noNullValues(FEATURES_OF_INTEREST, featuresOfInterest);
         LOG.trace("Adding FeatureOfInterests {} to SosResultTemplate {}", featuresOfInterest, resultTemplate);
-        this.featuresOfInterestForResultTemplates.computeIfAbsent(resultTemplate, createSynchronizedSet())
-                .addAll(featuresOfInterest);
+        addValues(this.featuresOfInterestForResultTemplates, resultTemplate, featuresOfInterest);
     }
 
     @Override
@@ -1006,8 +1026,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Adding observableProperty {} to offering {}", observableProperty, offering);
-        this.observablePropertiesForOfferings.computeIfAbsent(offering, createSynchronizedSet())
-                .add(observableProperty);
+        addValue(this.observablePropertiesForOfferings, offering, observableProperty);
     }
 
     @Override
@@ -1015,8 +1034,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Adding observableProperty {} to procedure {}", observableProperty, procedure);
-        this.observablePropertiesForProcedures.computeIfAbsent(procedure, createSynchronizedSet())
-                .add(observableProperty);
+        addValue(this.observablePropertiesForProcedures, procedure, observableProperty);
     }
 
     @Override
@@ -1024,8 +1042,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Adding observableProperty {} to resultTemplate {}", observableProperty, resultTemplate);
-        this.observedPropertiesForResultTemplates.computeIfAbsent(resultTemplate, createSynchronizedSet())
-                .add(observableProperty);
+        addValue(this.observedPropertiesForResultTemplates, resultTemplate, observableProperty);
     }
 
     @Override
@@ -1033,7 +1050,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(OBSERVATION_TYPE, observationType);
         LOG.trace("Adding observationType {} to offering {}", observationType, offering);
-        this.observationTypesForOfferings.computeIfAbsent(offering, createSynchronizedSet()).add(observationType);
+        addValue(this.observationTypesForOfferings, offering, observationType);
     }
 
     @Override
@@ -1041,8 +1058,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         LOG.trace("Adding offering {} to observableProperty {}", offering, observableProperty);
-        this.offeringsForObservableProperties.computeIfAbsent(observableProperty, createSynchronizedSet())
-                .add(offering);
+        addValue(this.offeringsForObservableProperties, observableProperty, offering);
     }
 
     @Override
@@ -1050,7 +1066,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         LOG.trace("Adding offering {} to procedure {}", offering, procedure);
-        this.offeringsForProcedures.computeIfAbsent(procedure, createSynchronizedSet()).add(offering);
+        addValue(this.offeringsForProcedures, procedure, offering);
     }
 
     @Override
@@ -1058,8 +1074,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Adding procedure {} to featureOfInterest {}", procedure, featureOfInterest);
-        this.proceduresForFeaturesOfInterest.computeIfAbsent(featureOfInterest, createSynchronizedSet())
-                .add(procedure);
+        addValue(this.proceduresForFeaturesOfInterest, featureOfInterest, procedure);
     }
 
     @Override
@@ -1067,8 +1082,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, observableProperty);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Adding procedure {} to observableProperty {}", procedure, observableProperty);
-        this.proceduresForObservableProperties.computeIfAbsent(observableProperty, createSynchronizedSet())
-                .add(procedure);
+        addValue(this.proceduresForObservableProperties, observableProperty, procedure);
     }
 
     @Override
@@ -1076,7 +1090,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Adding procedure {} to offering {}", procedure, offering);
-        this.proceduresForOfferings.computeIfAbsent(offering, createSynchronizedSet()).add(procedure);
+        addValue(this.proceduresForOfferings, offering, procedure);
     }
 
     @Override
@@ -1084,7 +1098,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(RELATED_FEATURE, relatedFeature);
         LOG.trace("Adding relatedFeature {} to offering {}", relatedFeature, offering);
-        this.relatedFeaturesForOfferings.computeIfAbsent(offering, createSynchronizedSet()).add(relatedFeature);
+        addValue(this.relatedFeaturesForOfferings, offering, relatedFeature);
     }
 
     @Override
@@ -1092,7 +1106,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.noNullValues(RELATED_FEATURE, relatedFeature);
         LOG.trace("Adding relatedFeatures {} to offering {}", relatedFeature, offering);
-        this.relatedFeaturesForOfferings.computeIfAbsent(offering, createSynchronizedSet()).addAll(relatedFeature);
+        addValues(this.relatedFeaturesForOfferings, offering, relatedFeature);
     }
 
     @Override
@@ -1100,7 +1114,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
         LOG.trace("Adding resultTemplate {} to offering {}", resultTemplate, offering);
-        this.resultTemplatesForOfferings.computeIfAbsent(offering, createSynchronizedSet()).add(resultTemplate);
+        addValue(this.resultTemplatesForOfferings, offering, resultTemplate);
     }
 
     @Override
@@ -1108,7 +1122,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(RELATED_FEATURE, relatedFeature);
         CacheValidation.notNullOrEmpty("role", role);
         LOG.trace("Adding role {} to relatedFeature {}", role, relatedFeature);
-        this.rolesForRelatedFeatures.computeIfAbsent(relatedFeature, createSynchronizedSet()).add(role);
+        addValue(this.rolesForRelatedFeatures, relatedFeature, role);
     }
 
     @Override
@@ -1116,8 +1130,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty("allowedObservationType", allowedObservationType);
         LOG.trace("Removing allowedObservationType {} from offering {}", allowedObservationType, offering);
-        this.allowedObservationTypeForOfferings.getOrDefault(offering, Collections.emptySet())
-                .remove(allowedObservationType);
+        removeValue(this.allowedObservationTypeForOfferings, offering, allowedObservationType);
     }
 
     @Override
@@ -1139,8 +1152,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         LOG.trace("Removing featureOfInterest {} from offering {}", featureOfInterest, offering);
-        this.featuresOfInterestForOfferings.getOrDefault(offering, Collections.emptySet()).remove(featureOfInterest);
-        this.offeringsForFeaturesOfInterest.getOrDefault(featureOfInterest, Collections.emptySet()).remove(offering);
+        removeValue(this.featuresOfInterestForOfferings, offering, featureOfInterest);
+        removeValue(this.offeringsForFeaturesOfInterest, featureOfInterest, offering);
     }
 
     @Override
@@ -1148,8 +1161,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         LOG.trace("Removing featureOfInterest {} from resultTemplate {}", featureOfInterest, resultTemplate);
-        this.featuresOfInterestForResultTemplates.getOrDefault(resultTemplate, Collections.emptySet())
-                .remove(featureOfInterest);
+        removeValue(this.featuresOfInterestForResultTemplates, resultTemplate, featureOfInterest);
     }
 
     @Override
@@ -1232,8 +1244,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Removing observableProperty {} from offering {}", observableProperty, offering);
-        this.observablePropertiesForOfferings.getOrDefault(offering, Collections.emptySet())
-                .remove(observableProperty);
+        removeValue(this.observablePropertiesForOfferings, offering, observableProperty);
     }
 
     @Override
@@ -1241,8 +1252,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Removing observableProperty {} from procedure {}", observableProperty, procedure);
-        this.observablePropertiesForProcedures.getOrDefault(procedure, Collections.emptySet())
-                .remove(observableProperty);
+        removeValue(this.observablePropertiesForProcedures, procedure, observableProperty);
     }
 
     @Override
@@ -1250,8 +1260,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Removing observableProperty {} from resultTemplate {}", observableProperty, resultTemplate);
-        this.observedPropertiesForResultTemplates.getOrDefault(resultTemplate, Collections.emptySet())
-                .remove(observableProperty);
+        removeValue(this.observedPropertiesForResultTemplates, resultTemplate, observableProperty);
     }
 
     @Override
@@ -1259,7 +1268,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(OBSERVATION_TYPE, observationType);
         LOG.trace("Removing observationType {} from offering {}", observationType, offering);
-        this.observationTypesForOfferings.getOrDefault(offering, Collections.emptySet()).remove(observationType);
+        removeValue(this.observationTypesForOfferings, offering, observationType);
     }
 
     @Override
@@ -1274,8 +1283,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         LOG.trace("Removing offering {} from observableProperty {}", offering, observableProperty);
-        this.offeringsForObservableProperties.getOrDefault(observableProperty, Collections.emptySet())
-                .remove(offering);
+        removeValue(this.offeringsForObservableProperties, observableProperty, offering);
     }
 
     @Override
@@ -1283,7 +1291,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         LOG.trace("Removing offering {} from procedure {}", offering, procedure);
-        this.offeringsForProcedures.getOrDefault(procedure, Collections.emptySet()).remove(offering);
+        removeValue(this.offeringsForProcedures, procedure, offering);
     }
 
     @Override
@@ -1305,7 +1313,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Removing procedure {} from featureOfInterest {}", procedure, featureOfInterest);
-        this.proceduresForFeaturesOfInterest.getOrDefault(featureOfInterest, Collections.emptySet()).remove(procedure);
+        removeValue(this.proceduresForFeaturesOfInterest, featureOfInterest, procedure);
     }
 
     @Override
@@ -1313,8 +1321,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Removing procedure {} from observableProperty {}", procedure, observableProperty);
-        this.proceduresForObservableProperties.getOrDefault(observableProperty, Collections.emptySet())
-                .remove(procedure);
+        removeValue(this.proceduresForObservableProperties, observableProperty, procedure);
     }
 
     @Override
@@ -1322,7 +1329,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Removing procedure {} from offering {}", procedure, offering);
-        this.proceduresForOfferings.getOrDefault(offering, Collections.emptySet()).remove(procedure);
+        removeValue(this.proceduresForOfferings, offering, procedure);
     }
 
     @Override
@@ -1351,7 +1358,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(RELATED_FEATURE, relatedFeature);
         LOG.trace("Removing relatedFeature {} from offering {}", relatedFeature, offering);
-        this.relatedFeaturesForOfferings.getOrDefault(offering, Collections.emptySet()).remove(relatedFeature);
+        removeValue(this.relatedFeaturesForOfferings, offering, relatedFeature);
     }
 
     @Override
@@ -1366,7 +1373,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(RESULT_TEMPLATE, resultTemplate);
         LOG.trace("Removing resultTemplate {} from offering {}", resultTemplate, offering);
-        this.resultTemplatesForOfferings.getOrDefault(offering, Collections.emptySet()).remove(resultTemplate);
+        removeValue(this.resultTemplatesForOfferings, offering, resultTemplate);
     }
 
     @Override
@@ -1381,7 +1388,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(RELATED_FEATURE, relatedFeature);
         CacheValidation.notNullOrEmpty(ROLE, role);
         LOG.trace("Removing role {} from relatedFeature {}", role, relatedFeature);
-        this.rolesForRelatedFeatures.getOrDefault(relatedFeature, Collections.emptySet()).remove(role);
+        removeValue(this.rolesForRelatedFeatures, relatedFeature, role);
     }
 
     @Override
@@ -1394,12 +1401,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     @Override
     public void removeRolesForRelatedFeatureNotIn(Collection<String> relatedFeatures) {
         Objects.requireNonNull(relatedFeatures, RELATED_FEATURES);
-        final Iterator<String> iter = this.rolesForRelatedFeatures.keySet().iterator();
-        while (iter.hasNext()) {
-            if (!relatedFeatures.contains(iter.next())) {
-                iter.remove();
-            }
-        }
+        this.rolesForRelatedFeatures.keySet().stream().filter(relatedFeature -> !relatedFeatures
+                .contains(relatedFeature)).collect(toList()).forEach(this.rolesForRelatedFeatures::remove);
     }
 
     @Override
@@ -1432,8 +1435,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.noNullOrEmptyValues(FEATURES_OF_INTEREST, featuresOfInterest);
         LOG.trace("Adding offering {} to featureOfInterest {}", offering, featuresOfInterest);
         for (final String featureOfInterest : featuresOfInterest) {
-            this.offeringsForFeaturesOfInterest.computeIfAbsent(featureOfInterest, createSynchronizedSet())
-                    .add(offering);
+            addValue(this.offeringsForFeaturesOfInterest, featureOfInterest, offering);
         }
     }
 
@@ -1451,10 +1453,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         CacheValidation.notNullOrEmpty(PARENT_FEATURE, parentFeature);
         LOG.trace("Adding parentFeature {} to featureOfInterest {}", parentFeature, featureOfInterest);
-        this.parentFeaturesForFeaturesOfInterest.computeIfAbsent(featureOfInterest, createSynchronizedSet())
-                .add(parentFeature);
-        this.childFeaturesForFeatureOfInterest.computeIfAbsent(parentFeature, createSynchronizedSet())
-                .add(featureOfInterest);
+        addValue(this.parentFeaturesForFeaturesOfInterest, featureOfInterest, parentFeature);
+        addValue(this.childFeaturesForFeatureOfInterest, parentFeature, featureOfInterest);
     }
 
     @Override
@@ -1462,10 +1462,9 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST, featureOfInterest);
         CacheValidation.noNullOrEmptyValues(PARENT_FEATURES, parentFeatures);
         LOG.trace("Adding parentFeatures {} to featureOfInterest {}", parentFeatures, featureOfInterest);
-        this.parentFeaturesForFeaturesOfInterest.computeIfAbsent(featureOfInterest, createSynchronizedSet())
-                .addAll(parentFeatures);
-        parentFeatures.forEach(parentFeature -> this.childFeaturesForFeatureOfInterest
-                .computeIfAbsent(parentFeature, createSynchronizedSet()).add(featureOfInterest));
+        addValues(this.parentFeaturesForFeaturesOfInterest, featureOfInterest, parentFeatures);
+        parentFeatures.forEach(parentFeature -> addValue(this.childFeaturesForFeatureOfInterest, parentFeature,
+                featureOfInterest));
     }
 
     @Override
@@ -1473,8 +1472,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.notNullOrEmpty(PARENT_PROCEDURE, parentProcedure);
         LOG.trace("Adding parentProcedure {} to procedure {}", parentProcedure, procedure);
-        this.parentProceduresForProcedures.computeIfAbsent(procedure, createSynchronizedSet()).add(parentProcedure);
-        this.childProceduresForProcedures.computeIfAbsent(parentProcedure, createSynchronizedSet()).add(procedure);
+        addValue(this.parentProceduresForProcedures, procedure, parentProcedure);
+        addValue(this.childProceduresForProcedures, parentProcedure, procedure);
     }
 
     @Override
@@ -1482,10 +1481,9 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.noNullOrEmptyValues(PARENT_PROCEDURES, parentProcedures);
         LOG.trace("Adding parentProcedures {} to procedure {}", parentProcedures, procedure);
-        this.parentProceduresForProcedures.computeIfAbsent(procedure, createSynchronizedSet())
-                .addAll(parentProcedures);
-        parentProcedures.forEach(parentProcedure -> this.childProceduresForProcedures
-                .computeIfAbsent(parentProcedure, createSynchronizedSet()).add(procedure));
+        addValues(this.parentProceduresForProcedures, procedure, parentProcedures);
+        parentProcedures.forEach(parentProcedure -> addValue(this.childProceduresForProcedures, parentProcedure,
+                procedure));
     }
 
     @Override
@@ -1493,8 +1491,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(PARENT_OFFERING, parentOffering);
         LOG.trace("Adding parentOffering {} to offering {}", parentOffering, offering);
-        this.parentOfferingsForOfferings.computeIfAbsent(offering, createSynchronizedSet()).add(parentOffering);
-        this.childOfferingsForOfferings.computeIfAbsent(parentOffering, createSynchronizedSet()).add(offering);
+        addValue(this.parentOfferingsForOfferings, offering, parentOffering);
+        addValue(this.childOfferingsForOfferings, parentOffering, offering);
     }
 
     @Override
@@ -1502,9 +1500,8 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.noNullOrEmptyValues(PARENT_OFFERINGS, parentOfferings);
         LOG.trace("Adding parentOfferings {} to offering {}", parentOfferings, offering);
-        this.parentOfferingsForOfferings.computeIfAbsent(offering, createSynchronizedSet()).addAll(parentOfferings);
-        parentOfferings.forEach(parentOffering -> this.childOfferingsForOfferings
-                .computeIfAbsent(parentOffering, createSynchronizedSet()).add(offering));
+        addValues(this.parentOfferingsForOfferings, offering, parentOfferings);
+        parentOfferings.forEach(parentOffering -> addValue(this.childOfferingsForOfferings, parentOffering, offering));
     }
 
     @Override
@@ -1512,9 +1509,10 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         Objects.requireNonNull(envelope, ENVELOPE);
         if (hasEnvelopeForOffering(offering)) {
-            final ReferencedEnvelope offeringEnvelope = this.envelopeForOfferings.get(offering);
+            final ReferencedEnvelope offeringEnvelope = copyOf(this.envelopeForOfferings.get(offering));
             LOG.trace("Expanding envelope {} for offering {} to include {}", offeringEnvelope, offering, envelope);
             offeringEnvelope.expandToInclude(envelope);
+            this.envelopeForOfferings.put(offering, offeringEnvelope);
         } else {
             setEnvelopeForOffering(offering, new ReferencedEnvelope(envelope, getDefaultEPSGCode()));
         }
@@ -1525,7 +1523,9 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         Objects.requireNonNull(envelope, ENVELOPE);
         if (hasGlobalEnvelope()) {
             LOG.trace("Expanding envelope {} to include {}", this.globalEnvelope, envelope);
-            this.globalEnvelope.expandToInclude(envelope);
+            ReferencedEnvelope expanded = getGlobalSpatialEnvelope();
+            expanded.expandToInclude(envelope);
+            setGlobalSpatialEnvelope(expanded);
         } else {
             setGlobalEnvelope(new ReferencedEnvelope(new Envelope(envelope), getDefaultEPSGCode()));
         }
@@ -1768,7 +1768,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Adding hidden child procedure {} to offering {}", procedure, offering);
-        this.hiddenChildProceduresForOfferings.computeIfAbsent(offering, createSynchronizedSet()).add(procedure);
+        addValue(this.hiddenChildProceduresForOfferings, offering, procedure);
     }
 
     @Override
@@ -1776,7 +1776,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         LOG.trace("Removing hidden chil procedure {} from offering {}", procedure, offering);
-        this.hiddenChildProceduresForOfferings.getOrDefault(offering, Collections.emptySet()).remove(procedure);
+        removeValue(this.hiddenChildProceduresForOfferings, offering, procedure);
     }
 
     @Override
@@ -1810,10 +1810,12 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         Objects.requireNonNull(envelope, ENVELOPE);
         if (hasSpatialFilteringProfileEnvelopeForOffering(offering)) {
-            final ReferencedEnvelope offeringEnvelope = this.spatialFilteringProfileEnvelopeForOfferings.get(offering);
+            final ReferencedEnvelope offeringEnvelope =
+                    copyOf(this.spatialFilteringProfileEnvelopeForOfferings.get(offering));
             LOG.trace("Expanding Spatial Filtering Profile envelope {} for offering {} to include {}",
                     offeringEnvelope, offering, envelope);
             offeringEnvelope.expandToInclude(envelope);
+            this.spatialFilteringProfileEnvelopeForOfferings.put(offering, offeringEnvelope);
         } else {
             setSpatialFilteringProfileEnvelopeForOffering(offering,
                     new ReferencedEnvelope(envelope, getDefaultEPSGCode()));
@@ -1831,8 +1833,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST_TYPE, featureOfInterestType);
         LOG.trace("Adding featureOfInterestType {} to offering {}", featureOfInterestType, offering);
-        this.featureOfInterestTypesForOfferings.computeIfAbsent(offering, createSynchronizedSet())
-                .add(featureOfInterestType);
+        addValue(this.featureOfInterestTypesForOfferings, offering, featureOfInterestType);
     }
 
     @Override
@@ -1840,8 +1841,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST_TYPE, featureOfInterestType);
         LOG.trace("Removing featureOfInterestType {} from offering {}", featureOfInterestType, offering);
-        this.featureOfInterestTypesForOfferings.getOrDefault(offering, Collections.emptySet())
-                .remove(featureOfInterestType);
+        removeValue(this.featureOfInterestTypesForOfferings, offering, featureOfInterestType);
     }
 
     @Override
@@ -1863,8 +1863,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(ALLOWED_FEATURE_OF_INTEREST_TYPE, allowedFeatureOfInterestType);
         LOG.trace("Adding AllowedFeatureOfInterestType {} to Offering {}", allowedFeatureOfInterestType, offering);
-        this.allowedFeatureOfInterestTypeForOfferings.computeIfAbsent(offering, createSynchronizedSet())
-                .add(allowedFeatureOfInterestType);
+        addValue(this.allowedFeatureOfInterestTypeForOfferings, offering, allowedFeatureOfInterestType);
     }
 
     @Override
@@ -1873,8 +1872,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.noNullValues(ALLOWED_FEATURE_OF_INTEREST_TYPES, allowedFeatureOfInterestTypes);
         LOG.trace("Adding AllowedFeatureOfInterestTypes {} to Offering {}", allowedFeatureOfInterestTypes, offering);
-        this.allowedFeatureOfInterestTypeForOfferings.computeIfAbsent(offering, createSynchronizedSet())
-                .addAll(allowedFeatureOfInterestTypes);
+        addValues(this.allowedFeatureOfInterestTypeForOfferings, offering, allowedFeatureOfInterestTypes);
     }
 
     @Override
@@ -1948,7 +1946,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     public void removeFeatureOfInterestIdentifierForHumanReadableName(String humanReadableName) {
         CacheValidation.notNullOrEmpty(FEATURE_OF_INTEREST_NAME, humanReadableName);
         LOG.trace("Removing featuresOfInterest identifier for humanReadableName {}", humanReadableName);
-        featureOfInterestIdentifierHumanReadableName.inverse().remove(humanReadableName);
+        removeInverse(featureOfInterestIdentifierHumanReadableName, humanReadableName);
     }
 
     @Override
@@ -1962,7 +1960,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     public void removeObservablePropertyIdentifierForHumanReadableName(String humanReadableName) {
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY_NAME, humanReadableName);
         LOG.trace("Removing observableProperty identifier for humanReadableName {}", humanReadableName);
-        observablePropertyIdentifierHumanReadableName.inverse().remove(humanReadableName);
+        removeInverse(observablePropertyIdentifierHumanReadableName, humanReadableName);
     }
 
     @Override
@@ -1976,7 +1974,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     public void removeProcedureIdentifierForHumanReadableName(String humanReadableName) {
         CacheValidation.notNullOrEmpty(PROCEDURE_NAME, humanReadableName);
         LOG.trace("Removing procedure identifier for humanReadableName {}", humanReadableName);
-        procedureIdentifierHumanReadableName.inverse().remove(humanReadableName);
+        removeInverse(procedureIdentifierHumanReadableName, humanReadableName);
     }
 
     @Override
@@ -1990,7 +1988,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     public void removeOfferingIdentifierForHumanReadableName(String humanReadableName) {
         CacheValidation.notNullOrEmpty(OFFERING_NAME, humanReadableName);
         LOG.trace("Removing offering identifier for humanReadableName {}", humanReadableName);
-        offeringIdentifierHumanReadableName.inverse().remove(humanReadableName);
+        removeInverse(offeringIdentifierHumanReadableName, humanReadableName);
     }
 
     @Override
@@ -2022,7 +2020,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getCompositePhenomenons() {
-        return copyOf(this.compositePhenomenons);
+        return viewOf(this.compositePhenomenons);
     }
 
     @Override
@@ -2032,7 +2030,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getCompositePhenomenonsForProcedure(String procedure) {
-        return copyOf(this.compositePhenomenonsForProcedure.get(procedure));
+        return viewOf(this.compositePhenomenonsForProcedure.get(procedure));
     }
 
     @Override
@@ -2043,7 +2041,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getCompositePhenomenonsForOffering(String offering) {
-        return copyOf(this.compositePhenomenonsForOffering.get(offering));
+        return viewOf(this.compositePhenomenonsForOffering.get(offering));
     }
 
     @Override
@@ -2054,7 +2052,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getObservablePropertiesForCompositePhenomenon(String compositePhenomenon) {
-        return copyOf(this.observablePropertiesForCompositePhenomenons.get(compositePhenomenon));
+        return viewOf(this.observablePropertiesForCompositePhenomenons.get(compositePhenomenon));
     }
 
     @Override
@@ -2066,7 +2064,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getCompositePhenomenonForObservableProperty(String observableProperty) {
-        return copyOf(this.compositePhenomenonsForObservableProperty.get(observableProperty));
+        return viewOf(this.compositePhenomenonsForObservableProperty.get(observableProperty));
     }
 
     @Override
@@ -2100,8 +2098,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.notNullOrEmpty(COMPOSITE_PHENOMENON, compositePhenomenon);
         LOG.trace("Adding composite phenomenon {} to procedure {}", compositePhenomenon, procedure);
-        this.compositePhenomenonsForProcedure.computeIfAbsent(procedure, createSynchronizedSet())
-                .add(compositePhenomenon);
+        addValue(this.compositePhenomenonsForProcedure, procedure, compositePhenomenon);
         addCompositePhenomenon(compositePhenomenon);
     }
 
@@ -2110,8 +2107,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(PROCEDURE, procedure);
         CacheValidation.noNullOrEmptyValues(COMPOSITE_PHENOMENON, compositePhenomenon);
         LOG.trace("Adding composite phenomenons {} to procedure {}", compositePhenomenon, procedure);
-        this.compositePhenomenonsForProcedure.computeIfAbsent(procedure, createSynchronizedSet())
-                .addAll(compositePhenomenon);
+        addValues(this.compositePhenomenonsForProcedure, procedure, compositePhenomenon);
         addCompositePhenomenon(compositePhenomenon);
     }
 
@@ -2132,8 +2128,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.notNullOrEmpty(COMPOSITE_PHENOMENON, compositePhenomenon);
         LOG.trace("Adding composite phenomenon {} to offering {}", compositePhenomenon, offering);
-        this.compositePhenomenonsForOffering.computeIfAbsent(offering, createSynchronizedSet())
-                .add(compositePhenomenon);
+        addValue(this.compositePhenomenonsForOffering, offering, compositePhenomenon);
         addCompositePhenomenon(compositePhenomenon);
     }
 
@@ -2142,8 +2137,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OFFERING, offering);
         CacheValidation.noNullOrEmptyValues(COMPOSITE_PHENOMENON, compositePhenomenon);
         LOG.trace("Adding composite phenomenons {} to offering {}", compositePhenomenon, offering);
-        this.compositePhenomenonsForOffering.computeIfAbsent(offering, createSynchronizedSet())
-                .addAll(compositePhenomenon);
+        addValues(this.compositePhenomenonsForOffering, offering, compositePhenomenon);
         addCompositePhenomenon(compositePhenomenon);
     }
 
@@ -2165,8 +2159,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Adding composite phenomenon {} to to observable property {}", compositePhenomenon,
                 observableProperty);
-        this.compositePhenomenonsForObservableProperty.computeIfAbsent(observableProperty, createSynchronizedSet())
-                .add(compositePhenomenon);
+        addValue(this.compositePhenomenonsForObservableProperty, observableProperty, compositePhenomenon);
         addCompositePhenomenon(compositePhenomenon);
     }
 
@@ -2175,8 +2168,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(COMPOSITE_PHENOMENON, compositePhenomenon);
         CacheValidation.notNullOrEmpty(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Adding observable property {} to composite phenomenon {}", observableProperty, compositePhenomenon);
-        this.observablePropertiesForCompositePhenomenons.computeIfAbsent(compositePhenomenon, createSynchronizedSet())
-                .add(observableProperty);
+        addValue(this.observablePropertiesForCompositePhenomenons, compositePhenomenon, observableProperty);
         addCompositePhenomenon(compositePhenomenon);
     }
 
@@ -2187,8 +2179,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.noNullOrEmptyValues(OBSERVABLE_PROPERTY, observableProperty);
         LOG.trace("Adding observable properties {} to composite phenomenon {}", observableProperty,
                 compositePhenomenon);
-        this.observablePropertiesForCompositePhenomenons.computeIfAbsent(compositePhenomenon, createSynchronizedSet())
-                .addAll(observableProperty);
+        addValues(this.observablePropertiesForCompositePhenomenons, compositePhenomenon, observableProperty);
         addCompositePhenomenon(compositePhenomenon);
     }
 
@@ -2218,7 +2209,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getRequestableProcedureDescriptionFormat() {
-        return copyOf(this.requestableProcedureDescriptionFormats);
+        return viewOf(this.requestableProcedureDescriptionFormats);
     }
 
     @Override
@@ -2252,17 +2243,17 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getTypeInstanceProcedure(TypeInstance typeInstance) {
-        return copyOf(typeInstanceProcedures.get(typeInstance));
+        return viewOf(typeInstanceProcedures.get(typeInstance));
     }
 
     @Override
     public Set<String> getComponentAggregationProcedure(ComponentAggregation componentAggregation) {
-        return copyOf(componentAggregationProcedures.get(componentAggregation));
+        return viewOf(componentAggregationProcedures.get(componentAggregation));
     }
 
     @Override
     public Set<String> getInstancesForProcedure(String identifier) {
-        return copyOf(typeOfProceduresMap.get(identifier));
+        return viewOf(typeOfProceduresMap.get(identifier));
     }
 
     @Override
@@ -2274,11 +2265,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     public void addTypeInstanceProcedure(TypeInstance typeInstance, String identifier) {
         CacheValidation.notNullOrEmpty(TYPE_PROCEDURE, identifier);
         logAdding(TYPE_PROCEDURE, identifier);
-        if (typeInstanceProcedures.containsKey(typeInstance)) {
-            typeInstanceProcedures.get(typeInstance).add(identifier);
-        } else {
-            typeInstanceProcedures.put(typeInstance, Sets.newHashSet(identifier));
-        }
+        addValue(typeInstanceProcedures, typeInstance, identifier);
     }
 
     @Override
@@ -2298,11 +2285,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
     public void addComponentAggregationProcedure(ComponentAggregation componentAggregation, String identifier) {
         CacheValidation.notNullOrEmpty(AGGREGATED_PROCEDURE, identifier);
         logAdding(AGGREGATED_PROCEDURE, identifier);
-        if (componentAggregationProcedures.containsKey(componentAggregation)) {
-            componentAggregationProcedures.get(componentAggregation).add(identifier);
-        } else {
-            componentAggregationProcedures.put(componentAggregation, Sets.newHashSet(identifier));
-        }
+        addValue(componentAggregationProcedures, componentAggregation, identifier);
     }
 
     @Override
@@ -2323,11 +2306,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(TYPE_PROCEDURE, type);
         CacheValidation.notNullOrEmpty(PROCEDURE_INSTANCE, instance);
         LOG.trace("Adding instance '{}' to type '{}'", instance, type);
-        if (hasInstancesForProcedure(type)) {
-            typeOfProceduresMap.get(type).add(instance);
-        } else {
-            typeOfProceduresMap.put(type, Sets.newHashSet(instance));
-        }
+        addValue(typeOfProceduresMap, type, instance);
     }
 
     @Override
@@ -2335,11 +2314,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(TYPE_PROCEDURE, type);
         CacheValidation.noNullValues(PROCEDURE_INSTANCES, instances);
         LOG.trace("Adding instances {} to type '{}'", instances, type);
-        if (hasInstancesForProcedure(type)) {
-            typeOfProceduresMap.get(type).addAll(instances);
-        } else {
-            typeOfProceduresMap.put(type, instances);
-        }
+        addValues(typeOfProceduresMap, type, instances);
     }
 
     @Override
@@ -2358,9 +2333,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         CacheValidation.notNullOrEmpty(TYPE_PROCEDURE, type);
         CacheValidation.notNullOrEmpty(PROCEDURE_INSTANCE, instance);
         logRemoving(type, instance);
-        if (hasInstancesForProcedure(type)) {
-            typeOfProceduresMap.get(type).remove(instance);
-        }
+        removeValue(typeOfProceduresMap, type, instance);
     }
 
     @Override
@@ -2405,7 +2378,7 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public void addProcedureDescriptionFormatsForProcedure(String procedure, Set<String> formats) {
-        this.procedureProcedureDescriptionFormats.computeIfAbsent(procedure, createSynchronizedSet()).addAll(formats);
+        addValues(this.procedureProcedureDescriptionFormats, procedure, formats);
     }
 
     @Override
@@ -2420,22 +2393,22 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
 
     @Override
     public Set<String> getPublishedFeatureOfInterest() {
-        return copyOf(publishedFeatureOfInterest);
+        return viewOf(publishedFeatureOfInterest);
     }
 
     @Override
     public Set<String> getPublishedProcedures() {
-        return copyOf(publishedProcedure);
+        return viewOf(publishedProcedure);
     }
 
     @Override
     public Set<String> getPublishedOfferings() {
-        return copyOf(publishedOffering);
+        return viewOf(publishedOffering);
     }
 
     @Override
     public Set<String> getPublishedObservableProperties() {
-        return copyOf(publishedObservableProperty);
+        return viewOf(publishedObservableProperty);
     }
 
     @Override
@@ -2518,6 +2491,160 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         publishedObservableProperty.remove(observableProperty);
     }
 
+    @Override
+    public boolean isFrozen() {
+        return this.frozen;
+    }
+
+    @Override
+    public InMemoryCacheImpl copy() {
+        InMemoryCacheImpl copy = new InMemoryCacheImpl();
+        if (this.frozen) {
+            copy.copiedFrom = new WeakReference<>(this);
+        }
+        copy.setSupportedTypeRepository(getSupportedTypeRepository());
+        copy.identifierDictionary = getIdentifierDictionary();
+        copy.maxPhenomenonTimeForOfferings = copyMap(maxPhenomenonTimeForOfferings);
+        copy.minPhenomenonTimeForOfferings = copyMap(minPhenomenonTimeForOfferings);
+        copy.maxResultTimeForOfferings = copyMap(maxResultTimeForOfferings);
+        copy.minResultTimeForOfferings = copyMap(minResultTimeForOfferings);
+        copy.maxPhenomenonTimeForProcedures = copyMap(maxPhenomenonTimeForProcedures);
+        copy.minPhenomenonTimeForProcedures = copyMap(minPhenomenonTimeForProcedures);
+        copy.allowedObservationTypeForOfferings = copySetMap(allowedObservationTypeForOfferings);
+        copy.allowedFeatureOfInterestTypeForOfferings = copySetMap(allowedFeatureOfInterestTypeForOfferings);
+        copy.childFeaturesForFeatureOfInterest = copySetMap(childFeaturesForFeatureOfInterest);
+        copy.childProceduresForProcedures = copySetMap(childProceduresForProcedures);
+        copy.childOfferingsForOfferings = copySetMap(childOfferingsForOfferings);
+        copy.compositePhenomenonsForProcedure = copySetMap(compositePhenomenonsForProcedure);
+        copy.compositePhenomenonsForOffering = copySetMap(compositePhenomenonsForOffering);
+        copy.compositePhenomenonsForObservableProperty = copySetMap(compositePhenomenonsForObservableProperty);
+        copy.featuresOfInterestForOfferings = copySetMap(featuresOfInterestForOfferings);
+        copy.offeringsForFeaturesOfInterest = copySetMap(offeringsForFeaturesOfInterest);
+        copy.featuresOfInterestForResultTemplates = copySetMap(featuresOfInterestForResultTemplates);
+        copy.observablePropertiesForCompositePhenomenons = copySetMap(observablePropertiesForCompositePhenomenons);
+        copy.observablePropertiesForOfferings = copySetMap(observablePropertiesForOfferings);
+        copy.observablePropertiesForProcedures = copySetMap(observablePropertiesForProcedures);
+        copy.observationTypesForOfferings = copySetMap(observationTypesForOfferings);
+        copy.featureOfInterestTypesForOfferings = copySetMap(featureOfInterestTypesForOfferings);
+        copy.observedPropertiesForResultTemplates = copySetMap(observedPropertiesForResultTemplates);
+        copy.offeringsForObservableProperties = copySetMap(offeringsForObservableProperties);
+        copy.offeringsForProcedures = copySetMap(offeringsForProcedures);
+        copy.parentFeaturesForFeaturesOfInterest = copySetMap(parentFeaturesForFeaturesOfInterest);
+        copy.parentProceduresForProcedures = copySetMap(parentProceduresForProcedures);
+        copy.parentOfferingsForOfferings = copySetMap(parentOfferingsForOfferings);
+        copy.proceduresForFeaturesOfInterest = copySetMap(proceduresForFeaturesOfInterest);
+        copy.proceduresForObservableProperties = copySetMap(proceduresForObservableProperties);
+        copy.proceduresForOfferings = copySetMap(proceduresForOfferings);
+        copy.hiddenChildProceduresForOfferings = copySetMap(hiddenChildProceduresForOfferings);
+        copy.relatedFeaturesForOfferings = copySetMap(relatedFeaturesForOfferings);
+        copy.resultTemplatesForOfferings = copySetMap(resultTemplatesForOfferings);
+        copy.rolesForRelatedFeatures = copySetMap(rolesForRelatedFeatures);
+        copy.envelopeForOfferings = copyMap(envelopeForOfferings);
+        copy.nameForOfferings = copyMap(nameForOfferings);
+        copy.i18nNameForOfferings = copyMap(i18nNameForOfferings);
+        copy.i18nDescriptionForOfferings = copyMap(i18nDescriptionForOfferings);
+        copy.epsgCodes = copySet(epsgCodes);
+        copy.featuresOfInterest = copySet(featuresOfInterest);
+        copy.procedures = copySet(procedures);
+        copy.resultTemplates = copySet(resultTemplates);
+        copy.offerings = copySet(offerings);
+        copy.compositePhenomenons = copySet(compositePhenomenons);
+        copy.globalPhenomenonTimeEnvelope = globalPhenomenonTimeEnvelope;
+        copy.globalResultTimeEnvelope = globalResultTimeEnvelope;
+        copy.spatialFilteringProfileEnvelopeForOfferings =
+                copyMap(spatialFilteringProfileEnvelopeForOfferings);
+        copy.supportedLanguages = copySet(supportedLanguages);
+        copy.requestableProcedureDescriptionFormats = copySet(requestableProcedureDescriptionFormats);
+        copy.featureOfInterestIdentifierHumanReadableName = copyBiMap(featureOfInterestIdentifierHumanReadableName);
+        copy.observablePropertyIdentifierHumanReadableName = copyBiMap(observablePropertyIdentifierHumanReadableName);
+        copy.procedureIdentifierHumanReadableName = copyBiMap(procedureIdentifierHumanReadableName);
+        copy.offeringIdentifierHumanReadableName = copyBiMap(offeringIdentifierHumanReadableName);
+        copy.typeInstanceProcedures = copySetMap(typeInstanceProcedures);
+        copy.componentAggregationProcedures = copySetMap(componentAggregationProcedures);
+        copy.typeOfProceduresMap = copySetMap(typeOfProceduresMap);
+        copy.defaultEpsgCode = this.defaultEpsgCode;
+        copy.globalEnvelope = globalEnvelope;
+        copy.updateTime = this.updateTime;
+        copy.procedureProcedureDescriptionFormats = copySetMap(procedureProcedureDescriptionFormats);
+        copy.publishedFeatureOfInterest = copySet(publishedFeatureOfInterest);
+        copy.publishedProcedure = copySet(publishedProcedure);
+        copy.publishedOffering = copySet(publishedOffering);
+        copy.publishedObservableProperty = copySet(publishedObservableProperty);
+        return copy;
+    }
+
+    @Override
+    public void freeze() {
+        if (this.frozen) {
+            return;
+        }
+        InMemoryCacheImpl previous = this.copiedFrom != null ? this.copiedFrom.get() : null;
+        if (previous != null) {
+            this.recordedDelta = InMemoryCacheDelta.record(previous, this);
+        }
+        this.maxPhenomenonTimeForOfferings = freezeMap(maxPhenomenonTimeForOfferings);
+        this.minPhenomenonTimeForOfferings = freezeMap(minPhenomenonTimeForOfferings);
+        this.maxResultTimeForOfferings = freezeMap(maxResultTimeForOfferings);
+        this.minResultTimeForOfferings = freezeMap(minResultTimeForOfferings);
+        this.maxPhenomenonTimeForProcedures = freezeMap(maxPhenomenonTimeForProcedures);
+        this.minPhenomenonTimeForProcedures = freezeMap(minPhenomenonTimeForProcedures);
+        this.allowedObservationTypeForOfferings = internSetMap(allowedObservationTypeForOfferings);
+        this.allowedFeatureOfInterestTypeForOfferings = internSetMap(allowedFeatureOfInterestTypeForOfferings);
+        this.childFeaturesForFeatureOfInterest = internSetMap(childFeaturesForFeatureOfInterest);
+        this.childProceduresForProcedures = internSetMap(childProceduresForProcedures);
+        this.childOfferingsForOfferings = internSetMap(childOfferingsForOfferings);
+        this.compositePhenomenonsForProcedure = internSetMap(compositePhenomenonsForProcedure);
+        this.compositePhenomenonsForOffering = internSetMap(compositePhenomenonsForOffering);
+        this.compositePhenomenonsForObservableProperty = internSetMap(compositePhenomenonsForObservableProperty);
+        this.featuresOfInterestForOfferings = internSetMap(featuresOfInterestForOfferings);
+        this.offeringsForFeaturesOfInterest = internSetMap(offeringsForFeaturesOfInterest);
+        this.featuresOfInterestForResultTemplates = internSetMap(featuresOfInterestForResultTemplates);
+        this.observablePropertiesForCompositePhenomenons = internSetMap(observablePropertiesForCompositePhenomenons);
+        this.observablePropertiesForOfferings = internSetMap(observablePropertiesForOfferings);
+        this.observablePropertiesForProcedures = internSetMap(observablePropertiesForProcedures);
+        this.observationTypesForOfferings = internSetMap(observationTypesForOfferings);
+        this.featureOfInterestTypesForOfferings = internSetMap(featureOfInterestTypesForOfferings);
+        this.observedPropertiesForResultTemplates = internSetMap(observedPropertiesForResultTemplates);
+        this.offeringsForObservableProperties = internSetMap(offeringsForObservableProperties);
+        this.offeringsForProcedures = internSetMap(offeringsForProcedures);
+        this.parentFeaturesForFeaturesOfInterest = internSetMap(parentFeaturesForFeaturesOfInterest);
+        this.parentProceduresForProcedures = internSetMap(parentProceduresForProcedures);
+        this.parentOfferingsForOfferings = internSetMap(parentOfferingsForOfferings);
+        this.proceduresForFeaturesOfInterest = internSetMap(proceduresForFeaturesOfInterest);
+        this.proceduresForObservableProperties = internSetMap(proceduresForObservableProperties);
+        this.proceduresForOfferings = internSetMap(proceduresForOfferings);
+        this.hiddenChildProceduresForOfferings = internSetMap(hiddenChildProceduresForOfferings);
+        this.relatedFeaturesForOfferings = internSetMap(relatedFeaturesForOfferings);
+        this.resultTemplatesForOfferings = internSetMap(resultTemplatesForOfferings);
+        this.rolesForRelatedFeatures = internSetMap(rolesForRelatedFeatures);
+        this.envelopeForOfferings = freezeMap(envelopeForOfferings);
+        this.nameForOfferings = freezeMap(nameForOfferings);
+        this.i18nNameForOfferings = freezeMap(i18nNameForOfferings);
+        this.i18nDescriptionForOfferings = freezeMap(i18nDescriptionForOfferings);
+        this.epsgCodes = freezeSet(epsgCodes);
+        this.featuresOfInterest = internSet(featuresOfInterest);
+        this.procedures = internSet(procedures);
+        this.resultTemplates = internSet(resultTemplates);
+        this.offerings = internSet(offerings);
+        this.compositePhenomenons = internSet(compositePhenomenons);
+        this.spatialFilteringProfileEnvelopeForOfferings = freezeMap(spatialFilteringProfileEnvelopeForOfferings);
+        this.supportedLanguages = freezeSet(supportedLanguages);
+        this.requestableProcedureDescriptionFormats = internSet(requestableProcedureDescriptionFormats);
+        this.featureOfInterestIdentifierHumanReadableName = freezeBiMap(featureOfInterestIdentifierHumanReadableName);
+        this.observablePropertyIdentifierHumanReadableName = freezeBiMap(observablePropertyIdentifierHumanReadableName);
+        this.procedureIdentifierHumanReadableName = freezeBiMap(procedureIdentifierHumanReadableName);
+        this.offeringIdentifierHumanReadableName = freezeBiMap(offeringIdentifierHumanReadableName);
+        this.typeInstanceProcedures = internSetMap(typeInstanceProcedures);
+        this.componentAggregationProcedures = internSetMap(componentAggregationProcedures);
+        this.typeOfProceduresMap = internSetMap(typeOfProceduresMap);
+        this.procedureProcedureDescriptionFormats = internSetMap(procedureProcedureDescriptionFormats);
+        this.publishedFeatureOfInterest = internSet(publishedFeatureOfInterest);
+        this.publishedProcedure = internSet(publishedProcedure);
+        this.publishedOffering = internSet(publishedOffering);
+        this.publishedObservableProperty = internSet(publishedObservableProperty);
+        this.frozen = true;
+    }
+
     @Override
     public int hashCode() {
         int hash = 5;
@@ -2774,8 +2901,156 @@ public class InMemoryCacheImpl extends AbstractStaticSosContentCache
         return true;
     }
 
-    private static <X, T> Function<X, Set<T>> createSynchronizedSet() {
-        return Suppliers.<X, Set<T>> asFunction(HashSet<T>::new).andThen(Collections::synchronizedSet);
+    /**
+     * Passes the state of this cache to the visitor, so that an
+     * {@link InMemoryCacheDelta} can be recorded from or applied to it. The
+     * identifier dictionary is not part of the state, it is rebuilt when the
+     * cache is frozen.
+     *
+     * @param visitor the visitor
+     */
+    void visitState(InMemoryCacheDelta.StateVisitor visitor) {
+        visitor.map("maxPhenomenonTimeForOfferings", maxPhenomenonTimeForOfferings);
+        visitor.map("minPhenomenonTimeForOfferings", minPhenomenonTimeForOfferings);
+        visitor.map("maxResultTimeForOfferings", maxResultTimeForOfferings);
+        visitor.map("minResultTimeForOfferings", minResultTimeForOfferings);
+        visitor.map("maxPhenomenonTimeForProcedures", maxPhenomenonTimeForProcedures);
+        visitor.map("minPhenomenonTimeForProcedures", minPhenomenonTimeForProcedures);
+        visitor.setMap("allowedObservationTypeForOfferings", allowedObservationTypeForOfferings);
+        visitor.setMap("allowedFeatureOfInterestTypeForOfferings", allowedFeatureOfInterestTypeForOfferings);
+        visitor.setMap("childFeaturesForFeatureOfInterest", childFeaturesForFeatureOfInterest);
+        visitor.setMap("childProceduresForProcedures", childProceduresForProcedures);
+        visitor.setMap("childOfferingsForOfferings", childOfferingsForOfferings);
+        visitor.setMap("compositePhenomenonsForProcedure", compositePhenomenonsForProcedure);
+        visitor.setMap("compositePhenomenonsForOffering", compositePhenomenonsForOffering);
+        visitor.setMap("compositePhenomenonsForObservableProperty", compositePhenomenonsForObservableProperty);
+        visitor.setMap("featuresOfInterestForOfferings", featuresOfInterestForOfferings);
+        visitor.setMap("offeringsForFeaturesOfInterest", offeringsForFeaturesOfInterest);
+        visitor.setMap("featuresOfInterestForResultTemplates", featuresOfInterestForResultTemplates);
+        visitor.setMap("observablePropertiesForCompositePhenomenons", observablePropertiesForCompositePhenomenons);
+        visitor.setMap("observablePropertiesForOfferings", observablePropertiesForOfferings);
+        visitor.setMap("observablePropertiesForProcedures", observablePropertiesForProcedures);
+        visitor.setMap("observationTypesForOfferings", observationTypesForOfferings);
+        visitor.setMap("featureOfInterestTypesForOfferings", featureOfInterestTypesForOfferings);
+        visitor.setMap("observedPropertiesForResultTemplates", observedPropertiesForResultTemplates);
+        visitor.setMap("offeringsForObservableProperties", offeringsForObservableProperties);
+        visitor.setMap("offeringsForProcedures", offeringsForProcedures);
+        visitor.setMap("parentFeaturesForFeaturesOfInterest", parentFeaturesForFeaturesOfInterest);
+        visitor.setMap("parentProceduresForProcedures", parentProceduresForProcedures);
+        visitor.setMap("parentOfferingsForOfferings", parentOfferingsForOfferings);
+        visitor.setMap("proceduresForFeaturesOfInterest", proceduresForFeaturesOfInterest);
+        visitor.setMap("proceduresForObservableProperties", proceduresForObservableProperties);
+        visitor.setMap("proceduresForOfferings", proceduresForOfferings);
+        visitor.setMap("hiddenChildProceduresForOfferings", hiddenChildProceduresForOfferings);
+        visitor.setMap("relatedFeaturesForOfferings", relatedFeaturesForOfferings);
+        visitor.setMap("resultTemplatesForOfferings", resultTemplatesForOfferings);
+        visitor.setMap("rolesForRelatedFeatures", rolesForRelatedFeatures);
+        visitor.map("envelopeForOfferings", envelopeForOfferings);
+        visitor.map("nameForOfferings", nameForOfferings);
+        visitor.map("i18nNameForOfferings", i18nNameForOfferings);
+        visitor.map("i18nDescriptionForOfferings", i18nDescriptionForOfferings);
+        visitor.set("epsgCodes", epsgCodes);
+        visitor.set("featuresOfInterest", featuresOfInterest);
+        visitor.set("procedures", procedures);
+        visitor.set("resultTemplates", resultTemplates);
+        visitor.set("offerings", offerings);
+        visitor.set("compositePhenomenons", compositePhenomenons);
+        visitor.value("globalPhenomenonTimeEnvelope", globalPhenomenonTimeEnvelope,
+                v -> this.globalPhenomenonTimeEnvelope = v);
+        visitor.value("globalResultTimeEnvelope", globalResultTimeEnvelope, v -> this.globalResultTimeEnvelope = v);
+        visitor.map("spatialFilteringProfileEnvelopeForOfferings", spatialFilteringProfileEnvelopeForOfferings);
+        visitor.set("supportedLanguages", supportedLanguages);
+        visitor.set("requestableProcedureDescriptionFormats", requestableProcedureDescriptionFormats);
+        visitor.map("featureOfInterestIdentifierHumanReadableName", featureOfInterestIdentifierHumanReadableName);
+        visitor.map("observablePropertyIdentifierHumanReadableName", observablePropertyIdentifierHumanReadableName);
+        visitor.map("procedureIdentifierHumanReadableName", procedureIdentifierHumanReadableName);
+        visitor.map("offeringIdentifierHumanReadableName", offeringIdentifierHumanReadableName);
+        visitor.setMap("typeInstanceProcedures", typeInstanceProcedures);
+        visitor.setMap("componentAggregationProcedures", componentAggregationProcedures);
+        visitor.setMap("typeOfProceduresMap", typeOfProceduresMap);
+        visitor.value("defaultEpsgCode", defaultEpsgCode, v -> this.defaultEpsgCode = v);
+        visitor.value("globalEnvelope", globalEnvelope, v -> this.globalEnvelope = v);
+        visitor.value("updateTime", updateTime, v -> this.updateTime = v);
+        visitor.setMap("procedureProcedureDescriptionFormats", procedureProcedureDescriptionFormats);
+        visitor.set("publishedFeatureOfInterest", publishedFeatureOfInterest);
+        visitor.set("publishedProcedure", publishedProcedure);
+        visitor.set("publishedOffering", publishedOffering);
+        visitor.set("publishedObservableProperty", publishedObservableProperty);
+    }
+
+    /**
+     * @param previous the cache this cache should be a frozen copy of
+     *
+     * @return the modifications of this copy of {@code previous} or
+     *         {@code null} if this cache is not a frozen copy of it
+     */
+    InMemoryCacheDelta getRecordedDelta(InMemoryCacheImpl previous) {
+        if (this.frozen && this.copiedFrom != null && this.copiedFrom.get() == previous) {
+            return this.recordedDelta;
+        }
+        return null;
+    }
+
+    private void checkNotFrozen() {
+        if (this.frozen) {
+            throw new UnsupportedOperationException("a frozen cache can not be modified");
+        }
+    }
+
+    private IdentifierDictionary getIdentifierDictionary() {
+        if (this.identifierDictionary == null) {
+            // caches persisted by older versions
+            this.identifierDictionary = new IdentifierDictionary();
+        }
+        return this.identifierDictionary;
+    }
+
+    /*
+     * The collections of a frozen cache are shared with the copy until the copy
+     * modifies them, the collections of a writable cache are copied.
+     */
+
+    private <K, V> Map<K, V> copyMap(Map<K, V> map) {
+        return this.frozen ? CopyOnWriteCollections.map(map) : newSynchronizedMap(map);
+    }
+
+    private <K, V> Map<K, Set<V>> copySetMap(Map<K, Set<V>> map) {
+        return this.frozen ? CopyOnWriteCollections.map(map) : thawSetMap(map);
+    }
+
+    private <T> Set<T> copySet(Set<T> set) {
+        return this.frozen ? CopyOnWriteCollections.set(set) : newSynchronizedSet(set);
+    }
+
+    private <K, V> BiMap<K, V> copyBiMap(BiMap<K, V> map) {
+        return this.frozen ? CopyOnWriteCollections.biMap(map) : thawBiMap(map);
+    }
+
+    private Set<String> internSet(Set<String> set) {
+        if (set == null || set.isEmpty()) {
+            return ImmutableSet.of();
+        } else if (isImmutable(set)) {
+            return set;
+        }
+        Set<String> unchanged = CopyOnWriteCollections.unchanged(set);
+        if (unchanged != null) {
+            return unchanged;
+        }
+        return new InternedIdentifierSet(getIdentifierDictionary(), set);
+    }
+
+    private <K> Map<K, Set<String>> internSetMap(Map<K, Set<String>> map) {
+        Map<K, Set<String>> unchanged = CopyOnWriteCollections.unchanged(map);
+        if (unchanged != null) {
+            return unchanged;
+        }
+        Map<K, Set<String>> copy = new HashMap<>(map.size());
+        map.forEach((k, v) -> copy.put(k, internSet(v)));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static TimePeriod copyOf(TimePeriod period) {
+        return new TimePeriod(period.getStart(), period.getEnd());
     }
 
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Immutable set of identifiers that is stored as a sorted {@code int} array of
+ * ids of an {@link IdentifierDictionary}. Used for the nested sets of a frozen
+ * cache, where it replaces a hash set with one entry object per identifier.
+ *
+ * @since 6.1.2
+ */
+final class InternedIdentifierSet extends AbstractSet<String> implements Serializable {
+    private static final long serialVersionUID = -4512706624722734139L;
+
+    private final IdentifierDictionary dictionary;
+
+    private final int[] ids;
+
+    InternedIdentifierSet(IdentifierDictionary dictionary, Collection<String> identifiers) {
+        this.dictionary = Objects.requireNonNull(dictionary);
+        this.ids = identifiers.stream().filter(Objects::nonNull).mapToInt(dictionary::intern).sorted().distinct()
+                .toArray();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int id = dictionary.indexOf(o);
+        return id >= 0 && Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < ids.length;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return dictionary.get(ids[next++]);
+            }
+        };
+    }
+
+}
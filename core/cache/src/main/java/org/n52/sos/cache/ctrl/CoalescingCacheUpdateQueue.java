@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.n52.iceland.cache.ContentCacheController;
+import org.n52.iceland.cache.ContentCacheUpdate;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.janmayen.lifecycle.Destroyable;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.cache.ctrl.action.CoalescedCacheUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded queue of partial cache updates that are applied by a single thread.
+ * All updates that are queued while the previous batch is applied are
+ * coalesced into one {@link CoalescedCacheUpdate}, so a burst of insertions
+ * only costs a single cache update. If one of the coalesced updates fails, the
+ * cache of the batch is discarded and the remaining updates are applied again
+ * without it, so that no partial writes of a failed update are published.
+ *
+ * @since 6.1.2
+ */
+public class CoalescingCacheUpdateQueue implements Destroyable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoalescingCacheUpdateQueue.class);
+
+    private static final long POLL_TIMEOUT = 100;
+
+    private final ContentCacheController controller;
+
+    private final BlockingQueue<QueuedUpdate> queue;
+
+    private final int maxBatchSize;
+
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new GroupedAndNamedThreadFactory("cache-update-applier"));
+
+    /**
+     * Guards {@link #running}: updates are submitted under the read lock and
+     * the queue is shut down under the write lock, so no update is queued
+     * after the applier stopped.
+     */
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    private volatile boolean running = true;
+
+    public CoalescingCacheUpdateQueue(ContentCacheController controller, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The queue capacity has to be greater than 0.");
+        }
+        this.controller = controller;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = capacity;
+        this.executor.execute(this::run);
+    }
+
+    /**
+     * Queues the update, blocking while the queue is full.
+     *
+     * @param update the partial update
+     *
+     * @return a future that completes once the update was applied to the cache
+     *
+     * @throws InterruptedException       if interrupted while waiting for free space
+     * @throws RejectedExecutionException if the queue is shut down
+     */
+    public CompletableFuture<Void> submit(ContentCacheUpdate update) throws InterruptedException {
+        stateLock.readLock().lockInterruptibly();
+        try {
+            if (!running) {
+                throw new RejectedExecutionException("queue is shut down");
+            }
+            QueuedUpdate queued = new QueuedUpdate(update);
+            queue.put(queued);
+            return queued.future;
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedUpdate first = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    List<QueuedUpdate> batch = new ArrayList<>();
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    apply(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void apply(List<QueuedUpdate> batch) {
+        List<QueuedUpdate> pending = new ArrayList<>(batch);
+        while (!pending.isEmpty()) {
+            List<ContentCacheUpdate> updates = new ArrayList<>(pending.size());
+            pending.forEach(queued -> updates.add(queued.update));
+            CoalescedCacheUpdate update = new CoalescedCacheUpdate(updates);
+            LOGGER.debug("Applying {} coalesced cache updates", updates.size());
+            try {
+                controller.update(update);
+                pending.forEach(queued -> queued.future.complete(null));
+                return;
+            } catch (OwsExceptionReport | RuntimeException e) {
+                if (!update.hasFailures()) {
+                    pending.forEach(queued -> queued.future.completeExceptionally(e));
+                    return;
+                }
+            }
+            // the cache of the batch was discarded, apply it again without the failed updates
+            Iterator<QueuedUpdate> iter = pending.iterator();
+            while (iter.hasNext()) {
+                QueuedUpdate queued = iter.next();
+                Optional<Throwable> failure = update.getFailure(queued.update);
+                if (failure.isPresent()) {
+                    queued.future.completeExceptionally(failure.get());
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        stateLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(POLL_TIMEOUT * 10, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("{} cache updates were not applied on shutdown", queue.size());
+                executor.shutdownNow();
+                executor.awaitTermination(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        // fail the updates the applier did not take anymore, nobody would complete them
+        List<QueuedUpdate> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(queued -> queued.future
+                .completeExceptionally(new RejectedExecutionException("queue is shut down")));
+    }
+
+    private static final class QueuedUpdate {
+        private final ContentCacheUpdate update;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        QueuedUpdate(ContentCacheUpdate update) {
+            this.update = update;
+        }
+    }
+
+}
@@ -28,16 +28,23 @@
 package org.n52.sos.cache.ctrl;
 
 import java.util.Collections;
+import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.inject.Inject;
 
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.cache.ContentCacheController;
 import org.n52.iceland.cache.ContentCacheUpdate;
 import org.n52.iceland.coding.SupportedTypeRepository;
 import org.n52.iceland.convert.ConverterRepository;
 import org.n52.janmayen.event.Event;
 import org.n52.janmayen.event.EventListener;
+import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.cache.ctrl.action.CompleteCacheUpdate;
 import org.n52.sos.cache.ctrl.action.DeleteObservationUpdate;
@@ -66,14 +73,26 @@ import com.google.common.collect.Sets;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
+ * Applies cache updates for content modification events. Depending on the
+ * {@link CacheUpdateMode}, partial updates are either applied synchronously or
+ * handed to a {@link CoalescingCacheUpdateQueue}. Once the listener is
+ * destroyed, no new queue is created and updates are applied synchronously.
+ *
  * @author <a href="mailto:c.autermann@52north.org">Christian Autermann</a>
  * @since 4.0.0
  */
+@Configurable
 @SuppressFBWarnings({"EI_EXPOSE_REP2"})
 public class DefaultContentModificationListener
-        implements EventListener {
+        implements EventListener, Destroyable {
+    public static final String CACHE_UPDATE_MODE = "service.transactional.cacheUpdateMode";
+
+    public static final String CACHE_UPDATE_QUEUE_SIZE = "service.transactional.cacheUpdateQueueSize";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultContentModificationListener.class);
 
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+
     @SuppressWarnings("unchecked")
     private static final Set<Class<? extends Event>> TYPES = Sets
             .<Class<? extends Event>> newHashSet(
@@ -91,6 +110,10 @@ public class DefaultContentModificationListener
     private final ContentCacheController controller;
     private SupportedTypeRepository supportedTypeRepository;
     private ConverterRepository converterRepository;
+    private volatile CacheUpdateMode mode = CacheUpdateMode.SYNCHRONOUS;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private CoalescingCacheUpdateQueue queue;
+    private boolean destroyed;
 
     @Inject
     public DefaultContentModificationListener(CacheFeederHandler handler, ContentCacheController controller) {
@@ -107,6 +130,14 @@ public class DefaultContentModificationListener
     public void handle(Event event) {
         ContentCacheUpdate update = createUpdate(event);
         LOGGER.debug("Updating Cache after content modification: {}", update);
+        if (this.mode == CacheUpdateMode.SYNCHRONOUS || update.isCompleteUpdate()) {
+            apply(update);
+        } else {
+            enqueue(update);
+        }
+    }
+
+    private void apply(ContentCacheUpdate update) {
         try {
             this.controller.update(update);
         } catch (OwsExceptionReport ex) {
@@ -114,6 +145,68 @@ public class DefaultContentModificationListener
         }
     }
 
+    private void enqueue(ContentCacheUpdate update) {
+        try {
+            CompletableFuture<Void> future = submit(update);
+            if (future == null) {
+                LOGGER.debug("Cache update queue was destroyed, applying update synchronously");
+                apply(update);
+            } else if (this.mode == CacheUpdateMode.READ_YOUR_WRITES) {
+                future.get();
+            } else {
+                future.whenComplete((v, t) -> {
+                    if (t != null) {
+                        LOGGER.error("Error processing Event", t);
+                    }
+                });
+            }
+        } catch (ExecutionException ex) {
+            LOGGER.error("Error processing Event", ex.getCause());
+        } catch (InterruptedException ex) {
+            LOGGER.error("Interrupted while processing Event", ex);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Void> submit(ContentCacheUpdate update) throws InterruptedException {
+        while (true) {
+            CoalescingCacheUpdateQueue current = getQueue();
+            if (current == null) {
+                return null;
+            }
+            try {
+                return current.submit(update);
+            } catch (RejectedExecutionException ex) {
+                // the queue was replaced after a change of its size, retry with the new one
+                LOGGER.debug("Cache update queue was shut down, retrying", ex);
+            }
+        }
+    }
+
+    /**
+     * @return the current queue, created on demand, or <code>null</code> if
+     *         the listener was destroyed
+     */
+    private synchronized CoalescingCacheUpdateQueue getQueue() {
+        if (this.queue == null && !this.destroyed) {
+            this.queue = new CoalescingCacheUpdateQueue(this.controller, this.queueSize);
+        }
+        return this.queue;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        this.destroyed = true;
+        shutdownQueue();
+    }
+
+    private synchronized void shutdownQueue() {
+        if (this.queue != null) {
+            this.queue.destroy();
+            this.queue = null;
+        }
+    }
+
     private ContentCacheUpdate createUpdate(Event event) {
         if (event instanceof SensorInsertion) {
             return createUpdate((SensorInsertion) event);
@@ -183,4 +276,48 @@ public class DefaultContentModificationListener
     public void setSupportedTypeRepository(SupportedTypeRepository supportedTypeRepository) {
         this.supportedTypeRepository = supportedTypeRepository;
     }
+
+    @Setting(value = CACHE_UPDATE_MODE, required = false)
+    public void setCacheUpdateMode(String mode) {
+        if (mode != null && !mode.isEmpty()) {
+            this.mode = CacheUpdateMode.valueOf(mode.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Sets the capacity of the queue. An existing queue is shut down after its
+     * updates were applied and replaced by a queue with the new capacity.
+     *
+     * @param queueSize the capacity
+     */
+    @Setting(value = CACHE_UPDATE_QUEUE_SIZE, required = false)
+    public synchronized void setCacheUpdateQueueSize(int queueSize) {
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("The cache update queue size has to be greater than 0.");
+        }
+        if (this.queueSize != queueSize) {
+            this.queueSize = queueSize;
+            shutdownQueue();
+        }
+    }
+
+    /**
+     * How partial cache updates are applied.
+     */
+    public enum CacheUpdateMode {
+        /**
+         * Each update is applied by the thread that handles the event.
+         */
+        SYNCHRONOUS,
+        /**
+         * Updates are coalesced and applied by a single thread, the thread that
+         * handles the event waits until its update is visible.
+         */
+        READ_YOUR_WRITES,
+        /**
+         * Updates are coalesced and applied by a single thread, the thread that
+         * handles the event returns immediately.
+         */
+        EVENTUAL_CONSISTENCY
+    }
 }
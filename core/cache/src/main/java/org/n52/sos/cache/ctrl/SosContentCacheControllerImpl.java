@@ -60,11 +60,15 @@ import org.n52.iceland.cache.WritableContentCache;
 import org.n52.iceland.cache.ctrl.AbstractSchedulingContentCacheController;
 import org.n52.iceland.cache.ctrl.CompleteCacheUpdateFactory;
 import org.n52.iceland.cache.ctrl.ContentCacheFactory;
+import org.n52.janmayen.event.EventBus;
 import org.n52.janmayen.lifecycle.Constructable;
 import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.cache.AbstractStaticSosContentCache;
 import org.n52.sos.cache.ContentCacheFactoryImpl;
+import org.n52.sos.cache.SnapshotContentCache;
+import org.n52.sos.cache.ctrl.persistence.IncrementalCachePersistenceStrategy;
+import org.n52.sos.event.events.CompleteCacheUpdateEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -83,6 +87,7 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
 
     private volatile WritableContentCache cache;
     private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock partialUpdateLock = new ReentrantLock();
 
     private CompleteUpdate currentUpdate;
     private CompleteUpdate nextUpdate;
@@ -90,6 +95,7 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
     private ContentCachePersistenceStrategy persistenceStrategy;
     private ContentCacheFactory cacheFactory;
     private CompleteCacheUpdateFactory completeCacheUpdateFactory;
+    private EventBus eventBus;
 
     @Inject
     public void setCacheFactory(ContentCacheFactory cacheFactory) {
@@ -106,6 +112,11 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
         this.completeCacheUpdateFactory = factory;
     }
 
+    @Inject
+    public void setEventBus(EventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
     @Override
     public void init() {
         loadOrCreateCache();
@@ -137,7 +148,16 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
         return this.cache;
     }
 
+    /**
+     * Publishes the cache. Snapshot capable caches are frozen before, so
+     * readers never see a cache that is still modified.
+     *
+     * @param wcc the cache to publish
+     */
     protected void setCache(WritableContentCache wcc) {
+        if (wcc instanceof SnapshotContentCache) {
+            ((SnapshotContentCache) wcc).freeze();
+        }
         this.cache = wcc;
     }
 
@@ -154,15 +174,10 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
     @Override
     public void update(ContentCacheUpdate update) throws OwsExceptionReport {
         if (update != null) {
-            try {
-                if (update.isCompleteUpdate()) {
-                    executeComplete(new CompleteUpdate(update));
-                } else {
-                    executePartial(new PartialUpdate(update));
-                }
-                cache.setLastUpdateTime(DateTime.now());
-            } finally {
-                currentUpdate = null;
+            if (update.isCompleteUpdate()) {
+                executeComplete(new CompleteUpdate(update));
+            } else {
+                executePartial(new PartialUpdate(update));
             }
         } else {
             throw new IllegalArgumentException("update may not be null");
@@ -175,14 +190,59 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
     }
 
     private void runCurrent() throws OwsExceptionReport {
-        LOGGER.trace(STARTING_UPDATE, this.currentUpdate);
-        this.currentUpdate.execute();
-        LOGGER.trace(FINISHED_UPDATE, this.currentUpdate);
+        CompleteUpdate u = this.currentUpdate;
+        LOGGER.trace(STARTING_UPDATE, u);
+        try {
+            u.execute();
+        } catch (OwsExceptionReport | RuntimeException e) {
+            failCurrent(u);
+            throw e;
+        }
+        LOGGER.trace(FINISHED_UPDATE, u);
         lock();
         try {
             persistenceStrategy.persistOnCompleteUpdate(getCache());
-            CompleteUpdate u = this.currentUpdate;
-            this.currentUpdate = null;
+            finishCurrent(u);
+        } finally {
+            unlock();
+        }
+        if (eventBus != null) {
+            eventBus.submit(new CompleteCacheUpdateEvent());
+        }
+    }
+
+    /**
+     * Close the failed update for partial updates and persist the partial
+     * updates queued for it, which are published already.
+     */
+    private void failCurrent(CompleteUpdate u) {
+        partialUpdateLock.lock();
+        try {
+            lock();
+            try {
+                if (u.close()) {
+                    persistenceStrategy.persistOnPartialUpdate(getCache());
+                }
+                finishCurrent(u);
+            } finally {
+                unlock();
+            }
+        } finally {
+            partialUpdateLock.unlock();
+        }
+    }
+
+    /**
+     * Reset the current update, if it was not replaced by the next update
+     * already, and wake up the updates waiting for it. Partial updates never
+     * reset the current update, as they run concurrently to it.
+     */
+    private void finishCurrent(CompleteUpdate u) {
+        lock();
+        try {
+            if (this.currentUpdate == u) {
+                this.currentUpdate = null;
+            }
             u.signalWaiting();
         } finally {
             unlock();
@@ -190,16 +250,38 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
     }
 
     private void executePartial(PartialUpdate update) throws OwsExceptionReport {
-        update.execute(getCache());
-        lock();
+        partialUpdateLock.lock();
         try {
-            if (this.currentUpdate != null) {
-                this.currentUpdate.addUpdate(update);
+            WritableContentCache published = getCache();
+            if (published instanceof SnapshotContentCache) {
+                // apply the update to a copy and swap it in, the published snapshot is never modified
+                SnapshotContentCache copy = ((SnapshotContentCache) published).copy();
+                update.execute(copy);
+                copy.setLastUpdateTime(DateTime.now());
+                setCache(copy);
             } else {
-                persistenceStrategy.persistOnPartialUpdate(getCache());
+                update.execute(published);
+                published.setLastUpdateTime(DateTime.now());
+            }
+            lock();
+            try {
+                // a complete update which published its cache already does not apply queued updates anymore
+                if (this.currentUpdate == null || !this.currentUpdate.addUpdate(update)) {
+                    persistOnPartialUpdate(published);
+                }
+            } finally {
+                unlock();
             }
         } finally {
-            unlock();
+            partialUpdateLock.unlock();
+        }
+    }
+
+    private void persistOnPartialUpdate(WritableContentCache previous) {
+        if (persistenceStrategy instanceof IncrementalCachePersistenceStrategy && previous != getCache()) {
+            ((IncrementalCachePersistenceStrategy) persistenceStrategy).persistOnPartialUpdate(previous, getCache());
+        } else {
+            persistenceStrategy.persistOnPartialUpdate(getCache());
         }
     }
 
@@ -320,13 +402,40 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
         private final Condition finished = lock.newCondition();
         private State state = State.WAITING;
         private final int nr = COMPLETE_UPDATE_COUNT.getAndIncrement();
+        // guarded by the partial update lock
+        private boolean closed;
+        private boolean queued;
 
         CompleteUpdate(ContentCacheUpdate update) {
             super(update);
         }
 
-        void addUpdate(PartialUpdate update) {
+        /**
+         * Queue a partial update to be applied to the cache of this update
+         * before it is published. Has to be called with the partial update
+         * lock held.
+         *
+         * @return <code>false</code>, if the cache of this update was published
+         *         already or this update failed
+         */
+        boolean addUpdate(PartialUpdate update) {
+            if (closed) {
+                return false;
+            }
             updates.offer(update);
+            queued = true;
+            return true;
+        }
+
+        /**
+         * Stop queueing partial updates. Has to be called with the partial
+         * update lock held.
+         *
+         * @return <code>true</code>, if partial updates were queued
+         */
+        boolean close() {
+            closed = true;
+            return queued;
         }
 
         State getState() {
@@ -372,7 +481,27 @@ public class SosContentCacheControllerImpl extends AbstractSchedulingContentCach
         }
 
         void execute() throws OwsExceptionReport {
-            setCache(execute(getCache()));
+            WritableContentCache updated = execute(getCache());
+            // publish exclusively to partial updates, which would otherwise replace the complete update with a
+            // copy of the previous snapshot, and apply the partial updates queued in the meantime
+            partialUpdateLock.lock();
+            try {
+                PartialUpdate pu;
+                while ((pu = updates.poll()) != null) {
+                    try {
+                        pu.execute(updated);
+                    } catch (OwsExceptionReport e) {
+                        // already logged, the complete update is published nevertheless
+                        LOGGER.debug("{} failed on {}", pu, this, e);
+                    }
+                }
+                // set before publishing, a published snapshot is immutable
+                updated.setLastUpdateTime(DateTime.now());
+                setCache(updated);
+                close();
+            } finally {
+                partialUpdateLock.unlock();
+            }
         }
 
         WritableContentCache execute(WritableContentCache cache) throws OwsExceptionReport {
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl.action;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.n52.iceland.cache.ContentCacheUpdate;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.sos.cache.SosContentCacheUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Combines a burst of partial cache updates into a single update, so that the
+ * cache is only copied and published once for all of them. The updates are
+ * applied in order to the same cache, which unions their envelopes, time
+ * extents and relations. A failing update does not prevent the following
+ * updates from being applied, but the coalesced update fails, so that the
+ * cache, which may contain partial writes of the failed update, is discarded.
+ * The failed updates can be queried with {@link #getFailure(ContentCacheUpdate)}
+ * to apply the others again.
+ *
+ * @since 6.1.2
+ */
+public class CoalescedCacheUpdate extends SosContentCacheUpdate {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoalescedCacheUpdate.class);
+
+    private final List<ContentCacheUpdate> updates;
+
+    private final Map<ContentCacheUpdate, Throwable> failures = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    public CoalescedCacheUpdate(List<ContentCacheUpdate> updates) {
+        this.updates = Collections.unmodifiableList(updates);
+    }
+
+    public List<ContentCacheUpdate> getUpdates() {
+        return updates;
+    }
+
+    @Override
+    public void execute() {
+        failures.clear();
+        for (ContentCacheUpdate update : updates) {
+            update.reset();
+            update.setCache(getCache());
+            try {
+                update.execute();
+                if (update.failed()) {
+                    failures.put(update, update.getFailureCause());
+                }
+            } catch (RuntimeException e) {
+                failures.put(update, e);
+            }
+            if (failures.containsKey(update)) {
+                LOGGER.warn("Coalesced update {} failed", update, failures.get(update));
+            }
+        }
+        if (hasFailures()) {
+            fail(new NoApplicableCodeException().withMessage("%d of %d coalesced cache updates failed",
+                    failures.size(), updates.size()));
+        }
+    }
+
+    /**
+     * @return if one of the coalesced updates failed
+     */
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * @param update one of the coalesced updates
+     *
+     * @return the cause if the update failed
+     */
+    public Optional<Throwable> getFailure(ContentCacheUpdate update) {
+        return Optional.ofNullable(failures.get(update));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [updates=%d]", getClass().getName(), updates.size());
+    }
+
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.n52.iceland.cache.ContentCache;
+import org.n52.iceland.cache.WritableContentCache;
+import org.n52.iceland.cache.ctrl.persistence.AbstractPersistingCachePersistenceStrategy;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.sos.cache.InMemoryCacheDelta;
+import org.n52.sos.cache.InMemoryCacheImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistence strategy that appends the {@link InMemoryCacheDelta} of every
+ * partial update to an append-only log next to the cache file instead of
+ * serializing the complete cache. The log is compacted into a new cache
+ * snapshot after a complete update, on shutdown and, in the background, after
+ * {@link #setCompactionThreshold(int) a number of records}. On startup the
+ * snapshot is loaded and the log is replayed.
+ * <p>
+ * Every record is framed by its length and a CRC32 checksum. Replaying stops
+ * at the first incomplete or corrupt record and the log is truncated there, so
+ * that records appended later are not misaligned.
+ * <p>
+ * If a partial update can not be expressed as a delta, the log is compacted
+ * in the background.
+ *
+ * @since 6.1.2
+ */
+public class WriteAheadLogCachePersistenceStrategy extends AbstractPersistingCachePersistenceStrategy
+        implements IncrementalCachePersistenceStrategy {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteAheadLogCachePersistenceStrategy.class);
+
+    private static final String LOG_FILE = "cache.log";
+
+    private static final String COMPACTING_LOG_FILE = "cache.log.compacting";
+
+    private static final String SNAPSHOT_FILE_SUFFIX = ".writing";
+
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+
+    private static final int RECORD_HEADER_LENGTH = Integer.BYTES + Long.BYTES;
+
+    private static final long SHUTDOWN_TIMEOUT = 30;
+
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(new GroupedAndNamedThreadFactory("cache-log-compaction"));
+
+    private final Object compactionLock = new Object();
+
+    private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+    private int records;
+
+    private boolean compactionScheduled;
+
+    private ContentCache latest;
+
+    public void setCompactionThreshold(int compactionThreshold) {
+        if (compactionThreshold < 1) {
+            throw new IllegalArgumentException("The compaction threshold has to be greater than 0.");
+        }
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public Path getLogFile() {
+        Path cacheFile = getCacheFile();
+        return cacheFile == null ? null : cacheFile.resolveSibling(LOG_FILE);
+    }
+
+    private Path getCompactingLogFile() {
+        Path cacheFile = getCacheFile();
+        return cacheFile == null ? null : cacheFile.resolveSibling(COMPACTING_LOG_FILE);
+    }
+
+    Path getSnapshotFile() {
+        Path cacheFile = getCacheFile();
+        return cacheFile == null ? null : cacheFile.resolveSibling(cacheFile.getFileName() + SNAPSHOT_FILE_SUFFIX);
+    }
+
+    @Override
+    public synchronized Optional<WritableContentCache> load() {
+        Optional<WritableContentCache> snapshot = super.load();
+        if (!snapshot.isPresent() || !(snapshot.get() instanceof InMemoryCacheImpl)) {
+            deleteLogs();
+            return snapshot;
+        }
+        InMemoryCacheImpl cache = (InMemoryCacheImpl) snapshot.get();
+        if (cache.isFrozen()) {
+            cache = cache.copy();
+        }
+        // records of an interrupted compaction precede the current log
+        this.records = replay(getCompactingLogFile(), cache) + replay(getLogFile(), cache);
+        return Optional.of(cache);
+    }
+
+    @Override
+    public synchronized void persistOnPartialUpdate(ContentCache previous, ContentCache current) {
+        this.latest = current;
+        if (previous instanceof InMemoryCacheImpl && current instanceof InMemoryCacheImpl) {
+            Optional<InMemoryCacheDelta> delta =
+                    InMemoryCacheDelta.between((InMemoryCacheImpl) previous, (InMemoryCacheImpl) current);
+            if (delta.isPresent() && (delta.get().isEmpty() || append(delta.get()))) {
+                if (this.records >= this.compactionThreshold) {
+                    scheduleCompaction();
+                }
+                return;
+            }
+        }
+        scheduleCompaction();
+    }
+
+    @Override
+    public synchronized void persistOnPartialUpdate(ContentCache cache) {
+        this.latest = cache;
+        scheduleCompaction();
+    }
+
+    @Override
+    public void persistOnCompleteUpdate(ContentCache cache) {
+        compact(cache);
+    }
+
+    @Override
+    public void persistOnShutdown(ContentCache cache) {
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            LOGGER.debug("Executor awaitTermination() was interrupted!", ie);
+            Thread.currentThread().interrupt();
+        }
+        compact(cache);
+    }
+
+    @Override
+    public void remove() {
+        synchronized (this.compactionLock) {
+            synchronized (this) {
+                super.remove();
+                deleteLogs();
+            }
+        }
+    }
+
+    /**
+     * Waits until the compactions scheduled so far are finished.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException   if waiting failed
+     */
+    void awaitCompaction() throws InterruptedException, ExecutionException {
+        this.executor.submit(() -> { }).get();
+    }
+
+    private void scheduleCompaction() {
+        if (!this.compactionScheduled && !this.executor.isShutdown()) {
+            this.compactionScheduled = true;
+            this.executor.execute(() -> compact(null));
+        }
+    }
+
+    /**
+     * Writes a new snapshot. The log is moved aside while the snapshot is
+     * written, so partial updates can append to a new log in the meantime.
+     * It is only deleted if the snapshot was written, otherwise it is replayed
+     * on startup and kept in front of the log by the next compaction.
+     *
+     * @param cache the cache to persist or {@code null} to persist the latest
+     *              cache of a partial update
+     */
+    private void compact(ContentCache cache) {
+        synchronized (this.compactionLock) {
+            ContentCache snapshot;
+            synchronized (this) {
+                this.compactionScheduled = false;
+                if (cache != null) {
+                    this.latest = cache;
+                }
+                snapshot = this.latest;
+                if (snapshot == null) {
+                    return;
+                }
+                LOGGER.debug("Compacting cache log with {} records", this.records);
+                if (!moveLogAside()) {
+                    return;
+                }
+            }
+            if (writeSnapshot(snapshot)) {
+                delete(getCompactingLogFile());
+            }
+        }
+    }
+
+    /**
+     * Writes the snapshot to a temporary file, which replaces the cache file
+     * only if it was written completely.
+     *
+     * @param snapshot the cache to persist
+     * @return if the snapshot was written
+     */
+    private boolean writeSnapshot(ContentCache snapshot) {
+        Path file = getCacheFile();
+        Path tmp = getSnapshotFile();
+        try {
+            try (ObjectOutputStream oos =
+                    new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                LOGGER.debug("Serializing cache to {}", tmp);
+                oos.writeObject(snapshot);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException ex) {
+            LOGGER.error(String.format("Error serializing cache to '%s'", tmp), ex);
+            delete(tmp);
+            return false;
+        }
+    }
+
+    private boolean moveLogAside() {
+        this.records = 0;
+        Path file = getLogFile();
+        Path compacting = getCompactingLogFile();
+        if (file == null || !Files.exists(file)) {
+            return true;
+        }
+        try {
+            if (Files.exists(compacting)) {
+                // a previous compaction failed, keep its records in front
+                try (OutputStream out = Files.newOutputStream(compacting, StandardOpenOption.APPEND)) {
+                    Files.copy(file, out);
+                }
+                Files.delete(file);
+            } else {
+                Files.move(file, compacting, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return true;
+        } catch (IOException ex) {
+            LOGGER.error(String.format("Error moving cache log '%s'", file), ex);
+            return false;
+        }
+    }
+
+    private boolean append(InMemoryCacheDelta delta) {
+        Path file = getLogFile();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(delta);
+            }
+            byte[] record = bytes.toByteArray();
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND))) {
+                out.writeInt(record.length);
+                out.writeLong(checksum(record));
+                out.write(record);
+            }
+            this.records++;
+            LOGGER.trace("Appended {} to cache log {}", delta, file);
+            return true;
+        } catch (IOException ex) {
+            LOGGER.error(String.format("Error appending to cache log '%s'", file), ex);
+            return false;
+        }
+    }
+
+    private int replay(Path file, InMemoryCacheImpl cache) {
+        if (file == null || !Files.isReadable(file)) {
+            return 0;
+        }
+        int replayed = 0;
+        long position = 0;
+        long corrupt = -1;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            long size = Files.size(file);
+            while (position < size) {
+                byte[] record = readRecord(in, size - position);
+                InMemoryCacheDelta delta = record == null ? null : deserialize(record);
+                if (delta == null) {
+                    corrupt = position;
+                    break;
+                }
+                delta.applyTo(cache);
+                position += RECORD_HEADER_LENGTH + record.length;
+                replayed++;
+            }
+        } catch (IOException ex) {
+            LOGGER.error(String.format("Error replaying cache log '%s'", file), ex);
+            corrupt = position;
+        }
+        if (corrupt >= 0) {
+            LOGGER.warn("Truncating cache log {} at incomplete or corrupt record at offset {}", file, corrupt);
+            truncate(file, corrupt);
+        }
+        LOGGER.debug("Replayed {} records of cache log {}", replayed, file);
+        return replayed;
+    }
+
+    private static byte[] readRecord(DataInputStream in, long remaining) throws IOException {
+        if (remaining < RECORD_HEADER_LENGTH) {
+            return null;
+        }
+        int length = in.readInt();
+        long checksum = in.readLong();
+        if (length < 0 || length > remaining - RECORD_HEADER_LENGTH) {
+            return null;
+        }
+        byte[] record = new byte[length];
+        try {
+            in.readFully(record);
+        } catch (EOFException e) {
+            return null;
+        }
+        return checksum(record) == checksum ? record : null;
+    }
+
+    private static InMemoryCacheDelta deserialize(byte[] record) {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(record))) {
+            return (InMemoryCacheDelta) ois.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            LOGGER.error("Error reading cache log record", ex);
+            return null;
+        }
+    }
+
+    private static long checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return crc.getValue();
+    }
+
+    private static void truncate(Path file, long size) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        } catch (IOException ex) {
+            LOGGER.error(String.format("Error truncating cache log '%s'", file), ex);
+        }
+    }
+
+    private void deleteLogs() {
+        this.records = 0;
+        delete(getLogFile());
+        delete(getCompactingLogFile());
+    }
+
+    private static void delete(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            LOGGER.error(String.format("Error deleting cache log '%s'", file), ex);
+        }
+    }
+
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.n52.iceland.cache.WritableContentCache;
+import org.n52.iceland.cache.ctrl.persistence.NoOpCachePersistenceStrategy;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.ifoi.InsertFeatureOfInterestRequest;
+import org.n52.shetland.ogc.sos.ifoi.InsertFeatureOfInterestResponse;
+import org.n52.sos.cache.ctrl.CoalescingCacheUpdateQueue;
+import org.n52.sos.cache.ctrl.CompleteCacheUpdateFactoryImpl;
+import org.n52.sos.cache.ctrl.DefaultContentModificationListener;
+import org.n52.sos.cache.ctrl.SosContentCacheControllerImpl;
+import org.n52.sos.event.events.FeatureInsertion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests the coalescing of queued partial cache updates. Blocking updates hold
+ * the applier thread, so that the following updates are queued and coalesced
+ * deterministically.
+ */
+public class CoalescingCacheUpdateQueueTest {
+    private static final Logger LOG = LoggerFactory.getLogger(CoalescingCacheUpdateQueueTest.class);
+    private static final String OFFERING = "offering";
+    private static final int FEATURES = 5000;
+    private static final int UPDATES = 500;
+    private static final long TIMEOUT = 30;
+    private static final int SUBMITTERS = 4;
+    private static final int BURST = 5000;
+
+    @Test
+    public void should_apply_all_queued_updates() throws Exception {
+        SosContentCacheControllerImpl controller = createController();
+        CoalescingCacheUpdateQueue queue = new CoalescingCacheUpdateQueue(controller, 100);
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < UPDATES; i++) {
+                futures.add(queue.submit(new AddFeatureUpdate("queued-" + i)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(TIMEOUT, TimeUnit.SECONDS);
+        } finally {
+            queue.destroy();
+        }
+        SosContentCache cache = (SosContentCache) controller.getCache();
+        for (int i = 0; i < UPDATES; i++) {
+            MatcherAssert.assertThat(cache.hasFeatureOfInterest("queued-" + i), Matchers.is(true));
+        }
+    }
+
+    @Test
+    public void should_coalesce_updates_queued_while_a_batch_is_applied() throws Exception {
+        AtomicInteger publications = new AtomicInteger();
+        SosContentCacheControllerImpl controller = createController(publications);
+        CoalescingCacheUpdateQueue queue = new CoalescingCacheUpdateQueue(controller, UPDATES);
+        BlockingUpdate blocking = new BlockingUpdate();
+        try {
+            CompletableFuture<Void> first = queue.submit(blocking);
+            blocking.awaitStarted();
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < UPDATES; i++) {
+                futures.add(queue.submit(new AddFeatureUpdate("coalesced-" + i)));
+            }
+            blocking.release();
+            first.get(TIMEOUT, TimeUnit.SECONDS);
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(TIMEOUT, TimeUnit.SECONDS);
+        } finally {
+            queue.destroy();
+        }
+        // one publication for the blocking update and one for all queued updates
+        MatcherAssert.assertThat(publications.get(), Matchers.is(2));
+        MatcherAssert.assertThat(((SosContentCache) controller.getCache()).getFeaturesOfInterest().size(),
+                Matchers.is(FEATURES + UPDATES));
+    }
+
+    @Test
+    public void should_coalesce_a_burst_of_concurrent_updates() throws Exception {
+        AtomicInteger publications = new AtomicInteger();
+        SosContentCacheControllerImpl controller = createController(publications);
+        CoalescingCacheUpdateQueue queue = new CoalescingCacheUpdateQueue(controller, 1000);
+        ExecutorService submitters = Executors.newFixedThreadPool(SUBMITTERS);
+        List<Future<List<CompletableFuture<Void>>>> submitted = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < SUBMITTERS; i++) {
+                String prefix = "burst-" + i + "-";
+                submitted.add(submitters.submit(() -> {
+                    List<CompletableFuture<Void>> futures = new ArrayList<>(BURST);
+                    for (int j = 0; j < BURST; j++) {
+                        futures.add(queue.submit(new AddFeatureUpdate(prefix + j)));
+                    }
+                    return futures;
+                }));
+            }
+            for (Future<List<CompletableFuture<Void>>> futures : submitted) {
+                CompletableFuture.allOf(futures.get(TIMEOUT, TimeUnit.SECONDS).toArray(new CompletableFuture[0]))
+                        .get(TIMEOUT, TimeUnit.SECONDS);
+            }
+        } finally {
+            submitters.shutdownNow();
+            queue.destroy();
+        }
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        int updates = SUBMITTERS * BURST;
+        LOG.info("Applied {} updates in {} cache publications ({} updates/s)", updates, publications.get(),
+                updates * 1000L / millis);
+        // every publication copies and freezes the cache, so their number determines the throughput
+        MatcherAssert.assertThat(publications.get(), Matchers.lessThan(updates / 10));
+        MatcherAssert.assertThat(((SosContentCache) controller.getCache()).getFeaturesOfInterest().size(),
+                Matchers.is(FEATURES + updates));
+    }
+
+    @Test
+    public void should_not_publish_writes_of_failed_updates() throws Exception {
+        SosContentCacheControllerImpl controller = createController();
+        CoalescingCacheUpdateQueue queue = new CoalescingCacheUpdateQueue(controller, UPDATES);
+        BlockingUpdate blocking = new BlockingUpdate();
+        CompletableFuture<Void> before;
+        CompletableFuture<Void> failing;
+        CompletableFuture<Void> after;
+        try {
+            queue.submit(blocking);
+            blocking.awaitStarted();
+            before = queue.submit(new AddFeatureUpdate("before"));
+            failing = queue.submit(new FailingUpdate("failed"));
+            after = queue.submit(new AddFeatureUpdate("after"));
+            blocking.release();
+            CompletableFuture.allOf(before, after).get(TIMEOUT, TimeUnit.SECONDS);
+        } finally {
+            queue.destroy();
+        }
+        MatcherAssert.assertThat(failing.isCompletedExceptionally(), Matchers.is(true));
+        SosContentCache cache = (SosContentCache) controller.getCache();
+        MatcherAssert.assertThat(cache.hasFeatureOfInterest("before"), Matchers.is(true));
+        MatcherAssert.assertThat(cache.hasFeatureOfInterest("after"), Matchers.is(true));
+        MatcherAssert.assertThat(cache.hasFeatureOfInterest("failed"), Matchers.is(false));
+    }
+
+    @Test
+    public void should_complete_all_updates_submitted_during_shutdown() throws Exception {
+        SosContentCacheControllerImpl controller = createController();
+        CoalescingCacheUpdateQueue queue = new CoalescingCacheUpdateQueue(controller, 10);
+        ExecutorService submitters = Executors.newFixedThreadPool(4);
+        CountDownLatch submitting = new CountDownLatch(4);
+        List<Future<List<CompletableFuture<Void>>>> submitted = new ArrayList<>();
+        try {
+            for (int i = 0; i < 4; i++) {
+                String prefix = "submitter-" + i + "-";
+                submitted.add(submitters.submit(() -> {
+                    List<CompletableFuture<Void>> futures = new ArrayList<>();
+                    submitting.countDown();
+                    try {
+                        for (int j = 0; j < UPDATES; j++) {
+                            futures.add(queue.submit(new AddFeatureUpdate(prefix + j)));
+                        }
+                    } catch (RejectedExecutionException e) {
+                        // the queue was shut down
+                    }
+                    return futures;
+                }));
+            }
+            submitting.await(TIMEOUT, TimeUnit.SECONDS);
+            queue.destroy();
+            try {
+                queue.submit(new AddFeatureUpdate("after-shutdown"));
+                Assert.fail("update accepted after shutdown");
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+            for (Future<List<CompletableFuture<Void>>> futures : submitted) {
+                for (CompletableFuture<Void> future : futures.get(TIMEOUT, TimeUnit.SECONDS)) {
+                    // every update is either applied or rejected
+                    MatcherAssert.assertThat(future.isDone(), Matchers.is(true));
+                }
+            }
+        } finally {
+            submitters.shutdownNow();
+        }
+    }
+
+    @Test
+    public void should_apply_updates_synchronously_after_the_listener_was_destroyed() throws Exception {
+        SosContentCacheControllerImpl controller = createController();
+        DefaultContentModificationListener listener =
+                new DefaultContentModificationListener(new NoOpCacheFeederHandler(), controller);
+        listener.setCacheUpdateMode(DefaultContentModificationListener.CacheUpdateMode.EVENTUAL_CONSISTENCY.name());
+        listener.destroy();
+        InsertFeatureOfInterestRequest request = new InsertFeatureOfInterestRequest()
+                .addFeatureMember(new SamplingFeature(new CodeWithAuthority("destroyed")));
+        listener.handle(new FeatureInsertion(request, new InsertFeatureOfInterestResponse()));
+        // no queue is created, the update is visible as soon as the event is handled
+        MatcherAssert.assertThat(((SosContentCache) controller.getCache()).hasFeatureOfInterest("destroyed"),
+                Matchers.is(true));
+    }
+
+    private static SosContentCacheControllerImpl createController() throws OwsExceptionReport {
+        return createController(new AtomicInteger());
+    }
+
+    private static SosContentCacheControllerImpl createController(AtomicInteger publications)
+            throws OwsExceptionReport {
+        CompleteCacheUpdateFactoryImpl cacheUpdateFactory = new CompleteCacheUpdateFactoryImpl();
+        cacheUpdateFactory.setCacheFeederHandler(new NoOpCacheFeederHandler());
+        SosContentCacheControllerImpl controller = new SosContentCacheControllerImpl() {
+            @Override
+            protected void setCache(WritableContentCache wcc) {
+                publications.incrementAndGet();
+                super.setCache(wcc);
+            }
+        };
+        controller.setCacheFactory(InMemoryCacheImpl::new);
+        controller.setPersistenceStrategy(new NoOpCachePersistenceStrategy());
+        controller.setCompleteCacheUpdateFactory(cacheUpdateFactory);
+        controller.setUpdateInterval(0);
+        controller.init();
+        controller.update(new SosContentCacheUpdate() {
+            @Override
+            public void execute() {
+                for (int i = 0; i < FEATURES; i++) {
+                    getCache().addFeatureOfInterest("feature-" + i);
+                    getCache().addFeatureOfInterestForOffering(OFFERING, "feature-" + i);
+                }
+            }
+        });
+        publications.set(0);
+        return controller;
+    }
+
+    private static class AddFeatureUpdate extends SosContentCacheUpdate {
+        private final String feature;
+
+        AddFeatureUpdate(String feature) {
+            this.feature = feature;
+        }
+
+        @Override
+        public void execute() {
+            getCache().addFeatureOfInterest(feature);
+            getCache().addFeatureOfInterestForOffering(OFFERING, feature);
+        }
+    }
+
+    private static class BlockingUpdate extends SosContentCacheUpdate {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public void execute() {
+            started.countDown();
+            try {
+                if (!released.await(TIMEOUT, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("not released");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void awaitStarted() throws InterruptedException {
+            MatcherAssert.assertThat(started.await(TIMEOUT, TimeUnit.SECONDS), Matchers.is(true));
+        }
+
+        void release() {
+            released.countDown();
+        }
+    }
+
+    private static class FailingUpdate extends AddFeatureUpdate {
+        FailingUpdate(String feature) {
+            super(feature);
+        }
+
+        @Override
+        public void execute() {
+            super.execute();
+            throw new IllegalStateException("failed after writing to the cache");
+        }
+    }
+
+}
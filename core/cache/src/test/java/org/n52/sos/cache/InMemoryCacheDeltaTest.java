@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InMemoryCacheDeltaTest {
+    private static final String OFFERING = "offering";
+    private static final String PROCEDURE = "procedure";
+    private static final int PROCEDURES = 10000;
+
+    private InMemoryCacheImpl snapshot;
+
+    @Before
+    public void init() {
+        snapshot = new InMemoryCacheImpl();
+        snapshot.addOffering(OFFERING);
+        for (int i = 0; i < PROCEDURES; i++) {
+            snapshot.addProcedure(PROCEDURE + i);
+            snapshot.addProcedureForOffering(OFFERING, PROCEDURE + i);
+        }
+        snapshot.setMaxPhenomenonTimeForOffering(OFFERING, new DateTime(0));
+        snapshot.freeze();
+    }
+
+    @Test
+    public void should_be_empty_for_updates_without_changes() {
+        InMemoryCacheImpl current = snapshot.copy();
+        current.addProcedure(PROCEDURE + 0);
+        current.addProcedureForOffering(OFFERING, PROCEDURE + 1);
+        current.setMaxPhenomenonTimeForOffering(OFFERING, new DateTime(0));
+        current.freeze();
+
+        assertThat(InMemoryCacheDelta.between(snapshot, current).get().isEmpty(), is(true));
+    }
+
+    @Test
+    public void should_record_only_changed_elements_of_sets() throws IOException {
+        InMemoryCacheImpl current = snapshot.copy();
+        current.addProcedure(PROCEDURE);
+        current.addProcedureForOffering(OFFERING, PROCEDURE);
+        current.removeProcedureForOffering(OFFERING, PROCEDURE + 0);
+        current.freeze();
+
+        InMemoryCacheDelta delta = InMemoryCacheDelta.between(snapshot, current).get();
+
+        // the offering references 10000 procedures, the delta only the two changed ones
+        assertThat(serialize(delta).length, is(lessThan(2048)));
+        assertApplies(delta, current);
+    }
+
+    @Test
+    public void should_record_changed_values_and_removed_keys() {
+        InMemoryCacheImpl current = snapshot.copy();
+        current.setMaxPhenomenonTimeForOffering(OFFERING, new DateTime(1));
+        current.setDefaultEPSGCode(31466);
+        current.removeProceduresForOffering(OFFERING);
+        current.freeze();
+
+        InMemoryCacheDelta delta = InMemoryCacheDelta.between(snapshot, current).get();
+
+        assertThat(delta.isEmpty(), is(false));
+        assertApplies(delta, current);
+    }
+
+    private void assertApplies(InMemoryCacheDelta delta, InMemoryCacheImpl expected) {
+        InMemoryCacheImpl cache = snapshot.copy();
+        delta.applyTo(cache);
+        // applying a delta twice has no further effect
+        delta.applyTo(cache);
+        cache.freeze();
+        assertThat(cache, is(expected));
+    }
+
+    private static byte[] serialize(InMemoryCacheDelta delta) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(delta);
+        }
+        return bytes.toByteArray();
+    }
+
+}
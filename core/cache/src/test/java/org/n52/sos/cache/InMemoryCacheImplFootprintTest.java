@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Checks the structures that keep the heap footprint of a frozen cache small:
+ * nested sets are interned, identifiers are shared and sets of a snapshot are
+ * reused by the next snapshot. The retained heap of a large synthetic cache is
+ * measured as the used heap after garbage collection.
+ */
+public class InMemoryCacheImplFootprintTest {
+    private static final int FEATURES = 20000;
+    private static final int OFFERINGS = 200;
+    private static final int FEATURES_PER_OFFERING = 2000;
+    private static final String FEATURE = "http://www.52north.org/test/featureOfInterest/new";
+
+    @Test
+    public void should_intern_sets_when_frozen() {
+        String[] features = createFeatures();
+        InMemoryCacheImpl cache = createSyntheticCache(features);
+        cache.freeze();
+
+        Set<String> featuresOfInterest = cache.getFeaturesOfInterestForOffering("offering-0");
+        MatcherAssert.assertThat(featuresOfInterest, Matchers.instanceOf(InternedIdentifierSet.class));
+        MatcherAssert.assertThat(featuresOfInterest.size(), Matchers.is(FEATURES_PER_OFFERING));
+        MatcherAssert.assertThat(featuresOfInterest.contains(features[0]), Matchers.is(true));
+        MatcherAssert.assertThat(featuresOfInterest.contains(features[FEATURES_PER_OFFERING]), Matchers.is(false));
+    }
+
+    @Test
+    public void should_retain_less_memory_when_frozen() {
+        String[] features = createFeatures();
+        long empty = retainedHeap();
+        InMemoryCacheImpl cache = createSyntheticCache(features);
+        long writable = retainedHeap() - empty;
+        cache.freeze();
+        long frozen = retainedHeap() - empty;
+
+        // the identifiers are referenced by features in both measurements, only the sets differ
+        MatcherAssert.assertThat(cache.getFeaturesOfInterestForOffering("offering-0").contains(features[0]),
+                Matchers.is(true));
+        MatcherAssert.assertThat(frozen, Matchers.lessThan(writable / 2));
+    }
+
+    @Test
+    public void should_share_identifiers_when_frozen() {
+        InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        cache.addFeatureOfInterestForOffering("offering-0", new String(FEATURE));
+        cache.addFeatureOfInterestForOffering("offering-1", new String(FEATURE));
+        cache.freeze();
+
+        String first = cache.getFeaturesOfInterestForOffering("offering-0").iterator().next();
+        String second = cache.getFeaturesOfInterestForOffering("offering-1").iterator().next();
+        MatcherAssert.assertThat(second, Matchers.sameInstance(first));
+    }
+
+    @Test
+    public void should_reuse_frozen_sets_when_refrozen() {
+        String[] features = createFeatures();
+        InMemoryCacheImpl cache = createSyntheticCache(features);
+        cache.freeze();
+
+        InMemoryCacheImpl copy = cache.copy();
+        // already contained, must not copy the set
+        copy.addFeatureOfInterestForOffering("offering-0", features[0]);
+        copy.addFeatureOfInterestForOffering("offering-1", FEATURE);
+        copy.freeze();
+
+        MatcherAssert.assertThat(copy.getFeaturesOfInterestForOffering("offering-0"),
+                Matchers.sameInstance(cache.getFeaturesOfInterestForOffering("offering-0")));
+        MatcherAssert.assertThat(copy.getFeaturesOfInterestForOffering("offering-2"),
+                Matchers.sameInstance(cache.getFeaturesOfInterestForOffering("offering-2")));
+        MatcherAssert.assertThat(copy.getFeaturesOfInterestForOffering("offering-1"),
+                Matchers.not(Matchers.sameInstance(cache.getFeaturesOfInterestForOffering("offering-1"))));
+        MatcherAssert.assertThat(copy.getFeaturesOfInterestForOffering("offering-1").size(),
+                Matchers.is(FEATURES_PER_OFFERING + 1));
+    }
+
+    @Test
+    public void should_keep_set_semantics_when_frozen() {
+        InMemoryCacheImpl writable = createSyntheticCache(Arrays.copyOf(createFeatures(), FEATURES_PER_OFFERING));
+        InMemoryCacheImpl frozen = writable.copy();
+        frozen.freeze();
+        MatcherAssert.assertThat(frozen, Matchers.is(writable));
+        MatcherAssert.assertThat(frozen.hashCode(), Matchers.is(writable.hashCode()));
+    }
+
+    private static long retainedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        // repeat until a collection does not free anything anymore
+        for (int i = 0; i < 10; i++) {
+            memory.gc();
+            long current = memory.getHeapMemoryUsage().getUsed();
+            if (current >= used) {
+                return current;
+            }
+            used = current;
+        }
+        return used;
+    }
+
+    private static String[] createFeatures() {
+        String[] features = new String[FEATURES];
+        for (int i = 0; i < FEATURES; i++) {
+            features[i] = "http://www.52north.org/test/featureOfInterest/" + i;
+        }
+        return features;
+    }
+
+    private static InMemoryCacheImpl createSyntheticCache(String[] features) {
+        InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        for (int i = 0; i < OFFERINGS; i++) {
+            String offering = "offering-" + i;
+            for (int j = 0; j < FEATURES_PER_OFFERING; j++) {
+                cache.addFeatureOfInterestForOffering(offering, features[(i * 97 + j) % features.length]);
+            }
+        }
+        return cache;
+    }
+
+}
@@ -34,11 +34,14 @@ import org.hamcrest.MatcherAssert;
 import org.hamcrest.core.Is;
 import org.hamcrest.core.IsNot;
 import org.hamcrest.core.IsNull;
+import org.hamcrest.core.IsSame;
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
 import org.n52.iceland.coding.SupportedTypeRepository;
 import org.n52.shetland.util.ReferencedEnvelope;
 import org.n52.svalbard.decode.DecoderRepository;
@@ -136,6 +139,93 @@ public class InMemoryCacheImplTest {
         Assert.assertFalse(json.isEmpty());
     }
 
+    @Test
+    public void should_not_modify_frozen_snapshot_when_copy_is_modified() {
+        instance.addProcedureForOffering(OFFERING_IDENTIFIER, "p_1");
+        instance.freeze();
+
+        InMemoryCacheImpl copy = instance.copy();
+        copy.addProcedureForOffering(OFFERING_IDENTIFIER, "p_2");
+        copy.removeProcedureForOffering(OFFERING_IDENTIFIER, "p_1");
+
+        MatcherAssert.assertThat(instance.getProceduresForOffering(OFFERING_IDENTIFIER),
+                Is.is(Collections.singleton("p_1")));
+        MatcherAssert.assertThat(copy.getProceduresForOffering(OFFERING_IDENTIFIER),
+                Is.is(Collections.singleton("p_2")));
+        Assert.assertTrue(instance.isFrozen());
+        Assert.assertFalse(copy.isFrozen());
+    }
+
+    @Test
+    public void should_share_sets_of_frozen_snapshot() {
+        InMemoryCacheImpl cache = new InMemoryCacheImpl();
+        cache.addFeatureOfInterestForOffering(OFFERING_IDENTIFIER, FEATURE_IDENTIFIER);
+        cache.freeze();
+
+        MatcherAssert.assertThat(cache.getFeaturesOfInterestForOffering(OFFERING_IDENTIFIER),
+                Is.is(IsSame.sameInstance(cache.getFeaturesOfInterestForOffering(OFFERING_IDENTIFIER))));
+        MatcherAssert.assertThat(cache.copy(), Is.is(cache));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void should_reject_modifications_of_frozen_snapshot() {
+        instance.freeze();
+        instance.addProcedureForOffering(OFFERING_IDENTIFIER, "p_1");
+    }
+
+    @Test
+    public void should_share_untouched_collections_between_snapshots() {
+        instance.addProcedureForOffering(OFFERING_IDENTIFIER, "p_1");
+        instance.addFeatureOfInterestForOffering(OFFERING_IDENTIFIER, FEATURE_IDENTIFIER);
+        instance.addFeatureOfInterest(FEATURE_IDENTIFIER);
+        instance.freeze();
+
+        InMemoryCacheImpl copy = instance.copy();
+        copy.addProcedure("p_2");
+        copy.freeze();
+
+        MatcherAssert.assertThat(copy.getFeaturesOfInterest(),
+                Is.is(IsSame.sameInstance(instance.getFeaturesOfInterest())));
+        MatcherAssert.assertThat(copy.getFeaturesOfInterestForOffering(OFFERING_IDENTIFIER),
+                Is.is(IsSame.sameInstance(instance.getFeaturesOfInterestForOffering(OFFERING_IDENTIFIER))));
+        MatcherAssert.assertThat(copy.getProcedures(), Is.is(Collections.singleton("p_2")));
+        MatcherAssert.assertThat(instance.getProcedures(), Is.is(Collections.emptySet()));
+    }
+
+    @Test
+    public void should_not_modify_envelopes_of_frozen_snapshot_when_copy_is_modified() {
+        DateTime time = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+        instance.updateGlobalEnvelope(new Envelope(0, 1, 0, 1));
+        instance.setMaxPhenomenonTime(time);
+        instance.freeze();
+
+        InMemoryCacheImpl copy = instance.copy();
+        copy.updateGlobalEnvelope(new Envelope(5, 6, 5, 6));
+        copy.setMaxPhenomenonTime(time.plusDays(1));
+
+        MatcherAssert.assertThat(instance.getGlobalEnvelope().getEnvelope(), Is.is(new Envelope(0, 1, 0, 1)));
+        MatcherAssert.assertThat(instance.getMaxPhenomenonTime(), Is.is(time));
+        MatcherAssert.assertThat(copy.getGlobalEnvelope().getEnvelope(), Is.is(new Envelope(0, 6, 0, 6)));
+    }
+
+    @Test
+    public void should_remove_human_readable_name_from_copy_only() {
+        instance.addProcedureIdentifierHumanReadableName("p_1", "name");
+        instance.freeze();
+
+        InMemoryCacheImpl copy = instance.copy();
+        copy.removeProcedureIdentifierForHumanReadableName("name");
+
+        MatcherAssert.assertThat(instance.getProcedureIdentifierForHumanReadableName("name"), Is.is("p_1"));
+        MatcherAssert.assertThat(copy.getProcedureIdentifierForHumanReadableName("name"), Is.is("name"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void should_reject_update_time_of_frozen_snapshot() {
+        instance.freeze();
+        instance.setLastUpdateTime(DateTime.now());
+    }
+
     @Test
     public void should_return_true_if_min_resulttime_for_offering_is_available() {
         final InMemoryCacheImpl cache = new InMemoryCacheImpl();
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.n52.iceland.cache.ContentCache;
+import org.n52.iceland.cache.ContentCachePersistenceStrategy;
+import org.n52.iceland.cache.ctrl.persistence.NoOpCachePersistenceStrategy;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.cache.ctrl.CompleteCacheUpdateFactoryImpl;
+import org.n52.sos.cache.ctrl.SosContentCacheControllerImpl;
+
+/**
+ * Tests that a partial update which copied the published snapshot before a
+ * complete update was published does not replace the complete update, and
+ * that partial updates running concurrently to a complete update are
+ * persisted.
+ */
+public class PartialAndCompleteUpdateTest {
+    private static final long TIMEOUT = 30;
+
+    @Test
+    public void should_not_replace_complete_update_with_older_partial_update() throws Exception {
+        SosContentCacheControllerImpl controller = createController();
+        BlockingPartialUpdate partial = new BlockingPartialUpdate("partial");
+        RebuildingCompleteUpdate complete = new RebuildingCompleteUpdate("complete");
+
+        CompletableFuture<Void> partialUpdate = CompletableFuture.runAsync(() -> update(controller, partial));
+        partial.awaitStarted();
+        CompletableFuture<Void> completeUpdate = CompletableFuture.runAsync(() -> update(controller, complete));
+        complete.awaitBuilt();
+        // give the complete update the chance to publish before the partial update
+        Thread.sleep(100);
+        partial.release();
+        CompletableFuture.allOf(partialUpdate, completeUpdate).get(TIMEOUT, TimeUnit.SECONDS);
+
+        SosContentCache cache = (SosContentCache) controller.getCache();
+        MatcherAssert.assertThat(cache.hasFeatureOfInterest("complete"), Matchers.is(true));
+        MatcherAssert.assertThat(cache.hasFeatureOfInterest("partial"), Matchers.is(true));
+    }
+
+    @Test
+    public void should_persist_partial_update_after_complete_update_was_published() throws Exception {
+        RecordingPersistenceStrategy persistence = new RecordingPersistenceStrategy();
+        SosContentCacheControllerImpl controller = createController(persistence);
+        AddingPartialUpdate partial = new AddingPartialUpdate("partial");
+        CompletableFuture<Void> partialUpdate = new CompletableFuture<>();
+        // the partial update is published while the complete update is persisted
+        persistence.onCompleteUpdate = () -> {
+            partialUpdate.completeAsync(() -> {
+                update(controller, partial);
+                return null;
+            });
+            partial.awaitExecuted();
+        };
+
+        update(controller, new RebuildingCompleteUpdate("complete"));
+        partialUpdate.get(TIMEOUT, TimeUnit.SECONDS);
+
+        MatcherAssert.assertThat(persistence.hasPersistedPartialUpdateWith("partial"), Matchers.is(true));
+        SosContentCache cache = (SosContentCache) controller.getCache();
+        MatcherAssert.assertThat(cache.hasFeatureOfInterest("complete"), Matchers.is(true));
+        MatcherAssert.assertThat(cache.hasFeatureOfInterest("partial"), Matchers.is(true));
+    }
+
+    @Test
+    public void should_persist_partial_update_queued_for_failed_complete_update() throws Exception {
+        RecordingPersistenceStrategy persistence = new RecordingPersistenceStrategy();
+        SosContentCacheControllerImpl controller = createController(persistence);
+        FailingCompleteUpdate complete = new FailingCompleteUpdate();
+
+        CompletableFuture<Void> completeUpdate = CompletableFuture.runAsync(() -> update(controller, complete));
+        complete.awaitStarted();
+        // queued for the running complete update
+        update(controller, new AddingPartialUpdate("partial"));
+        MatcherAssert.assertThat(persistence.hasPersistedPartialUpdateWith("partial"), Matchers.is(false));
+        complete.release();
+        try {
+            completeUpdate.get(TIMEOUT, TimeUnit.SECONDS);
+            MatcherAssert.assertThat("complete update did not fail", false);
+        } catch (ExecutionException e) {
+            MatcherAssert.assertThat(e.getCause(), Matchers.instanceOf(IllegalStateException.class));
+        }
+
+        MatcherAssert.assertThat(persistence.hasPersistedPartialUpdateWith("partial"), Matchers.is(true));
+        SosContentCache cache = (SosContentCache) controller.getCache();
+        MatcherAssert.assertThat(cache.hasFeatureOfInterest("partial"), Matchers.is(true));
+    }
+
+    private static void update(SosContentCacheControllerImpl controller, SosContentCacheUpdate update) {
+        try {
+            controller.update(update);
+        } catch (OwsExceptionReport e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static SosContentCacheControllerImpl createController() throws OwsExceptionReport {
+        return createController(new NoOpCachePersistenceStrategy());
+    }
+
+    private static SosContentCacheControllerImpl createController(ContentCachePersistenceStrategy persistence)
+            throws OwsExceptionReport {
+        CompleteCacheUpdateFactoryImpl cacheUpdateFactory = new CompleteCacheUpdateFactoryImpl();
+        cacheUpdateFactory.setCacheFeederHandler(new NoOpCacheFeederHandler());
+        SosContentCacheControllerImpl controller = new SosContentCacheControllerImpl();
+        controller.setCacheFactory(InMemoryCacheImpl::new);
+        controller.setPersistenceStrategy(persistence);
+        controller.setCompleteCacheUpdateFactory(cacheUpdateFactory);
+        controller.setUpdateInterval(0);
+        controller.init();
+        return controller;
+    }
+
+    private static class BlockingPartialUpdate extends SosContentCacheUpdate {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final String feature;
+
+        BlockingPartialUpdate(String feature) {
+            this.feature = feature;
+        }
+
+        @Override
+        public void execute() {
+            getCache().addFeatureOfInterest(feature);
+            started.countDown();
+            try {
+                if (!released.await(TIMEOUT, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("not released");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void awaitStarted() throws InterruptedException {
+            MatcherAssert.assertThat(started.await(TIMEOUT, TimeUnit.SECONDS), Matchers.is(true));
+        }
+
+        void release() {
+            released.countDown();
+        }
+    }
+
+    private static class AddingPartialUpdate extends SosContentCacheUpdate {
+        private final CountDownLatch executed = new CountDownLatch(1);
+        private final String feature;
+
+        AddingPartialUpdate(String feature) {
+            this.feature = feature;
+        }
+
+        @Override
+        public void execute() {
+            getCache().addFeatureOfInterest(feature);
+            executed.countDown();
+        }
+
+        void awaitExecuted() {
+            try {
+                MatcherAssert.assertThat(executed.await(TIMEOUT, TimeUnit.SECONDS), Matchers.is(true));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class FailingCompleteUpdate extends SosContentCacheUpdate {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public void execute() {
+            started.countDown();
+            try {
+                if (!released.await(TIMEOUT, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("not released");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            fail(new NoApplicableCodeException().withMessage("failed"));
+        }
+
+        @Override
+        public boolean isCompleteUpdate() {
+            return true;
+        }
+
+        void awaitStarted() throws InterruptedException {
+            MatcherAssert.assertThat(started.await(TIMEOUT, TimeUnit.SECONDS), Matchers.is(true));
+        }
+
+        void release() {
+            released.countDown();
+        }
+    }
+
+    private static class RecordingPersistenceStrategy extends NoOpCachePersistenceStrategy {
+        private final List<ContentCache> partialUpdates = new CopyOnWriteArrayList<>();
+        private volatile Runnable onCompleteUpdate;
+
+        @Override
+        public void persistOnPartialUpdate(ContentCache cache) {
+            partialUpdates.add(cache);
+        }
+
+        @Override
+        public void persistOnCompleteUpdate(ContentCache cache) {
+            Runnable action = onCompleteUpdate;
+            if (action != null) {
+                onCompleteUpdate = null;
+                action.run();
+            }
+        }
+
+        boolean hasPersistedPartialUpdateWith(String feature) {
+            return partialUpdates.stream().anyMatch(c -> ((SosContentCache) c).hasFeatureOfInterest(feature));
+        }
+    }
+
+    private static class RebuildingCompleteUpdate extends SosContentCacheUpdate {
+        private final CountDownLatch built = new CountDownLatch(1);
+        private final String feature;
+
+        RebuildingCompleteUpdate(String feature) {
+            this.feature = feature;
+        }
+
+        @Override
+        public void execute() {
+            InMemoryCacheImpl cache = new InMemoryCacheImpl();
+            cache.addFeatureOfInterest(feature);
+            setCache(cache);
+            built.countDown();
+        }
+
+        @Override
+        public boolean isCompleteUpdate() {
+            return true;
+        }
+
+        void awaitBuilt() throws InterruptedException {
+            MatcherAssert.assertThat(built.await(TIMEOUT, TimeUnit.SECONDS), Matchers.is(true));
+        }
+    }
+
+}
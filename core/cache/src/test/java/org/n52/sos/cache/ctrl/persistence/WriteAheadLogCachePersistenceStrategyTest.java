@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.cache.ctrl.persistence;
+
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.n52.iceland.cache.WritableContentCache;
+import org.n52.sos.cache.InMemoryCacheImpl;
+
+public class WriteAheadLogCachePersistenceStrategyTest {
+    private static final String OFFERING = "offering";
+    private static final String PROCEDURE = "procedure";
+    private static final String OTHER_PROCEDURE = "otherProcedure";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private WriteAheadLogCachePersistenceStrategy strategy;
+
+    @Before
+    public void init() {
+        strategy = createStrategy();
+    }
+
+    @Test
+    public void should_replay_log_on_load() {
+        InMemoryCacheImpl snapshot = new InMemoryCacheImpl();
+        snapshot.addProcedureForOffering(OFFERING, PROCEDURE);
+        snapshot.freeze();
+        strategy.persistOnCompleteUpdate(snapshot);
+
+        InMemoryCacheImpl first = partialUpdate(snapshot, OTHER_PROCEDURE);
+        InMemoryCacheImpl second = first.copy();
+        second.removeProcedureForOffering(OFFERING, PROCEDURE);
+        second.addOffering(OFFERING);
+        second.freeze();
+        strategy.persistOnPartialUpdate(first, second);
+
+        MatcherAssert.assertThat(Files.exists(strategy.getLogFile()), Matchers.is(true));
+        Optional<WritableContentCache> loaded = createStrategy().load();
+        MatcherAssert.assertThat(loaded.isPresent(), Matchers.is(true));
+        MatcherAssert.assertThat(loaded.get(), Matchers.is(second));
+    }
+
+    @Test
+    public void should_compact_log_on_complete_update() {
+        InMemoryCacheImpl snapshot = new InMemoryCacheImpl();
+        snapshot.freeze();
+        strategy.persistOnCompleteUpdate(snapshot);
+        InMemoryCacheImpl updated = partialUpdate(snapshot, PROCEDURE);
+
+        strategy.persistOnCompleteUpdate(updated);
+
+        MatcherAssert.assertThat(Files.exists(strategy.getLogFile()), Matchers.is(false));
+        MatcherAssert.assertThat(createStrategy().load().get(), Matchers.is(updated));
+    }
+
+    @Test
+    public void should_compact_log_when_threshold_is_reached() throws Exception {
+        strategy.setCompactionThreshold(2);
+        InMemoryCacheImpl snapshot = new InMemoryCacheImpl();
+        snapshot.freeze();
+        strategy.persistOnCompleteUpdate(snapshot);
+
+        InMemoryCacheImpl first = partialUpdate(snapshot, PROCEDURE);
+        strategy.awaitCompaction();
+        MatcherAssert.assertThat(Files.exists(strategy.getLogFile()), Matchers.is(true));
+        InMemoryCacheImpl second = partialUpdate(first, OTHER_PROCEDURE);
+        strategy.awaitCompaction();
+
+        MatcherAssert.assertThat(Files.exists(strategy.getLogFile()), Matchers.is(false));
+        MatcherAssert.assertThat(createStrategy().load().get(), Matchers.is(second));
+    }
+
+    @Test
+    public void should_truncate_log_at_incomplete_record() throws Exception {
+        InMemoryCacheImpl snapshot = new InMemoryCacheImpl();
+        snapshot.freeze();
+        strategy.persistOnCompleteUpdate(snapshot);
+        InMemoryCacheImpl first = partialUpdate(snapshot, PROCEDURE);
+        long size = Files.size(strategy.getLogFile());
+        // a record that was only partially written
+        Files.write(strategy.getLogFile(), new byte[] { 0, 0, 1, 0, 42 }, StandardOpenOption.APPEND);
+
+        WriteAheadLogCachePersistenceStrategy restarted = createStrategy();
+        MatcherAssert.assertThat(restarted.load().get(), Matchers.is(first));
+        MatcherAssert.assertThat(Files.size(strategy.getLogFile()), Matchers.is(size));
+
+        InMemoryCacheImpl second = partialUpdate(restarted, first, OTHER_PROCEDURE);
+        MatcherAssert.assertThat(createStrategy().load().get(), Matchers.is(second));
+    }
+
+    @Test
+    public void should_truncate_log_at_corrupt_record() throws Exception {
+        InMemoryCacheImpl snapshot = new InMemoryCacheImpl();
+        snapshot.freeze();
+        strategy.persistOnCompleteUpdate(snapshot);
+        InMemoryCacheImpl first = partialUpdate(snapshot, PROCEDURE);
+        long size = Files.size(strategy.getLogFile());
+        partialUpdate(first, OTHER_PROCEDURE);
+        byte[] log = Files.readAllBytes(strategy.getLogFile());
+        log[log.length - 1] ^= 1;
+        Files.write(strategy.getLogFile(), log);
+
+        MatcherAssert.assertThat(createStrategy().load().get(), Matchers.is(first));
+        MatcherAssert.assertThat(Files.size(strategy.getLogFile()), Matchers.is(size));
+    }
+
+    @Test
+    public void should_compact_if_no_delta_was_recorded() throws Exception {
+        InMemoryCacheImpl snapshot = new InMemoryCacheImpl();
+        snapshot.freeze();
+        strategy.persistOnCompleteUpdate(snapshot);
+        InMemoryCacheImpl unrelated = new InMemoryCacheImpl();
+        unrelated.addProcedure(PROCEDURE);
+        unrelated.freeze();
+
+        strategy.persistOnPartialUpdate(snapshot, unrelated);
+        strategy.awaitCompaction();
+
+        MatcherAssert.assertThat(Files.exists(strategy.getLogFile()), Matchers.is(false));
+        MatcherAssert.assertThat(createStrategy().load().get(), Matchers.is(unrelated));
+    }
+
+    @Test
+    public void should_keep_log_if_snapshot_could_not_be_written() throws Exception {
+        InMemoryCacheImpl snapshot = new InMemoryCacheImpl();
+        snapshot.freeze();
+        strategy.persistOnCompleteUpdate(snapshot);
+        InMemoryCacheImpl first = partialUpdate(snapshot, PROCEDURE);
+        // a non empty directory can neither be written nor deleted
+        Files.createDirectories(strategy.getSnapshotFile().resolve("blocked"));
+
+        strategy.persistOnCompleteUpdate(first);
+
+        MatcherAssert.assertThat(createStrategy().load().get(), Matchers.is(first));
+        InMemoryCacheImpl second = partialUpdate(first, OTHER_PROCEDURE);
+        MatcherAssert.assertThat(createStrategy().load().get(), Matchers.is(second));
+
+        Files.delete(strategy.getSnapshotFile().resolve("blocked"));
+        Files.delete(strategy.getSnapshotFile());
+        strategy.persistOnCompleteUpdate(second);
+
+        MatcherAssert.assertThat(Files.exists(strategy.getLogFile()), Matchers.is(false));
+        MatcherAssert.assertThat(Files.exists(strategy.getSnapshotFile()), Matchers.is(false));
+        MatcherAssert.assertThat(createStrategy().load().get(), Matchers.is(second));
+    }
+
+    private InMemoryCacheImpl partialUpdate(InMemoryCacheImpl previous, String procedure) {
+        return partialUpdate(strategy, previous, procedure);
+    }
+
+    private static InMemoryCacheImpl partialUpdate(WriteAheadLogCachePersistenceStrategy strategy,
+            InMemoryCacheImpl previous, String procedure) {
+        InMemoryCacheImpl current = previous.copy();
+        current.addProcedure(procedure);
+        current.addProcedureForOffering(OFFERING, procedure);
+        current.freeze();
+        strategy.persistOnPartialUpdate(previous, current);
+        return current;
+    }
+
+    private WriteAheadLogCachePersistenceStrategy createStrategy() {
+        WriteAheadLogCachePersistenceStrategy s = new WriteAheadLogCachePersistenceStrategy();
+        s.setCacheFileFolder(folder.getRoot().toPath());
+        s.init();
+        return s;
+    }
+
+}
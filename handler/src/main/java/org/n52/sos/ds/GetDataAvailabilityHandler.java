@@ -27,6 +27,7 @@
  */
 package org.n52.sos.ds;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -36,6 +37,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 
 import javax.inject.Inject;
 
@@ -133,15 +135,17 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
         try {
             GDARequestContext context = new GDARequestContext(request);
             boolean gdaV20 = checkForGDAv20(request);
+            Map<String, OfferingEntity> offerings = new HashMap<>();
             for (final DatasetEntity entity : new DatasetDao<>(session).getAllInstances(createDbQuery(request))) {
                 if (gdaV20) {
                     processDataAvailabilityV2(entity, context, session);
+                    addOfferingAndParents(entity.getOffering(), offerings);
                 } else {
                     processDataAvailability(entity, context, session);
                 }
             }
-            if (!gdaV20) {
-                return checkForDuplictation(context.getDataAvailabilityList());
+            if (gdaV20) {
+                checkForParentOfferings(context, offerings);
             }
             return context.getDataAvailabilityList();
         } finally {
@@ -149,27 +153,30 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
         }
     }
 
-    private DataAvailability defaultProcessDataAvailability(DatasetEntity entity, GDARequestContext context,
-            Session session) throws OwsExceptionReport {
+    private DataAvailability createDataAvailability(DatasetEntity entity, GDARequestContext context) {
         TimePeriod timePeriod = createTimePeriod(entity);
         if (timePeriod != null && !timePeriod.isEmpty()) {
-            DataAvailability dataAvailability = new DataAvailability(getProcedureReference(entity, context),
+            return new DataAvailability(getProcedureReference(entity, context),
                     getObservedPropertyReference(entity, context), getFeatureOfInterestReference(entity, context),
                     getOfferingReference(entity, context), timePeriod);
-            if (isShowCount(context.getRequest()) && entity.getObservationCount() >= 0) {
-                dataAvailability.setCount(entity.getObservationCount());
-            }
-            if (isIncludeResultTime(context.getRequest()) && dao.isPresent()) {
-                dataAvailability.setResultTimes(dao.get()
-                        .getResultTimes(dataAvailability, context.getRequest(), session));
-            }
-            return dataAvailability;
         }
         return null;
     }
 
+    private void addCountAndResultTimes(DataAvailability dataAvailability, DatasetEntity entity,
+            GDARequestContext context, Session session) throws OwsExceptionReport {
+        if (isShowCount(context.getRequest()) && entity.getObservationCount() >= 0) {
+            dataAvailability.setCount(entity.getObservationCount());
+        }
+        if (isIncludeResultTime(context.getRequest()) && dao.isPresent()) {
+            dataAvailability.setResultTimes(dao.get()
+                    .getResultTimes(dataAvailability, context.getRequest(), session));
+        }
+    }
+
     /**
-     * Get {@link DataAvailability}s for each series
+     * Get {@link DataAvailability}s for each series, the phenomenon time of
+     * duplicated {@link DataAvailability}s is merged
      *
      * @param entity
      *            the {@link DatasetEntity} to get {@link DataAvailability}s for
@@ -182,9 +189,9 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
      */
     private void processDataAvailability(DatasetEntity entity, GDARequestContext context, Session session)
             throws OwsExceptionReport {
-        DataAvailability dataAvailability = defaultProcessDataAvailability(entity, context, session);
-        if (dataAvailability != null) {
-            context.addDataAvailability(dataAvailability);
+        DataAvailability dataAvailability = createDataAvailability(entity, context);
+        if (dataAvailability != null && context.mergeDataAvailability(dataAvailability)) {
+            addCountAndResultTimes(dataAvailability, entity, context, session);
         }
     }
 
@@ -200,8 +207,9 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
      */
     private void processDataAvailabilityV2(DatasetEntity entity, GDARequestContext context, Session session)
             throws OwsExceptionReport {
-        DataAvailability dataAvailability = defaultProcessDataAvailability(entity, context, session);
+        DataAvailability dataAvailability = createDataAvailability(entity, context);
         if (dataAvailability != null) {
+            addCountAndResultTimes(dataAvailability, entity, context, session);
             dataAvailability.setFormatDescriptor(getFormatDescriptor(context, entity));
             if (dao.isPresent()) {
                 dataAvailability.setMetadata(dao.get()
@@ -209,56 +217,55 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
             }
             context.addDataAvailability(dataAvailability);
         }
-        checkForParentOfferings(context, entity.getOffering());
     }
 
     private TimePeriod createTimePeriod(DatasetEntity entity) {
         return new TimePeriod(entity.getFirstValueAt(), entity.getLastValueAt());
     }
 
-    private void checkForParentOfferings(GDARequestContext context, OfferingEntity offeringEntity) {
-        if (context.isSetDataAvailabilityList()) {
-            List<String> requestedOfferings = context.getRequest().getOfferings();
-            for (String requestedOffering : requestedOfferings) {
-                Set<String> childOfferings = getChildOfferings(offeringEntity);
-                if (!childOfferings.isEmpty()) {
-                    if (context.hasDataAvailability(requestedOffering)) {
-                        Set<DataAvailability> parentDataAvailabilities =
-                                context.getDataAvailability(requestedOffering);
-                        for (String childOffering : childOfferings) {
-                            Set<DataAvailability> childDataAvailabilities = context.getDataAvailability(childOffering);
-                            for (DataAvailability childDataAvailability : childDataAvailabilities) {
-                                for (DataAvailability parentDataAvailability : parentDataAvailabilities) {
-                                    parentDataAvailability.merge(childDataAvailability, true);
-                                }
-                            }
-                        }
-                    } else {
-                        Set<DataAvailability> parentDataAvailabilities = Sets.newHashSet();
-                        for (String childOffering : childOfferings) {
-                            Set<DataAvailability> childDataAvailabilities = context.getDataAvailability(childOffering);
-                            for (DataAvailability childDataAvailability : childDataAvailabilities) {
-                                addParentDataAvailabilityIfMissing(parentDataAvailabilities, childDataAvailability,
-                                        new ReferenceType(requestedOffering));
-                                for (DataAvailability parentDataAvailability : parentDataAvailabilities) {
-                                    parentDataAvailability.merge(childDataAvailability, true);
-                                }
-                            }
-                        }
-                        context.addDataAvailabilities(parentDataAvailabilities);
+    private void addOfferingAndParents(OfferingEntity offering, Map<String, OfferingEntity> offerings) {
+        if (offerings.putIfAbsent(offering.getIdentifier(), offering) == null && offering.hasParents()) {
+            for (OfferingEntity parent : offering.getParents()) {
+                addOfferingAndParents(parent, offerings);
+            }
+        }
+    }
+
+    /**
+     * Merge the {@link DataAvailability}s of the child offerings into each
+     * requested offering. Called once after all datasets are processed so that
+     * every child is merged exactly once, regardless of the dataset order.
+     *
+     * @param context
+     *            Request context to get {@link DataAvailability}s
+     * @param offerings
+     *            the offerings of the processed datasets and their parents
+     */
+    private void checkForParentOfferings(GDARequestContext context, Map<String, OfferingEntity> offerings) {
+        if (context.isSetDataAvailabilityList() && context.getRequest().isSetOfferings()) {
+            for (String requestedOffering : context.getRequest().getOfferings()) {
+                OfferingEntity offering = offerings.get(requestedOffering);
+                if (offering != null) {
+                    Set<String> childOfferings = getChildOfferings(offering, context);
+                    if (!childOfferings.isEmpty()) {
+                        context.mergeChildOfferings(requestedOffering, childOfferings);
                     }
                 }
             }
         }
     }
 
-    private Set<String> getChildOfferings(OfferingEntity offering) {
-        Set<String> childs = Sets.newTreeSet();
-        if (offering.hasChildren()) {
-            for (OfferingEntity child : offering.getChildren()) {
-                childs.add(child.getIdentifier());
-                childs.addAll(getChildOfferings(child));
+    private Set<String> getChildOfferings(OfferingEntity offering, GDARequestContext context) {
+        Set<String> childs = context.getChildOfferings(offering.getIdentifier());
+        if (childs == null) {
+            childs = Sets.newTreeSet();
+            if (offering.hasChildren()) {
+                for (OfferingEntity child : offering.getChildren()) {
+                    childs.add(child.getIdentifier());
+                    childs.addAll(getChildOfferings(child, context));
+                }
             }
+            context.addChildOfferings(offering.getIdentifier(), childs);
         }
         return childs;
     }
@@ -269,27 +276,6 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
                 || GetDataAvailabilityConstants.NS_GDA_20.equals(request.getNamespace()) || isForceGDAv20Response();
     }
 
-    private List<DataAvailability> checkForDuplictation(List<DataAvailability> dataAvailabilityValues) {
-        List<DataAvailability> checked = Lists.newLinkedList();
-        for (DataAvailability dataAvailability : dataAvailabilityValues) {
-            if (checked.isEmpty()) {
-                checked.add(dataAvailability);
-            } else {
-                boolean notDuplicated = true;
-                for (DataAvailability checkedDA : checked) {
-                    if (dataAvailability.equals(checkedDA)) {
-                        checkedDA.getPhenomenonTime().extendToContain(dataAvailability.getPhenomenonTime());
-                        notDuplicated = false;
-                    }
-                }
-                if (notDuplicated) {
-                    checked.add(dataAvailability);
-                }
-            }
-        }
-        return checked;
-    }
-
     private ReferenceType getProcedureReference(DatasetEntity entity, GDARequestContext context) {
         String identifier = entity.getProcedure().getIdentifier();
         if (!context.hasProcedures(identifier)) {
@@ -410,8 +396,9 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
             observationTypes.add(getObservationType(entity));
         }
         for (String observationType : observationTypes) {
-            Set<String> responseFormats = getResponseFormatsForObservationType(observationType,
-                    context.getRequest().getService(), context.getRequest().getVersion());
+            Set<String> responseFormats = context.getResponseFormats(observationType,
+                    type -> getResponseFormatsForObservationType(type, context.getRequest().getService(),
+                            context.getRequest().getVersion()));
             for (String responseFormat : responseFormats) {
                 if (responsFormatObservationTypesMap.containsKey(responseFormat)) {
                     responsFormatObservationTypesMap.get(responseFormat).add(observationType);
@@ -427,20 +414,6 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
         return formatDescriptors;
     }
 
-    private boolean addParentDataAvailabilityIfMissing(Set<DataAvailability> parentDataAvailabilities,
-            DataAvailability childDataAvailability, ReferenceType offering) {
-        boolean notContained = true;
-        for (DataAvailability parentDataAvailability : parentDataAvailabilities) {
-            if (parentDataAvailability.sameConstellation(childDataAvailability)) {
-                notContained = false;
-            }
-        }
-        if (notContained) {
-            parentDataAvailabilities.add(childDataAvailability.copy());
-        }
-        return notContained;
-    }
-
     private DbQuery createDbQuery(GetDataAvailabilityRequest req) {
         Map<String, String> map = Maps.newHashMap();
         if (req.isSetFeaturesOfInterest()) {
@@ -469,6 +442,14 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
 
         private List<DataAvailability> dataAvailabilityValues = Lists.newArrayList();
 
+        private Map<String, List<DataAvailability>> dataAvailabilityValuesByOffering = new HashMap<>();
+
+        private Map<DataAvailability, DataAvailability> mergedDataAvailabilityValues = new HashMap<>();
+
+        private Map<String, Set<String>> childOfferings = new HashMap<>();
+
+        private Map<String, Set<String>> responseFormats = new HashMap<>();
+
         private Map<String, ReferenceType> procedures = new HashMap<>();
 
         private Map<String, ReferenceType> observableProperties = new HashMap<>();
@@ -551,48 +532,164 @@ public class GetDataAvailabilityHandler extends AbstractGetDataAvailabilityHandl
 
         public GDARequestContext setDataAvailabilityList(List<DataAvailability> dataAvailabilityValues) {
             this.dataAvailabilityValues.clear();
+            this.dataAvailabilityValuesByOffering.clear();
+            this.mergedDataAvailabilityValues.clear();
             return addDataAvailabilities(dataAvailabilityValues);
         }
 
         public GDARequestContext addDataAvailability(DataAvailability dataAvailability) {
             if (dataAvailability != null) {
                 this.dataAvailabilityValues.add(dataAvailability);
+                if (dataAvailability.isSetOffering()) {
+                    this.dataAvailabilityValuesByOffering
+                            .computeIfAbsent(dataAvailability.getOfferingString(), k -> Lists.newArrayList())
+                            .add(dataAvailability);
+                }
             }
             return this;
         }
 
         public GDARequestContext addDataAvailabilities(Collection<DataAvailability> dataAvailabilityValues) {
             if (dataAvailabilityValues != null) {
-                this.dataAvailabilityValues.addAll(dataAvailabilityValues);
+                dataAvailabilityValues.forEach(this::addDataAvailability);
             }
             return this;
         }
 
+        /**
+         * Add the {@link DataAvailability} or extend the phenomenon time of
+         * an already added equal {@link DataAvailability} (same procedure,
+         * observedProperty, featureOfInterest and offering) merged by this
+         * method.
+         *
+         * @param dataAvailability
+         *            the {@link DataAvailability} to merge
+         * @return <code>true</code>, if the {@link DataAvailability} was added
+         */
+        public boolean mergeDataAvailability(DataAvailability dataAvailability) {
+            DataAvailability merged = mergedDataAvailabilityValues.putIfAbsent(dataAvailability, dataAvailability);
+            if (merged != null) {
+                merged.getPhenomenonTime().extendToContain(dataAvailability.getPhenomenonTime());
+                return false;
+            }
+            addDataAvailability(dataAvailability);
+            return true;
+        }
+
+        /**
+         * Merge the {@link DataAvailability}s of the child offerings into the
+         * {@link DataAvailability}s of the requested (parent) offering with
+         * the same procedure, observedProperty and featureOfInterest. If
+         * there are no {@link DataAvailability}s for the requested offering,
+         * they are created from copies of the {@link DataAvailability}s of
+         * the child offerings.
+         *
+         * @param requestedOffering
+         *            the requested offering
+         * @param childOfferings
+         *            the child offerings of the requested offering
+         */
+        public void mergeChildOfferings(String requestedOffering, Set<String> childOfferings) {
+            if (hasDataAvailability(requestedOffering)) {
+                Map<List<String>, List<DataAvailability>> parentDataAvailabilities = new HashMap<>();
+                for (DataAvailability parent : getDataAvailability(requestedOffering)) {
+                    parentDataAvailabilities.computeIfAbsent(getConstellation(parent), k -> Lists.newArrayList())
+                            .add(parent);
+                }
+                for (String childOffering : childOfferings) {
+                    for (DataAvailability child : getDataAvailability(childOffering)) {
+                        for (DataAvailability parent : parentDataAvailabilities
+                                .getOrDefault(getConstellation(child), Collections.emptyList())) {
+                            merge(parent, child);
+                        }
+                    }
+                }
+            } else {
+                Set<DataAvailability> parentDataAvailabilities = Sets.newHashSet();
+                Map<List<String>, DataAvailability> parentsByConstellation = new HashMap<>();
+                for (String childOffering : childOfferings) {
+                    for (DataAvailability child : getDataAvailability(childOffering)) {
+                        DataAvailability parent = parentsByConstellation.get(getConstellation(child));
+                        if (parent == null) {
+                            parent = child.copy();
+                            parent.setOffering(hasOfferings(requestedOffering) ? getOffering(requestedOffering)
+                                    : new ReferenceType(requestedOffering));
+                            parentsByConstellation.put(getConstellation(child), parent);
+                            parentDataAvailabilities.add(parent);
+                        }
+                        merge(parent, child);
+                    }
+                }
+                addDataAvailabilities(parentDataAvailabilities);
+            }
+        }
+
+        /**
+         * The procedure, observedProperty and featureOfInterest identifiers of
+         * the {@link DataAvailability}. They are compared by value, as
+         * different constellations may have the same
+         * {@link DataAvailability#sameConstellationHashCode()}.
+         */
+        private List<String> getConstellation(DataAvailability dataAvailability) {
+            return Arrays.asList(dataAvailability.getProcedure().getHref(),
+                    dataAvailability.getObservedProperty().getHref(),
+                    dataAvailability.getFeatureOfInterest().getHref());
+        }
+
+        /**
+         * Extend the phenomenon time and the observation types of the parent
+         * with the child. The {@link ObservationFormatDescriptor}s are
+         * replaced because they are shared between copies and their
+         * observation types are unmodifiable.
+         */
+        private void merge(DataAvailability parent, DataAvailability child) {
+            parent.getPhenomenonTime().extendToContain(child.getPhenomenonTime());
+            if (parent.isSetFormatDescriptors() && child.isSetFormatDescriptors()) {
+                List<ObservationFormatDescriptor> merged = Lists.newArrayList();
+                for (ObservationFormatDescriptor descriptor : parent.getFormatDescriptor()
+                        .getObservationFormatDescriptors()) {
+                    Set<String> observationTypes = new HashSet<>(descriptor.getObservationTypes());
+                    for (ObservationFormatDescriptor toMerge : child.getFormatDescriptor()
+                            .getObservationFormatDescriptors()) {
+                        if (descriptor.getResponseFormat().equals(toMerge.getResponseFormat())) {
+                            observationTypes.addAll(toMerge.getObservationTypes());
+                        }
+                    }
+                    merged.add(new ObservationFormatDescriptor(descriptor.getResponseFormat(), observationTypes));
+                }
+                parent.getFormatDescriptor().setObservationFormatDescriptors(merged);
+            }
+        }
+
+        public Set<String> getChildOfferings(String offering) {
+            return childOfferings.get(offering);
+        }
+
+        public void addChildOfferings(String offering, Set<String> childs) {
+            childOfferings.put(offering, childs);
+        }
+
+        public Set<String> getResponseFormats(String observationType,
+                Function<String, Set<String>> responseFormatsForObservationType) {
+            return responseFormats.computeIfAbsent(observationType, responseFormatsForObservationType);
+        }
+
         public List<DataAvailability> getDataAvailabilityList() {
             return Lists.newArrayList(dataAvailabilityValues);
         }
 
         public boolean hasDataAvailability(String requestedOffering) {
-            for (DataAvailability dataAvailability : dataAvailabilityValues) {
-                if (requestedOffering.equals(dataAvailability.getOfferingString())) {
-                    return true;
-                }
-            }
-            return false;
+            return dataAvailabilityValuesByOffering.containsKey(requestedOffering);
         }
 
         public Set<DataAvailability> getDataAvailability(String offering) {
             Set<DataAvailability> das = Sets.newHashSet();
-            for (DataAvailability dataAvailability : dataAvailabilityValues) {
-                if (offering.equals(dataAvailability.getOfferingString())) {
-                    das.add(dataAvailability);
-                }
-            }
+            das.addAll(dataAvailabilityValuesByOffering.getOrDefault(offering, Collections.emptyList()));
             return das;
         }
 
         public boolean isSetDataAvailabilityList() {
-            return getDataAvailabilityList() != null && !getDataAvailabilityList().isEmpty();
+            return !dataAvailabilityValues.isEmpty();
         }
 
     }
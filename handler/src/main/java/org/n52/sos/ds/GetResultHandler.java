@@ -139,7 +139,7 @@ public class GetResultHandler extends AbstractGetResultHandler implements ApiQue
                 request.setFeatureIdentifiers(features.stream()
                         .map(f -> f.getIdentifier())
                         .collect(Collectors.toList()));
-                dao.get().queryResultData(request, response, session);
+                return dao.get().queryResultData(request, response, session);
             } finally {
                 sessionStore.returnSession(session);
             }
@@ -84,6 +84,11 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
      * update executor service.
      */
     private int cacheThreadCount = 5;
+    /**
+     * Load the offering and procedure cache content in bulk instead of per
+     * offering and procedure.
+     */
+    private boolean cacheBulkUpdate;
     private Locale defaultLocale;
     private I18NDAORepository i18NDAORepository;
     private OwsServiceMetadataRepository serviceMetadataRepository;
@@ -133,6 +138,11 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
         this.cacheThreadCount = threads;
     }
 
+    @Setting(value = CacheFeederSettingDefinitionProvider.CACHE_BULK_UPDATE, required = false)
+    public void setCacheBulkUpdate(boolean cacheBulkUpdate) {
+        this.cacheBulkUpdate = cacheBulkUpdate;
+    }
+
     @Override
     public void updateCache(SosWritableContentCache cache) throws OwsExceptionReport {
         checkCacheNotNull(cache);
@@ -146,7 +156,8 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
                     this.sessionStore,
                     this.serviceMetadataRepository,
                     geometryHandler,
-                    dbQueryFactory);
+                    dbQueryFactory,
+                    this.cacheBulkUpdate);
             session = this.sessionStore.getSession();
             update.setCache(cache);
             update.setErrors(errors);
@@ -191,6 +202,7 @@ public class SosCacheFeederHandler implements CacheFeederHandler {
                 this.defaultLocale,
                 this.geometryHandler,
                 this.sessionStore,
+                offeringsNeedingUpdate,
                 dbQueryFactory);
         update.setCache(cache);
         update.setErrors(errors);
@@ -35,4 +35,6 @@ package org.n52.sos.ds.cache;
 public interface CacheFeederSettingDefinitionProvider {
 
     String CACHE_THREAD_COUNT = "service.cacheThreadCount";
+
+    String CACHE_BULK_UPDATE = "service.cacheBulkUpdate";
 }
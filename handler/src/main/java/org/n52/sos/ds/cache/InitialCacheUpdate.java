@@ -33,6 +33,7 @@ import org.n52.iceland.i18n.I18NDAORepository;
 import org.n52.iceland.ogc.ows.OwsServiceMetadataRepository;
 import org.n52.sensorweb.server.db.old.dao.DbQueryFactory;
 import org.n52.series.db.old.HibernateSessionStore;
+import org.n52.sos.ds.cache.base.BulkOfferingProcedureCacheUpdate;
 import org.n52.sos.ds.cache.base.FeatureOfInterestCacheUpdate;
 import org.n52.sos.ds.cache.base.I18NCacheUpdate;
 import org.n52.sos.ds.cache.base.ObservablePropertiesCacheUpdate;
@@ -53,6 +54,7 @@ import org.n52.sos.util.GeometryHandler;
  * @see ObservablePropertiesCacheUpdate
  * @see OfferingCacheUpdate
  * @see ProcedureCacheUpdate
+ * @see BulkOfferingProcedureCacheUpdate
  * @see RelatedFeaturesCacheUpdate
  * @see ResultTemplateCacheUpdate
  * @see I18NCacheUpdate
@@ -68,22 +70,54 @@ public class InitialCacheUpdate extends CompositeCacheUpdate {
                               HibernateSessionStore sessionStore,
                               OwsServiceMetadataRepository serviceMetadataRepository,
                               GeometryHandler geometryHandler, DbQueryFactory dbQueryFactory) {
+        this(threadCount, defaultLocale, i18NDAORepository, sessionStore, serviceMetadataRepository, geometryHandler,
+                dbQueryFactory, false);
+    }
+
+    public InitialCacheUpdate(int threadCount,
+                              Locale defaultLocale,
+                              I18NDAORepository i18NDAORepository,
+                              HibernateSessionStore sessionStore,
+                              OwsServiceMetadataRepository serviceMetadataRepository,
+                              GeometryHandler geometryHandler, DbQueryFactory dbQueryFactory,
+                              boolean bulkUpdate) {
         //execute all updates except offerings and procedures in parallel, then execute offering and procedure updates
-        //(which spawn their own threads)
-        super(dbQueryFactory, new ParallelCacheUpdate(threadCount,
-                                      sessionStore,
-                                      new ObservablePropertiesCacheUpdate(),
-                                      new FeatureOfInterestCacheUpdate(),
-                                      new RelatedFeaturesCacheUpdate(),
-                                      new ObservationTimeCacheUpdate(),
-                                      new ResultTemplateCacheUpdate()),
-              new I18NCacheUpdate(serviceMetadataRepository,
-                                  i18NDAORepository),
-              new OfferingCacheUpdate(threadCount,
-                                      defaultLocale,
-                                      geometryHandler,
-                                      sessionStore, dbQueryFactory),
-              new ProcedureCacheUpdate(threadCount, sessionStore, dbQueryFactory));
+        //(which spawn their own threads or are loaded in bulk)
+        super(dbQueryFactory, createUpdates(threadCount, defaultLocale, i18NDAORepository, sessionStore,
+                serviceMetadataRepository, geometryHandler, dbQueryFactory, bulkUpdate));
+    }
+
+    private static AbstractDatasourceCacheUpdate[] createUpdates(int threadCount,
+                                                                 Locale defaultLocale,
+                                                                 I18NDAORepository i18NDAORepository,
+                                                                 HibernateSessionStore sessionStore,
+                                                                 OwsServiceMetadataRepository serviceMetadataRepository,
+                                                                 GeometryHandler geometryHandler,
+                                                                 DbQueryFactory dbQueryFactory,
+                                                                 boolean bulkUpdate) {
+        ParallelCacheUpdate parallelCacheUpdate = new ParallelCacheUpdate(threadCount,
+                                                                          sessionStore,
+                                                                          new ObservablePropertiesCacheUpdate(),
+                                                                          new FeatureOfInterestCacheUpdate(),
+                                                                          new RelatedFeaturesCacheUpdate(),
+                                                                          new ObservationTimeCacheUpdate(),
+                                                                          new ResultTemplateCacheUpdate());
+        I18NCacheUpdate i18NCacheUpdate = new I18NCacheUpdate(serviceMetadataRepository, i18NDAORepository);
+        if (bulkUpdate) {
+            return new AbstractDatasourceCacheUpdate[] { parallelCacheUpdate,
+                                                         i18NCacheUpdate,
+                                                         new BulkOfferingProcedureCacheUpdate(defaultLocale,
+                                                                                              geometryHandler,
+                                                                                              dbQueryFactory) };
+        }
+        return new AbstractDatasourceCacheUpdate[] { parallelCacheUpdate,
+                                                     i18NCacheUpdate,
+                                                     new OfferingCacheUpdate(threadCount,
+                                                                             defaultLocale,
+                                                                             geometryHandler,
+                                                                             sessionStore, dbQueryFactory),
+                                                     new ProcedureCacheUpdate(threadCount, sessionStore,
+                                                                              dbQueryFactory) };
     }
 
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.cache.base;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.spatial.criterion.SpatialProjections;
+import org.locationtech.jts.geom.Geometry;
+import org.n52.iceland.exception.ows.concrete.GenericThrowableWrapperException;
+import org.n52.io.request.IoParameters;
+import org.n52.sensorweb.server.db.old.dao.DbQuery;
+import org.n52.sensorweb.server.db.old.dao.DbQueryFactory;
+import org.n52.series.db.beans.AbstractFeatureEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.IdEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+import org.n52.series.db.old.dao.DatasetDao;
+import org.n52.series.db.old.dao.OfferingDao;
+import org.n52.series.db.old.dao.ProcedureDao;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.util.ReferencedEnvelope;
+import org.n52.sos.ds.ApiQueryHelper;
+import org.n52.sos.ds.cache.AbstractDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.AbstractThreadableDatasourceCacheUpdate;
+import org.n52.sos.ds.cache.DatasourceCacheUpdateHelper;
+import org.n52.sos.ds.hibernate.util.HibernateConstants;
+import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.n52.sos.util.GeometryHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Maps;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Set based alternative to the {@link OfferingCacheUpdate} and the
+ * {@link ProcedureCacheUpdate}. Instead of querying the datasets for each
+ * offering and procedure, all datasets are loaded with their related entities
+ * in one query and distributed in memory. If the datasource supports the
+ * <code>extent</code> aggregate, the feature envelopes of the offerings are
+ * queried grouped by offering, else they are calculated from the loaded
+ * feature geometries.
+ * <p>
+ * Unlike the replaced updates, the offering and procedure tasks are executed
+ * sequentially and not by the cache update thread pool. The preloaded
+ * entities belong to the session of this update, and a session must not be
+ * used by several threads, while loading them again per thread would bring
+ * back the queries this update saves. So this update trades the parallel
+ * execution for fewer queries: it is faster if the per dataset queries
+ * dominate, e.g. for many offerings or a remote database, and may be slower
+ * for few offerings with expensive tasks on a multi-core server.
+ *
+ * @since 6.1.2
+ */
+@SuppressFBWarnings({ "EI_EXPOSE_REP2" })
+public class BulkOfferingProcedureCacheUpdate extends AbstractDatasourceCacheUpdate
+        implements ApiQueryHelper, DatasourceCacheUpdateHelper {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkOfferingProcedureCacheUpdate.class);
+
+    private static final String FEATURE_ALIAS = "f";
+
+    private final Locale defaultLanguage;
+
+    private final GeometryHandler geometryHandler;
+
+    public BulkOfferingProcedureCacheUpdate(Locale defaultLanguage, GeometryHandler geometryHandler,
+            DbQueryFactory dbQueryFactory) {
+        setDbQueryFactory(dbQueryFactory);
+        this.defaultLanguage = defaultLanguage;
+        this.geometryHandler = geometryHandler;
+    }
+
+    @Override
+    public void execute() {
+        LOGGER.debug("Executing BulkOfferingProcedureCacheUpdate");
+        startStopwatch();
+        try {
+            Session session = getSession();
+            Collection<DatasetEntity> datasets = new DatasetDao(session).get(createDatasetDbQuery());
+            Map<Long, List<DatasetEntity>> datasetsByOffering = groupBy(datasets, DatasetEntity::getOffering);
+            Map<Long, List<DatasetEntity>> datasetsByProcedure = groupBy(datasets, DatasetEntity::getProcedure);
+            Map<Long, ReferencedEnvelope> featureEnvelopes = getFeatureEnvelopesForOfferings(session);
+            LOGGER.debug("Loaded {} datasets for bulk cache update ({})", datasets.size(), getStopwatchResult());
+
+            for (OfferingEntity offering : new OfferingDao(session)
+                    .get(createDbQuery(IoParameters.createDefaults()))) {
+                execute(new OfferingCacheUpdateTask(offering,
+                        datasetsByOffering.getOrDefault(offering.getId(), Collections.emptyList()),
+                        featureEnvelopes.get(offering.getId()), defaultLanguage, geometryHandler));
+            }
+            for (ProcedureEntity procedure : new ProcedureDao(session)
+                    .get(createDbQuery(IoParameters.createDefaults()))) {
+                execute(new ProcedureCacheUpdateTask(procedure,
+                        datasetsByProcedure.getOrDefault(procedure.getId(), Collections.emptyList())));
+            }
+        } catch (Exception e) {
+            getErrors().add(new GenericThrowableWrapperException(e)
+                    .withMessage("Error while processing bulk offering and procedure cache update!"));
+        }
+        LOGGER.debug("Finished executing BulkOfferingProcedureCacheUpdate ({})", getStopwatchResult());
+    }
+
+    private void execute(AbstractThreadableDatasourceCacheUpdate task) {
+        task.setCache(getCache());
+        task.setErrors(getErrors());
+        task.setSession(getSession());
+        task.setDbQueryFactory(getDbQueryFactory());
+        task.execute();
+    }
+
+    private Map<Long, List<DatasetEntity>> groupBy(Collection<DatasetEntity> datasets,
+            Function<DatasetEntity, IdEntity> property) {
+        Map<Long, List<DatasetEntity>> map = Maps.newHashMap();
+        for (DatasetEntity dataset : datasets) {
+            IdEntity entity = property.apply(dataset);
+            if (entity != null) {
+                map.computeIfAbsent(entity.getId(), k -> new ArrayList<>()).add(dataset);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Query the aggregated feature envelopes grouped by offering. Returns an
+     * empty map if the datasource does not support the <code>extent</code>
+     * aggregate, the envelopes are then calculated from the datasets.
+     *
+     * @param session
+     *            the session
+     * @return the feature envelopes for the offering ids
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, ReferencedEnvelope> getFeatureEnvelopesForOfferings(Session session) {
+        Map<Long, ReferencedEnvelope> envelopes = Maps.newHashMap();
+        Dialect dialect = ((SessionFactoryImplementor) session.getSessionFactory()).getJdbcServices().getDialect();
+        if (!geometryHandler.isSpatialDatasource()
+                || !HibernateHelper.supportsFunction(dialect, HibernateConstants.FUNC_EXTENT)) {
+            return envelopes;
+        }
+        try {
+            List<Object[]> results = session.createCriteria(DatasetEntity.class)
+                    .createAlias(DatasetEntity.PROPERTY_FEATURE, FEATURE_ALIAS)
+                    .add(Restrictions.eq(DatasetEntity.PROPERTY_DELETED, false))
+                    .setProjection(Projections.projectionList()
+                            .add(Projections.groupProperty(
+                                    DatasetEntity.PROPERTY_OFFERING + "." + IdEntity.PROPERTY_ID))
+                            .add(SpatialProjections
+                                    .extent(FEATURE_ALIAS + "." + AbstractFeatureEntity.PROPERTY_GEOMETRY_ENTITY)))
+                    .list();
+            for (Object[] result : results) {
+                if (result[0] != null && result[1] != null) {
+                    Geometry geometry = (Geometry) result[1];
+                    int srid = geometry.getSRID() > 0 ? geometry.getSRID() : geometryHandler.getStorageEPSG();
+                    geometry.setSRID(srid);
+                    geometry = geometryHandler.switchCoordinateAxisFromToDatasourceIfNeeded(geometry);
+                    envelopes.put((Long) result[0], new ReferencedEnvelope(geometry.getEnvelopeInternal(), srid));
+                }
+            }
+        } catch (HibernateException | OwsExceptionReport e) {
+            LOGGER.warn("Error while querying the feature envelopes of the offerings, "
+                    + "they are calculated from the datasets!", e);
+            envelopes.clear();
+        }
+        return envelopes;
+    }
+
+    private DbQuery createDatasetDbQuery() {
+        Map<String, String> map = Maps.newHashMap();
+        map.put(IoParameters.EXPANDED, "true");
+        return createDbQuery(IoParameters.createFromSingleValueMap(map));
+    }
+}
@@ -28,8 +28,11 @@
 package org.n52.sos.ds.cache.base;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
 
+import org.hibernate.Session;
+import org.hibernate.criterion.Restrictions;
 import org.n52.iceland.exception.ows.concrete.GenericThrowableWrapperException;
 import org.n52.io.request.IoParameters;
 import org.n52.sensorweb.server.db.old.dao.DbQueryFactory;
@@ -49,6 +52,10 @@ import com.google.common.collect.Lists;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
+ * Updates the offering related cache content. If offering identifiers are
+ * passed, only these offerings are loaded and refreshed and the global
+ * spatial and temporal extents are recalculated from the per offering values
+ * already in the cache, all other offerings are left untouched.
  *
  * @author <a href="mailto:c.autermann@52north.org">Christian Autermann</a>
  *
@@ -95,9 +102,10 @@ public class OfferingCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<O
                 offeringDAO = new OfferingDao(getSession());
             }
             if (offeringsToUpdate == null) {
-                if (offeringsIdToUpdate == null || offeringsIdToUpdate.isEmpty()) {
-                    return offeringDAO.get(createDbQuery(IoParameters.createDefaults()));
+                if (isTargetedUpdate()) {
+                    return getOfferingsForIdentifiers(getSession(), offeringsIdToUpdate);
                 }
+                return offeringDAO.get(createDbQuery(IoParameters.createDefaults()));
             }
         } catch (Exception e) {
             getErrors().add(new GenericThrowableWrapperException(e)
@@ -106,6 +114,20 @@ public class OfferingCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<O
         return offeringsToUpdate;
     }
 
+    /**
+     * @return <code>true</code>, if only the offerings passed to the
+     *         constructor should be updated
+     */
+    public boolean isTargetedUpdate() {
+        return offeringsIdToUpdate != null && !offeringsIdToUpdate.isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OfferingEntity> getOfferingsForIdentifiers(Session session, Collection<String> identifiers) {
+        return session.createCriteria(OfferingEntity.class)
+                .add(Restrictions.in(OfferingEntity.IDENTIFIER, identifiers)).list();
+    }
+
     @Override
     public void execute() {
         LOGGER.debug("Executing OfferingCacheUpdate (Single Threaded Tasks)");
@@ -118,12 +140,24 @@ public class OfferingCacheUpdate extends AbstractQueueingDatasourceCacheUpdate<O
         startStopwatch();
         super.execute();
         LOGGER.debug("Finished executing OfferingCacheUpdate (Multi-Threaded Tasks) ({})", getStopwatchResult());
+
+        if (isTargetedUpdate()) {
+            // the tasks only set the values of the updated offerings, so the
+            // global extents may still contain stale values
+            getCache().recalculateGlobalEnvelope();
+            getCache().recalculatePhenomenonTime();
+            getCache().recalculateResultTime();
+        }
     }
 
     @Override
     protected OfferingCacheUpdateTask[] getUpdatesToExecute() throws OwsExceptionReport {
         Collection<OfferingCacheUpdateTask> offeringUpdateTasks = Lists.newArrayList();
-        for (OfferingEntity offering : getOfferingsToUpdate()) {
+        Collection<OfferingEntity> offerings = getOfferingsToUpdate();
+        if (offerings == null) {
+            return new OfferingCacheUpdateTask[0];
+        }
+        for (OfferingEntity offering : offerings) {
             offeringUpdateTasks
                     .add(new OfferingCacheUpdateTask(offering.getId(), this.defaultLanguage, geometryHandler));
         }
@@ -87,6 +87,8 @@ public class OfferingCacheUpdateTask extends AbstractThreadableDatasourceCacheUp
 
     private GeometryHandler geometryHandler;
 
+    private ReferencedEnvelope featureEnvelope;
+
     /**
      * Constructor. Note: never pass in Hibernate objects that have been loaded
      * by a session in a different thread
@@ -103,12 +105,38 @@ public class OfferingCacheUpdateTask extends AbstractThreadableDatasourceCacheUp
         this.datasets.clear();
     }
 
+    /**
+     * Constructor for already loaded entities, e.g. by a bulk update. The
+     * entities have to be loaded by the session this task is executed with.
+     *
+     * @param offering
+     *            Offering entity
+     * @param datasets
+     *            the datasets of the offering
+     * @param featureEnvelope
+     *            the aggregated feature envelope of the datasets or
+     *            <code>null</code> to calculate it from the datasets
+     * @param defaultLanguage
+     *            the default language
+     * @param geometryHandler
+     *            the geometry handler
+     */
+    OfferingCacheUpdateTask(OfferingEntity offering, Collection<DatasetEntity> datasets,
+            ReferencedEnvelope featureEnvelope, Locale defaultLanguage, GeometryHandler geometryHandler) {
+        this(offering.getId(), defaultLanguage, geometryHandler);
+        this.offering = offering;
+        this.datasets.addAll(datasets);
+        this.featureEnvelope = featureEnvelope;
+    }
+
     private void init(Session session) {
-        this.offering = session.load(OfferingEntity.class, offeringId);
-        this.identifier = offering.getIdentifier();
-        if (datasets != null) {
-            this.datasets.addAll(new DatasetDao(session).get(createDatasetDbQuery(offeringId)));
+        if (offering == null) {
+            this.offering = session.load(OfferingEntity.class, offeringId);
+            if (datasets != null) {
+                this.datasets.addAll(new DatasetDao(session).get(createDatasetDbQuery(offeringId)));
+            }
         }
+        this.identifier = offering.getIdentifier();
     }
 
     protected void getOfferingInformationFromDbAndAddItToCacheMaps(Session session) throws OwsExceptionReport {
@@ -285,6 +313,8 @@ public class OfferingCacheUpdateTask extends AbstractThreadableDatasourceCacheUp
         if (offering.isSetGeometry()) {
             return new ReferencedEnvelope(
                     geometryHandler.switchCoordinateAxisFromToDatasourceIfNeeded(offering.getGeometry()));
+        } else if (featureEnvelope != null) {
+            return featureEnvelope;
         } else if (datasets != null && !datasets.isEmpty()) {
             Envelope e = new Envelope();
             int srid = -1;
@@ -77,10 +77,27 @@ class ProcedureCacheUpdateTask extends AbstractThreadableDatasourceCacheUpdate i
         this.datasets.clear();
     }
 
+    /**
+     * Constructor for already loaded entities, e.g. by a bulk update. The
+     * entities have to be loaded by the session this task is executed with.
+     *
+     * @param procedure
+     *            Procedure entity
+     * @param datasets
+     *            the datasets of the procedure
+     */
+    ProcedureCacheUpdateTask(ProcedureEntity procedure, Collection<DatasetEntity> datasets) {
+        this(procedure.getId());
+        this.procedure = procedure;
+        this.datasets.addAll(datasets);
+    }
+
     private void init(Session session) {
-        this.procedure = session.load(ProcedureEntity.class, procedureId);
-        if (datasets != null) {
-            this.datasets.addAll(new DatasetDao(session).get(createDatasetDbQuery(procedureId)));
+        if (procedure == null) {
+            this.procedure = session.load(ProcedureEntity.class, procedureId);
+            if (datasets != null) {
+                this.datasets.addAll(new DatasetDao(session).get(createDatasetDbQuery(procedureId)));
+            }
         }
     }
 
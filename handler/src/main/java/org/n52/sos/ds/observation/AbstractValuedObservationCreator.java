@@ -41,6 +41,7 @@ import org.n52.shetland.ogc.swe.SweDataArray;
 import org.n52.shetland.ogc.swe.encoding.SweAbstractEncoding;
 import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
 import org.n52.shetland.util.JavaHelper;
+import org.n52.sos.coding.decode.ResultTemplateDecodingCache;
 import org.n52.svalbard.decode.DecoderRepository;
 import org.n52.svalbard.decode.exception.DecodingException;
 import org.n52.svalbard.util.CodingHelper;
@@ -135,7 +136,7 @@ public abstract class AbstractValuedObservationCreator<T> implements ValuedObser
         } else {
             encoding = o.getResultTemplate().getEncoding();
         }
-        return (SweAbstractEncoding) decode(XmlHelper.parseXmlString(encoding));
+        return (SweAbstractEncoding) decodeResultTemplate(encoding);
     }
 
     private SweAbstractDataComponent getStructure(DataArrayDataEntity o) throws DecodingException {
@@ -145,7 +146,15 @@ public abstract class AbstractValuedObservationCreator<T> implements ValuedObser
         } else {
             structure = o.getResultTemplate().getStructure();
         }
-        return (SweAbstractDataComponent) decode(XmlHelper.parseXmlString(structure));
+        return (SweAbstractDataComponent) decodeResultTemplate(structure);
+    }
+
+    private Object decodeResultTemplate(String xml) throws DecodingException {
+        ResultTemplateDecodingCache cache = getObservationHelper().getResultTemplateDecodingCache();
+        if (cache != null) {
+            return cache.decode(xml, x -> decode(XmlHelper.parseXmlString(x)));
+        }
+        return decode(XmlHelper.parseXmlString(xml));
     }
 
 }
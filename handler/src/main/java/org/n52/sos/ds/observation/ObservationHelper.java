@@ -70,6 +70,7 @@ import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.swe.SweDataArray;
 import org.n52.shetland.util.DateTimeHelper;
 import org.n52.shetland.util.OMHelper;
+import org.n52.sos.coding.decode.ResultTemplateDecodingCache;
 import org.n52.sos.util.GeometryHandler;
 import org.n52.sos.util.SosHelper;
 import org.n52.svalbard.decode.DecoderRepository;
@@ -89,6 +90,7 @@ public class ObservationHelper implements Constructable {
     private SosHelper sosHelper;
     private EReportingHelper eReportingHelper;
     private SpatialFilteringProfileCreator spatialFilteringProfileCreator;
+    private ResultTemplateDecodingCache resultTemplateDecodingCache;
 
     private String qualifierDefinitionBelow = "http://www.example.com/sensors/lower_threshold";
     private String qualifierDefinitionAbove = "http://www.example.com/sensors/upper_threshold";
@@ -124,6 +126,11 @@ public class ObservationHelper implements Constructable {
         this.sosHelper = sosHelper;
     }
 
+    @Inject
+    public void setResultTemplateDecodingCache(ResultTemplateDecodingCache resultTemplateDecodingCache) {
+        this.resultTemplateDecodingCache = resultTemplateDecodingCache;
+    }
+
     @Override
     public void init() {
         this.eReportingHelper = new EReportingHelper(sweHelper);
@@ -134,6 +141,10 @@ public class ObservationHelper implements Constructable {
         return decoderRepository;
     }
 
+    public ResultTemplateDecodingCache getResultTemplateDecodingCache() {
+        return resultTemplateDecodingCache;
+    }
+
     public GeometryHandler getGeometryHandler() {
         return geometryHandler;
     }
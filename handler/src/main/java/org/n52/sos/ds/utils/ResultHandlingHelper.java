@@ -27,6 +27,8 @@
  */
 package org.n52.sos.ds.utils;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.Date;
@@ -173,79 +175,8 @@ public class ResultHandlingHelper implements HibernateUnproxy {
                 addElementCount(builder, size, blockSeparator);
             }
             for (final DataEntity<?> obs : observations) {
-                DataEntity<?> observation = unproxy(obs, session);
-                if (observation instanceof ProfileDataEntity) {
-                    builder.append(createResultValuesFromObservations(((ProfileDataEntity) observation).getValue(),
-                            sosResultEncoding, sosResultStructure, noDataPlaceholder, valueOrder, false,
-                            ((ProfileDataEntity) observation).getDataset()
-                                    .getVerticalMetadata(),
-                            session));
-                    builder.append(blockSeparator);
-                } else if (observation instanceof TrajectoryDataEntity) {
-                    builder.append(createResultValuesFromObservations(((TrajectoryDataEntity) observation).getValue(),
-                            sosResultEncoding, sosResultStructure, noDataPlaceholder, valueOrder, false, null,
-                            session));
-                    builder.append(blockSeparator);
-                } else {
-                    for (final Entry<Integer, String> entry : valueOrder.entrySet()) {
-                        final String definition = entry.getValue();
-                        switch (definition) {
-                            case OmConstants.PHENOMENON_TIME:
-                                builder.append(getTimeStringForPhenomenonTime(observation.getSamplingTimeStart(),
-                                        observation.getSamplingTimeEnd(), noDataPlaceholder));
-                                break;
-                            case OmConstants.RESULT_TIME:
-                                if (observation.hasResultTime()) {
-                                    builder.append(getTimeStringForResultTime(observation.getResultTime(),
-                                            noDataPlaceholder));
-                                } else {
-                                    builder.append(getTimeStringForResultTime(observation.getSamplingTimeEnd(),
-                                            noDataPlaceholder));
-                                }
-                                break;
-                            case OmConstants.PARAM_NAME_SAMPLING_GEOMETRY:
-                                builder.append(
-                                        getSamplingGeometry(observation, tokenSeparator, sosResultStructure.get()
-                                                .get(), noDataPlaceholder));
-                                break;
-                            case OmConstants.OM_PARAMETER:
-                            case OmConstants.PARAMETER:
-                                builder.append(getParameters(observation, tokenSeparator, sosResultStructure.get()
-                                        .get(), vertical));
-                                break;
-                            case OM_PROCEDURE:
-                                if (observation.getDataset()
-                                        .getProcedure() != null && observation.getDataset()
-                                                .getProcedure()
-                                                .isSetIdentifier()) {
-                                    builder.append(observation.getDataset()
-                                            .getProcedure()
-                                            .getIdentifier());
-                                } else {
-                                    builder.append("");
-                                }
-                                break;
-                            case OM_FEATURE_OF_INTEREST:
-                                if (observation.getDataset()
-                                        .getFeature() != null && observation.getDataset()
-                                                .getFeature()
-                                                .isSetIdentifier()) {
-                                    builder.append(observation.getDataset()
-                                            .getFeature()
-                                            .getIdentifier());
-                                } else {
-                                    builder.append("");
-                                }
-                                break;
-                            default:
-                                builder.append(getValueAsStringForObservedProperty(observation, definition));
-                                break;
-                        }
-                        builder.append(tokenSeparator);
-                    }
-                    builder.delete(builder.lastIndexOf(tokenSeparator), builder.length());
-                    builder.append(blockSeparator);
-                }
+                addResultValues(builder, obs, sosResultEncoding, sosResultStructure, noDataPlaceholder, valueOrder,
+                        vertical, tokenSeparator, blockSeparator, session);
             }
             if (builder.length() > 0) {
                 builder.delete(builder.lastIndexOf(blockSeparator), builder.length());
@@ -254,6 +185,139 @@ public class ResultHandlingHelper implements HibernateUnproxy {
         return builder.toString();
     }
 
+    /**
+     * Write the result values of the observations according to
+     * ResultEncoding and ResultStructure. Each observation is written as soon
+     * as it is read from the {@link Iterable}, so the result values are not
+     * kept in memory. The element count has to be known in advance, so
+     * trajectory observations which count their values are not supported.
+     *
+     * @param observations
+     *            Observations to write the result values for
+     * @param count
+     *            Number of observations
+     * @param sosResultEncoding
+     *            The ResultEncoding
+     * @param sosResultStructure
+     *            The ResultStructure
+     * @param noDataPlaceholder
+     *            The no data placeholder
+     * @param writer
+     *            The writer to write the result values to
+     * @param session
+     *            The Hibernate session
+     * @throws OwsExceptionReport
+     *             If creation fails
+     * @throws IOException
+     *             If writing fails
+     */
+    public void writeResultValuesFromObservations(final Iterable<DataEntity<?>> observations, final long count,
+            final SosResultEncoding sosResultEncoding, final SosResultStructure sosResultStructure,
+            String noDataPlaceholder, Writer writer, Session session) throws OwsExceptionReport, IOException {
+        if (count <= 0) {
+            return;
+        }
+        final Map<Integer, String> valueOrder = getValueOrderMap(sosResultStructure.get()
+                .get());
+        final String tokenSeparator = getTokenSeparator(sosResultEncoding.get()
+                .get());
+        final String blockSeparator = getBlockSeparator(sosResultEncoding.get()
+                .get());
+        final StringBuilder builder = new StringBuilder();
+        addElementCount(builder, count, blockSeparator);
+        boolean first = true;
+        for (final DataEntity<?> obs : observations) {
+            if (!first) {
+                builder.append(blockSeparator);
+            }
+            addResultValues(builder, obs, sosResultEncoding, sosResultStructure, noDataPlaceholder, valueOrder, null,
+                    tokenSeparator, blockSeparator, session);
+            builder.setLength(builder.length() - blockSeparator.length());
+            writer.append(builder);
+            builder.setLength(0);
+            first = false;
+        }
+    }
+
+    private void addResultValues(final StringBuilder builder, final DataEntity<?> obs,
+            final SosResultEncoding sosResultEncoding, final SosResultStructure sosResultStructure,
+            String noDataPlaceholder, Map<Integer, String> valueOrder, VerticalMetadataEntity vertical,
+            final String tokenSeparator, final String blockSeparator, Session session) throws OwsExceptionReport {
+        DataEntity<?> observation = unproxy(obs, session);
+        if (observation instanceof ProfileDataEntity) {
+            builder.append(createResultValuesFromObservations(((ProfileDataEntity) observation).getValue(),
+                    sosResultEncoding, sosResultStructure, noDataPlaceholder, valueOrder, false,
+                    ((ProfileDataEntity) observation).getDataset()
+                            .getVerticalMetadata(),
+                    session));
+            builder.append(blockSeparator);
+        } else if (observation instanceof TrajectoryDataEntity) {
+            builder.append(createResultValuesFromObservations(((TrajectoryDataEntity) observation).getValue(),
+                    sosResultEncoding, sosResultStructure, noDataPlaceholder, valueOrder, false, null,
+                    session));
+            builder.append(blockSeparator);
+        } else {
+            for (final Entry<Integer, String> entry : valueOrder.entrySet()) {
+                final String definition = entry.getValue();
+                switch (definition) {
+                    case OmConstants.PHENOMENON_TIME:
+                        builder.append(getTimeStringForPhenomenonTime(observation.getSamplingTimeStart(),
+                                observation.getSamplingTimeEnd(), noDataPlaceholder));
+                        break;
+                    case OmConstants.RESULT_TIME:
+                        if (observation.hasResultTime()) {
+                            builder.append(getTimeStringForResultTime(observation.getResultTime(),
+                                    noDataPlaceholder));
+                        } else {
+                            builder.append(getTimeStringForResultTime(observation.getSamplingTimeEnd(),
+                                    noDataPlaceholder));
+                        }
+                        break;
+                    case OmConstants.PARAM_NAME_SAMPLING_GEOMETRY:
+                        builder.append(
+                                getSamplingGeometry(observation, tokenSeparator, sosResultStructure.get()
+                                        .get(), noDataPlaceholder));
+                        break;
+                    case OmConstants.OM_PARAMETER:
+                    case OmConstants.PARAMETER:
+                        builder.append(getParameters(observation, tokenSeparator, sosResultStructure.get()
+                                .get(), vertical));
+                        break;
+                    case OM_PROCEDURE:
+                        if (observation.getDataset()
+                                .getProcedure() != null && observation.getDataset()
+                                        .getProcedure()
+                                        .isSetIdentifier()) {
+                            builder.append(observation.getDataset()
+                                    .getProcedure()
+                                    .getIdentifier());
+                        } else {
+                            builder.append("");
+                        }
+                        break;
+                    case OM_FEATURE_OF_INTEREST:
+                        if (observation.getDataset()
+                                .getFeature() != null && observation.getDataset()
+                                        .getFeature()
+                                        .isSetIdentifier()) {
+                            builder.append(observation.getDataset()
+                                    .getFeature()
+                                    .getIdentifier());
+                        } else {
+                            builder.append("");
+                        }
+                        break;
+                    default:
+                        builder.append(getValueAsStringForObservedProperty(observation, definition));
+                        break;
+                }
+                builder.append(tokenSeparator);
+            }
+            builder.delete(builder.lastIndexOf(tokenSeparator), builder.length());
+            builder.append(blockSeparator);
+        }
+    }
+
     /**
      * Get token separator from encoding
      *
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityRequest;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.DataAvailability;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.FormatDescriptor;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.ObservationFormatDescriptor;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.ProcedureDescriptionFormatDescriptor;
+import org.n52.sos.ds.GetDataAvailabilityHandler.GDARequestContext;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests the aggregation of the {@link GDARequestContext}. The merging of
+ * duplicates is compared with the former list based aggregation of the
+ * {@link GetDataAvailabilityHandler}.
+ *
+ * @since 6.1.2
+ */
+public class GDARequestContextTest {
+
+    private static final String PARENT = "offering-parent";
+
+    private static final DateTime START = new DateTime(2020, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private final Map<String, ReferenceType> references = new HashMap<>();
+
+    private List<Row> rows;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(52L);
+        rows = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int offering = random.nextInt(6);
+            rows.add(new Row("procedure-" + random.nextInt(5), "property-" + random.nextInt(3),
+                    "feature-" + random.nextInt(8), offering == 0 ? PARENT : "offering-" + offering,
+                    random.nextInt(1000), random.nextInt(100)));
+        }
+    }
+
+    @Test
+    public void shouldMergeDuplicatesLikeBefore() {
+        List<DataAvailability> expected = Lists.newLinkedList();
+        for (Row row : rows) {
+            expected.add(row.create(false));
+        }
+        expected = checkForDuplictation(expected);
+
+        GDARequestContext context = new GDARequestContext(new GetDataAvailabilityRequest());
+        for (Row row : rows) {
+            context.mergeDataAvailability(row.create(false));
+        }
+
+        assertThat(toStrings(context.getDataAvailabilityList()), is(toStrings(expected)));
+    }
+
+    @Test
+    public void shouldCreateParentDataAvailabilitiesFromChildOfferings() {
+        GDARequestContext context = new GDARequestContext(new GetDataAvailabilityRequest());
+        add(context, "procedure-1", "offering-1", 0);
+        add(context, "procedure-1", "offering-2", 20);
+        add(context, "procedure-2", "offering-2", 5);
+
+        context.mergeChildOfferings(PARENT, Sets.newTreeSet(Arrays.asList("offering-1", "offering-2")));
+
+        assertThat(context.getDataAvailability(PARENT).size(), is(2));
+        assertThat(toStrings(Lists.newArrayList(context.getDataAvailability(PARENT))), containsInAnyOrder(
+                "procedure-1|property-1|feature-1|offering-parent|2020-01-01T00:00:00.000Z|2020-01-02T06:00:00.000Z"
+                        + "|10|http://www.opengis.net/om/2.0[type-offering-1, type-offering-2]",
+                "procedure-2|property-1|feature-1|offering-parent|2020-01-01T05:00:00.000Z|2020-01-01T15:00:00.000Z"
+                        + "|10|http://www.opengis.net/om/2.0[type-offering-2]"));
+        assertThat(toStrings(Lists.newArrayList(context.getDataAvailability("offering-1"))), contains(
+                "procedure-1|property-1|feature-1|offering-1|2020-01-01T00:00:00.000Z|2020-01-01T10:00:00.000Z"
+                        + "|10|http://www.opengis.net/om/2.0[type-offering-1]"));
+    }
+
+    @Test
+    public void shouldMergeChildOfferingsIntoParentDataAvailabilities() {
+        GDARequestContext context = new GDARequestContext(new GetDataAvailabilityRequest());
+        add(context, "procedure-1", PARENT, 30);
+        add(context, "procedure-1", "offering-1", 0);
+        add(context, "procedure-2", "offering-1", 0);
+
+        context.mergeChildOfferings(PARENT, Collections.singleton("offering-1"));
+
+        assertThat(context.getDataAvailabilityList().size(), is(3));
+        assertThat(toStrings(Lists.newArrayList(context.getDataAvailability(PARENT))), contains(
+                "procedure-1|property-1|feature-1|offering-parent|2020-01-01T00:00:00.000Z|2020-01-02T16:00:00.000Z"
+                        + "|10|http://www.opengis.net/om/2.0[type-offering-1, type-offering-parent]"));
+    }
+
+    @Test
+    public void shouldNotMergeConstellationsWithSameHashCode() {
+        GDARequestContext context = new GDARequestContext(new GetDataAvailabilityRequest());
+        references.put("procedure-1", new CollidingReference("procedure-1"));
+        references.put("procedure-2", new CollidingReference("procedure-2"));
+        add(context, "procedure-1", "offering-1", 0);
+        add(context, "procedure-2", "offering-2", 20);
+        List<DataAvailability> children = context.getDataAvailabilityList();
+        assertThat(children.get(0).sameConstellationHashCode(), is(children.get(1).sameConstellationHashCode()));
+
+        context.mergeChildOfferings(PARENT, Sets.newTreeSet(Arrays.asList("offering-1", "offering-2")));
+
+        assertThat(toStrings(Lists.newArrayList(context.getDataAvailability(PARENT))), containsInAnyOrder(
+                "procedure-1|property-1|feature-1|offering-parent|2020-01-01T00:00:00.000Z|2020-01-01T10:00:00.000Z"
+                        + "|10|http://www.opengis.net/om/2.0[type-offering-1]",
+                "procedure-2|property-1|feature-1|offering-parent|2020-01-01T20:00:00.000Z|2020-01-02T06:00:00.000Z"
+                        + "|10|http://www.opengis.net/om/2.0[type-offering-2]"));
+    }
+
+    private List<String> toStrings(List<DataAvailability> dataAvailabilities) {
+        return dataAvailabilities.stream().map(da -> String.join("|", da.getProcedure().getHref(),
+                da.getObservedProperty().getHref(), da.getFeatureOfInterest().getHref(), da.getOfferingString(),
+                da.getPhenomenonTime().getStart().toString(), da.getPhenomenonTime().getEnd().toString(),
+                Long.toString(da.getCount()),
+                da.isSetFormatDescriptors() ? da.getFormatDescriptor().getObservationFormatDescriptors().stream()
+                        .map(ofd -> ofd.getResponseFormat() + Sets.newTreeSet(ofd.getObservationTypes())).sorted()
+                        .collect(Collectors.joining(",")) : ""))
+                .collect(Collectors.toList());
+    }
+
+    private void add(GDARequestContext context, String procedure, String offering, int start) {
+        context.addDataAvailability(new Row(procedure, "property-1", "feature-1", offering, start, 10).create(true));
+    }
+
+    private ReferenceType reference(String identifier) {
+        return references.computeIfAbsent(identifier, ReferenceType::new);
+    }
+
+    // the former deduplication of GetDataAvailabilityHandler
+
+    private static List<DataAvailability> checkForDuplictation(List<DataAvailability> dataAvailabilityValues) {
+        List<DataAvailability> checked = Lists.newLinkedList();
+        for (DataAvailability dataAvailability : dataAvailabilityValues) {
+            if (checked.isEmpty()) {
+                checked.add(dataAvailability);
+            } else {
+                boolean notDuplicated = true;
+                for (DataAvailability checkedDA : checked) {
+                    if (dataAvailability.equals(checkedDA)) {
+                        checkedDA.getPhenomenonTime().extendToContain(dataAvailability.getPhenomenonTime());
+                        notDuplicated = false;
+                    }
+                }
+                if (notDuplicated) {
+                    checked.add(dataAvailability);
+                }
+            }
+        }
+        return checked;
+    }
+
+    private static final class CollidingReference extends ReferenceType {
+        CollidingReference(String href) {
+            super(href);
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return super.equals(obj);
+        }
+    }
+
+    private final class Row {
+        private final String procedure;
+        private final String observedProperty;
+        private final String feature;
+        private final String offering;
+        private final int start;
+        private final int duration;
+
+        Row(String procedure, String observedProperty, String feature, String offering, int start,
+                int duration) {
+            this.procedure = procedure;
+            this.observedProperty = observedProperty;
+            this.feature = feature;
+            this.offering = offering;
+            this.start = start;
+            this.duration = duration;
+        }
+
+        DataAvailability create(boolean withFormatDescriptor) {
+            DataAvailability dataAvailability = new DataAvailability(reference(procedure),
+                    reference(observedProperty), reference(feature), reference(offering),
+                    new TimePeriod(START.plusHours(start), START.plusHours(start + duration)));
+            dataAvailability.setCount(duration);
+            if (withFormatDescriptor) {
+                dataAvailability.setFormatDescriptor(new FormatDescriptor(
+                        new ProcedureDescriptionFormatDescriptor("http://www.opengis.net/sensorml/2.0"),
+                        Sets.newHashSet(new ObservationFormatDescriptor("http://www.opengis.net/om/2.0",
+                                Sets.newHashSet("type-" + offering)))));
+            }
+            return dataAvailability;
+        }
+    }
+
+}
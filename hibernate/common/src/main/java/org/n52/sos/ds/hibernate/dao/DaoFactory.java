@@ -46,6 +46,7 @@ import org.n52.shetland.ogc.ows.exception.CodedException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.sos.SosConstants;
 import org.n52.shetland.util.EReportingSetting;
+import org.n52.sos.coding.decode.ResultTemplateDecodingCache;
 import org.n52.sos.ds.FeatureQueryHandler;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationTimeDAO;
 import org.n52.sos.ds.hibernate.dao.observation.ereporting.EReportingObservationDAO;
@@ -100,6 +101,7 @@ public class DaoFactory {
     private boolean staSupportsUrls;
     private SosHelper sosHelper;
     private ObservationHelper observationHelper;
+    private ResultTemplateDecodingCache resultTemplateDecodingCache;
     private boolean insertAdditionallyAsProfile;
     private boolean updateFeatureGeometry;
     private int trajectoryDetectionTimeGap = -1;
@@ -156,6 +158,11 @@ public class DaoFactory {
         this.observationHelper = observationHelper;
     }
 
+    @Inject
+    public void setResultTemplateDecodingCache(ResultTemplateDecodingCache resultTemplateDecodingCache) {
+        this.resultTemplateDecodingCache = resultTemplateDecodingCache;
+    }
+
     public boolean isIncludeChildObservableProperties() {
         return includeChildObservableProperties;
     }
@@ -295,7 +302,8 @@ public class DaoFactory {
     }
 
     public ResultTemplateDAO getResultTemplateDAO() {
-        return new ResultTemplateDAO(getEncoderRepository(), getXmlOptionsHelper(), getDecoderRepository());
+        return new ResultTemplateDAO(getEncoderRepository(), getXmlOptionsHelper(), getDecoderRepository(),
+                resultTemplateDecodingCache);
     }
 
     public CodespaceDAO getCodespaceDAO() {
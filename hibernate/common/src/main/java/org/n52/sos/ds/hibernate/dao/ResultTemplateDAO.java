@@ -58,6 +58,7 @@ import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
 import org.n52.shetland.ogc.swe.SweConstants;
 import org.n52.shetland.ogc.swe.encoding.SweAbstractEncoding;
 import org.n52.shetland.util.CollectionHelper;
+import org.n52.sos.coding.decode.ResultTemplateDecodingCache;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.request.InternalInsertResultTemplateRequest;
 import org.n52.svalbard.decode.Decoder;
@@ -113,11 +114,19 @@ public class ResultTemplateDAO {
 
     private XmlOptionsHelper xmlOptionsHelper;
 
+    private ResultTemplateDecodingCache resultTemplateDecodingCache;
+
     public ResultTemplateDAO(EncoderRepository encoderRepository, XmlOptionsHelper xmlOptionsHelper,
             DecoderRepository decoderRepository) {
+        this(encoderRepository, xmlOptionsHelper, decoderRepository, null);
+    }
+
+    public ResultTemplateDAO(EncoderRepository encoderRepository, XmlOptionsHelper xmlOptionsHelper,
+            DecoderRepository decoderRepository, ResultTemplateDecodingCache resultTemplateDecodingCache) {
         this.encoderRepository = encoderRepository;
         this.xmlOptionsHelper = xmlOptionsHelper;
         this.decoderRepository = decoderRepository;
+        this.resultTemplateDecodingCache = resultTemplateDecodingCache;
     }
 
     /**
@@ -559,6 +568,13 @@ public class ResultTemplateDAO {
     }
 
     private Object decodeXmlObject(String xmlString) throws DecodingException {
+        if (resultTemplateDecodingCache != null) {
+            return resultTemplateDecodingCache.decode(xmlString, this::parseAndDecodeXmlObject);
+        }
+        return parseAndDecodeXmlObject(xmlString);
+    }
+
+    private Object parseAndDecodeXmlObject(String xmlString) throws DecodingException {
         try {
             return decodeXmlObject(XmlObject.Factory.parse(xmlString));
         } catch (final XmlException e) {
@@ -28,8 +28,10 @@
 package org.n52.sos.ds.hibernate.dao.observation;
 
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -85,6 +87,7 @@ import org.n52.sos.ds.hibernate.dao.AbstractIdentifierNameDescriptionDAO;
 import org.n52.sos.ds.hibernate.dao.CodespaceDAO;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.UnitDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.DatasetExtentAccumulator;
 import org.n52.sos.ds.hibernate.util.HibernateConstants;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.ResultFilterClasses;
@@ -590,13 +593,86 @@ public abstract class AbstractObservationDAO extends AbstractIdentifierNameDescr
             AbstractFeatureEntity feature, OmObservation containerObservation,
             Map<String, CodespaceEntity> codespaceCache, Map<UoM, UnitEntity> unitCache,
             Map<String, FormatEntity> formatCache, Session session) throws OwsExceptionReport {
+        return insertObservationMultiValue(observationConstellation, feature, containerObservation, codespaceCache,
+                unitCache, formatCache, null, session);
+    }
+
+    /**
+     * Insert a multi value observation for observation constellations and
+     * featureOfInterest and defer the update of the dataset extents
+     *
+     * @param observationConstellation
+     *            Observation constellation objects
+     * @param feature
+     *            FeatureOfInterest object
+     * @param containerObservation
+     *            SOS observation
+     * @param codespaceCache
+     *            Map based codespace object cache to prevent redundant queries
+     * @param unitCache
+     *            Map based unit object cache to prevent redundant queries
+     * @param formatCache
+     *            Map cache for format objects (to prevent redundant querying)
+     * @param datasetExtents
+     *            Accumulator for the dataset extents, the extents are
+     *            directly updated if <code>null</code>
+     * @param session
+     *            Hibernate session
+     * @return The {@link DatasetEntity}
+     *
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    public DatasetEntity insertObservationMultiValue(DatasetEntity observationConstellation,
+            AbstractFeatureEntity feature, OmObservation containerObservation,
+            Map<String, CodespaceEntity> codespaceCache, Map<UoM, UnitEntity> unitCache,
+            Map<String, FormatEntity> formatCache, DatasetExtentAccumulator datasetExtents, Session session)
+            throws OwsExceptionReport {
+        return insertObservationMultiValue(observationConstellation, feature, containerObservation, codespaceCache,
+                unitCache, formatCache, datasetExtents, ObservationFlushMode.EACH_OBSERVATION, session);
+    }
+
+    /**
+     * Insert a multi value observation for observation constellations and
+     * featureOfInterest, defer the update of the dataset extents and flush
+     * the session according to the flush mode
+     *
+     * @param observationConstellation
+     *            Observation constellation objects
+     * @param feature
+     *            FeatureOfInterest object
+     * @param containerObservation
+     *            SOS observation
+     * @param codespaceCache
+     *            Map based codespace object cache to prevent redundant queries
+     * @param unitCache
+     *            Map based unit object cache to prevent redundant queries
+     * @param formatCache
+     *            Map cache for format objects (to prevent redundant querying)
+     * @param datasetExtents
+     *            Accumulator for the dataset extents, the extents are
+     *            directly updated if <code>null</code>
+     * @param flushMode
+     *            When the session is flushed after saving an observation
+     * @param session
+     *            Hibernate session
+     * @return The {@link DatasetEntity}
+     *
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    public DatasetEntity insertObservationMultiValue(DatasetEntity observationConstellation,
+            AbstractFeatureEntity feature, OmObservation containerObservation,
+            Map<String, CodespaceEntity> codespaceCache, Map<UoM, UnitEntity> unitCache,
+            Map<String, FormatEntity> formatCache, DatasetExtentAccumulator datasetExtents,
+            ObservationFlushMode flushMode, Session session) throws OwsExceptionReport {
         List<OmObservation> unfoldObservations =
                 new ObservationUnfolder(containerObservation, getDaoFactory().getSweHelper(),
                         getDaoFactory().getGeometryHandler(), getDaoFactory().getTrajectoryDetectionTimeGap())
                                 .unfold();
         for (OmObservation sosObservation : unfoldObservations) {
             DatasetEntity dataset = insertObservationSingleValue(observationConstellation, feature, sosObservation,
-                    codespaceCache, unitCache, formatCache, session);
+                    codespaceCache, unitCache, formatCache, datasetExtents, flushMode, session);
             if (!dataset.equals(observationConstellation)) {
                 return dataset;
             }
@@ -656,10 +732,88 @@ public abstract class AbstractObservationDAO extends AbstractIdentifierNameDescr
             AbstractFeatureEntity hFeature, OmObservation sosObservation, Map<String, CodespaceEntity> codespaceCache,
             Map<UoM, UnitEntity> unitCache, Map<String, FormatEntity> formatCache, Session session)
             throws OwsExceptionReport {
+        return insertObservationSingleValue(hObservationConstellation, hFeature, sosObservation, codespaceCache,
+                unitCache, formatCache, null, session);
+    }
+
+    /**
+     * Insert a single observation for observation constellations and
+     * featureOfInterest with local caching for codespaces and units and
+     * deferred update of the dataset extents
+     *
+     * @param hObservationConstellation
+     *            Observation constellation objects
+     * @param hFeature
+     *            FeatureOfInterest object
+     * @param sosObservation
+     *            SOS observation to insert
+     * @param codespaceCache
+     *            Map cache for codespace objects (to prevent redundant
+     *            querying)
+     * @param unitCache
+     *            Map cache for unit objects (to prevent redundant querying)
+     * @param formatCache
+     *            Map cache for format objects (to prevent redundant querying)
+     * @param datasetExtents
+     *            Accumulator for the dataset extents, the extents are
+     *            directly updated if <code>null</code>
+     * @param session
+     *            Hibernate session
+     * @return The {@link DatasetEntity}
+     *
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    @SuppressWarnings("rawtypes")
+    public DatasetEntity insertObservationSingleValue(DatasetEntity hObservationConstellation,
+            AbstractFeatureEntity hFeature, OmObservation sosObservation, Map<String, CodespaceEntity> codespaceCache,
+            Map<UoM, UnitEntity> unitCache, Map<String, FormatEntity> formatCache,
+            DatasetExtentAccumulator datasetExtents, Session session) throws OwsExceptionReport {
+        return insertObservationSingleValue(hObservationConstellation, hFeature, sosObservation, codespaceCache,
+                unitCache, formatCache, datasetExtents, ObservationFlushMode.EACH_OBSERVATION, session);
+    }
+
+    /**
+     * Insert a single observation for observation constellations and
+     * featureOfInterest with local caching for codespaces and units, deferred
+     * update of the dataset extents and flush of the session according to the
+     * flush mode
+     *
+     * @param hObservationConstellation
+     *            Observation constellation objects
+     * @param hFeature
+     *            FeatureOfInterest object
+     * @param sosObservation
+     *            SOS observation to insert
+     * @param codespaceCache
+     *            Map cache for codespace objects (to prevent redundant
+     *            querying)
+     * @param unitCache
+     *            Map cache for unit objects (to prevent redundant querying)
+     * @param formatCache
+     *            Map cache for format objects (to prevent redundant querying)
+     * @param datasetExtents
+     *            Accumulator for the dataset extents, the extents are
+     *            directly updated if <code>null</code>
+     * @param flushMode
+     *            When the session is flushed after saving an observation
+     * @param session
+     *            Hibernate session
+     * @return The {@link DatasetEntity}
+     *
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    @SuppressWarnings("rawtypes")
+    public DatasetEntity insertObservationSingleValue(DatasetEntity hObservationConstellation,
+            AbstractFeatureEntity hFeature, OmObservation sosObservation, Map<String, CodespaceEntity> codespaceCache,
+            Map<UoM, UnitEntity> unitCache, Map<String, FormatEntity> formatCache,
+            DatasetExtentAccumulator datasetExtents, ObservationFlushMode flushMode, Session session)
+            throws OwsExceptionReport {
         SingleObservationValue<?> value = (SingleObservationValue) sosObservation.getValue();
-        ObservationPersister persister =
-                new ObservationPersister(getDaoFactory(), this, sosObservation, hObservationConstellation, hFeature,
-                        codespaceCache, unitCache, formatCache, getOfferings(hObservationConstellation), session);
+        ObservationPersister persister = new ObservationPersister(getDaoFactory(), this, sosObservation,
+                hObservationConstellation, hFeature, codespaceCache, unitCache, formatCache, datasetExtents,
+                flushMode, getOfferings(hObservationConstellation), session);
         return value.getValue().accept(persister).getDataset();
     }
 
@@ -923,6 +1077,43 @@ public abstract class AbstractObservationDAO extends AbstractIdentifierNameDescr
         return (max == null) ? null : new DateTime(max, DateTimeZone.UTC);
     }
 
+    /**
+     * Get the phenomenon start, phenomenon end and result time in millis of
+     * all observations of the dataset with a phenomenon start time within the
+     * time range. Deleted observations are included because they still take
+     * part in the observation identity constraint.
+     *
+     * @param dataset
+     *            the dataset
+     * @param start
+     *            minimum phenomenon start time
+     * @param end
+     *            maximum phenomenon start time
+     * @param session
+     *            Hibernate session
+     * @return the time keys of the existing observations
+     */
+    @SuppressWarnings("unchecked")
+    public Set<List<Long>> getObservationTimeKeys(DatasetEntity dataset, Date start, Date end, Session session) {
+        Criteria criteria = session.createCriteria(getObservationFactory().observationClass())
+                .add(Restrictions.eq(DataEntity.PROPERTY_DATASET, dataset))
+                .add(Restrictions.between(DataEntity.PROPERTY_SAMPLING_TIME_START, start, end))
+                .setProjection(Projections.projectionList()
+                        .add(Projections.property(DataEntity.PROPERTY_SAMPLING_TIME_START))
+                        .add(Projections.property(DataEntity.PROPERTY_SAMPLING_TIME_END))
+                        .add(Projections.property(DataEntity.PROPERTY_RESULT_TIME)));
+        LOGGER.trace("QUERY getObservationTimeKeys(dataset, start, end): {}", HibernateHelper.getSqlString(criteria));
+        Set<List<Long>> keys = new HashSet<>();
+        for (Object[] result : (List<Object[]>) criteria.list()) {
+            keys.add(Arrays.asList(getTime(result[0]), getTime(result[1]), getTime(result[2])));
+        }
+        return keys;
+    }
+
+    private Long getTime(Object date) {
+        return date instanceof Date ? ((Date) date).getTime() : null;
+    }
+
     /**
      * Get global temporal bounding box
      *
@@ -28,6 +28,7 @@
 package org.n52.sos.ds.hibernate.dao.observation;
 
 import java.sql.Timestamp;
+import java.util.Date;
 
 import org.hibernate.Criteria;
 import org.hibernate.FetchMode;
@@ -221,6 +222,58 @@ public abstract class AbstractValueDAO extends TimeCreator {
         }
     }
 
+    /**
+     * Add keyset chunk information to {@link Criteria}. Instead of skipping
+     * the already queried rows, only the rows after the last queried key are
+     * selected, so the costs per chunk do not depend on the position in the
+     * series. The {@link Criteria} has to be ordered by the order column and
+     * the id.
+     *
+     * @param c
+     *            {@link Criteria} to add information
+     * @param chunkSize
+     *            Chunk size
+     * @param orderColumn
+     *            the order column
+     * @param lastOrderValue
+     *            the order column value of the last queried row, or
+     *            <code>null</code> for the first chunk
+     * @param lastId
+     *            the id of the last queried row, or <code>null</code> for the
+     *            first chunk
+     * @param logArgs
+     *            log arguments
+     */
+    protected void addKeysetChunkValuesToCriteria(Criteria c, int chunkSize, String orderColumn,
+            Date lastOrderValue, Long lastId, StringBuilder logArgs) {
+        if (chunkSize > 0) {
+            if (lastOrderValue != null && lastId != null) {
+                c.add(Restrictions.or(Restrictions.gt(orderColumn, lastOrderValue),
+                        Restrictions.and(Restrictions.eq(orderColumn, lastOrderValue),
+                                Restrictions.gt(DataEntity.PROPERTY_ID, lastId))));
+            }
+            c.setMaxResults(chunkSize);
+            logArgs.append(", keysetChunk(" + lastOrderValue + "," + lastId + "," + chunkSize + ")");
+        }
+    }
+
+    /**
+     * Get the value of the order column
+     *
+     * @param entity
+     *            the entity
+     * @param orderColumn
+     *            the order column, see
+     *            {@link #getOrderColumn(AbstractObservationRequest)}
+     * @return the value of the order column
+     */
+    protected Date getOrderValue(DataEntity<?> entity, String orderColumn) {
+        if (DataEntity.PROPERTY_RESULT_TIME.equals(orderColumn)) {
+            return entity.getResultTime();
+        }
+        return entity.getSamplingTimeStart();
+    }
+
     protected String getOrderColumn(AbstractObservationRequest request) {
         if (request instanceof GetObservationRequest) {
             if (((GetObservationRequest) request).isSetTemporalFilter()) {
@@ -129,6 +129,7 @@ import org.n52.sos.ds.hibernate.dao.PlatformDAO;
 import org.n52.sos.ds.hibernate.dao.UnitDAO;
 import org.n52.sos.ds.hibernate.dao.VerticalMetadataDAO;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.DatasetExtentAccumulator;
 import org.n52.sos.ds.hibernate.dao.observation.series.DatasetFactory;
 import org.n52.sos.ds.hibernate.util.ParameterCreator;
 import org.n52.sos.ds.utils.HibernateUnproxy;
@@ -169,9 +170,28 @@ public class ObservationPersister implements ValueVisitor<DataEntity<?>, OwsExce
             Map<String, CodespaceEntity> codespaceCache, Map<UoM, UnitEntity> unitCache,
             Map<String, FormatEntity> formatCache, Set<OfferingEntity> hOfferings, Session session)
             throws OwsExceptionReport {
+        this(daoFactory, observationDao, sosObservation, hDataset, hFeature, codespaceCache, unitCache, formatCache,
+                null, hOfferings, session);
+    }
+
+    public ObservationPersister(DaoFactory daoFactory, AbstractObservationDAO observationDao,
+            OmObservation sosObservation, DatasetEntity hDataset, AbstractFeatureEntity<?> hFeature,
+            Map<String, CodespaceEntity> codespaceCache, Map<UoM, UnitEntity> unitCache,
+            Map<String, FormatEntity> formatCache, DatasetExtentAccumulator datasetExtents,
+            Set<OfferingEntity> hOfferings, Session session) throws OwsExceptionReport {
+        this(daoFactory, observationDao, sosObservation, hDataset, hFeature, codespaceCache, unitCache, formatCache,
+                datasetExtents, ObservationFlushMode.EACH_OBSERVATION, hOfferings, session);
+    }
+
+    public ObservationPersister(DaoFactory daoFactory, AbstractObservationDAO observationDao,
+            OmObservation sosObservation, DatasetEntity hDataset, AbstractFeatureEntity<?> hFeature,
+            Map<String, CodespaceEntity> codespaceCache, Map<UoM, UnitEntity> unitCache,
+            Map<String, FormatEntity> formatCache, DatasetExtentAccumulator datasetExtents,
+            ObservationFlushMode flushMode, Set<OfferingEntity> hOfferings, Session session)
+            throws OwsExceptionReport {
         this(daoFactory, new DAOs(observationDao, daoFactory),
-                new Caches(codespaceCache, unitCache, formatCache, null, null), sosObservation, hDataset, hFeature,
-                null, hOfferings, session, null);
+                new Caches(codespaceCache, unitCache, formatCache, datasetExtents, flushMode, null, null),
+                sosObservation, hDataset, hFeature, null, hOfferings, session, null);
     }
 
     private ObservationPersister(DaoFactory daoFactory, DAOs daos, Caches caches, OmObservation observation,
@@ -853,10 +873,13 @@ public class ObservationPersister implements ValueVisitor<DataEntity<?>, OwsExce
                 daos.observation().addObservationContextToObservation(observationContext, observation, session);
         persistParameter(observation, omObservation.getParameterHolder(), observationContext, session);
         session.save(observation);
-        session.flush();
+        if (caches.flushMode() == ObservationFlushMode.EACH_OBSERVATION) {
+            session.flush();
+        }
         // persistParameter(observation, omObservation.getParameterHolder(), observationContext, session);
         if (!(observation instanceof TrajectoryDataEntity)) {
-            daos.dataset.updateDatasetWithObservation(persitedDataset, observation, session);
+            daos.dataset.updateDatasetWithObservation(persitedDataset, observation, caches.datasetExtents(),
+                    session);
         }
         if (daoFactory.isInsertAdditionallyAsProfile() && providedCategory
                 && !(observation instanceof ProfileDataEntity)) {
@@ -1080,14 +1103,19 @@ public class ObservationPersister implements ValueVisitor<DataEntity<?>, OwsExce
         private final Map<String, CodespaceEntity> codespaces;
         private final Map<UoM, UnitEntity> units;
         private final Map<String, FormatEntity> formats;
+        private final DatasetExtentAccumulator datasetExtents;
+        private final ObservationFlushMode flushMode;
         private CategoryEntity category;
         private PlatformEntity platform;
 
         Caches(Map<String, CodespaceEntity> codespaces, Map<UoM, UnitEntity> units, Map<String, FormatEntity> formats,
-                CategoryEntity category, PlatformEntity platform) {
+                DatasetExtentAccumulator datasetExtents, ObservationFlushMode flushMode, CategoryEntity category,
+                PlatformEntity platform) {
             this.codespaces = codespaces;
             this.units = units;
             this.formats = formats;
+            this.datasetExtents = datasetExtents;
+            this.flushMode = flushMode;
             this.category = category;
             this.platform = platform;
         }
@@ -1104,6 +1132,14 @@ public class ObservationPersister implements ValueVisitor<DataEntity<?>, OwsExce
             return formats;
         }
 
+        public DatasetExtentAccumulator datasetExtents() {
+            return datasetExtents;
+        }
+
+        public ObservationFlushMode flushMode() {
+            return flushMode;
+        }
+
         public CategoryEntity category() {
             return category;
         }
@@ -865,6 +865,28 @@ public abstract class AbstractSeriesDAO extends AbstractIdentifierNameDescriptio
         updateDatasetWithObservation(dataset, observation, session);
     }
 
+    /**
+     * Update series values which will be used by the Timeseries API. If an {@link DatasetExtentAccumulator} is
+     * provided, the update is deferred until {@link DatasetExtentAccumulator#persist(Session)} is called.
+     *
+     * @param dataset
+     *            Series object
+     * @param observation
+     *            Observation object
+     * @param extents
+     *            Accumulator for the dataset extents of the current batch, may be <code>null</code>
+     * @param session
+     *            Hibernate session
+     */
+    public void updateDatasetWithObservation(AbstractDatasetEntity dataset, DataEntity<?> observation,
+            DatasetExtentAccumulator extents, Session session) {
+        if (extents != null) {
+            extents.add(dataset, observation);
+        } else {
+            updateDatasetWithObservation(dataset, observation, session);
+        }
+    }
+
     /**
      * Update series values which will be used by the Timeseries API. Can be later used by the SOS.
      *
@@ -31,6 +31,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.hibernate.Criteria;
+import org.hibernate.ScrollMode;
 import org.hibernate.Session;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
@@ -42,6 +43,7 @@ import org.n52.sos.ds.hibernate.dao.observation.AbstractValueDAO;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.ResultFilterRestrictions;
 import org.n52.sos.ds.hibernate.util.ResultFilterRestrictions.SubQueryIdentifier;
+import org.n52.sos.ds.hibernate.util.ScrollableIterable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,6 +60,8 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
 
     private static final String QUERY_STREAMING_SERIES_VALUE = "QUERY getStreamingSeriesValuesFor({}): {}";
 
+    private static final String QUERY_SCROLLABLE_SERIES_VALUE = "QUERY getScrollableSeriesValuesFor({}): {}";
+
     public AbstractSeriesValueDAO(DaoFactory daoFactory) {
         super(daoFactory);
     }
@@ -67,7 +71,11 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
     }
 
     /**
-     * Query streaming value for parameter as chunk {@link List}
+     * Query streaming value for parameter as chunk {@link List}. If keyset
+     * pagination is enabled in the {@link ValueQueryContext}, the values are
+     * ordered by the order column and the id, and the key of the last
+     * returned value is set to the {@link ValueQueryContext} for the next
+     * chunk. Requests with result filter are always queried by row offset.
      *
      * @param ctx
      *            {@link ValueQueryContext}
@@ -90,6 +98,19 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
                 list.addAll(c.list());
             }
             return list;
+        } else if (ctx.isKeysetPagination()) {
+            StringBuilder logArgs = new StringBuilder();
+            String orderColumn = getOrderColumn(ctx.getRequest());
+            Criteria c = getSeriesValueCriteriaFor(ctx, logArgs).addOrder(Order.asc(DataEntity.PROPERTY_ID));
+            addKeysetChunkValuesToCriteria(c, ctx.getChunkSize(), orderColumn, ctx.getLastOrderValue(),
+                    ctx.getLastId(), logArgs);
+            LOGGER.trace(QUERY_STREAMING_SERIES_VALUE, logArgs.toString(), HibernateHelper.getSqlString(c));
+            List<DataEntity<?>> list = c.list();
+            if (!list.isEmpty()) {
+                DataEntity<?> last = list.get(list.size() - 1);
+                ctx.setLastKey(getOrderValue(last, orderColumn), last.getId());
+            }
+            return list;
         } else {
             StringBuilder logArgs = new StringBuilder();
             Criteria c = getSeriesValueCriteriaFor(ctx, logArgs);
@@ -99,6 +120,30 @@ public abstract class AbstractSeriesValueDAO extends AbstractValueDAO {
         }
     }
 
+    /**
+     * Query streaming values for parameter as forward only cursor. The chunk
+     * size of the {@link ValueQueryContext} is used as JDBC fetch size. The
+     * caller has to close the returned {@link ScrollableIterable} and must
+     * not close the session before. Result filters are not supported.
+     *
+     * @param ctx
+     *            {@link ValueQueryContext}
+     * @return the values as forward only cursor
+     * @throws OwsExceptionReport
+     *             If an error occurs when querying
+     */
+    public ScrollableIterable<DataEntity<?>> getScrollableSeriesValuesFor(ValueQueryContext ctx)
+            throws OwsExceptionReport {
+        StringBuilder logArgs = new StringBuilder();
+        Criteria c = getSeriesValueCriteriaFor(ctx, logArgs);
+        if (ctx.getChunkSize() > 0) {
+            logArgs.append(", fetchSize");
+            c.setFetchSize(ctx.getChunkSize());
+        }
+        LOGGER.trace(QUERY_SCROLLABLE_SERIES_VALUE, logArgs.toString(), HibernateHelper.getSqlString(c));
+        return ScrollableIterable.fromResults(c.scroll(ScrollMode.FORWARD_ONLY));
+    }
+
     /**
      * Get {@link Criteria} for parameter
      *
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao.observation.series;
+
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.n52.series.db.beans.AbstractDatasetEntity;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetAggregationEntity;
+import org.n52.series.db.beans.GeometryEntity;
+import org.n52.series.db.beans.QuantityDataEntity;
+import org.n52.sos.ds.hibernate.util.HibernateHelper;
+
+/**
+ * Collects the first/last values, the result time range and the spatial
+ * extent of the datasets touched by a batch of inserted observations. The
+ * extents are written to the datasets once by {@link #persist(Session)}
+ * instead of updating and flushing the dataset for each single observation
+ * as {@link AbstractSeriesDAO#updateDatasetWithObservation(AbstractDatasetEntity, DataEntity, Session)}
+ * does.
+ *
+ * The pending extents have to be persisted before the session is cleared
+ * or the transaction is committed and discarded via {@link #clear()} if the
+ * transaction is rolled back.
+ *
+ * @since 6.1.2
+ */
+public class DatasetExtentAccumulator {
+
+    /**
+     * The extents keyed by entity identity. Ids of datasets and aggregations
+     * may collide and the session holds one instance per persistent entity.
+     */
+    private final Map<AbstractDatasetEntity, Extent> extents = new IdentityHashMap<>();
+
+    /**
+     * Add the observation to the pending extent of the dataset and of its
+     * aggregation, if supported.
+     *
+     * @param dataset
+     *            the dataset of the observation
+     * @param observation
+     *            the inserted observation
+     */
+    public void add(AbstractDatasetEntity dataset, DataEntity<?> observation) {
+        extents.computeIfAbsent(dataset, k -> new Extent()).add(dataset, observation);
+        if (HibernateHelper.isEntitySupported(DatasetAggregationEntity.class) && dataset.isSetAggregation()) {
+            add(dataset.getAggregation(), observation);
+        }
+    }
+
+    /**
+     * Write the pending extents to the datasets and flush the session.
+     *
+     * @param session
+     *            Hibernate session
+     */
+    public void persist(Session session) {
+        if (!extents.isEmpty()) {
+            for (Extent extent : extents.values()) {
+                if (extent.applyTo(extent.dataset)) {
+                    session.saveOrUpdate(extent.dataset);
+                }
+            }
+            extents.clear();
+            session.flush();
+        }
+    }
+
+    /**
+     * Discard the pending extents, e.g. after a rollback.
+     */
+    public void clear() {
+        extents.clear();
+    }
+
+    public boolean isEmpty() {
+        return extents.isEmpty();
+    }
+
+    private static final class Extent {
+        private AbstractDatasetEntity dataset;
+
+        private DataEntity<?> first;
+
+        private DataEntity<?> last;
+
+        private Date resultTimeStart;
+
+        private Date resultTimeEnd;
+
+        private GeometryEntity geometry;
+
+        void add(AbstractDatasetEntity ds, DataEntity<?> observation) {
+            this.dataset = ds;
+            if (first == null || first.getSamplingTimeStart().after(observation.getSamplingTimeStart())) {
+                first = observation;
+            }
+            if (last == null || last.getSamplingTimeEnd().before(observation.getSamplingTimeEnd())) {
+                last = observation;
+            }
+            Date resultTime = observation.getResultTime();
+            if (resultTime != null) {
+                if (resultTimeStart == null || resultTimeStart.after(resultTime)) {
+                    resultTimeStart = resultTime;
+                }
+                if (resultTimeEnd == null || resultTimeEnd.before(resultTime)) {
+                    resultTimeEnd = resultTime;
+                }
+            }
+            GeometryEntity observationGeometry = getGeometry(observation);
+            if (observationGeometry != null) {
+                if (geometry == null) {
+                    geometry = new GeometryEntity();
+                }
+                geometry.expand(observationGeometry);
+            }
+        }
+
+        boolean applyTo(AbstractDatasetEntity ds) {
+            boolean changed = false;
+            if (!ds.isSetFirstValueAt() || ds.getFirstValueAt().after(first.getSamplingTimeStart())) {
+                ds.setFirstValueAt(first.getSamplingTimeStart());
+                ds.setFirstObservation(first);
+                if (first instanceof QuantityDataEntity) {
+                    ds.setFirstQuantityValue(((QuantityDataEntity) first).getValue());
+                }
+                changed = true;
+            }
+            if (!ds.isSetLastValueAt() || ds.getLastValueAt().before(last.getSamplingTimeEnd())) {
+                ds.setLastValueAt(last.getSamplingTimeEnd());
+                ds.setLastObservation(last);
+                if (last instanceof QuantityDataEntity) {
+                    ds.setLastQuantityValue(((QuantityDataEntity) last).getValue());
+                }
+                changed = true;
+            }
+            if (resultTimeStart != null
+                    && (!ds.isSetResultTimeStart() || ds.getResultTimeStart().after(resultTimeStart))) {
+                ds.setResultTimeStart(resultTimeStart);
+                changed = true;
+            }
+            if (resultTimeEnd != null && (!ds.isSetResultTimeEnd() || ds.getResultTimeEnd().before(resultTimeEnd))) {
+                ds.setResultTimeEnd(resultTimeEnd);
+                changed = true;
+            }
+            if (geometry != null) {
+                if (ds.isSetGeometry()) {
+                    ds.getGeometryEntity().expand(geometry);
+                } else {
+                    GeometryEntity geometryEntity = new GeometryEntity();
+                    geometryEntity.expand(geometry);
+                    ds.setGeometryEntity(geometryEntity);
+                }
+                changed = true;
+            }
+            return changed;
+        }
+
+        private GeometryEntity getGeometry(DataEntity<?> observation) {
+            if (observation.isSetGeometryEntity()) {
+                return observation.getGeometryEntity();
+            } else if (observation.getDataset().isSetFeature()
+                    && observation.getDataset().getFeature().isSetGeometry()) {
+                return observation.getDataset().getFeature().getGeometryEntity();
+            }
+            return null;
+        }
+    }
+
+}
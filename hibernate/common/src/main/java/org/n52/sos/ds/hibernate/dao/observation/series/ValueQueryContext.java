@@ -27,6 +27,8 @@
  */
 package org.n52.sos.ds.hibernate.dao.observation.series;
 
+import java.util.Date;
+
 import org.hibernate.Session;
 import org.hibernate.criterion.Criterion;
 import org.n52.series.db.beans.DatasetEntity;
@@ -43,6 +45,9 @@ public class ValueQueryContext {
     private int chunkSize;
     private int currentRow;
     private Session session;
+    private boolean keysetPagination;
+    private Date lastOrderValue;
+    private Long lastId;
 
     public ValueQueryContext(AbstractObservationRequest request, DatasetEntity dataset, Session session) {
         this.request = request;
@@ -93,4 +98,35 @@ public class ValueQueryContext {
         return this;
     }
 
+    public boolean isKeysetPagination() {
+        return keysetPagination;
+    }
+
+    /**
+     * Query the chunks by the last queried (order column, id) key instead of
+     * the current row.
+     *
+     * @param keysetPagination
+     *            <code>true</code>, if keyset pagination should be used
+     * @return this
+     */
+    public ValueQueryContext setKeysetPagination(boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+        return this;
+    }
+
+    public Date getLastOrderValue() {
+        return lastOrderValue;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public ValueQueryContext setLastKey(Date lastOrderValue, Long lastId) {
+        this.lastOrderValue = lastOrderValue;
+        this.lastId = lastId;
+        return this;
+    }
+
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.stat.Statistics;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.coding.SupportedTypeRepository;
+import org.n52.sensorweb.server.db.old.dao.DefaultDbQueryFactory;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.util.DateTimeHelper;
+import org.n52.sos.cache.InMemoryCacheImpl;
+import org.n52.sos.ds.SosCacheFeederHandler;
+import org.n52.sos.ds.cache.base.BulkOfferingProcedureCacheUpdate;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.ds.hibernate.util.HibernateObservationBuilder;
+import org.n52.sos.util.GeometryHandler;
+
+/**
+ * Compares the cache content and the number of executed statements of the
+ * {@link BulkOfferingProcedureCacheUpdate} with the default cache update.
+ *
+ * @since 6.1.2
+ */
+public class BulkCacheUpdateTest extends ExtendedHibernateTestCase {
+
+    private static final int OBSERVATIONS = 50;
+
+    private SosCacheFeederHandler instance;
+
+    @Before
+    public void fillObservations() throws OwsExceptionReport {
+        Session session = getSession();
+        HibernateMetadataCache.init(session);
+        Transaction transaction = null;
+        try {
+            transaction = getTransaction(session);
+            HibernateObservationBuilder b = new HibernateObservationBuilder(session, getDaoFactory());
+            DateTime begin = DateTimeHelper.parseIsoString2DateTime("2019-10-01T12:00:00.000Z");
+            for (int i = 0; i < OBSERVATIONS; ++i) {
+                b.createObservation(String.valueOf(i), begin.plusHours(i));
+            }
+            session.flush();
+            transaction.commit();
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            returnSession(session);
+        }
+
+        instance = new SosCacheFeederHandler();
+        instance.setConnectionProvider(new H2SessionStore());
+        instance.setDbQueryFactory(new DefaultDbQueryFactory());
+        instance.setGeometryHandler(new GeometryHandler());
+    }
+
+    @After
+    public void clearObservations() {
+        H2Configuration.truncate();
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        H2Configuration.recreate();
+    }
+
+    @Test
+    public void bulkUpdateShouldFillSameCacheContentAsInitialCacheUpdate() throws OwsExceptionReport {
+        InMemoryCacheImpl expected = updateCache(false);
+        InMemoryCacheImpl actual = updateCache(true);
+
+        assertThat(actual.getOfferings(), is(not(empty())));
+        assertThat(actual.getOfferings(), is(expected.getOfferings()));
+        assertThat(actual.getPublishedOfferings(), is(expected.getPublishedOfferings()));
+        assertThat(actual.getProcedures(), is(expected.getProcedures()));
+        assertThat(actual.getPublishedProcedures(), is(expected.getPublishedProcedures()));
+        for (String offering : expected.getOfferings()) {
+            assertThat(actual.getProceduresForOffering(offering), is(expected.getProceduresForOffering(offering)));
+            assertThat(actual.getObservablePropertiesForOffering(offering),
+                    is(expected.getObservablePropertiesForOffering(offering)));
+            assertThat(actual.getFeaturesOfInterestForOffering(offering),
+                    is(expected.getFeaturesOfInterestForOffering(offering)));
+            assertThat(actual.getObservationTypesForOffering(offering),
+                    is(expected.getObservationTypesForOffering(offering)));
+            assertThat(actual.getEnvelopeForOffering(offering), is(expected.getEnvelopeForOffering(offering)));
+            assertThat(actual.getMinPhenomenonTimeForOffering(offering),
+                    is(expected.getMinPhenomenonTimeForOffering(offering)));
+            assertThat(actual.getMaxPhenomenonTimeForOffering(offering),
+                    is(expected.getMaxPhenomenonTimeForOffering(offering)));
+        }
+        for (String procedure : expected.getProcedures()) {
+            assertThat(actual.getOfferingsForProcedure(procedure), is(expected.getOfferingsForProcedure(procedure)));
+            assertThat(actual.getObservablePropertiesForProcedure(procedure),
+                    is(expected.getObservablePropertiesForProcedure(procedure)));
+            assertThat(actual.getMinPhenomenonTimeForProcedure(procedure),
+                    is(expected.getMinPhenomenonTimeForProcedure(procedure)));
+            assertThat(actual.getMaxPhenomenonTimeForProcedure(procedure),
+                    is(expected.getMaxPhenomenonTimeForProcedure(procedure)));
+        }
+        assertThat(actual.getGlobalEnvelope(), is(expected.getGlobalEnvelope()));
+    }
+
+    @Test
+    public void bulkUpdateShouldExecuteFewerStatementsThanInitialCacheUpdate() throws OwsExceptionReport {
+        long expected = countStatements(false);
+        long actual = countStatements(true);
+
+        assertThat(actual, is(greaterThan(0L)));
+        assertThat(actual, is(lessThan(expected)));
+    }
+
+    private long countStatements(boolean bulk) throws OwsExceptionReport {
+        Session session = getSession();
+        Statistics statistics = session.getSessionFactory().getStatistics();
+        returnSession(session);
+        boolean enabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            updateCache(bulk);
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(enabled);
+        }
+    }
+
+    private InMemoryCacheImpl updateCache(boolean bulk) throws OwsExceptionReport {
+        InMemoryCacheImpl cache = (InMemoryCacheImpl) new InMemoryCacheImpl()
+                .setSupportedTypeRepository(new SupportedTypeRepository());
+        instance.setCacheBulkUpdate(bulk);
+        instance.updateCache(cache);
+        return cache;
+    }
+
+}
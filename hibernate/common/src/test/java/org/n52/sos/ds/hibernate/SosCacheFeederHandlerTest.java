@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import java.util.Collections;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.coding.SupportedTypeRepository;
+import org.n52.sensorweb.server.db.old.dao.DefaultDbQueryFactory;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.util.CollectionHelper;
+import org.n52.shetland.util.DateTimeHelper;
+import org.n52.sos.cache.InMemoryCacheImpl;
+import org.n52.sos.ds.SosCacheFeederHandler;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.ds.hibernate.util.HibernateObservationBuilder;
+import org.n52.sos.util.GeometryHandler;
+
+/**
+ * Test for the targeted offering refresh of the {@link SosCacheFeederHandler}.
+ *
+ * @since 6.1.2
+ */
+public class SosCacheFeederHandlerTest extends ExtendedHibernateTestCase {
+
+    private static final String UNTOUCHED_OFFERING = "UntouchedOffering";
+
+    private static final String UNTOUCHED_PROCEDURE = "UntouchedProcedure";
+
+    private SosCacheFeederHandler instance;
+
+    private InMemoryCacheImpl cache;
+
+    @Before
+    public void fillObservations() throws OwsExceptionReport {
+        Session session = getSession();
+        HibernateMetadataCache.init(session);
+        Transaction transaction = null;
+        try {
+            transaction = getTransaction(session);
+            HibernateObservationBuilder b = new HibernateObservationBuilder(session, getDaoFactory());
+            DateTime begin = DateTimeHelper.parseIsoString2DateTime("2019-10-01T12:00:00.000Z");
+            for (int i = 0; i < 5; ++i) {
+                b.createObservation(String.valueOf(i), begin.plusHours(i));
+            }
+            session.flush();
+            transaction.commit();
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            returnSession(session);
+        }
+
+        instance = new SosCacheFeederHandler();
+        instance.setConnectionProvider(new H2SessionStore());
+        instance.setDbQueryFactory(new DefaultDbQueryFactory());
+        instance.setGeometryHandler(new GeometryHandler());
+        cache = (InMemoryCacheImpl) new InMemoryCacheImpl()
+                .setSupportedTypeRepository(new SupportedTypeRepository());
+    }
+
+    @After
+    public void clearObservations() {
+        H2Configuration.truncate();
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        H2Configuration.recreate();
+    }
+
+    @Test
+    public void updateCacheOfferingsOnlyLoadsRequestedOfferings() throws OwsExceptionReport {
+        instance.updateCacheOfferings(cache, Collections.singleton(HibernateObservationBuilder.OFFERING_1));
+
+        assertThat(cache.getOfferings(), contains(HibernateObservationBuilder.OFFERING_1));
+        assertThat(cache.getProceduresForOffering(HibernateObservationBuilder.OFFERING_1),
+                contains(HibernateObservationBuilder.PROCEDURE));
+        assertThat(cache.getObservablePropertiesForOffering(HibernateObservationBuilder.OFFERING_1),
+                contains(HibernateObservationBuilder.OBSERVABLE_PROPERTY));
+        assertThat(cache.getProceduresForOffering(HibernateObservationBuilder.OFFERING_2), is(empty()));
+    }
+
+    @Test
+    public void updateCacheOfferingsKeepsUntouchedOfferings() throws OwsExceptionReport {
+        DateTime time = DateTimeHelper.parseIsoString2DateTime("2020-01-01T00:00:00.000Z");
+        cache.addOffering(UNTOUCHED_OFFERING);
+        cache.setProceduresForOffering(UNTOUCHED_OFFERING, Collections.singleton(UNTOUCHED_PROCEDURE));
+        cache.setMinPhenomenonTimeForOffering(UNTOUCHED_OFFERING, time);
+        cache.setMaxPhenomenonTimeForOffering(UNTOUCHED_OFFERING, time);
+        // stale global extent which has to be recalculated
+        cache.setPhenomenonTime(time.minusYears(1), time.plusYears(1));
+
+        instance.updateCacheOfferings(cache,
+                CollectionHelper.list(HibernateObservationBuilder.OFFERING_1, HibernateObservationBuilder.OFFERING_2));
+
+        assertThat(cache.getOfferings(), containsInAnyOrder(UNTOUCHED_OFFERING,
+                HibernateObservationBuilder.OFFERING_1, HibernateObservationBuilder.OFFERING_2));
+        assertThat(cache.getProceduresForOffering(UNTOUCHED_OFFERING), contains(UNTOUCHED_PROCEDURE));
+        assertThat(cache.getMinPhenomenonTime(), is(time));
+        assertThat(cache.getMaxPhenomenonTime(), is(time));
+    }
+
+    @Test
+    public void updateCacheOfferingsWithoutOfferingsIsNoop() throws OwsExceptionReport {
+        instance.updateCacheOfferings(cache, Collections.emptySet());
+
+        assertThat(cache.getOfferings(), is(empty()));
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao;
+
+import java.util.List;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.util.DateTimeHelper;
+import org.n52.sos.ds.hibernate.ExtendedHibernateTestCase;
+import org.n52.sos.ds.hibernate.H2Configuration;
+import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.DatasetExtentAccumulator;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.ds.hibernate.util.HibernateObservationBuilder;
+
+/**
+ * Test that the deferred dataset extent update of the
+ * {@link DatasetExtentAccumulator} persists the same extents as the per
+ * observation update of the {@link AbstractSeriesDAO}.
+ *
+ * @since 6.1.2
+ */
+public class DatasetExtentAccumulatorTest extends ExtendedHibernateTestCase {
+
+    private static final int OBSERVATIONS = 20;
+
+    private static final DateTime BEGIN = DateTimeHelper.parseIsoString2DateTime("2019-10-01T12:00:00.000Z");
+
+    @After
+    public void clearObservations() {
+        H2Configuration.truncate();
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        H2Configuration.recreate();
+    }
+
+    @Test
+    public void deferredExtentsShouldMatchPerObservationExtents() throws OwsExceptionReport {
+        insertBatch(0);
+        assertSameExtents();
+    }
+
+    @Test
+    public void deferredExtentsShouldExtendExistingExtents() throws OwsExceptionReport {
+        insertBatch(0);
+        // overlapping batch which extends the extents in both directions
+        insertBatch(OBSERVATIONS / 2);
+        insertBatch(-OBSERVATIONS);
+        assertSameExtents();
+    }
+
+    @Test
+    public void clearedExtentsShouldNotBePersisted() throws OwsExceptionReport {
+        Session session = getSession();
+        Transaction transaction = null;
+        try {
+            HibernateMetadataCache.init(session);
+            transaction = getTransaction(session);
+            HibernateObservationBuilder b = new HibernateObservationBuilder(session, getDaoFactory());
+            DatasetExtentAccumulator extents = new DatasetExtentAccumulator();
+            for (DataEntity<?> observation : b.createObservation("cleared", BEGIN)) {
+                extents.add(observation.getDataset(), observation);
+            }
+            assertThat(extents.isEmpty(), is(false));
+            extents.clear();
+            extents.persist(session);
+            transaction.commit();
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            returnSession(session);
+        }
+        session = getSession();
+        try {
+            DatasetEntity dataset = SeriesValueDAOTest.getDataset(session, HibernateObservationBuilder.OFFERING_2);
+            assertThat(dataset.isSetFirstValueAt(), is(false));
+            assertThat(dataset.isSetLastValueAt(), is(false));
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    /**
+     * Insert observations in random time order for both offerings and update
+     * the dataset of the first offering per observation and the dataset of
+     * the second offering with the {@link DatasetExtentAccumulator}.
+     */
+    private void insertBatch(int offset) throws OwsExceptionReport {
+        Session session = getSession();
+        Transaction transaction = null;
+        try {
+            HibernateMetadataCache.init(session);
+            transaction = getTransaction(session);
+            HibernateObservationBuilder b = new HibernateObservationBuilder(session, getDaoFactory());
+            AbstractSeriesDAO seriesDAO = getDaoFactory().getSeriesDAO();
+            DatasetExtentAccumulator extents = new DatasetExtentAccumulator();
+            for (int i = 0; i < OBSERVATIONS; ++i) {
+                int hour = offset + (i * 7) % OBSERVATIONS;
+                DateTime start = BEGIN.plusHours(hour);
+                DateTime end = start.plusMinutes(i % 3);
+                DateTime resultTime = BEGIN.plusDays(OBSERVATIONS - hour);
+                List<DataEntity<?>> observations =
+                        b.createObservation(offset + "_" + i, start, end, resultTime, start, end);
+                DataEntity<?> perObservation = observations.get(0);
+                seriesDAO.updateDatasetWithObservation(perObservation.getDataset(), perObservation, null, session);
+                DataEntity<?> deferred = observations.get(1);
+                seriesDAO.updateDatasetWithObservation(deferred.getDataset(), deferred, extents, session);
+            }
+            assertThat(extents.isEmpty(), is(false));
+            extents.persist(session);
+            assertThat(extents.isEmpty(), is(true));
+            transaction.commit();
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private void assertSameExtents() {
+        Session session = getSession();
+        try {
+            DatasetEntity expected = SeriesValueDAOTest.getDataset(session, HibernateObservationBuilder.OFFERING_1);
+            DatasetEntity actual = SeriesValueDAOTest.getDataset(session, HibernateObservationBuilder.OFFERING_2);
+            assertThat(expected.isSetFirstValueAt(), is(true));
+            assertThat(actual.getFirstValueAt().getTime(), is(expected.getFirstValueAt().getTime()));
+            assertThat(actual.getLastValueAt().getTime(), is(expected.getLastValueAt().getTime()));
+            assertThat(actual.getResultTimeStart().getTime(), is(expected.getResultTimeStart().getTime()));
+            assertThat(actual.getResultTimeEnd().getTime(), is(expected.getResultTimeEnd().getTime()));
+            assertThat(localIdentifier(actual.getFirstObservation()),
+                    is(localIdentifier(expected.getFirstObservation())));
+            assertThat(localIdentifier(actual.getLastObservation()),
+                    is(localIdentifier(expected.getLastObservation())));
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private String localIdentifier(DataEntity<?> observation) {
+        String identifier = observation.getIdentifier();
+        return identifier.substring(identifier.indexOf('/') + 1);
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.dao;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hibernate.Criteria;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.internal.CriteriaImpl;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.util.DateTimeHelper;
+import org.n52.sos.ds.hibernate.ExtendedHibernateTestCase;
+import org.n52.sos.ds.hibernate.H2Configuration;
+import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesValueDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.SeriesValueDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.ValueQueryContext;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.sos.ds.hibernate.util.HibernateObservationBuilder;
+import org.n52.sos.ds.hibernate.util.ScrollableIterable;
+
+/**
+ * Test for the chunk and cursor queries of the {@link AbstractSeriesValueDAO}.
+ *
+ * @since 6.1.2
+ */
+public class SeriesValueDAOTest extends ExtendedHibernateTestCase {
+
+    private static final int OBSERVATIONS = 60;
+
+    private static final int VALUES_PER_TIME = 3;
+
+    private static final int CHUNK_SIZE = 7;
+
+    @Before
+    public void fillObservations() throws OwsExceptionReport {
+        Session session = getSession();
+        HibernateMetadataCache.init(session);
+        Transaction transaction = null;
+        try {
+            transaction = getTransaction(session);
+            HibernateObservationBuilder b = new HibernateObservationBuilder(session, getDaoFactory());
+            DateTime begin = DateTimeHelper.parseIsoString2DateTime("2019-10-01T12:00:00.000Z");
+            for (int i = 0; i < OBSERVATIONS; ++i) {
+                // several values with the same phenomenon time start to check
+                // the id tie breaker
+                DateTime start = begin.plusHours(i / VALUES_PER_TIME);
+                b.createObservation(String.valueOf(i), start, start.plusMinutes(i % VALUES_PER_TIME));
+            }
+            session.flush();
+            transaction.commit();
+        } catch (HibernateException he) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw he;
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @After
+    public void clearObservations() {
+        H2Configuration.truncate();
+    }
+
+    @AfterClass
+    public static void cleanUp() {
+        H2Configuration.recreate();
+    }
+
+    @Test
+    public void keysetChunksShouldReturnAllValuesOrderedByTimeAndId() throws OwsExceptionReport {
+        Session session = getSession();
+        try {
+            AbstractSeriesValueDAO dao = getDaoFactory().getValueDAO();
+            GetObservationRequest request = new GetObservationRequest();
+            DatasetEntity dataset = getDataset(session, HibernateObservationBuilder.OFFERING_1);
+
+            List<Long> expected = dao.getStreamingSeriesValuesFor(new ValueQueryContext(request, dataset, session))
+                    .stream()
+                    .sorted(Comparator.<DataEntity<?>, Long> comparing(d -> d.getSamplingTimeStart().getTime())
+                            .thenComparing(DataEntity::getId))
+                    .map(DataEntity::getId)
+                    .collect(Collectors.toList());
+
+            ValueQueryContext ctx = new ValueQueryContext(request, dataset, session).setChunkSize(CHUNK_SIZE)
+                    .setKeysetPagination(true);
+            List<Long> actual = new ArrayList<>();
+            List<DataEntity<?>> chunk;
+            do {
+                chunk = dao.getStreamingSeriesValuesFor(ctx);
+                assertThat(chunk.size(), is(lessThanOrEqualTo(CHUNK_SIZE)));
+                chunk.stream().map(DataEntity::getId).forEach(actual::add);
+            } while (chunk.size() == CHUNK_SIZE);
+
+            assertThat(expected.size(), is(OBSERVATIONS));
+            assertThat(actual, is(expected));
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @Test
+    public void keysetChunksShouldStartAfterLastKey() throws OwsExceptionReport {
+        Session session = getSession();
+        try {
+            AbstractSeriesValueDAO dao = getDaoFactory().getValueDAO();
+            GetObservationRequest request = new GetObservationRequest();
+            DatasetEntity dataset = getDataset(session, HibernateObservationBuilder.OFFERING_1);
+            ValueQueryContext ctx = new ValueQueryContext(request, dataset, session).setChunkSize(CHUNK_SIZE)
+                    .setKeysetPagination(true);
+
+            assertThat(ctx.getLastId(), is(nullValue()));
+            List<DataEntity<?>> first = dao.getStreamingSeriesValuesFor(ctx);
+            DataEntity<?> last = first.get(first.size() - 1);
+            assertThat(ctx.getLastId(), is(last.getId()));
+            assertThat(ctx.getLastOrderValue().getTime(), is(last.getSamplingTimeStart().getTime()));
+
+            List<DataEntity<?>> second = dao.getStreamingSeriesValuesFor(ctx);
+            assertThat(second, is(not(empty())));
+            for (DataEntity<?> value : second) {
+                assertThat(value.getSamplingTimeStart().getTime(),
+                        is(greaterThanOrEqualTo(last.getSamplingTimeStart().getTime())));
+                assertThat(first.stream().map(DataEntity::getId).collect(Collectors.toList()),
+                        not(hasItem(value.getId())));
+            }
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @Test
+    public void keysetChunksShouldNotSkipRows() throws OwsExceptionReport {
+        Session session = getSession();
+        try {
+            List<Integer> firstResults = new ArrayList<>();
+            AbstractSeriesValueDAO dao = new SeriesValueDAO(getDaoFactory()) {
+                @Override
+                protected void addKeysetChunkValuesToCriteria(Criteria c, int chunkSize, String orderColumn,
+                        Date lastOrderValue, Long lastId, StringBuilder logArgs) {
+                    super.addKeysetChunkValuesToCriteria(c, chunkSize, orderColumn, lastOrderValue, lastId, logArgs);
+                    firstResults.add(((CriteriaImpl) c).getFirstResult());
+                }
+            };
+            GetObservationRequest request = new GetObservationRequest();
+            DatasetEntity dataset = getDataset(session, HibernateObservationBuilder.OFFERING_1);
+            ValueQueryContext ctx = new ValueQueryContext(request, dataset, session).setChunkSize(CHUNK_SIZE)
+                    .setKeysetPagination(true);
+            int values = 0;
+            List<DataEntity<?>> chunk;
+            do {
+                chunk = dao.getStreamingSeriesValuesFor(ctx);
+                values += chunk.size();
+                // the streaming value advances the row as for offset chunks
+                ctx.setCurrentRow(ctx.getCurrentRow() + CHUNK_SIZE);
+            } while (chunk.size() == CHUNK_SIZE);
+
+            // one query per chunk, none of them skips already queried rows
+            assertThat(values, is(OBSERVATIONS));
+            assertThat(firstResults.size(), is((OBSERVATIONS + CHUNK_SIZE - 1) / CHUNK_SIZE));
+            assertThat(firstResults, everyItem(is(nullValue())));
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @Test
+    public void scrollableValuesShouldReturnAllValues() throws OwsExceptionReport {
+        Session session = getSession();
+        try {
+            AbstractSeriesValueDAO dao = getDaoFactory().getValueDAO();
+            GetObservationRequest request = new GetObservationRequest();
+            DatasetEntity dataset = getDataset(session, HibernateObservationBuilder.OFFERING_1);
+
+            List<Long> expected = dao.getStreamingSeriesValuesFor(new ValueQueryContext(request, dataset, session))
+                    .stream()
+                    .map(DataEntity::getId)
+                    .collect(Collectors.toList());
+
+            List<Long> actual = new ArrayList<>();
+            try (ScrollableIterable<DataEntity<?>> values = dao.getScrollableSeriesValuesFor(
+                    new ValueQueryContext(request, dataset, session).setChunkSize(CHUNK_SIZE))) {
+                for (DataEntity<?> value : values) {
+                    actual.add(value.getId());
+                }
+            }
+
+            assertThat(actual, containsInAnyOrder(expected.toArray()));
+            assertThat(actual.size(), is(OBSERVATIONS));
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    static DatasetEntity getDataset(Session session, String offering) {
+        return (DatasetEntity) session.createCriteria(DatasetEntity.class)
+                .createAlias(DatasetEntity.PROPERTY_OFFERING, "o")
+                .add(Restrictions.eq("o." + OfferingEntity.IDENTIFIER, offering))
+                .uniqueResult();
+    }
+
+}
@@ -31,10 +31,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 
@@ -67,6 +69,7 @@ import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.sos.SosConstants;
 import org.n52.shetland.util.IdGenerator;
 import org.n52.shetland.util.ReferencedEnvelope;
+import org.n52.sos.cache.FeatureSpatialIndex;
 import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.ds.FeatureQueryHandler;
 import org.n52.sos.ds.FeatureQueryHandlerQueryObject;
@@ -115,6 +118,8 @@ public class HibernateFeatureQueryHandler
 
     private ProfileHandler profileHandler;
 
+    private FeatureSpatialIndex featureSpatialIndex;
+
     @Inject
     public void setDaoFactory(DaoFactory daoFactory) {
         this.daoFactory = daoFactory;
@@ -140,6 +145,11 @@ public class HibernateFeatureQueryHandler
         this.profileHandler = profileHandler;
     }
 
+    @Inject
+    public void setFeatureSpatialIndex(FeatureSpatialIndex featureSpatialIndex) {
+        this.featureSpatialIndex = featureSpatialIndex;
+    }
+
     @Setting(I18NSettings.I18N_DEFAULT_LANGUAGE)
     public void setDefaultLocale(String defaultLocale) {
         this.defaultLocale = LocaleHelper.decode(defaultLocale);
@@ -193,8 +203,13 @@ public class HibernateFeatureQueryHandler
                 List<String> identifiers = new LinkedList<>();
                 if (queryObject.isSetSpatialFilters()) {
                     SpatialFilter filter = queryObject.getSpatialFitler();
-                    final List<AbstractFeatureEntity> features = daoFactory.getFeatureDAO().getFeatures(session);
                     final Geometry envelope = getGeometryHandler().getFilterForNonSpatialDatasource(filter);
+                    FeatureSpatialIndex index = getFeatureSpatialIndex(session);
+                    if (index != null) {
+                        identifiers.addAll(index.getFeatures(Collections.singleton(envelope)));
+                        return identifiers;
+                    }
+                    final List<AbstractFeatureEntity> features = daoFactory.getFeatureDAO().getFeatures(session);
                     FeatureVisitorContext context = getDefaultContext()
                             .setSession(session)
                             .setRequestedLanguage(queryObject.getI18N());
@@ -239,6 +254,8 @@ public class HibernateFeatureQueryHandler
                 // see
                 // http://www.hibernatespatial.org/pipermail/hibernatespatial-users/2013-August/000876.html
                 Dialect dialect = ((SessionFactoryImplementor) session.getSessionFactory()).getDialect();
+                FeatureSpatialIndex index =
+                        getGeometryHandler().isSpatialDatasource() ? null : getFeatureSpatialIndex(session);
                 if (getGeometryHandler().isSpatialDatasource()
                         && HibernateHelper.supportsFunction(dialect, HibernateConstants.FUNC_EXTENT)) {
                     // Criteria featureExtentCriteria =
@@ -264,6 +281,11 @@ public class HibernateFeatureQueryHandler
                         geometry = getGeometryHandler().switchCoordinateAxisFromToDatasourceIfNeeded(geometry);
                         return new ReferencedEnvelope(geometry.getEnvelopeInternal(), srid);
                     }
+                } else if (index != null) {
+                    Envelope envelope = index.getEnvelope(queryObject.getFeatures());
+                    if (!envelope.isNull()) {
+                        return new ReferencedEnvelope(envelope, getGeometryHandler().getStorageEPSG());
+                    }
                 } else {
                     final Envelope envelope = new Envelope();
                     final List<AbstractFeatureEntity> featuresOfInterest =
@@ -439,8 +461,21 @@ public class HibernateFeatureQueryHandler
                 envelopes.add(getGeometryHandler().getFilterForNonSpatialDatasource(filter));
             }
         }
+        Collection<String> identifiers = queryObject.getFeatures();
+        FeatureSpatialIndex index = hasSpatialFilter ? getFeatureSpatialIndex(session) : null;
+        if (index != null) {
+            // only load the candidates, the exact check is done below
+            Set<String> candidates = index.getFeatures(envelopes);
+            if (queryObject.isSetFeatures()) {
+                candidates.retainAll(new HashSet<>(queryObject.getFeatures()));
+            }
+            if (candidates.isEmpty()) {
+                return featureMap;
+            }
+            identifiers = candidates;
+        }
         final List<AbstractFeatureEntity> featuresOfInterest =
-                daoFactory.getFeatureDAO().getFeatureOfInterestObjects(queryObject.getFeatures(), session);
+                daoFactory.getFeatureDAO().getFeatureOfInterestObjects(identifiers, session);
         for (final AbstractFeatureEntity feature : featuresOfInterest) {
             final AbstractSamplingFeature sosAbstractFeature =
                     (AbstractSamplingFeature) createSosAbstractFeature(feature, queryObject, session);
@@ -478,6 +513,41 @@ public class HibernateFeatureQueryHandler
         }
     }
 
+    /**
+     * Get the up to date spatial index of the features if it is enabled
+     *
+     * @param session the session
+     * @return the index or <code>null</code> if it is not available
+     * @throws OwsExceptionReport If an error occurs while loading the features
+     */
+    protected FeatureSpatialIndex getFeatureSpatialIndex(Session session) throws OwsExceptionReport {
+        if (featureSpatialIndex == null || !featureSpatialIndex.isEnabled()) {
+            return null;
+        }
+        featureSpatialIndex.update(identifiers -> getFeatureGeometries(identifiers, session));
+        return featureSpatialIndex;
+    }
+
+    private Map<String, Geometry> getFeatureGeometries(Collection<String> identifiers, Session session)
+            throws OwsExceptionReport {
+        final List<AbstractFeatureEntity> features = identifiers == null
+                ? daoFactory.getFeatureDAO().getFeatures(session)
+                : daoFactory.getFeatureDAO().getFeatureOfInterestObjects(identifiers, session);
+        final Map<String, Geometry> geometries = new HashMap<>(features.size());
+        FeatureVisitorContext context = getDefaultContext().setSession(session);
+        for (final AbstractFeatureEntity feature : features) {
+            try {
+                final Geometry geom = new GeometryVisitorImpl(context).visit(feature);
+                if (geom != null && !geom.isEmpty()) {
+                    geometries.put(feature.getIdentifier(), geom);
+                }
+            } catch (final OwsExceptionReport owse) {
+                LOGGER.warn(String.format("Error while adding '%s' to spatial index!", feature.getId()), owse);
+            }
+        }
+        return geometries;
+    }
+
     protected GeometryHandler getGeometryHandler() {
         return geometryHandler;
     }
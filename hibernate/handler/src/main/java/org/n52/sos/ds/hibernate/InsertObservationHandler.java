@@ -28,10 +28,17 @@
 package org.n52.sos.ds.hibernate;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 import javax.inject.Inject;
 import javax.persistence.PersistenceException;
@@ -53,7 +60,9 @@ import org.n52.series.db.beans.UnitEntity;
 import org.n52.series.db.beans.dataset.DatasetType;
 import org.n52.shetland.ogc.UoM;
 import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
 import org.n52.shetland.ogc.om.MultiObservationValues;
+import org.n52.shetland.ogc.om.NamedValue;
 import org.n52.shetland.ogc.om.OmObservation;
 import org.n52.shetland.ogc.om.OmObservationConstellation;
 import org.n52.shetland.ogc.om.SingleObservationValue;
@@ -69,9 +78,12 @@ import org.n52.shetland.ogc.sos.response.InsertObservationResponse;
 import org.n52.sos.ds.AbstractInsertObservationHandler;
 import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.DatasetExtentAccumulator;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.TransactionHelper;
 import org.n52.sos.service.SosSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
@@ -82,16 +94,25 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import com.google.common.collect.Table.Cell;
+import com.google.common.util.concurrent.Striped;
 
 @Configurable
 public class InsertObservationHandler extends AbstractInsertObservationHandler
         implements Constructable, TransactionHelper {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InsertObservationHandler.class);
+
     private static final int FLUSH_THRESHOLD = 50;
 
+    private static final int LOCK_STRIPES = 64;
+
+    private static final int MAX_ATTEMPTS = 3;
+
     private static final String CONSTRAINT_OBSERVATION_IDENTITY = "observationIdentity";
 
     private static final String CONSTRAINT_OBSERVATION_IDENTIFIER_IDENTITY = "obsIdentifierUK";
 
+    private static final String CONSTRAINT_OBSERVATION_MAPPING_PREFIX = "un_observation_";
+
     private static final String LOG_OBSERVATION_SAME_VALUES =
             "Observation with same values already contained in database";
 
@@ -113,6 +134,8 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
 
     private boolean strictSpatialFilteringProfile;
 
+    private final Striped<Lock> datasetLocks = Striped.lock(LOCK_STRIPES);
+
     /**
      * constructor
      */
@@ -140,7 +163,37 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
     }
 
     @Override
-    public synchronized InsertObservationResponse insertObservation(final InsertObservationRequest request)
+    public InsertObservationResponse insertObservation(final InsertObservationRequest request)
+            throws OwsExceptionReport {
+        // only requests for the same datasets are serialized
+        Iterable<Lock> locks = datasetLocks.bulkGet(getDatasetKeys(request));
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+        try {
+            RequestSnapshot snapshot = new RequestSnapshot(request);
+            int attempt = 1;
+            while (true) {
+                try {
+                    return insertObservationInTransaction(request);
+                } catch (PersistenceException pe) {
+                    if (attempt >= MAX_ATTEMPTS || !isConcurrentInsertion(pe)) {
+                        handleHibernateException(pe);
+                    }
+                    LOGGER.debug("Concurrent insertion of related entities, retry insertion ({}/{})", attempt,
+                            MAX_ATTEMPTS, pe);
+                    snapshot.restore();
+                    attempt++;
+                }
+            }
+        } finally {
+            for (Lock lock : locks) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private InsertObservationResponse insertObservationInTransaction(final InsertObservationRequest request)
             throws OwsExceptionReport {
         final InsertObservationResponse response = new InsertObservationResponse();
         response.setService(request.getService());
@@ -173,6 +226,7 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
 
                 // flush every FLUSH_INTERVAL
                 if (++obsCount % FLUSH_THRESHOLD == 0) {
+                    cache.getDatasetExtents().persist(session);
                     session.flush();
                     session.clear();
                     cache.clearConstellation();
@@ -186,13 +240,14 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
                 throw exceptions;
             }
 
+            cache.getDatasetExtents().persist(session);
             session.flush();
             transaction.commit();
         } catch (PersistenceException pe) {
             if (transaction != null) {
                 transaction.rollback();
             }
-            handleHibernateException(pe);
+            throw pe;
         } finally {
             getHibernateSessionHolder().returnSession(session);
         }
@@ -203,6 +258,69 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
         return response;
     }
 
+    /**
+     * Get the keys of the datasets the observations of the request are
+     * inserted into. A dataset is identified by procedure, observable
+     * property, feature of interest and offering, so an observation with
+     * several offerings adds one key per offering.
+     *
+     * @param request
+     *            the request
+     * @return the dataset keys
+     */
+    private Set<List<String>> getDatasetKeys(InsertObservationRequest request) {
+        Set<List<String>> keys = new HashSet<>();
+        if (request.getObservations() != null) {
+            for (OmObservation observation : request.getObservations()) {
+                OmObservationConstellation constellation = observation.getObservationConstellation();
+                if (constellation != null) {
+                    Collection<String> offerings = constellation.getOfferings() != null
+                            && !constellation.getOfferings().isEmpty()
+                                    ? constellation.getOfferings()
+                                    : Collections.singleton(null);
+                    for (String offering : offerings) {
+                        keys.add(Arrays.asList(constellation.getProcedureIdentifier(),
+                                constellation.getObservablePropertyIdentifier(),
+                                constellation.getFeatureOfInterestIdentifier(), offering));
+                    }
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Check if the exception is caused by a concurrent insertion of the same
+     * dataset, feature or other related entity. Violations of the
+     * observation constraints, as named in the database scripts or in the
+     * mapping, are not caused by concurrency.
+     *
+     * @param pe
+     *            the exception
+     * @return <code>true</code>, if the insertion should be retried
+     */
+    private boolean isConcurrentInsertion(PersistenceException pe) {
+        ConstraintViolationException cve = pe instanceof ConstraintViolationException
+                ? (ConstraintViolationException) pe
+                : pe.getCause() instanceof ConstraintViolationException ? (ConstraintViolationException) pe.getCause()
+                        : null;
+        if (cve == null) {
+            return false;
+        }
+        return !isObservationConstraint(cve.getConstraintName()) && !isObservationConstraint(cve.getMessage())
+                && (cve.getSQLException() == null || !isObservationConstraint(cve.getSQLException().getMessage()));
+    }
+
+    private boolean isObservationConstraint(String message) {
+        if (Strings.isNullOrEmpty(message)) {
+            return false;
+        }
+        String lowerCase = message.toLowerCase(Locale.ROOT);
+        return lowerCase.contains(CONSTRAINT_OBSERVATION_IDENTITY.toLowerCase(Locale.ROOT))
+                || lowerCase.contains(CONSTRAINT_OBSERVATION_IDENTIFIER_IDENTITY.toLowerCase(Locale.ROOT))
+                || lowerCase.contains(CONSTRAINT_OBSERVATION_MAPPING_PREFIX);
+    }
+
     private void insertObservation(OmObservation sosObservation, InsertObservationCache cache,
             CompositeOwsException exceptions, Session session) throws OwsExceptionReport, CodedException {
 
@@ -248,10 +366,12 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
             DatasetEntity dataset = null;
             if (sosObservation.getValue() instanceof SingleObservationValue) {
                 dataset = observationDAO.insertObservationSingleValue(hDataset, hFeature, sosObservation,
-                        cache.getCodespaceCache(), cache.getUnitCache(), cache.getFormatCache(), session);
+                        cache.getCodespaceCache(), cache.getUnitCache(), cache.getFormatCache(),
+                        cache.getDatasetExtents(), session);
             } else if (sosObservation.getValue() instanceof MultiObservationValues) {
                 dataset = observationDAO.insertObservationMultiValue(hDataset, hFeature, sosObservation,
-                        cache.getCodespaceCache(), cache.getUnitCache(), cache.getFormatCache(), session);
+                        cache.getCodespaceCache(), cache.getUnitCache(), cache.getFormatCache(),
+                        cache.getDatasetExtents(), session);
             }
             if (dataset != null && cache.containsConstellation(sosObsConst, offeringID)
                     && !cache.get(sosObsConst, offeringID).equals(dataset)) {
@@ -367,6 +487,47 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
         this.connectionProvider = connectionProvider;
     }
 
+    /**
+     * The state of the request which is modified by an insertion attempt: the
+     * offerings of the request and the parameters (e.g. the vertical
+     * parameters are moved to the entities) and result times of the
+     * observations. A failed attempt is rolled back by {@link #restore()} before
+     * the insertion is retried.
+     */
+    @VisibleForTesting
+    static class RequestSnapshot {
+        private final InsertObservationRequest request;
+
+        private final List<String> offerings;
+
+        private final List<Collection<NamedValue<?>>> parameters = new ArrayList<>();
+
+        private final List<TimeInstant> resultTimes = new ArrayList<>();
+
+        RequestSnapshot(InsertObservationRequest request) {
+            this.request = request;
+            this.offerings = new ArrayList<>(request.getOfferings());
+            if (request.getObservations() != null) {
+                for (OmObservation observation : request.getObservations()) {
+                    parameters.add(new ArrayList<>(observation.getParameterHolder().getParameter()));
+                    resultTimes.add(observation.getResultTime());
+                }
+            }
+        }
+
+        void restore() {
+            request.setOfferings(offerings);
+            if (request.getObservations() != null) {
+                Iterator<Collection<NamedValue<?>>> parameter = parameters.iterator();
+                Iterator<TimeInstant> resultTime = resultTimes.iterator();
+                for (OmObservation observation : request.getObservations()) {
+                    observation.getParameterHolder().setParameter(parameter.next());
+                    observation.setResultTime(resultTime.next());
+                }
+            }
+        }
+    }
+
     private static class InsertObservationCache {
         private final Set<String> allOfferings = Sets.newHashSet();
 
@@ -381,6 +542,8 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
 
         private final Map<String, FormatEntity> formatCache = Maps.newHashMap();
 
+        private final DatasetExtentAccumulator datasetExtents = new DatasetExtentAccumulator();
+
         private final HashMultimap<OmObservationConstellation, String> obsConstOfferingCheckedMap =
                 HashMultimap.create();
 
@@ -452,6 +615,10 @@ public class InsertObservationHandler extends AbstractInsertObservationHandler
             return formatCache;
         }
 
+        public DatasetExtentAccumulator getDatasetExtents() {
+            return datasetExtents;
+        }
+
         public Set<String> getAllOfferings() {
             return allOfferings;
         }
@@ -27,11 +27,15 @@
  */
 package org.n52.sos.ds.hibernate;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.LongSummaryStatistics;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -54,6 +58,9 @@ import org.n52.series.db.beans.UnitEntity;
 import org.n52.shetland.ogc.UoM;
 import org.n52.shetland.ogc.gml.AbstractFeature;
 import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
 import org.n52.shetland.ogc.om.MultiObservationValues;
 import org.n52.shetland.ogc.om.OmConstants;
 import org.n52.shetland.ogc.om.OmObservableProperty;
@@ -91,13 +98,16 @@ import org.n52.sos.ds.hibernate.dao.DaoFactory;
 import org.n52.sos.ds.hibernate.dao.FormatDAO;
 import org.n52.sos.ds.hibernate.dao.observation.AbstractObservationDAO;
 import org.n52.sos.ds.hibernate.dao.observation.ObservationContext;
+import org.n52.sos.ds.hibernate.dao.observation.ObservationFlushMode;
 import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
+import org.n52.sos.ds.hibernate.dao.observation.series.DatasetExtentAccumulator;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.TransactionHelper;
 import org.n52.sos.ds.hibernate.util.observation.ObservationUnfolder;
 import org.n52.sos.ds.hibernate.util.observation.ObservationUnfolderContext;
 import org.n52.sos.ds.utils.ResultHandlingHelper;
 import org.n52.sos.service.SosSettings;
+import org.n52.sos.util.ResultBlockTokenizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -117,6 +127,8 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
     public static final String ABORT_INSERT_RESULT_FOR_EXISTING_OBSERVATIONS =
             "service.abortInsertResultForExistingObservations";
 
+    public static final String INSERT_RESULT_BATCH_SIZE = "service.transactional.insertResultBatchSize";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(InsertResultHandler.class);
 
     private static final int FLUSH_THRESHOLD = 50;
@@ -133,6 +145,8 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
 
     private boolean abortInsertResultForExistingObservations;
 
+    private int insertResultBatchSize;
+
     private ResultHandlingHelper helper;
 
     private boolean insertAdditionallyAsProfile;
@@ -159,15 +173,25 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         Map<String, CodespaceEntity> codespaceCache = Maps.newHashMap();
         Map<UoM, UnitEntity> unitCache = Maps.newHashMap();
         Map<String, FormatEntity> formatCache = Maps.newHashMap();
-
+        final boolean bulk = isBulkInsertResult();
+        DatasetExtentAccumulator datasetExtents = new DatasetExtentAccumulator();
+        // only the bulk insertion leaves the flush of the inserted observations
+        // to the flush threshold, so that they reach the database in JDBC
+        // batches
+        final ObservationFlushMode flushMode =
+                bulk ? ObservationFlushMode.CALLER : ObservationFlushMode.EACH_OBSERVATION;
+        final int flushThreshold = bulk ? insertResultBatchSize : FLUSH_THRESHOLD;
         try {
             session = getHibernateSessionHolder().getSession();
+            if (bulk) {
+                session.setJdbcBatchSize(insertResultBatchSize);
+            }
             transaction = getTransaction(session);
             final ResultTemplateEntity resultTemplate = getDaoFactory().getResultTemplateDAO()
                     .getResultTemplateObject(request.getTemplateIdentifier(), session);
             final OmObservation o = getSingleObservationFromResultValues(response.getVersion(), resultTemplate,
                     request.getResultValues(), session);
-            final List<OmObservation> observations = getSingleObservationsFromObservation(o);
+            List<OmObservation> observations = getSingleObservationsFromObservation(o);
             if (o.getObservationConstellation().isSetFeatureOfInterest()
                     && o.getObservationConstellation().isSetProcedure()) {
                 response.setObservation(o);
@@ -178,10 +202,13 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
             final AbstractSeriesDAO obsConstDao = getDaoFactory().getSeriesDAO();
             final FormatDAO obsTypeDao = getDaoFactory().getObservationTypeDAO();
             Map<OmObservationConstellation, DatasetEntity> obsConsts = new HashMap<>();
+            final AbstractObservationDAO observationDAO = getDaoFactory().getObservationDAO();
+            if (bulk && !abortInsertResultForExistingObservations()) {
+                observations = removeExistingObservations(observations, obsConstDao, observationDAO, session);
+            }
 
             int insertion = 0;
             final int size = observations.size();
-            final AbstractObservationDAO observationDAO = getDaoFactory().getObservationDAO();
             LOGGER.debug("Start saving {} observations.", size);
             Map<String, AbstractFeatureEntity> featureEntityMap = new HashMap<>();
             for (final OmObservation observation : observations) {
@@ -207,12 +234,13 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
                 try {
                     if (observation.getValue() instanceof SingleObservationValue) {
                         observationDAO.insertObservationSingleValue(obsConst, feature, observation, codespaceCache,
-                                unitCache, formatCache, session);
+                                unitCache, formatCache, datasetExtents, flushMode, session);
                     } else if (observation.getValue() instanceof MultiObservationValues) {
                         observationDAO.insertObservationMultiValue(obsConst, feature, observation, codespaceCache,
-                                unitCache, formatCache, session);
+                                unitCache, formatCache, datasetExtents, flushMode, session);
                     }
-                    if (!abortInsertResultForExistingObservations()) {
+                    if (!bulk && !abortInsertResultForExistingObservations()) {
+                        datasetExtents.persist(session);
                         transaction.commit();
                         if (!session.isOpen()) {
                             session = getHibernateSessionHolder().getSession();
@@ -220,10 +248,11 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
                         transaction = getTransaction(session);
                     }
                 } catch (PersistenceException pe) {
-                    if (abortInsertResultForExistingObservations()) {
+                    if (bulk || abortInsertResultForExistingObservations()) {
                         throw pe;
                     } else {
                         transaction.rollback();
+                        datasetExtents.clear();
                         if (session.isConnected() || session.isOpen()) {
                             session.clear();
                         } else {
@@ -233,13 +262,15 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
                         LOGGER.debug("Already existing observation would be ignored!", pe);
                     }
                 }
-                if ((++insertion % FLUSH_THRESHOLD) == 0) {
+                if ((++insertion % flushThreshold) == 0) {
+                    datasetExtents.persist(session);
                     session.flush();
                     session.clear();
                     LOGGER.debug("Saved {}/{} observations.", insertion, size);
                 }
             }
             LOGGER.debug("Saved {} observations.", size);
+            datasetExtents.persist(session);
             transaction.commit();
         } catch (final HibernateException he) {
             if (transaction != null) {
@@ -291,6 +322,93 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         return hFeature;
     }
 
+    /**
+     * Remove the observations which already exist in the database or occur
+     * more than once in the request. The existing observations are queried
+     * once per dataset for the time range of the new observations instead of
+     * inserting and rolling back each single observation.
+     *
+     * @param observations
+     *            Observations to insert
+     * @param obsConstDao
+     *            Dataset DAO
+     * @param observationDAO
+     *            Observation DAO
+     * @param session
+     *            Hibernate session
+     * @return the first occurrence of each observation which does not exist
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    private List<OmObservation> removeExistingObservations(List<OmObservation> observations,
+            AbstractSeriesDAO obsConstDao, AbstractObservationDAO observationDAO, Session session)
+            throws OwsExceptionReport {
+        Map<OmObservationConstellation, List<List<Long>>> keys = new HashMap<>();
+        for (OmObservation observation : observations) {
+            List<Long> key = getTimeKey(observation);
+            if (key != null) {
+                keys.computeIfAbsent(observation.getObservationConstellation(), k -> new ArrayList<>()).add(key);
+            }
+        }
+        Map<OmObservationConstellation, Set<List<Long>>> existing = new HashMap<>();
+        Set<OmObservationConstellation> vertical = new HashSet<>();
+        for (Entry<OmObservationConstellation, List<List<Long>>> entry : keys.entrySet()) {
+            DatasetEntity dataset = obsConstDao.getSeries(entry.getKey(), session);
+            if (dataset == null) {
+                existing.put(entry.getKey(), new HashSet<>());
+            } else if (dataset.hasVerticalMetadata()) {
+                // the vertical values are part of the observation identity
+                vertical.add(entry.getKey());
+            } else {
+                LongSummaryStatistics starts = entry.getValue().stream().mapToLong(k -> k.get(0)).summaryStatistics();
+                existing.put(entry.getKey(), observationDAO.getObservationTimeKeys(dataset,
+                        new Date(starts.getMin()), new Date(starts.getMax()), session));
+            }
+        }
+        List<OmObservation> newObservations = new ArrayList<>(observations.size());
+        for (OmObservation observation : observations) {
+            List<Long> key = getTimeKey(observation);
+            OmObservationConstellation constellation = observation.getObservationConstellation();
+            // adding the key also skips later duplicates within the request
+            if (key == null || vertical.contains(constellation) || existing.get(constellation).add(key)) {
+                newObservations.add(observation);
+            }
+        }
+        LOGGER.debug("Skipped {} already existing or duplicated observations.",
+                observations.size() - newObservations.size());
+        return newObservations;
+    }
+
+    private List<Long> getTimeKey(OmObservation observation) {
+        if (observation.isSetHeightDepthParameter() || observation.getValue().getValue() instanceof ProfileValue) {
+            return null;
+        }
+        Time phenomenonTime = observation.getPhenomenonTime();
+        Long start;
+        Long end;
+        if (phenomenonTime instanceof TimeInstant && ((TimeInstant) phenomenonTime).isSetValue()) {
+            start = ((TimeInstant) phenomenonTime).getValue().getMillis();
+            end = start;
+        } else if (phenomenonTime instanceof TimePeriod && ((TimePeriod) phenomenonTime).isSetStart()
+                && ((TimePeriod) phenomenonTime).isSetEnd()) {
+            start = ((TimePeriod) phenomenonTime).getStart().getMillis();
+            end = ((TimePeriod) phenomenonTime).getEnd().getMillis();
+        } else {
+            return null;
+        }
+        TimeInstant resultTime = observation.getResultTime();
+        Long result;
+        if (resultTime != null && resultTime.isSetValue()) {
+            result = resultTime.getValue().getMillis();
+        } else if (phenomenonTime instanceof TimeInstant
+                && (resultTime == null || !resultTime.isSetIndeterminateValue())) {
+            result = start;
+        } else {
+            return null;
+        }
+        return Arrays.asList(start, end, result);
+    }
+
     /**
      * Create OmObservation from result values
      *
@@ -311,8 +429,7 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
             throws OwsExceptionReport {
         final SosResultEncoding resultEncoding = createSosResultEncoding(resultTemplate.getEncoding());
         final SosResultStructure resultStructure = createSosResultStructure(resultTemplate.getStructure());
-        final String[] blockValues = getBlockValues(resultValues, resultEncoding.get().get());
-        final OmObservation singleObservation = getObservation(resultTemplate, blockValues,
+        final OmObservation singleObservation = getObservation(resultTemplate, resultValues,
                 resultStructure.get().get(), resultEncoding.get().get(), session);
         // final AbstractFeature feature =
         // getSosAbstractFeature(resultTemplate.getFeatureOfInterest(), version,
@@ -406,8 +523,8 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
      *
      * @param resultTemplate
      *            Associated ResultTemplate
-     * @param blockValues
-     *            Block values from result values
+     * @param resultValues
+     *            Result values
      * @param resultStructure
      *            Associated ResultStructure
      * @param encoding
@@ -418,7 +535,7 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
      * @throws OwsExceptionReport
      *             If processing fails
      */
-    private OmObservation getObservation(final ResultTemplateEntity resultTemplate, final String[] blockValues,
+    private OmObservation getObservation(final ResultTemplateEntity resultTemplate, final String resultValues,
             final SweAbstractDataComponent resultStructure, final SweAbstractEncoding encoding, final Session session)
             throws OwsExceptionReport {
         final int resultTimeIndex = helper.hasResultTime(resultStructure);
@@ -436,7 +553,7 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
                 Sets.newHashSet(resultTimeIndex, phenomenonTimeIndex), encoding);
 
         final MultiObservationValues<SweDataArray> sosValues =
-                createObservationValueFrom(blockValues, record, encoding, resultTimeIndex, phenomenonTimeIndex);
+                createObservationValueFrom(resultValues, record, encoding, resultTimeIndex, phenomenonTimeIndex);
 
         final OmObservation observation = new OmObservation();
         observation.setObservationConstellation(getSosObservationConstellation(resultTemplate, session));
@@ -503,8 +620,8 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
     /**
      * Create internal observation value
      *
-     * @param blockValues
-     *            Block values from result values
+     * @param resultValues
+     *            Result values
      * @param recordFromResultStructure
      *            Associated ResultStructure
      * @param encoding
@@ -517,7 +634,7 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
      * @throws OwsExceptionReport
      *             If processing fails
      */
-    private MultiObservationValues<SweDataArray> createObservationValueFrom(final String[] blockValues,
+    private MultiObservationValues<SweDataArray> createObservationValueFrom(final String resultValues,
             final SweAbstractDataComponent recordFromResultStructure, final SweAbstractEncoding encoding,
             final int resultTimeIndex, final int phenomenonTimeIndex) throws OwsExceptionReport {
         final SweDataArray dataArray = new SweDataArray();
@@ -527,12 +644,11 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         final SweDataArrayValue dataArrayValue = new SweDataArrayValue();
         dataArrayValue.setValue(dataArray);
 
-        for (final String block : blockValues) {
-            if (block != null && !block.isEmpty()) {
-                final String[] singleValues = getSingleValues(block, encoding);
-                if (singleValues != null && singleValues.length > 0) {
-                    dataArrayValue.addBlock(Arrays.asList(singleValues));
-                }
+        if (encoding instanceof SweTextEncoding) {
+            final ResultBlockTokenizer tokenizer =
+                    new ResultBlockTokenizer(resultValues, (SweTextEncoding) encoding);
+            while (tokenizer.hasNext()) {
+                dataArrayValue.addBlock(new ArrayList<>(tokenizer.next()));
             }
         }
         final MultiObservationValues<SweDataArray> sosValues = new MultiObservationValues<SweDataArray>();
@@ -540,76 +656,6 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         return sosValues;
     }
 
-    /**
-     * Get single values from a block value
-     *
-     * @param block
-     *            Block value
-     * @param encoding
-     *            ResultEncoding
-     * @return Single value array
-     */
-    private String[] getSingleValues(final String block, final SweAbstractEncoding encoding) {
-        if (encoding instanceof SweTextEncoding) {
-            final SweTextEncoding textEncoding = (SweTextEncoding) encoding;
-            return separateValues(block, textEncoding.getTokenSeparator());
-        }
-        return null;
-    }
-
-    /**
-     * Get block values from result values
-     *
-     * @param resultValues
-     *            Result values
-     * @param encoding
-     *            ResultEncoding
-     * @return Block value array
-     */
-    private String[] getBlockValues(final String resultValues, final SweAbstractEncoding encoding) {
-        if (encoding instanceof SweTextEncoding) {
-            final SweTextEncoding textEncoding = (SweTextEncoding) encoding;
-            final String[] blockValues = separateValues(resultValues, textEncoding.getBlockSeparator());
-            return checkForCountValue(blockValues, textEncoding.getTokenSeparator());
-        }
-        return null;
-    }
-
-    /**
-     * Check if the block values from result values contains a preceding count value
-     *
-     * @param blockValues
-     *            Block values from result values
-     * @param tokenSeparator
-     *            Token separator
-     * @return Block value array without preceding count value
-     */
-    private String[] checkForCountValue(final String[] blockValues, final String tokenSeparator) {
-        if (blockValues != null && blockValues.length > 0) {
-            if (blockValues[0].contains(tokenSeparator)) {
-                return blockValues;
-            } else {
-                final String[] blockValuesWithoutCount = new String[blockValues.length - 1];
-                System.arraycopy(blockValues, 1, blockValuesWithoutCount, 0, blockValuesWithoutCount.length);
-                return blockValuesWithoutCount;
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Separate values from String with separator
-     *
-     * @param values
-     *            Value String
-     * @param separator
-     *            Separator
-     * @return Separated values as array
-     */
-    private String[] separateValues(final String values, final String separator) {
-        return values.split(separator, Integer.MAX_VALUE);
-    }
-
     private DatasetEntity insertObservationConstellationForProfiles(AbstractSeriesDAO obsConstDao,
             FormatDAO obsTypeDao, OmObservation o, Session session) throws OwsExceptionReport {
         ObservationContext ctx = new ObservationContext();
@@ -663,6 +709,15 @@ public class InsertResultHandler extends AbstractInsertResultHandler implements
         return abortInsertResultForExistingObservations;
     }
 
+    @Setting(value = INSERT_RESULT_BATCH_SIZE, required = false)
+    public void setInsertResultBatchSize(int insertResultBatchSize) {
+        this.insertResultBatchSize = insertResultBatchSize;
+    }
+
+    private boolean isBulkInsertResult() {
+        return insertResultBatchSize > 0;
+    }
+
     @VisibleForTesting
     protected synchronized void initForTesting(DaoFactory daoFactory, ConnectionProvider connectionProvider) {
         this.daoFactory = daoFactory;
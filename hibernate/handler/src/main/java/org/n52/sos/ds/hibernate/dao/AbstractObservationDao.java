@@ -47,6 +47,7 @@ import org.hibernate.criterion.Restrictions;
 import org.n52.faroe.annotation.Configurable;
 import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.convert.ConverterException;
+import org.n52.iceland.ds.ConnectionProvider;
 import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
 import org.n52.shetland.ogc.filter.BinaryLogicFilter;
@@ -69,6 +70,9 @@ import org.n52.sos.ds.hibernate.util.SosTemporalRestrictions;
 import org.n52.sos.ds.hibernate.util.observation.HibernateObservationUtilities;
 import org.n52.sos.ds.hibernate.util.observation.HibernateOmObservationCreatorContext;
 import org.n52.sos.ds.hibernate.values.HibernateStreamingSettings;
+import org.n52.sos.ds.hibernate.values.dataset.HibernateChunkSeriesStreamingValue;
+import org.n52.sos.ds.hibernate.values.dataset.HibernateScrollableSeriesStreamingValue;
+import org.n52.sos.ds.hibernate.values.dataset.HibernateSeriesStreamingValue;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.EncoderRepository;
 import org.n52.svalbard.encode.ObservationEncoder;
@@ -98,6 +102,10 @@ public abstract class AbstractObservationDao extends AbstractDaoImpl {
 
     private int chunkSize;
 
+    private boolean keysetPagination;
+
+    private boolean cursor;
+
     @Inject
     public void setEncoderRepository(EncoderRepository encoderRepository) {
         this.encoderRepository = encoderRepository;
@@ -141,6 +149,74 @@ public abstract class AbstractObservationDao extends AbstractDaoImpl {
         return chunkSize;
     }
 
+    /**
+     * Set if the chunks should be queried by the last queried key instead of
+     * the row offset
+     *
+     * @param keysetPagination
+     *            <code>true</code>, if keyset pagination should be used
+     */
+    @Setting(value = HibernateStreamingSettings.KEYSET_PAGINATION, required = false)
+    public void setKeysetPagination(boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+    }
+
+    /**
+     * @return <code>true</code>, if keyset pagination should be used
+     */
+    public boolean isKeysetPagination() {
+        return keysetPagination;
+    }
+
+    /**
+     * Set if the values should be streamed from a forward only database
+     * cursor instead of querying chunks
+     *
+     * @param cursor
+     *            <code>true</code>, if a database cursor should be used
+     */
+    @Setting(value = HibernateStreamingSettings.CURSOR, required = false)
+    public void setCursor(boolean cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * @return <code>true</code>, if a database cursor should be used
+     */
+    public boolean isCursor() {
+        return cursor;
+    }
+
+    /**
+     * Create the streaming value for the dataset. Requests with result filter
+     * are always streamed in chunks.
+     *
+     * @param connectionProvider
+     *            the connection provider
+     * @param daoFactory
+     *            the DAO factory
+     * @param request
+     *            the request
+     * @param dataset
+     *            the dataset
+     * @return the streaming value
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    protected HibernateSeriesStreamingValue createStreamingValue(ConnectionProvider connectionProvider,
+            DaoFactory daoFactory, AbstractObservationRequest request, DatasetEntity dataset)
+            throws OwsExceptionReport {
+        if (isCursor() && !(request instanceof GetObservationRequest
+                && ((GetObservationRequest) request).hasResultFilter())) {
+            return new HibernateScrollableSeriesStreamingValue(connectionProvider, daoFactory, request, dataset,
+                    getChunkSize());
+        }
+        HibernateChunkSeriesStreamingValue streamingValue =
+                new HibernateChunkSeriesStreamingValue(connectionProvider, daoFactory, request, dataset, getChunkSize());
+        streamingValue.setKeysetPagination(isKeysetPagination());
+        return streamingValue;
+    }
+
     /**
      * Get ObservationConstellations and check if size limit is exceeded
      *
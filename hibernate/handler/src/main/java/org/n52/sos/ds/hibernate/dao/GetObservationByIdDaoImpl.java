@@ -55,7 +55,6 @@ import org.n52.sos.ds.hibernate.HibernateSessionHolder;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
 import org.n52.sos.ds.hibernate.util.observation.HibernateObservationUtilities;
 import org.n52.sos.ds.hibernate.util.observation.HibernateOmObservationCreatorContext;
-import org.n52.sos.ds.hibernate.values.dataset.HibernateChunkSeriesStreamingValue;
 import org.n52.sos.ds.hibernate.values.dataset.HibernateSeriesStreamingValue;
 import org.n52.svalbard.encode.Encoder;
 import org.n52.svalbard.encode.EncoderRepository;
@@ -215,8 +214,8 @@ public class GetObservationByIdDaoImpl extends AbstractObservationDao
                             getProcedureDescriptionFormat(request.getResponseFormat()), observationCreatorContext,
                             session);
             OmObservation observationTemplate = createSosObservationFromSeries.next();
-            HibernateSeriesStreamingValue streamingValue = new HibernateChunkSeriesStreamingValue(
-                    sessionHolder.getConnectionProvider(), daoFactory, request, series, getChunkSize());
+            HibernateSeriesStreamingValue streamingValue =
+                    createStreamingValue(sessionHolder.getConnectionProvider(), daoFactory, request, series);
             streamingValue.setResponseFormat(request.getResponseFormat());
             streamingValue.setObservationTemplate(observationTemplate);
             observationTemplate.setValue(streamingValue);
@@ -63,7 +63,6 @@ import org.n52.sos.ds.hibernate.dao.observation.series.AbstractSeriesDAO;
 import org.n52.sos.ds.hibernate.util.ObservationTimeExtrema;
 import org.n52.sos.ds.hibernate.util.observation.HibernateObservationUtilities;
 import org.n52.sos.ds.hibernate.util.observation.HibernateOmObservationCreatorContext;
-import org.n52.sos.ds.hibernate.values.dataset.HibernateChunkSeriesStreamingValue;
 import org.n52.sos.ds.hibernate.values.dataset.HibernateSeriesStreamingValue;
 import org.n52.sos.service.profile.ProfileHandler;
 import org.n52.svalbard.encode.Encoder;
@@ -294,8 +293,8 @@ public class GetObservationDaoImpl extends AbstractObservationDao implements org
                             getRequestedLocale(request), getProcedureDescriptionFormat(request.getResponseFormat()),
                             observationCreatorContext, session);
             OmObservation observationTemplate = createSosObservationFromSeries.next();
-            HibernateSeriesStreamingValue streamingValue = new HibernateChunkSeriesStreamingValue(
-                    sessionHolder.getConnectionProvider(), daoFactory, request, series, getChunkSize());
+            HibernateSeriesStreamingValue streamingValue =
+                    createStreamingValue(sessionHolder.getConnectionProvider(), daoFactory, request, series);
             streamingValue.setResponseFormat(request.getResponseFormat());
             streamingValue.setTemporalFilterCriterion(temporalFilterCriterion);
             streamingValue.setObservationTemplate(observationTemplate);
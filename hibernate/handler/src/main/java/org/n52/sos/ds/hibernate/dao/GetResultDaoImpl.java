@@ -27,22 +27,39 @@
  */
 package org.n52.sos.ds.hibernate.dao;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
 import org.hibernate.Session;
+import org.hibernate.Transaction;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
 import org.n52.iceland.ds.ConnectionProvider;
 import org.n52.janmayen.http.HTTPStatus;
 import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.dataset.DatasetType;
+import org.n52.series.db.beans.dataset.ObservationType;
 import org.n52.shetland.ogc.filter.TemporalFilter;
 import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
@@ -57,23 +74,33 @@ import org.n52.sos.ds.GetResultTemplateHandler;
 import org.n52.sos.ds.dao.GetResultDao;
 import org.n52.sos.ds.dao.GetResultTemplateDao;
 import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.util.HibernateConstants;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
+import org.n52.sos.ds.hibernate.util.ScrollableIterable;
 import org.n52.sos.ds.hibernate.util.SosTemporalRestrictions;
 import org.n52.sos.ds.hibernate.util.SpatialRestrictions;
+import org.n52.sos.ds.hibernate.values.HibernateStreamingSettings;
 import org.n52.sos.ds.utils.ResultHandlingHelper;
 import org.n52.sos.exception.ows.concrete.UnsupportedOperatorException;
 import org.n52.sos.exception.ows.concrete.UnsupportedTimeException;
 import org.n52.sos.exception.ows.concrete.UnsupportedValueReferenceException;
+import org.n52.sos.response.StreamingGetResultResponse;
 import org.n52.sos.service.profile.ProfileHandler;
 import org.n52.svalbard.util.SweHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Iterators;
+
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
+@Configurable
 @SuppressFBWarnings({ "EI_EXPOSE_REP", "EI_EXPOSE_REP2" })
 public class GetResultDaoImpl extends AbstractDaoImpl implements GetResultDao {
     private static final Logger LOGGER = LoggerFactory.getLogger(GetResultDaoImpl.class);
 
+    private static final String ERROR_LOG = "Error while querying result data!";
+
     private HibernateSessionHolder sessionHolder;
 
     private GetResultTemplateHandler resultTemplateHandler;
@@ -86,6 +113,10 @@ public class GetResultDaoImpl extends AbstractDaoImpl implements GetResultDao {
 
     private Optional<GetResultTemplateDao> getResultTemplateDao;
 
+    private boolean cursor;
+
+    private int fetchSize;
+
     @Inject
     public void setConnectionProvider(ConnectionProvider connectionProvider) {
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
@@ -111,6 +142,36 @@ public class GetResultDaoImpl extends AbstractDaoImpl implements GetResultDao {
         this.getResultTemplateDao = getResultTemplateDao;
     }
 
+    /**
+     * Set if the result values should be streamed from a forward only
+     * database cursor to the response
+     *
+     * @param cursor
+     *            <code>true</code>, if a database cursor should be used
+     */
+    @Setting(value = HibernateStreamingSettings.CURSOR, required = false)
+    public void setCursor(boolean cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * @return <code>true</code>, if a database cursor should be used
+     */
+    public boolean isCursor() {
+        return cursor;
+    }
+
+    /**
+     * Set the JDBC fetch size of the database cursor
+     *
+     * @param fetchSize
+     *            the fetch size
+     */
+    @Setting(value = HibernateStreamingSettings.CHUNK_SIZE, required = false)
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
     public SweHelper getSweHelper() {
         return getDaoFactory().getSweHelper();
     }
@@ -138,7 +199,7 @@ public class GetResultDaoImpl extends AbstractDaoImpl implements GetResultDao {
             session = sessionHolder.getSession();
             return queryResultData(request, response, session);
         } catch (HibernateException he) {
-            throw new NoApplicableCodeException().causedBy(he).withMessage("Error while querying result data!")
+            throw new NoApplicableCodeException().causedBy(he).withMessage(ERROR_LOG)
                     .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
         } finally {
             sessionHolder.returnSession(session);
@@ -168,11 +229,21 @@ public class GetResultDaoImpl extends AbstractDaoImpl implements GetResultDao {
         if (resultTemplate != null) {
             SosResultEncoding resultEncoding = resultTemplate.getResultEncoding();
             SosResultStructure resultStructure = resultTemplate.getResultStructure();
-            final List<DataEntity<?>> observations =
-                    queryObservations(request, request.getFeatureIdentifiers(), session);
+            String noDataPlaceholder = getProfileHandler().getActiveProfile().getResponseNoDataPlaceholder();
+            List<DatasetEntity> series =
+                    getDaoFactory().getSeriesDAO().getSeries(request, request.getFeatureIdentifiers(), session);
+            if (isCursor() && isStreamable(series)) {
+                Set<Long> datasets = getDatasetIds(series);
+                StreamingGetResultResponse streamingResponse =
+                        new StreamingGetResultResponse(response.getService(), response.getVersion(),
+                                writer -> writeResultValues(request, datasets, resultEncoding, resultStructure,
+                                        noDataPlaceholder, writer));
+                streamingResponse.setExtensions(response.getExtensions());
+                return streamingResponse;
+            }
+            final List<DataEntity<?>> observations = queryObservations(request, series, session);
             response.setResultValues(getResultHandlingHelper().createResultValuesFromObservations(observations,
-                    resultEncoding, resultStructure,
-                    getProfileHandler().getActiveProfile().getResponseNoDataPlaceholder(), session));
+                    resultEncoding, resultStructure, noDataPlaceholder, session));
             return response;
         }
         return response;
@@ -183,9 +254,8 @@ public class GetResultDaoImpl extends AbstractDaoImpl implements GetResultDao {
      *
      * @param request
      *            GetObservation request
-     * @param featureIdentifiers
-     *            Set of feature identifiers. If <tt>null</tt>, query filter will not be added. If
-     *            <tt>empty</tt>, <tt>null</tt> will be returned.
+     * @param series
+     *            Datasets of the requested features. If <tt>empty</tt>, <tt>null</tt> will be returned.
      * @param session
      *            Hibernate session
      * @return List of Observation objects
@@ -193,27 +263,182 @@ public class GetResultDaoImpl extends AbstractDaoImpl implements GetResultDao {
      *             If an error occurs.
      */
     @SuppressWarnings("unchecked")
-    private List<DataEntity<?>> queryObservations(GetResultRequest request, Collection<String> featureIdentifiers,
+    private List<DataEntity<?>> queryObservations(GetResultRequest request, Collection<DatasetEntity> series,
             Session session) throws OwsExceptionReport {
+        if (CollectionHelper.isEmpty(series)) {
+            return null;
+        }
         final Criteria c = createCriteriaFor(DataEntity.class, session);
-        addSpatialFilteringProfileRestrictions(c, request, session);
-        addParentChildRestriction(c);
+        addObservationRestrictions(c, request, getDatasetIds(series), session);
+        LOGGER.trace("QUERY queryObservation(request, featureIdentifiers): {}", HibernateHelper.getSqlString(c));
+        return c.list();
 
-        List<DatasetEntity> series = getDaoFactory().getSeriesDAO().getSeries(request, featureIdentifiers, session);
-        if (CollectionHelper.isEmpty(series)) {
+    }
+
+    /**
+     * Count the observations of the datasets depending on the requested filters
+     *
+     * @param request
+     *            GetResult request
+     * @param datasets
+     *            Ids of the datasets
+     * @param session
+     *            Hibernate session
+     * @return Number of observations
+     * @throws OwsExceptionReport
+     *             If an error occurs.
+     */
+    private long countObservations(GetResultRequest request, Set<Long> datasets, Session session)
+            throws OwsExceptionReport {
+        final Criteria c = session.createCriteria(DataEntity.class)
+                .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false));
+        addObservationRestrictions(c, request, datasets, session);
+        c.setProjection(Projections.countDistinct(DataEntity.PROPERTY_ID));
+        LOGGER.trace("QUERY countObservations(request, datasets): {}", HibernateHelper.getSqlString(c));
+        return (Long) c.uniqueResult();
+    }
+
+    /**
+     * Write the result values of the datasets to the writer. The distinct ids
+     * of the observations are read with an own session from a forward only
+     * database cursor. The observations are loaded per fetch of ids like in
+     * {@link #queryObservations(GetResultRequest, Collection, Session)} and
+     * the session is cleared before the next fetch. The cursor is read in a
+     * transaction, so the connection is kept while lazy associations are
+     * loaded. The element count is queried in the same transaction, which
+     * reads one snapshot, so that it matches the number of observations read
+     * from the cursor.
+     */
+    private void writeResultValues(GetResultRequest request, Set<Long> datasets, SosResultEncoding resultEncoding,
+            SosResultStructure resultStructure, String noDataPlaceholder, Writer writer)
+            throws IOException, OwsExceptionReport {
+        Session session = null;
+        Transaction transaction = null;
+        Integer isolation = null;
+        ScrollableIterable<Long> ids = null;
+        try {
+            session = sessionHolder.getSession();
+            session.setDefaultReadOnly(true);
+            transaction = session.beginTransaction();
+            isolation = session.doReturningWork(this::setSnapshotIsolation);
+            long count = countObservations(request, datasets, session);
+            if (count <= 0) {
+                return;
+            }
+            // the sampling time is selected as it is required for the order of distinct rows
+            final Criteria c = session.createCriteria(DataEntity.class)
+                    .add(Restrictions.eq(DataEntity.PROPERTY_DELETED, false))
+                    .setProjection(Projections.distinct(Projections.projectionList()
+                            .add(Projections.property(DataEntity.PROPERTY_ID))
+                            .add(Projections.property(DataEntity.PROPERTY_SAMPLING_TIME_START))))
+                    .addOrder(Order.asc(DataEntity.PROPERTY_SAMPLING_TIME_START));
+            addObservationRestrictions(c, request, datasets, session);
+            c.setFetchSize(getBatchSize());
+            LOGGER.trace("QUERY writeResultValues(request, datasets): {}", HibernateHelper.getSqlString(c));
+            ids = ScrollableIterable.fromResults(c.scroll(ScrollMode.FORWARD_ONLY));
+            getResultHandlingHelper().writeResultValuesFromObservations(loading(ids, session), count,
+                    resultEncoding, resultStructure, noDataPlaceholder, writer, session);
+        } catch (HibernateException he) {
+            throw new NoApplicableCodeException().causedBy(he).withMessage(ERROR_LOG)
+                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            if (ids != null) {
+                ids.close();
+            }
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            resetIsolation(session, isolation);
+            sessionHolder.returnSession(session);
+        }
+    }
+
+    /**
+     * Raise the isolation level of the transaction, so that all queries of
+     * the transaction read the same snapshot. This has to be done before the
+     * first query of the transaction.
+     *
+     * @param connection
+     *            the connection of the transaction
+     * @return the previous isolation level or <code>null</code>, if it was
+     *         not changed
+     * @throws SQLException
+     *             If the isolation level could not be changed
+     */
+    private Integer setSnapshotIsolation(Connection connection) throws SQLException {
+        int previous = connection.getTransactionIsolation();
+        if (previous >= Connection.TRANSACTION_REPEATABLE_READ) {
             return null;
-        } else {
-            c.add(Restrictions.in(DataEntity.PROPERTY_DATASET_ID,
-                    series.stream().map(DatasetEntity::getId).collect(Collectors.toSet())));
         }
+        DatabaseMetaData metaData = connection.getMetaData();
+        // e.g. Oracle supports only read committed and serializable
+        for (int level : new int[] { Connection.TRANSACTION_REPEATABLE_READ, Connection.TRANSACTION_SERIALIZABLE }) {
+            if (metaData.supportsTransactionIsolationLevel(level)) {
+                connection.setTransactionIsolation(level);
+                return previous;
+            }
+        }
+        return null;
+    }
 
+    private void resetIsolation(Session session, Integer isolation) {
+        if (session != null && isolation != null) {
+            try {
+                session.doWork(connection -> connection.setTransactionIsolation(isolation));
+            } catch (HibernateException he) {
+                LOGGER.warn("Error while resetting the transaction isolation level", he);
+            }
+        }
+    }
+
+    /**
+     * Load the observations of the ids in batches of the fetch size, limited
+     * by the maximum number of expressions in a list.
+     */
+    private Iterable<DataEntity<?>> loading(Iterable<Long> ids, Session session) {
+        return () -> Iterators.concat(Iterators.transform(Iterators.partition(ids.iterator(), getBatchSize()),
+                batch -> loadObservations(batch, session)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Iterator<DataEntity<?>> loadObservations(List<Long> ids, Session session) {
+        // the previous observations are already written
+        session.clear();
+        final Criteria c = createCriteriaFor(DataEntity.class, session)
+                .add(Restrictions.in(DataEntity.PROPERTY_ID, ids));
+        LOGGER.trace("QUERY loadObservations(ids): {}", HibernateHelper.getSqlString(c));
+        Map<Long, DataEntity<?>> observations = ((List<DataEntity<?>>) c.list()).stream()
+                .collect(Collectors.toMap(DataEntity::getId, Function.identity()));
+        return ids.stream().map(observations::get).filter(Objects::nonNull).iterator();
+    }
+
+    private int getBatchSize() {
+        return fetchSize > 0 ? Math.min(fetchSize, HibernateConstants.LIMIT_EXPRESSION_DEPTH)
+                : HibernateConstants.LIMIT_EXPRESSION_DEPTH;
+    }
+
+    private void addObservationRestrictions(Criteria c, GetResultRequest request, Set<Long> datasets,
+            Session session) throws OwsExceptionReport {
+        addSpatialFilteringProfileRestrictions(c, request, session);
+        addParentChildRestriction(c);
+        c.add(Restrictions.in(DataEntity.PROPERTY_DATASET_ID, datasets));
         if (request.getTemporalFilter() != null && !request.getTemporalFilter().isEmpty()) {
             addTemporalFilter(c, request.getTemporalFilter());
         }
+    }
 
-        LOGGER.trace("QUERY queryObservation(request, featureIdentifiers): {}", HibernateHelper.getSqlString(c));
-        return c.list();
+    private Set<Long> getDatasetIds(Collection<DatasetEntity> series) {
+        return series.stream().map(DatasetEntity::getId).collect(Collectors.toSet());
+    }
 
+    /**
+     * Trajectory observations are counted by their values and can not be
+     * streamed.
+     */
+    private boolean isStreamable(Collection<DatasetEntity> series) {
+        return CollectionHelper.isNotEmpty(series) && series.stream()
+                .noneMatch(d -> DatasetType.trajectory.equals(d.getDatasetType())
+                        || ObservationType.trajectory.equals(d.getObservationType()));
     }
 
     /**
@@ -45,6 +45,7 @@ import org.n52.shetland.ogc.sos.request.GetResultTemplateRequest;
 import org.n52.shetland.ogc.sos.response.GetResultTemplateResponse;
 import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
 import org.n52.shetland.ogc.swe.encoding.SweAbstractEncoding;
+import org.n52.sos.coding.decode.ResultTemplateDecodingCache;
 import org.n52.sos.ds.dao.GetResultTemplateDao;
 import org.n52.sos.ds.hibernate.HibernateSessionHolder;
 import org.n52.sos.ds.hibernate.util.HibernateHelper;
@@ -68,6 +69,8 @@ public class GetResultTemplateDaoImpl extends AbstractDaoImpl implements GetResu
 
     private DecoderRepository decodingRepository;
 
+    private ResultTemplateDecodingCache resultTemplateDecodingCache;
+
     @Inject
     public void setConnectionProvider(ConnectionProvider connectionProvider) {
         this.sessionHolder = new HibernateSessionHolder(connectionProvider);
@@ -83,6 +86,11 @@ public class GetResultTemplateDaoImpl extends AbstractDaoImpl implements GetResu
         this.decodingRepository = decodingRepository;
     }
 
+    @Inject
+    public void setResultTemplateDecodingCache(ResultTemplateDecodingCache resultTemplateDecodingCache) {
+        this.resultTemplateDecodingCache = resultTemplateDecodingCache;
+    }
+
     @Override
     public void init() {
         this.supportsDatabaseEntities = HibernateHelper.isEntitySupported(ResultTemplateEntity.class);
@@ -151,6 +159,13 @@ public class GetResultTemplateDaoImpl extends AbstractDaoImpl implements GetResu
     }
 
     protected Object decode(String xml) throws CodedException {
+        if (resultTemplateDecodingCache != null) {
+            return resultTemplateDecodingCache.decode(xml, this::decodeXml);
+        }
+        return decodeXml(xml);
+    }
+
+    private Object decodeXml(String xml) throws CodedException {
         try {
             XmlObject xmlObject = XmlHelper.parseXmlString(xml);
             DecoderKey decoderKey = CodingHelper.getDecoderKey(xmlObject);
@@ -28,6 +28,7 @@
 package org.n52.sos.ds.hibernate.values.dataset;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -72,6 +73,12 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
 
     private int currentResultSize;
 
+    private boolean keysetPagination;
+
+    private Date lastOrderValue;
+
+    private Long lastId;
+
     /**
      * constructor
      *
@@ -94,6 +101,17 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
         this.chunkSize = chunkSize;
     }
 
+    /**
+     * Set if the chunks should be queried by the last queried key instead of
+     * the row offset
+     *
+     * @param keysetPagination
+     *            <code>true</code>, if keyset pagination should be used
+     */
+    public void setKeysetPagination(boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+    }
+
     @Override
     public boolean hasNext() throws OwsExceptionReport {
         boolean next = false;
@@ -168,9 +186,12 @@ public class HibernateChunkSeriesStreamingValue extends HibernateSeriesStreaming
             session = getSession();
             ValueQueryContext valueQueryContext = new ValueQueryContext(request, dataset, session)
                     .setTemporalFilterCriterion(temporalFilterCriterion).setChunkSize(chunkSize)
-                    .setCurrentRow(currentRow);
+                    .setCurrentRow(currentRow).setKeysetPagination(keysetPagination)
+                    .setLastKey(lastOrderValue, lastId);
             Collection<DataEntity<?>> resutltValues = seriesValueDAO.getStreamingSeriesValuesFor(valueQueryContext);
             currentRow += chunkSize;
+            lastOrderValue = valueQueryContext.getLastOrderValue();
+            lastId = valueQueryContext.getLastId();
             if (DatasetType.trajectory.equals(dataset.getDatasetType())
                     || ObservationType.trajectory.equals(dataset.getObservationType())) {
                 List<DataEntity<?>> list = new LinkedList<>();
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate.values.dataset;
+
+import java.lang.ref.Cleaner;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.n52.iceland.ds.ConnectionProvider;
+import org.n52.janmayen.http.HTTPStatus;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.series.db.beans.TrajectoryDataEntity;
+import org.n52.series.db.beans.dataset.DatasetType;
+import org.n52.series.db.beans.dataset.ObservationType;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.AbstractObservationRequest;
+import org.n52.sos.ds.hibernate.HibernateSessionHolder;
+import org.n52.sos.ds.hibernate.dao.DaoFactory;
+import org.n52.sos.ds.hibernate.dao.observation.series.ValueQueryContext;
+import org.n52.sos.ds.hibernate.util.ScrollableIterable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hibernate dataset streaming value implementation for a forward only
+ * database cursor. The values are read from one query with the chunk size as
+ * JDBC fetch size instead of querying each chunk. The cursor is read in a
+ * read-only transaction, as drivers like PostgreSQL ignore the fetch size in
+ * auto-commit mode. It holds one session until all values are read, an error
+ * occurs or the stream is closed, and it is returned by the consuming thread. Only cursors of abandoned streams are
+ * closed when the streaming value is garbage collected.
+ *
+ * @since 6.1.2
+ *
+ */
+public class HibernateScrollableSeriesStreamingValue extends HibernateSeriesStreamingValue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HibernateScrollableSeriesStreamingValue.class);
+
+    private static final String ERROR_LOG = "Error while querying observation data!";
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final HibernateSessionHolder cursorSessionHolder;
+
+    private final int fetchSize;
+
+    private final Deque<DataEntity<?>> values = new LinkedList<>();
+
+    private Cursor cursor;
+
+    private Cleaner.Cleanable cleanable;
+
+    private boolean closed;
+
+    private int readValues;
+
+    private int returnedValues;
+
+    /**
+     * constructor
+     *
+     * @param connectionProvider
+     *            the connection provider
+     * @param daoFactory
+     *            the DAO factory
+     * @param request
+     *            {@link AbstractObservationRequest}
+     * @param dataset
+     *            Datasource dataset
+     * @param fetchSize
+     *            JDBC fetch size of the cursor
+     * @throws OwsExceptionReport
+     *             If an error occurs
+     */
+    public HibernateScrollableSeriesStreamingValue(ConnectionProvider connectionProvider, DaoFactory daoFactory,
+            AbstractObservationRequest request, DatasetEntity dataset, int fetchSize) throws OwsExceptionReport {
+        super(connectionProvider, daoFactory, request, dataset);
+        this.cursorSessionHolder = new HibernateSessionHolder(connectionProvider);
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public boolean hasNext() throws OwsExceptionReport {
+        if (!values.isEmpty()) {
+            return true;
+        }
+        if (closed) {
+            return false;
+        }
+        try {
+            if (cursor == null) {
+                openCursor();
+            } else if (fetchSize > 0 && readValues >= fetchSize) {
+                // the previous values are already processed
+                cursor.session.clear();
+                readValues = 0;
+            }
+            while (values.isEmpty() && cursor.iterator.hasNext()) {
+                addValue(cursor.iterator.next());
+            }
+        } catch (HibernateException he) {
+            close();
+            throw new NoApplicableCodeException().causedBy(he).withMessage(ERROR_LOG)
+                    .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
+        } catch (OwsExceptionReport owse) {
+            close();
+            throw owse;
+        }
+        if (values.isEmpty()) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public DataEntity<?> nextEntity() throws OwsExceptionReport {
+        if (hasNext()) {
+            return values.poll();
+        }
+        return null;
+    }
+
+    @Override
+    public TimeValuePair nextValue() throws OwsExceptionReport {
+        if (hasNext()) {
+            return getDaoFactory().getObservationHelper().createTimeValuePairFrom(values.poll());
+        }
+        return null;
+    }
+
+    @Override
+    public OmObservation next() throws OwsExceptionReport {
+        if (hasNext()) {
+            OmObservation observation = getObservationTemplate().cloneTemplate();
+            getObservationHelper().addValuesToObservation(values.poll(), observation, getResponseFormat());
+            checkForModifications(observation);
+            return observation;
+        }
+        return null;
+    }
+
+    private void openCursor() throws OwsExceptionReport {
+        Session session = cursorSessionHolder.getSession();
+        Transaction transaction = null;
+        try {
+            session.setDefaultReadOnly(true);
+            transaction = session.beginTransaction();
+            ValueQueryContext valueQueryContext = new ValueQueryContext(request, dataset, session)
+                    .setTemporalFilterCriterion(temporalFilterCriterion).setChunkSize(fetchSize);
+            cursor = new Cursor(cursorSessionHolder, session, transaction,
+                    seriesValueDAO.getScrollableSeriesValuesFor(valueQueryContext));
+            cleanable = CLEANER.register(this, cursor);
+        } catch (HibernateException | OwsExceptionReport e) {
+            Cursor.rollback(transaction);
+            cursorSessionHolder.returnSession(session);
+            closed = true;
+            throw e;
+        }
+    }
+
+    private void addValue(DataEntity<?> dataEntity) throws OwsExceptionReport {
+        readValues++;
+        if (dataEntity instanceof TrajectoryDataEntity && (DatasetType.trajectory.equals(dataset.getDatasetType())
+                || ObservationType.trajectory.equals(dataset.getObservationType()))) {
+            Collection<DataEntity<?>> trajectoryValues = ((TrajectoryDataEntity) dataEntity).getValue();
+            values.addAll(trajectoryValues);
+            returnedValues += trajectoryValues.size();
+        } else {
+            values.add(dataEntity);
+            returnedValues++;
+        }
+        // the buffer holds one fetch only, so check all values read from the cursor
+        checkMaxNumberOfReturnedValues(returnedValues);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (cursor != null) {
+            cursor.run();
+            cleanable.clean();
+        }
+    }
+
+    /**
+     * Closes the cursor, rolls back its transaction and returns the session.
+     * It is run by the consuming
+     * thread on {@link #close()} or by the {@link Cleaner} for abandoned
+     * streams, whichever comes first. It must not reference the streaming
+     * value, otherwise the {@link Cleaner} can not close abandoned cursors.
+     */
+    private static final class Cursor implements Runnable {
+
+        private final HibernateSessionHolder sessionHolder;
+
+        private final Session session;
+
+        private final Transaction transaction;
+
+        private final ScrollableIterable<DataEntity<?>> results;
+
+        private final Iterator<DataEntity<?>> iterator;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Cursor(HibernateSessionHolder sessionHolder, Session session, Transaction transaction,
+                ScrollableIterable<DataEntity<?>> results) {
+            this.sessionHolder = sessionHolder;
+            this.session = session;
+            this.transaction = transaction;
+            this.results = results;
+            this.iterator = results.iterator();
+        }
+
+        @Override
+        public void run() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                results.close();
+            } catch (HibernateException he) {
+                LOGGER.error("Error while closing the observation cursor", he);
+            } finally {
+                rollback(transaction);
+                sessionHolder.returnSession(session);
+            }
+        }
+
+        static void rollback(Transaction transaction) {
+            try {
+                if (transaction != null && transaction.isActive()) {
+                    transaction.rollback();
+                }
+            } catch (HibernateException he) {
+                LOGGER.error("Error while rolling back the observation cursor transaction", he);
+            }
+        }
+    }
+
+}
@@ -397,8 +397,8 @@ public abstract class AbstractInsertDAOTest extends HibernateTestCase {
         contentCacheController.setPersistenceStrategy(Mockito.mock(ContentCachePersistenceStrategy.class));
         contentCacheController.setCacheFactory(Mockito.mock(ContentCacheFactory.class));
         contentCacheController.setCompleteCacheUpdateFactory(Mockito.mock(CompleteCacheUpdateFactory.class));
-        contentCacheController.setCache(cache);
         cache.setSupportedTypeRepository(Mockito.mock(SupportedTypeRepository.class));
+        contentCacheController.setCache(cache);
 
         i18NDAORepository.init();
         decoderRepository.init();
@@ -645,11 +645,14 @@ public abstract class AbstractInsertDAOTest extends HibernateTestCase {
     }
 
     protected SosContentCache getCache() {
-        return cache;
+        return (SosContentCache) contentCacheController.getCache();
     }
 
     protected void updateCache() throws OwsExceptionReport {
-        cacheFeeder.updateCache(cache);
+        // the published cache is frozen, reload into a copy and publish it
+        InMemoryCacheImpl reloaded = ((InMemoryCacheImpl) contentCacheController.getCache()).copy();
+        cacheFeeder.updateCache(reloaded);
+        contentCacheController.setCache(reloaded);
     }
 
     protected OmObservationConstellation getOmObsConst(String procedureId, String obsPropId, String unit,
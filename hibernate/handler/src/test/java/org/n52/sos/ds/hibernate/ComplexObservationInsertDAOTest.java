@@ -30,6 +30,8 @@ package org.n52.sos.ds.hibernate;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.math.BigDecimal;
 
 import org.hibernate.Session;
@@ -59,6 +61,7 @@ import org.n52.shetland.ogc.swe.SweField;
 import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
 import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
 import org.n52.sos.event.events.ObservationInsertion;
+import org.n52.sos.response.StreamingGetResultResponse;
 import org.n52.svalbard.encode.exception.EncodingException;
 
 import com.google.common.collect.Lists;
@@ -134,6 +137,28 @@ public class ComplexObservationInsertDAOTest extends AbstractInsertDAOTest {
                 "1#2013-07-18T03:00:00.000Z,2013-07-18T03:00:00.000Z,19.1000000000,19.8000000000,20.4000000000"));
     }
 
+    @Test
+    public void testGeneratedGetResultFromCursor() throws OwsExceptionReport, ConverterException, IOException {
+        insertData();
+        GetResultRequest request = new GetResultRequest();
+        request.setObservedProperty(OBSPROP3);
+        request.setOffering(OFFERING3);
+        getResultDAO.setCursor(true);
+        try {
+            GetResultResponse response = getResultHandler.getResult(request);
+            assertThat(response, instanceOf(StreamingGetResultResponse.class));
+            StringWriter writer = new StringWriter();
+            ((StreamingGetResultResponse) response).writeResultValues(writer);
+            assertThat(writer.toString(), is(
+                    "1#2013-07-18T03:00:00.000Z,2013-07-18T03:00:00.000Z,19.1000000000,19.8000000000,20.4000000000"));
+
+            response = getResultHandler.getResult(request);
+            assertThat(response.getResultValues(), is(writer.toString()));
+        } finally {
+            getResultDAO.setCursor(false);
+        }
+    }
+
     private void insertData() throws OwsExceptionReport, ConverterException {
         InsertObservationRequest req = new InsertObservationRequest();
         req.setAssignedSensorId(PROCEDURE3);
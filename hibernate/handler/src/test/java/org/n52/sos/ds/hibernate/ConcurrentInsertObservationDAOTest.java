@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Session;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.convert.ConverterException;
+import org.n52.series.db.beans.AbstractFeatureEntity;
+import org.n52.series.db.beans.DataEntity;
+import org.n52.series.db.beans.DatasetEntity;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
+import org.n52.svalbard.encode.exception.EncodingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Test concurrent InsertObservation requests into disjoint and overlapping
+ * datasets. Each thread inserts into the dataset of the feature
+ * <code>thread % FEATURES</code>, so every dataset is written by several
+ * threads.
+ *
+ * @since 6.1.2
+ */
+public class ConcurrentInsertObservationDAOTest extends AbstractInsertDAOTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentInsertObservationDAOTest.class);
+
+    private static final int THREADS = 8;
+
+    private static final int FEATURES = 4;
+
+    private static final int OBSERVATIONS_PER_THREAD = 20;
+
+    private static final String FEATURE_PREFIX = "concurrentFeature";
+
+    private static final DateTime BEGIN = new DateTime("2020-01-01T00:00:00Z");
+
+    @Before
+    public void setUp() throws OwsExceptionReport, ConverterException, EncodingException {
+        super.setUp();
+        Session session = null;
+        try {
+            session = getSession();
+            HibernateMetadataCache.init(session);
+            insertSensor(PROCEDURE3, OFFERING3, OBSPROP3, null, OmConstants.OBS_TYPE_MEASUREMENT);
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @Test(timeout = 120000)
+    public void testConcurrentInsertObservation() throws Exception {
+        List<OmObservationConstellation> constellations = new ArrayList<>(THREADS);
+        Session session = null;
+        try {
+            session = getSession();
+            for (int thread = 0; thread < THREADS; thread++) {
+                constellations.add(getOmObsConst(PROCEDURE3, OBSPROP3, TEMP_UNIT, OFFERING3,
+                        FEATURE_PREFIX + thread % FEATURES, OmConstants.OBS_TYPE_MEASUREMENT, session));
+            }
+        } finally {
+            returnSession(session);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Void>> futures = new ArrayList<>(THREADS);
+        long start = System.currentTimeMillis();
+        try {
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executor.submit(new Inserter(thread, constellations.get(thread))));
+            }
+            for (Future<Void> future : futures) {
+                getResult(future);
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        long duration = Math.max(1, System.currentTimeMillis() - start);
+        LOGGER.info("Inserted {} observations from {} threads in {} ms ({} observations/s)",
+                THREADS * OBSERVATIONS_PER_THREAD, THREADS, duration,
+                THREADS * OBSERVATIONS_PER_THREAD * 1000L / duration);
+
+        try {
+            session = getSession();
+            for (int feature = 0; feature < FEATURES; feature++) {
+                checkDataset(FEATURE_PREFIX + feature, feature, session);
+            }
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    private void checkDataset(String feature, int firstThread, Session session) {
+        DatasetEntity dataset = (DatasetEntity) session.createCriteria(DatasetEntity.class)
+                .createAlias(DatasetEntity.PROPERTY_FEATURE, "f")
+                .add(Restrictions.eq("f." + AbstractFeatureEntity.IDENTIFIER, feature))
+                .uniqueResult();
+        assertThat(dataset, notNullValue());
+        Long count = (Long) session.createCriteria(DataEntity.class)
+                .add(Restrictions.eq(DataEntity.PROPERTY_DATASET_ID, dataset.getId()))
+                .setProjection(Projections.rowCount())
+                .uniqueResult();
+        assertThat(count, is((long) THREADS / FEATURES * OBSERVATIONS_PER_THREAD));
+
+        int lastThread = firstThread + (THREADS / FEATURES - 1) * FEATURES;
+        int first = getOffset(firstThread, 0);
+        int last = getOffset(lastThread, OBSERVATIONS_PER_THREAD - 1);
+        assertThat(dataset.getFirstValueAt().getTime(), is(BEGIN.plusMinutes(first).getMillis()));
+        assertThat(dataset.getLastValueAt().getTime(), is(BEGIN.plusMinutes(last).getMillis()));
+        assertThat(dataset.getFirstQuantityValue().doubleValue(), is((double) first));
+        assertThat(dataset.getLastQuantityValue().doubleValue(), is((double) last));
+    }
+
+    private void getResult(Future<Void> future) throws Exception {
+        try {
+            future.get(1, TimeUnit.MINUTES);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static int getOffset(int thread, int observation) {
+        return observation * THREADS + thread;
+    }
+
+    @Override
+    protected void assertInsertionAftermath(boolean afterCacheUpdate) throws OwsExceptionReport {
+        assertThat(getCache().getOfferingsForProcedure(PROCEDURE3), contains(OFFERING3));
+    }
+
+    private class Inserter implements Callable<Void> {
+
+        private final int thread;
+
+        private final OmObservationConstellation constellation;
+
+        Inserter(int thread, OmObservationConstellation constellation) {
+            this.thread = thread;
+            this.constellation = constellation;
+        }
+
+        @Override
+        public Void call() throws OwsExceptionReport {
+            for (int i = 0; i < OBSERVATIONS_PER_THREAD; i++) {
+                int offset = getOffset(thread, i);
+                DateTime time = BEGIN.plusMinutes(offset);
+                OmObservation obs = new OmObservation();
+                obs.setObservationConstellation(constellation);
+                obs.setResultTime(new TimeInstant(time));
+                SingleObservationValue<BigDecimal> obsVal = new SingleObservationValue<>();
+                obsVal.setPhenomenonTime(new TimeInstant(time));
+                obsVal.setValue(new QuantityValue((double) offset, TEMP_UNIT));
+                obs.setValue(obsVal);
+                InsertObservationRequest req = new InsertObservationRequest();
+                req.setAssignedSensorId(PROCEDURE3);
+                req.setOfferings(Lists.newArrayList(OFFERING3));
+                req.setObservation(Lists.newArrayList(obs));
+                insertObservationDAO.insertObservation(req);
+            }
+            return null;
+        }
+    }
+
+}
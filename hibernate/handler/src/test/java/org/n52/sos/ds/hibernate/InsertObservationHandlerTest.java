@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.ds.hibernate;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.math.BigDecimal;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.NamedValue;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.values.CountValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+
+import com.google.common.collect.Lists;
+
+public class InsertObservationHandlerTest {
+
+    private static final String OFFERING = "offering";
+
+    @Test
+    public void shouldRestoreTheRequestStateOfAFailedAttempt() {
+        NamedValue<BigDecimal> depth =
+                new NamedValue<>(new ReferenceType("depth"), new QuantityValue(BigDecimal.TEN, "m"));
+        NamedValue<BigDecimal> height =
+                new NamedValue<>(new ReferenceType("height"), new QuantityValue(BigDecimal.ONE, "m"));
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(new OmObservationConstellation());
+        observation.setValue(new SingleObservationValue<>(new TimeInstant(new DateTime()), new CountValue(1)));
+        observation.addParameter(depth);
+        InsertObservationRequest request = new InsertObservationRequest();
+        request.setOfferings(Lists.newArrayList(OFFERING));
+        request.setObservation(Lists.newArrayList(observation));
+
+        InsertObservationHandler.RequestSnapshot snapshot = new InsertObservationHandler.RequestSnapshot(request);
+        // modifications of a failed insertion attempt
+        observation.getParameterHolder().removeParameter(depth);
+        observation.addParameter(height);
+        observation.setResultTime(new TimeInstant(new DateTime()));
+        request.setOfferings(Lists.newArrayList(OFFERING, "other"));
+        snapshot.restore();
+
+        assertThat(request.getObservations().get(0), is(sameInstance(observation)));
+        assertThat(observation.getParameter(), contains(depth));
+        assertThat(observation.getResultTime(), is(nullValue()));
+        assertThat(request.getOfferings(), contains(OFFERING));
+    }
+
+    @Test
+    public void shouldRestoreARequestWithoutObservations() {
+        InsertObservationRequest request = new InsertObservationRequest();
+        InsertObservationHandler.RequestSnapshot snapshot = new InsertObservationHandler.RequestSnapshot(request);
+        request.setOfferings(Lists.newArrayList(OFFERING));
+        snapshot.restore();
+        assertThat(request.getOfferings(), is(empty()));
+    }
+
+}
@@ -27,19 +27,27 @@
  */
 package org.n52.sos.ds.hibernate;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.hibernate.Session;
+import org.hibernate.criterion.Projections;
+import org.hibernate.stat.Statistics;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 import org.n52.iceland.convert.ConverterException;
+import org.n52.series.db.beans.DataEntity;
 import org.n52.shetland.ogc.om.OmConstants;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.sos.SosResultEncoding;
 import org.n52.shetland.ogc.sos.SosResultStructure;
+import org.n52.shetland.ogc.sos.request.GetResultRequest;
 import org.n52.shetland.ogc.sos.request.InsertResultRequest;
 import org.n52.shetland.ogc.sos.request.InsertResultTemplateRequest;
+import org.n52.shetland.ogc.sos.response.GetResultResponse;
 import org.n52.shetland.ogc.sos.response.InsertResultResponse;
 import org.n52.shetland.ogc.sos.response.InsertResultTemplateResponse;
 import org.n52.shetland.ogc.swe.SweDataRecord;
@@ -51,13 +59,26 @@ import org.n52.shetland.util.CollectionHelper;
 import org.n52.sos.ds.hibernate.util.HibernateMetadataCache;
 import org.n52.sos.event.events.ResultInsertion;
 import org.n52.sos.event.events.ResultTemplateInsertion;
+import org.n52.sos.response.StreamingGetResultResponse;
 import org.n52.svalbard.encode.exception.EncodingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class InsertResultInsertDAOTest extends AbstractObservationInsertDAOTest {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(InsertResultInsertDAOTest.class);
+
     private static final DateTime TIME4 = new DateTime("2013-07-18T03:00:00Z");;
     private static final Double VAL4 = null;
 
+    private static final int BULK_VALUES = 10;
+
+    private static final int BENCHMARK_VALUES = 100000;
+
+    private static final int BENCHMARK_PER_OBSERVATION_VALUES = 10000;
+
+    private static final int BENCHMARK_BATCH_SIZE = 100;
+
     @Before
     public void setUp() throws OwsExceptionReport, ConverterException, EncodingException {
         super.setUp();
@@ -92,6 +113,191 @@ public class InsertResultInsertDAOTest extends AbstractObservationInsertDAOTest
         checkObservation(OFFERING3, PROCEDURE3, OBSPROP3, TIME4, PROCEDURE3, OBSPROP3, FEATURE3, VAL4, TEMP_UNIT);
     }
 
+    @Test
+    public void testBulkInsertResultSkipsExistingObservations()
+            throws OwsExceptionReport, EncodingException, ConverterException {
+        insertResultTemplate(RESULT_TEMPLATE, PROCEDURE3, OFFERING3, OBSPROP3, FEATURE3);
+        insertResultDAO.setInsertResultBatchSize(2);
+        try {
+            InsertResultRequest req = new InsertResultRequest();
+            req.setTemplateIdentifier(RESULT_TEMPLATE);
+            req.setResultValues(makeResultValueString(CollectionHelper.list(TIME1, TIME2),
+                    CollectionHelper.list(VAL1, VAL2)));
+            insertResultDAO.insertResult(req);
+            // TIME1 and TIME2 already exist and are skipped
+            req.setResultValues(makeResultValueString(CollectionHelper.list(TIME1, TIME2, TIME3),
+                    CollectionHelper.list(VAL1, VAL2, VAL3)));
+            insertResultDAO.insertResult(req);
+        } finally {
+            insertResultDAO.setInsertResultBatchSize(0);
+        }
+        Session session = null;
+        try {
+            session = getSession();
+            Long count = (Long) session.createCriteria(DataEntity.class).setProjection(Projections.rowCount())
+                    .uniqueResult();
+            assertThat(count, is(3L));
+        } finally {
+            returnSession(session);
+        }
+        checkObservation(OFFERING3, PROCEDURE3, OBSPROP3, TIME3, PROCEDURE3, OBSPROP3, FEATURE3, VAL3, TEMP_UNIT);
+    }
+
+    @Test
+    public void testBulkInsertResultSkipsDuplicatedObservations()
+            throws OwsExceptionReport, EncodingException, ConverterException {
+        insertResultTemplate(RESULT_TEMPLATE, PROCEDURE3, OFFERING3, OBSPROP3, FEATURE3);
+        insertResultDAO.setInsertResultBatchSize(2);
+        try {
+            InsertResultRequest req = new InsertResultRequest();
+            req.setTemplateIdentifier(RESULT_TEMPLATE);
+            // the second TIME1 value is a duplicate within the request
+            req.setResultValues(makeResultValueString(CollectionHelper.list(TIME1, TIME1, TIME2),
+                    CollectionHelper.list(VAL1, VAL2, VAL3)));
+            insertResultDAO.insertResult(req);
+        } finally {
+            insertResultDAO.setInsertResultBatchSize(0);
+        }
+        Session session = null;
+        try {
+            session = getSession();
+            Long count = (Long) session.createCriteria(DataEntity.class).setProjection(Projections.rowCount())
+                    .uniqueResult();
+            assertThat(count, is(2L));
+        } finally {
+            returnSession(session);
+        }
+        checkObservation(OFFERING3, PROCEDURE3, OBSPROP3, TIME1, PROCEDURE3, OBSPROP3, FEATURE3, VAL1, TEMP_UNIT);
+    }
+
+    @Test
+    public void testBulkInsertResultCommitsOnce() throws OwsExceptionReport, EncodingException, ConverterException {
+        insertResultTemplate(RESULT_TEMPLATE, PROCEDURE3, OFFERING3, OBSPROP3, FEATURE3);
+        long[] perObservation = countTransactionsAndStatements(0, TIME1);
+        long[] bulk = countTransactionsAndStatements(2, TIME1.plusDays(1));
+        // the per observation insertion commits each observation on its own
+        assertThat(perObservation[0], is(greaterThan((long) BULK_VALUES)));
+        assertThat(bulk[0], is(1L));
+        assertThat(bulk[1], is(lessThan(perObservation[1])));
+        Session session = null;
+        try {
+            session = getSession();
+            Long count = (Long) session.createCriteria(DataEntity.class).setProjection(Projections.rowCount())
+                    .uniqueResult();
+            assertThat(count, is(2L * BULK_VALUES));
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    @Test(timeout = 600000)
+    public void testBulkInsertResultThroughput() throws OwsExceptionReport, EncodingException, ConverterException {
+        insertResultTemplate(RESULT_TEMPLATE, PROCEDURE3, OFFERING3, OBSPROP3, FEATURE3);
+        // the per observation insertion commits each row, so it is measured
+        // on a smaller number of values
+        long perObservation = insertValues(BENCHMARK_PER_OBSERVATION_VALUES, 0, TIME1);
+        long bulk = insertValues(BENCHMARK_VALUES, BENCHMARK_BATCH_SIZE, TIME1.plusYears(1));
+        LOGGER.info("Inserted {} values per observation in {} ms ({} values/s)", BENCHMARK_PER_OBSERVATION_VALUES,
+                perObservation, BENCHMARK_PER_OBSERVATION_VALUES * 1000L / perObservation);
+        LOGGER.info("Inserted {} values in bulk with batch size {} in {} ms ({} values/s)", BENCHMARK_VALUES,
+                BENCHMARK_BATCH_SIZE, bulk, BENCHMARK_VALUES * 1000L / bulk);
+        Session session = null;
+        try {
+            session = getSession();
+            Long count = (Long) session.createCriteria(DataEntity.class).setProjection(Projections.rowCount())
+                    .uniqueResult();
+            assertThat(count, is((long) BENCHMARK_PER_OBSERVATION_VALUES + BENCHMARK_VALUES));
+        } finally {
+            returnSession(session);
+        }
+    }
+
+    /**
+     * Insert the number of values with the batch size, where a batch size of
+     * <code>0</code> inserts the values per observation.
+     *
+     * @return the duration in milliseconds
+     */
+    private long insertValues(int count, int batchSize, DateTime begin) throws OwsExceptionReport {
+        List<DateTime> times = new ArrayList<>(count);
+        List<Double> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            times.add(begin.plusSeconds(i));
+            values.add(VAL1 + i);
+        }
+        InsertResultRequest req = new InsertResultRequest();
+        req.setTemplateIdentifier(RESULT_TEMPLATE);
+        req.setResultValues(makeResultValueString(times, values));
+        insertResultDAO.setInsertResultBatchSize(batchSize);
+        long start = System.currentTimeMillis();
+        try {
+            insertResultDAO.insertResult(req);
+        } finally {
+            insertResultDAO.setInsertResultBatchSize(0);
+        }
+        return Math.max(1, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Insert {@link #BULK_VALUES} values and count the committed transactions
+     * and the prepared statements.
+     *
+     * @return the number of transactions and the number of statements
+     */
+    private long[] countTransactionsAndStatements(int batchSize, DateTime begin) throws OwsExceptionReport {
+        List<DateTime> times = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < BULK_VALUES; i++) {
+            times.add(begin.plusMinutes(i));
+            values.add(VAL1 + i);
+        }
+        InsertResultRequest req = new InsertResultRequest();
+        req.setTemplateIdentifier(RESULT_TEMPLATE);
+        req.setResultValues(makeResultValueString(times, values));
+        Session session = getSession();
+        Statistics statistics = session.getSessionFactory().getStatistics();
+        returnSession(session);
+        boolean enabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        insertResultDAO.setInsertResultBatchSize(batchSize);
+        try {
+            insertResultDAO.insertResult(req);
+            return new long[] { statistics.getTransactionCount(), statistics.getPrepareStatementCount() };
+        } finally {
+            insertResultDAO.setInsertResultBatchSize(0);
+            statistics.setStatisticsEnabled(enabled);
+        }
+    }
+
+    @Test
+    public void testGetResultFromCursorMatchesGetResult()
+            throws OwsExceptionReport, EncodingException, ConverterException, IOException {
+        insertResultTemplate(RESULT_TEMPLATE, PROCEDURE3, OFFERING3, OBSPROP3, FEATURE3);
+        InsertResultRequest req = new InsertResultRequest();
+        req.setTemplateIdentifier(RESULT_TEMPLATE);
+        req.setResultValues(makeResultValueString(CollectionHelper.list(TIME1, TIME2, TIME3),
+                CollectionHelper.list(VAL1, VAL2, VAL3)));
+        insertResultDAO.insertResult(req);
+        GetResultRequest request = new GetResultRequest();
+        request.setObservedProperty(OBSPROP3);
+        request.setOffering(OFFERING3);
+        String resultValues = getResultHandler.getResult(request).getResultValues();
+        getResultDAO.setCursor(true);
+        // load the observations of the cursor in more than one batch
+        getResultDAO.setFetchSize(2);
+        try {
+            GetResultResponse response = getResultHandler.getResult(request);
+            assertThat(response, instanceOf(StreamingGetResultResponse.class));
+            StringWriter writer = new StringWriter();
+            ((StreamingGetResultResponse) response).writeResultValues(writer);
+            assertThat(writer.toString(), is(resultValues));
+        } finally {
+            getResultDAO.setCursor(false);
+            getResultDAO.setFetchSize(0);
+        }
+    }
+
     private void insertResultTemplate(String identifier, String procedureId, String offeringId, String obsPropId,
             String featureId) throws OwsExceptionReport, ConverterException, EncodingException {
         InsertResultTemplateRequest req = new InsertResultTemplateRequest();
@@ -68,8 +68,8 @@ public class AqdGetCapabilitiesOperatorV10 extends
 
     @Override
     public GetCapabilitiesResponse receive(GetCapabilitiesRequest request) throws OwsExceptionReport {
-        return modifyCapabilities((GetCapabilitiesResponse) changeResponseServiceVersion(
-                getOperationHandler().getCapabilities((GetCapabilitiesRequest) changeRequestServiceVersion(request))));
+        return modifyCapabilities((GetCapabilitiesResponse) changeResponseServiceVersion(callOperationHandler(
+                handler -> handler.getCapabilities((GetCapabilitiesRequest) changeRequestServiceVersion(request)))));
     }
 
     private GetCapabilitiesResponse modifyCapabilities(GetCapabilitiesResponse response) {
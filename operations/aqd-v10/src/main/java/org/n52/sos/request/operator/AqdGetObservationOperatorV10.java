@@ -85,8 +85,9 @@ public class AqdGetObservationOperatorV10 extends
         checkRequestForFlowAndTemporalFilter(request, flow);
         boolean checkForMergeObservationsInResponse = checkForMergeObservationsInResponse(request);
         request.setMergeObservationValues(checkForMergeObservationsInResponse);
+        final GetObservationRequest versionedRequest = (GetObservationRequest) changeRequestServiceVersion(request);
         final GetObservationResponse response = (GetObservationResponse) changeResponseServiceVersion(
-                getOperationHandler().getObservation((GetObservationRequest) changeRequestServiceVersion(request)));
+                callOperationHandler(handler -> handler.getObservation(versionedRequest)));
         changeRequestServiceVersionToAqd(request);
         response.setExtensions(request.getExtensions());
         setObservationResponseResponseFormatAndContentType(request, response);
@@ -30,14 +30,18 @@ package org.n52.sos.request.operator;
 import java.util.Collections;
 import java.util.Set;
 
+import javax.inject.Inject;
+
 import org.n52.janmayen.http.MediaType;
 import org.n52.shetland.ogc.ows.exception.CompositeOwsException;
 import org.n52.shetland.ogc.ows.exception.MissingParameterValueException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
 import org.n52.shetland.ogc.sos.Sos1Constants;
 import org.n52.shetland.ogc.sos.SosConstants;
 import org.n52.shetland.ogc.sos.request.DescribeSensorRequest;
 import org.n52.shetland.ogc.sos.response.DescribeSensorResponse;
+import org.n52.sos.cache.ProcedureDescriptionCache;
 import org.n52.sos.ds.AbstractDescribeSensorHandler;
 
 /**
@@ -54,10 +58,17 @@ public class SosDescribeSensorOperatorV100 extends
     private static final Set<String> CONFORMANCE_CLASSES =
             Collections.singleton("http://www.opengis.net/spec/SOS/1.0/conf/core");
 
+    private ProcedureDescriptionCache procedureDescriptionCache;
+
     public SosDescribeSensorOperatorV100() {
         super(OPERATION_NAME, DescribeSensorRequest.class);
     }
 
+    @Inject
+    public void setProcedureDescriptionCache(ProcedureDescriptionCache procedureDescriptionCache) {
+        this.procedureDescriptionCache = procedureDescriptionCache;
+    }
+
     @Override
     public Set<String> getConformanceClasses(String service, String version) {
         if (SosConstants.SOS.equals(service) && Sos1Constants.SERVICEVERSION.equals(version)) {
@@ -68,11 +79,19 @@ public class SosDescribeSensorOperatorV100 extends
 
     @Override
     public DescribeSensorResponse receive(DescribeSensorRequest sosRequest) throws OwsExceptionReport {
-        DescribeSensorResponse response = getOperationHandler().getSensorDescription(sosRequest);
+        DescribeSensorResponse response = callOperationHandler(handler -> handler.getSensorDescription(sosRequest));
         response.setOutputFormat(MediaType.normalizeString(sosRequest.getProcedureDescriptionFormat()));
         return response;
     }
 
+    @Override
+    protected OwsServiceResponse receiveModifiedResponse(DescribeSensorRequest request) throws OwsExceptionReport {
+        if (procedureDescriptionCache == null) {
+            return super.receiveModifiedResponse(request);
+        }
+        return procedureDescriptionCache.get(request, super::receiveModifiedResponse, getServiceEventBus());
+    }
+
     @Override
     protected void checkParameters(DescribeSensorRequest sosRequest) throws OwsExceptionReport {
         CompositeOwsException exceptions = new CompositeOwsException();
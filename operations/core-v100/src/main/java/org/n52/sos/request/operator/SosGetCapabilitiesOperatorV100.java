@@ -63,7 +63,7 @@ public class SosGetCapabilitiesOperatorV100 extends
 
     @Override
     public GetCapabilitiesResponse receive(GetCapabilitiesRequest sosRequest) throws OwsExceptionReport {
-        return getOperationHandler().getCapabilities(sosRequest);
+        return callOperationHandler(handler -> handler.getCapabilities(sosRequest));
     }
 
     @Override
@@ -83,6 +83,6 @@ public class SosGetFeatureOfInterestOperatorV100 extends
 
     @Override
     protected GetFeatureOfInterestResponse receive(GetFeatureOfInterestRequest request) throws OwsExceptionReport {
-        return getOperationHandler().getFeatureOfInterest(request);
+        return callOperationHandler(handler -> handler.getFeatureOfInterest(request));
     }
 }
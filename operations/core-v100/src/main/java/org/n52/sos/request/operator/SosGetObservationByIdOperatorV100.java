@@ -105,7 +105,8 @@ public class SosGetObservationByIdOperatorV100
 
     @Override
     protected GetObservationByIdResponse receive(GetObservationByIdRequest sosRequest) throws OwsExceptionReport {
-        GetObservationByIdResponse sosResponse = getOperationHandler().getObservationById(sosRequest);
+        GetObservationByIdResponse sosResponse =
+                callOperationHandler(handler -> handler.getObservationById(sosRequest));
         setObservationResponseResponseFormatAndContentType(sosRequest, sosResponse);
         return sosResponse;
     }
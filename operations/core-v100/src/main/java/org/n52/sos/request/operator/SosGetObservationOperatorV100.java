@@ -93,7 +93,7 @@ public class SosGetObservationOperatorV100 extends
 
     @Override
     public GetObservationResponse receive(GetObservationRequest sosRequest) throws OwsExceptionReport {
-        GetObservationResponse sosResponse = getOperationHandler().getObservation(sosRequest);
+        GetObservationResponse sosResponse = callOperationHandler(handler -> handler.getObservation(sosRequest));
         if (sosRequest.isSetResponseFormat()) {
             setObservationResponseResponseFormatAndContentType(sosRequest, sosResponse);
         }
@@ -71,6 +71,7 @@ import org.n52.shetland.ogc.swe.SweField;
 import org.n52.shetland.ogc.swe.SweSimpleDataRecord;
 import org.n52.shetland.ogc.swe.simpleType.SweText;
 import org.n52.shetland.util.CollectionHelper;
+import org.n52.sos.cache.ProcedureDescriptionCache;
 import org.n52.sos.ds.AbstractDescribeSensorHandler;
 import org.n52.sos.util.SosHelper;
 import org.n52.sos.wsdl.Metadata;
@@ -111,6 +112,8 @@ public class SosDescribeSensorOperatorV20 extends
 
     private boolean encodeFullChildrenInDescribeSensor;
 
+    private ProcedureDescriptionCache procedureDescriptionCache;
+
     public SosDescribeSensorOperatorV20() {
         super(OPERATION_NAME, DescribeSensorRequest.class);
         postProcessor = new PostProcessor();
@@ -130,6 +133,11 @@ public class SosDescribeSensorOperatorV20 extends
         this.sosHelper = sosHelper;
     }
 
+    @Inject
+    public void setProcedureDescriptionCache(ProcedureDescriptionCache procedureDescriptionCache) {
+        this.procedureDescriptionCache = procedureDescriptionCache;
+    }
+
     private String getServiceURL() {
         return sosHelper.getServiceURL();
     }
@@ -153,11 +161,19 @@ public class SosDescribeSensorOperatorV20 extends
 
     @Override
     public DescribeSensorResponse receive(DescribeSensorRequest request) throws OwsExceptionReport {
-        return getOperationHandler().getSensorDescription(request);
+        return callOperationHandler(handler -> handler.getSensorDescription(request));
         // TODO check if sensor description position/location/observedArea
         // should be transformed (CRS support)
     }
 
+    @Override
+    protected OwsServiceResponse receiveModifiedResponse(DescribeSensorRequest request) throws OwsExceptionReport {
+        if (procedureDescriptionCache == null) {
+            return super.receiveModifiedResponse(request);
+        }
+        return procedureDescriptionCache.get(request, super::receiveModifiedResponse, getServiceEventBus());
+    }
+
     @Override
     protected void checkParameters(DescribeSensorRequest sosRequest) throws OwsExceptionReport {
         CompositeOwsException exceptions = new CompositeOwsException();
@@ -66,7 +66,7 @@ public class SosGetCapabilitiesOperatorV20 extends
 
     @Override
     public GetCapabilitiesResponse receive(GetCapabilitiesRequest request) throws OwsExceptionReport {
-        return getOperationHandler().getCapabilities(request);
+        return callOperationHandler(handler -> handler.getCapabilities(request));
     }
 
     @Override
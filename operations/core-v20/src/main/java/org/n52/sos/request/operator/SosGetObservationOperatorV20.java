@@ -100,7 +100,7 @@ public class SosGetObservationOperatorV20 extends
 
     @Override
     public GetObservationResponse receive(GetObservationRequest request) throws OwsExceptionReport {
-        final GetObservationResponse sosResponse = getOperationHandler().getObservation(request);
+        final GetObservationResponse sosResponse = callOperationHandler(handler -> handler.getObservation(request));
         setObservationResponseResponseFormatAndContentType(request, sosResponse);
         return sosResponse;
     }
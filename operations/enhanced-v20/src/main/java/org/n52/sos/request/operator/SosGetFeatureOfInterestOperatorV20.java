@@ -70,7 +70,7 @@ public class SosGetFeatureOfInterestOperatorV20 extends
 
     @Override
     public GetFeatureOfInterestResponse receive(GetFeatureOfInterestRequest request) throws OwsExceptionReport {
-        return getOperationHandler().getFeatureOfInterest(request);
+        return callOperationHandler(handler -> handler.getFeatureOfInterest(request));
     }
 
     @Override
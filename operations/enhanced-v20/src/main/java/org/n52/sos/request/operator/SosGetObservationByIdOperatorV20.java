@@ -71,7 +71,7 @@ public class SosGetObservationByIdOperatorV20 extends
         if (!sosRequest.isSetResponseFormat()) {
             sosRequest.setResponseFormat(getActiveProfile().getObservationResponseFormat());
         }
-        GetObservationByIdResponse response = getOperationHandler().getObservationById(sosRequest);
+        GetObservationByIdResponse response = callOperationHandler(handler -> handler.getObservationById(sosRequest));
         if (response.getResponseFormat() == null) {
             throw new MissingResponseFormatParameterException();
         }
@@ -61,7 +61,7 @@ public class DeleteObservationRequestOperator extends
 
     @Override
     public DeleteObservationResponse receive(DeleteObservationRequest request) throws OwsExceptionReport {
-        DeleteObservationResponse response = getOperationHandler().deleteObservation(request);
+        DeleteObservationResponse response = callOperationHandler(handler -> handler.deleteObservation(request));
         return response;
     }
 
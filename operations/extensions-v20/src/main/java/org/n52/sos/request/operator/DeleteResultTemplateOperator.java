@@ -65,7 +65,7 @@ public class DeleteResultTemplateOperator extends
 
     @Override
     public DeleteResultTemplateResponse receive(DeleteResultTemplateRequest request) throws OwsExceptionReport {
-        DeleteResultTemplateResponse response = getOperationHandler().deleteResultTemplates(request);
+        DeleteResultTemplateResponse response = callOperationHandler(handler -> handler.deleteResultTemplates(request));
         getServiceEventBus().submit(new ResultTemplatesDeletion(request, response));
         return response;
     }
@@ -102,7 +102,7 @@ public class GetDataAvailabilityOperator extends
 
     @Override
     public GetDataAvailabilityResponse receive(GetDataAvailabilityRequest sosRequest) throws OwsExceptionReport {
-        return getOperationHandler().getDataAvailability(sosRequest);
+        return callOperationHandler(handler -> handler.getDataAvailability(sosRequest));
     }
 
     @Override
@@ -90,7 +90,8 @@ public class InsertFeatureOfInterestOperator extends
 
     @Override
     public InsertFeatureOfInterestResponse receive(InsertFeatureOfInterestRequest request) throws OwsExceptionReport {
-        InsertFeatureOfInterestResponse response = getOperationHandler().insertFeatureOfInterest(request);
+        InsertFeatureOfInterestResponse response =
+                callOperationHandler(handler -> handler.insertFeatureOfInterest(request));
         getServiceEventBus().submit(new FeatureInsertion(request, response));
         return response;
     }
@@ -64,7 +64,7 @@ public class SosGetResultOperatorV20
 
     @Override
     public GetResultResponse receive(GetResultRequest request) throws OwsExceptionReport {
-        return getOperationHandler().getResult(request);
+        return callOperationHandler(handler -> handler.getResult(request));
     }
 
     @Override
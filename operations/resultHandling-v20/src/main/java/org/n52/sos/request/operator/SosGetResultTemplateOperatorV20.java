@@ -70,7 +70,7 @@ public class SosGetResultTemplateOperatorV20 extends
 
     @Override
     public GetResultTemplateResponse receive(GetResultTemplateRequest request) throws OwsExceptionReport {
-        return getOperationHandler().getResultTemplate(request);
+        return callOperationHandler(handler -> handler.getResultTemplate(request));
     }
 
     @Override
@@ -71,7 +71,7 @@ public class SosInsertResultOperatorV20 extends
 
     @Override
     public InsertResultResponse receive(InsertResultRequest request) throws OwsExceptionReport {
-        InsertResultResponse response = getOperationHandler().insertResult(request);
+        InsertResultResponse response = callOperationHandler(handler -> handler.insertResult(request));
         getServiceEventBus().submit(new ResultInsertion(request, response));
         return response;
     }
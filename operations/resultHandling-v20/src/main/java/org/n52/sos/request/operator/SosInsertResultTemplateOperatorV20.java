@@ -94,7 +94,7 @@ public class SosInsertResultTemplateOperatorV20 extends
 
     @Override
     public InsertResultTemplateResponse receive(InsertResultTemplateRequest request) throws OwsExceptionReport {
-        InsertResultTemplateResponse response = getOperationHandler().insertResultTemplate(request);
+        InsertResultTemplateResponse response = callOperationHandler(handler -> handler.insertResultTemplate(request));
         getServiceEventBus().submit(new ResultTemplateInsertion(request, response));
         return response;
     }
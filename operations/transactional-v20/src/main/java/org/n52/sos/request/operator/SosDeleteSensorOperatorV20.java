@@ -72,7 +72,7 @@ public class SosDeleteSensorOperatorV20 extends
 
     @Override
     public DeleteSensorResponse receive(DeleteSensorRequest request) throws OwsExceptionReport {
-        DeleteSensorResponse response = getOperationHandler().deleteSensor(request);
+        DeleteSensorResponse response = callOperationHandler(handler -> handler.deleteSensor(request));
         getServiceEventBus().submit(new SensorDeletion(request, response));
         return response;
     }
@@ -84,7 +84,7 @@ public class SosInsertObservationOperatorV20 extends
 
     @Override
     public InsertObservationResponse receive(final InsertObservationRequest request) throws OwsExceptionReport {
-        InsertObservationResponse response = getOperationHandler().insertObservation(request);
+        InsertObservationResponse response = callOperationHandler(handler -> handler.insertObservation(request));
         getServiceEventBus().submit(new ObservationInsertion(request, response));
         return response;
     }
@@ -117,7 +117,7 @@ public class SosInsertSensorOperatorV20 extends
 
     @Override
     public InsertSensorResponse receive(InsertSensorRequest request) throws OwsExceptionReport {
-        InsertSensorResponse response = getOperationHandler().insertSensor(request);
+        InsertSensorResponse response = callOperationHandler(handler -> handler.insertSensor(request));
         getServiceEventBus().submit(new SensorInsertion(request, response));
         return response;
     }
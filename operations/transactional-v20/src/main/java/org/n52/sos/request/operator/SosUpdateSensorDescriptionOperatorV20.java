@@ -71,7 +71,7 @@ public class SosUpdateSensorDescriptionOperatorV20 extends
 
     @Override
     public UpdateSensorResponse receive(UpdateSensorRequest request) throws OwsExceptionReport {
-        UpdateSensorResponse response = getOperationHandler().updateSensorDescription(request);
+        UpdateSensorResponse response = callOperationHandler(handler -> handler.updateSensorDescription(request));
         getServiceEventBus().submit(new SensorModification(request, response));
         return response;
     }
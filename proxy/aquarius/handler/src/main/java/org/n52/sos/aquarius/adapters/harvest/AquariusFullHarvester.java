@@ -27,7 +27,9 @@
  */
 package org.n52.sos.aquarius.adapters.harvest;
 
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -36,15 +38,26 @@ import org.n52.sensorweb.server.helgoland.adapters.harvest.FullHarvesterResponse
 import org.n52.sensorweb.server.helgoland.adapters.harvest.HarvestContext;
 import org.n52.sensorweb.server.helgoland.adapters.harvest.HarvesterResponse;
 import org.n52.series.db.beans.DatasetEntity;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.aquarius.ds.AquariusConnector;
 import org.n52.sos.aquarius.harvest.AbstractAquariusHarvester;
+import org.n52.sos.aquarius.harvest.AquariusHarvestFetcher;
+import org.n52.sos.aquarius.harvest.AquariusHarvestFetcher.HarvestedLocation;
+import org.n52.sos.aquarius.harvest.AquariusHarvestRun;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
+
 public class AquariusFullHarvester extends AbstractAquariusHarvester implements FullHarvester {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AquariusFullHarvester.class);
 
+    /**
+     * Number of locations whose remote metadata is loaded concurrently before it is stored.
+     */
+    private static final int FETCH_SIZE = 100;
+
     @Inject
     private AquariustDatasetHarvester harvester;
 
@@ -53,23 +66,25 @@ public class AquariusFullHarvester extends AbstractAquariusHarvester implements
         if (context instanceof AquariusHarvesterContext) {
             try {
                 AquariusConnector connector = ((AquariusHarvesterContext) context).getConnector();
-                clearMaps();
+                AquariusHarvestRun run = new AquariusHarvestRun();
                 checkGradesAndQualifier(connector);
-                getParameterList(connector);
-                getUnitList(connector);
+                getParameterList(connector, run);
+                getUnitList(connector, run);
                 Map<String, DatasetEntity> datasets = getIdentifierDatasetMap(getServiceEntity());
                 int counter = 0;
-                for (String identifier : getLocationIds(connector)) {
-                    if (identifier != null && !identifier.isEmpty()) {
-                        try {
-                            harvester.harvestDatasets(getLocation(identifier, connector), datasets, connector);
-                            if (getAquariusHelper().getUpdateCount() > 0
-                                    && ++counter % getAquariusHelper().getUpdateCount() == 0) {
-                                updateCache();
+                try (AquariusHarvestFetcher fetcher = new AquariusHarvestFetcher(connector, getAquariusHelper())) {
+                    for (List<String> identifiers : Lists.partition(getSortedLocationIds(connector), FETCH_SIZE)) {
+                        for (HarvestedLocation location : fetcher.fetchLocations(identifiers, run)) {
+                            try {
+                                harvester.harvestDatasets(location, datasets, run);
+                                if (getAquariusHelper().getUpdateCount() > 0
+                                        && ++counter % getAquariusHelper().getUpdateCount() == 0) {
+                                    updateCache();
+                                }
+                            } catch (Exception e) {
+                                LOGGER.error(String.format("Error while harvesting data for location '%s'!",
+                                        location.getLocation().getIdentifier()), e);
                             }
-                        } catch (Exception e) {
-                            LOGGER.error(String.format("Error while harvesting data for location '%s'!", identifier),
-                                    e);
                         }
                     }
                 }
@@ -85,6 +100,11 @@ public class AquariusFullHarvester extends AbstractAquariusHarvester implements
         return new FullHarvesterResponse(false);
     }
 
+    private List<String> getSortedLocationIds(AquariusConnector connector) throws OwsExceptionReport {
+        return getLocationIds(connector).stream().filter(identifier -> identifier != null && !identifier.isEmpty())
+                .sorted().collect(Collectors.toList());
+    }
+
     @Override
     public Logger getLogger() {
         return LOGGER;
@@ -27,10 +27,9 @@
  */
 package org.n52.sos.aquarius.adapters.harvest;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -48,17 +47,17 @@ import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.sos.aquarius.AquariusConstants.ChangeEvent;
 import org.n52.sos.aquarius.ds.AquariusConnector;
 import org.n52.sos.aquarius.harvest.AbstractAquariusHarvester;
+import org.n52.sos.aquarius.harvest.AquariusHarvestFetcher;
+import org.n52.sos.aquarius.harvest.AquariusHarvestFetcher.HarvestedTimeSeries;
+import org.n52.sos.aquarius.harvest.AquariusHarvestRun;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.LocationDataServiceResponse;
 import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDescription;
-import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDescriptionListByUniqueIdServiceRequest;
-import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDescriptionListByUniqueIdServiceResponse;
 import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesUniqueIdListServiceResponse;
 import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesUniqueIds;
-import com.google.common.collect.Lists;
 
 public class AquariusTemporalUpdater extends AbstractAquariusHarvester implements TemporalHarvester {
 
@@ -81,30 +80,43 @@ public class AquariusTemporalUpdater extends AbstractAquariusHarvester implement
 
     protected TemporalHarvesterResponse update(AquariusConnector connector, DateTime changedSince) {
         boolean updated = false;
-        try {
+        try (AquariusHarvestFetcher fetcher = new AquariusHarvestFetcher(connector, getAquariusHelper())) {
+            AquariusHarvestRun run = new AquariusHarvestRun();
             ServiceEntity service = getOrInsertServiceEntity();
             TimeSeriesUniqueIdListServiceResponse timeSeriesUniqueIds =
                     connector.getTimeSeriesUniqueIds(getAquariusHelper().getTimeSeriesUniqueIdsRequest()
                             .setChangesSinceToken(changedSince.toDate().toInstant())
                             .setChangeEventType(ChangeEvent.Data.name()));
             if (timeSeriesUniqueIds != null && timeSeriesUniqueIds.getTimeSeriesUniqueIds() != null) {
-                for (TimeSeriesDescription timeSeries : getTimeSeriesDescriptions(
-                        timeSeriesUniqueIds.getTimeSeriesUniqueIds(), connector)) {
+                List<TimeSeriesDescription> descriptions =
+                        getTimeSeriesDescriptions(timeSeriesUniqueIds.getTimeSeriesUniqueIds(), fetcher);
+                Map<String, DatasetEntity> datasets = new HashMap<>();
+                for (TimeSeriesDescription timeSeries : descriptions) {
                     DatasetEntity dataset = getDatasetRepository().getOneByIdentifier(timeSeries.getUniqueId());
                     if (dataset != null) {
-                        updateFirstLastObservation(dataset, timeSeries, connector);
-                        getDatasetRepository().saveAndFlush(dataset);
-                        updated = true;
+                        datasets.put(timeSeries.getUniqueId(), dataset);
+                    }
+                }
+                // the points of existing datasets are updated regardless of the data check
+                for (HarvestedTimeSeries harvested : fetcher.fetchTimeSeries(descriptions,
+                        t -> datasets.containsKey(t.getUniqueId()))) {
+                    TimeSeriesDescription timeSeries = harvested.getTimeSeries();
+                    DatasetEntity dataset = datasets.get(timeSeries.getUniqueId());
+                    if (dataset != null) {
+                        if (!harvested.isFailed()) {
+                            updateDataset(dataset, harvested.getFirstPoint(), harvested.getLastPoint());
+                            getDatasetRepository().saveAndFlush(dataset);
+                            updated = true;
+                        }
                     } else {
                         if (getAquariusHelper().isCreateTemporal()) {
                             LocationDataServiceResponse location =
-                                    getLocation(timeSeries.getLocationIdentifier(), connector);
+                                    getLocation(timeSeries.getLocationIdentifier(), connector, run);
                             if (checkLocation(location)) {
-                                ProcedureEntity procedure = createProcedure(location, getProcedures(), service);
-                                FeatureEntity feature = createFeature(location, getFeatures(), service);
-                                PlatformEntity platform = createPlatform(location, getPlatforms(), service);
-                                harvestDatasets(location, timeSeries, feature, procedure, platform, service,
-                                        connector);
+                                ProcedureEntity procedure = createProcedure(location, run.getProcedures(), service);
+                                FeatureEntity feature = createFeature(location, run.getFeatures(), service);
+                                PlatformEntity platform = createPlatform(location, run.getPlatforms(), service);
+                                harvestDatasets(location, harvested, feature, procedure, platform, service, run);
                                 updated = true;
                             }
                         }
@@ -119,7 +131,7 @@ public class AquariusTemporalUpdater extends AbstractAquariusHarvester implement
     }
 
     private List<TimeSeriesDescription> getTimeSeriesDescriptions(List<TimeSeriesUniqueIds> timeSeriesUniqueIds,
-            AquariusConnector connector) throws OwsExceptionReport {
+            AquariusHarvestFetcher fetcher) throws OwsExceptionReport {
         Set<String> ids = timeSeriesUniqueIds.stream().map(t -> t.getUniqueId()).collect(Collectors.toSet());
         if (!getAquariusHelper().isCreateTemporal()) {
             Set<String> datasets =
@@ -128,27 +140,7 @@ public class AquariusTemporalUpdater extends AbstractAquariusHarvester implement
                 ids.retainAll(datasets);
             }
         }
-        if (ids.size() == 0) {
-            return Collections.emptyList();
-        }
-        if (ids.size() > 50) {
-            List<TimeSeriesDescription> data = new LinkedList<>();
-            for (List<String> list : Lists.partition(new ArrayList<>(ids), 50)) {
-                TimeSeriesDescriptionListByUniqueIdServiceResponse response = connector
-                        .getTimeSeriesDescriptionsByUniqueId(new TimeSeriesDescriptionListByUniqueIdServiceRequest()
-                                .setTimeSeriesUniqueIds(new ArrayList<>(list)));
-                if (response != null && response.getTimeSeriesDescriptions() != null) {
-                    data.addAll(response.getTimeSeriesDescriptions());
-                }
-            }
-            return data;
-        }
-        TimeSeriesDescriptionListByUniqueIdServiceResponse response = connector.getTimeSeriesDescriptionsByUniqueId(
-                new TimeSeriesDescriptionListByUniqueIdServiceRequest().setTimeSeriesUniqueIds(new ArrayList<>(ids)));
-        if (response != null && response.getTimeSeriesDescriptions() != null) {
-            return response.getTimeSeriesDescriptions();
-        }
-        return Collections.emptyList();
+        return fetcher.fetchTimeSeriesDescriptions(ids);
     }
 
     @Override
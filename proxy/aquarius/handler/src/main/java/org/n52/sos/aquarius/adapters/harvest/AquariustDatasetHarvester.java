@@ -35,14 +35,15 @@ import org.n52.series.db.beans.PlatformEntity;
 import org.n52.series.db.beans.ProcedureEntity;
 import org.n52.series.db.beans.ServiceEntity;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
-import org.n52.sos.aquarius.ds.AquariusConnector;
 import org.n52.sos.aquarius.harvest.AbstractAquariusHarvester;
+import org.n52.sos.aquarius.harvest.AquariusHarvestFetcher.HarvestedLocation;
+import org.n52.sos.aquarius.harvest.AquariusHarvestFetcher.HarvestedTimeSeries;
+import org.n52.sos.aquarius.harvest.AquariusHarvestRun;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.LocationDataServiceResponse;
-import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDescription;
 
 public class AquariustDatasetHarvester extends AbstractAquariusHarvester {
 
@@ -55,24 +56,24 @@ public class AquariustDatasetHarvester extends AbstractAquariusHarvester {
     }
 
     @Transactional(rollbackFor = Exception.class)
-    public void harvestDatasets(LocationDataServiceResponse location, Map<String, DatasetEntity> datasets,
-            AquariusConnector connector) throws OwsExceptionReport {
+    public void harvestDatasets(HarvestedLocation harvested, Map<String, DatasetEntity> datasets,
+            AquariusHarvestRun run) throws OwsExceptionReport {
         LOGGER.debug("Start harvesting datasets/timeSeries!");
         ServiceEntity service = getOrInsertServiceEntity();
+        LocationDataServiceResponse location = harvested.getLocation();
         if (checkLocation(location)) {
             LOGGER.debug("Harvesting timeseries for location '{}'", location.getLocationName());
-            for (TimeSeriesDescription ts : getTimeSeries(location.getIdentifier(), connector)) {
-                if (ts != null) {
-                    LOGGER.debug("Harvesting timeseries '{}'", ts.getIdentifier());
-                    try {
-                        ProcedureEntity procedure = createProcedure(location, getProcedures(), service);
-                        FeatureEntity feature = createFeature(location, getFeatures(), service);
-                        PlatformEntity platform = createPlatform(location, getPlatforms(), service);
-                        harvestDatasets(location, ts, feature, procedure, platform, service, connector);
-                        datasets.remove(ts.getUniqueId());
-                    } catch (Exception e) {
-                        LOGGER.error(String.format("Error while harvesting dataset '%s'!", ts.getIdentifier()), e);
-                    }
+            for (HarvestedTimeSeries ts : harvested.getTimeSeries()) {
+                LOGGER.debug("Harvesting timeseries '{}'", ts.getTimeSeries().getIdentifier());
+                try {
+                    ProcedureEntity procedure = createProcedure(location, run.getProcedures(), service);
+                    FeatureEntity feature = createFeature(location, run.getFeatures(), service);
+                    PlatformEntity platform = createPlatform(location, run.getPlatforms(), service);
+                    harvestDatasets(location, ts, feature, procedure, platform, service, run);
+                    datasets.remove(ts.getTimeSeries().getUniqueId());
+                } catch (Exception e) {
+                    LOGGER.error(String.format("Error while harvesting dataset '%s'!",
+                            ts.getTimeSeries().getIdentifier()), e);
                 }
             }
         } else {
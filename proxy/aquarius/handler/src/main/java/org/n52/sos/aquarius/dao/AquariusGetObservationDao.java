@@ -35,6 +35,12 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -48,7 +54,9 @@ import org.joda.time.Interval;
 import org.n52.iceland.ds.ConnectionProviderException;
 import org.n52.iceland.exception.ows.concrete.NotYetSupportedException;
 import org.n52.io.request.IoParameters;
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
 import org.n52.janmayen.http.HTTPStatus;
+import org.n52.janmayen.lifecycle.Destroyable;
 import org.n52.sensorweb.server.db.assembler.core.DatasetAssembler;
 import org.n52.sensorweb.server.db.assembler.value.ValueConnector;
 import org.n52.sensorweb.server.db.old.dao.DbQuery;
@@ -71,6 +79,7 @@ import org.n52.shetland.ogc.sos.response.GetObservationResponse;
 import org.n52.sos.aquarius.ds.AquariusConnector;
 import org.n52.sos.aquarius.ds.AquariusHelper;
 import org.n52.sos.aquarius.ds.AquariusTimeHelper;
+import org.n52.sos.aquarius.ds.AquariusTimeSeriesCache;
 import org.n52.sos.aquarius.ds.Point;
 import org.n52.sos.aquarius.ds.TimeSeriesData;
 import org.n52.sos.aquarius.harvest.AquariusEntityBuilder;
@@ -96,7 +105,8 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 @SuppressFBWarnings({ "EI_EXPOSE_REP2" })
 public class AquariusGetObservationDao extends AbstractAquariusDao
-        implements GetObservationDao, ValueConnector, ApiQueryHelper, AquariusTimeHelper, AquariusEntityBuilder {
+        implements GetObservationDao, ValueConnector, ApiQueryHelper, AquariusTimeHelper, AquariusEntityBuilder,
+        Destroyable {
     private static final Logger LOGGER = LoggerFactory.getLogger(AquariusGetObservationDao.class);
     private static final String ERROR_LAST_OBSERVATION = "Error while querying last observation";
     private static final String ERROR_FIRST_OBSERVATION = "Error while querying first observation";
@@ -114,6 +124,10 @@ public class AquariusGetObservationDao extends AbstractAquariusDao
 
     private DbQueryFactory dbQueryFactory;
 
+    private AquariusTimeSeriesCache timeSeriesCache;
+
+    private ThreadPoolExecutor executor;
+
     @Inject
     public void setDatasetAssembler(DatasetAssembler assembler) {
         this.assembler = assembler;
@@ -134,6 +148,11 @@ public class AquariusGetObservationDao extends AbstractAquariusDao
         this.aquariusHelper = aquariusHelper;
     }
 
+    @Inject
+    public void setTimeSeriesCache(AquariusTimeSeriesCache timeSeriesCache) {
+        this.timeSeriesCache = timeSeriesCache;
+    }
+
     @Inject
     public void setOmObservationCreatorContext(OmObservationCreatorContext observationCreatorContext) {
         this.observationCreatorContext = observationCreatorContext;
@@ -179,26 +198,21 @@ public class AquariusGetObservationDao extends AbstractAquariusDao
         final List<OmObservation> result = new LinkedList<>();
         Locale requestedLocale = getRequestedLocale(request);
         String pdf = getProcedureDescriptionFormat(request.getResponseFormat());
+        List<CompletableFuture<Collection<TimeSeriesDataServiceResponse>>> queries = Collections.emptyList();
         try {
             AquariusConnector connection = getAquariusConnector();
             List<DatasetEntity> datasets = getDatasets(createDbQuery(request)).collect(Collectors.toList());
+            ExecutorService queryExecutor = getExecutor();
+            // query the remote data of all datasets concurrently, the observations are created sequentially
+            queries = datasets.stream()
+                    .map(DatasetEntity::getIdentifier)
+                    .map(identifier -> CompletableFuture.supplyAsync(
+                            () -> queryTimeSeriesData(identifier, request, connection), queryExecutor))
+                    .collect(Collectors.toList());
             Counter counter = new Counter();
-            for (DatasetEntity dataset : datasets) {
-                String identifier = dataset.getIdentifier();
-                Collection<TimeSeriesDataServiceResponse> data = Lists.newArrayList();
-                if (request.hasTemporalFilters()) {
-                    // query with temporal filter
-                    for (IndeterminateValue temporalFilter : request.getFirstLatestTemporalFilter()) {
-                        checkAndAdd(data, queryForTemporalFilter(identifier, temporalFilter, connection));
-                    }
-                    for (TemporalFilter temporalFilter : request.getNotFirstLatestTemporalFilter()) {
-                        if (temporalFilter != null) {
-                            checkAndAdd(data, queryForTemporalFilter(identifier, temporalFilter, connection));
-                        }
-                    }
-                } else {
-                    checkAndAdd(data, connection.getTimeSeriesData(identifier, null, null));
-                }
+            for (int i = 0; i < datasets.size(); i++) {
+                DatasetEntity dataset = datasets.get(i);
+                Collection<TimeSeriesDataServiceResponse> data = join(queries.get(i));
                 if (!data.isEmpty() || data.isEmpty()
                         && getProfileHandler().getActiveProfile().isShowMetadataOfEmptyObservations()) {
                     AquariusStreamingValue streamingValue = new AquariusStreamingValue(observationHelper);
@@ -218,6 +232,8 @@ public class AquariusGetObservationDao extends AbstractAquariusDao
         } catch (ConnectionProviderException cpe) {
             throw new NoApplicableCodeException().causedBy(cpe);
         } catch (Exception e) {
+            // the remaining queries are not required anymore
+            queries.forEach(query -> query.cancel(false));
             throw new NoApplicableCodeException().causedBy(e).withMessage("Error while processing observation data!")
                     .setStatus(HTTPStatus.INTERNAL_SERVER_ERROR);
         }
@@ -226,6 +242,68 @@ public class AquariusGetObservationDao extends AbstractAquariusDao
         return response;
     }
 
+    private Collection<TimeSeriesDataServiceResponse> queryTimeSeriesData(String identifier,
+            GetObservationRequest request, AquariusConnector connection) {
+        try {
+            Collection<TimeSeriesDataServiceResponse> data = Lists.newArrayList();
+            if (request.hasTemporalFilters()) {
+                // query with temporal filter
+                for (IndeterminateValue temporalFilter : request.getFirstLatestTemporalFilter()) {
+                    checkAndAdd(data, queryForTemporalFilter(identifier, temporalFilter, connection));
+                }
+                for (TemporalFilter temporalFilter : request.getNotFirstLatestTemporalFilter()) {
+                    if (temporalFilter != null) {
+                        data.addAll(queryForTemporalFilter(identifier, temporalFilter, connection));
+                    }
+                }
+            } else {
+                checkAndAdd(data, connection.getTimeSeriesData(identifier, null, null));
+            }
+            return data;
+        } catch (OwsExceptionReport e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private Collection<TimeSeriesDataServiceResponse> join(
+            CompletableFuture<Collection<TimeSeriesDataServiceResponse>> query) throws OwsExceptionReport {
+        try {
+            return query.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof OwsExceptionReport) {
+                throw (OwsExceptionReport) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        int threads = aquariusHelper.getRequestThreads();
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), new GroupedAndNamedThreadFactory("aquarius-observation"));
+        } else if (executor.getMaximumPoolSize() != threads) {
+            // the setting was changed, the pool is resized instead of replaced, so that queries of other requests
+            // are not rejected by a shut down pool
+            if (threads > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(threads);
+                executor.setCorePoolSize(threads);
+            } else {
+                executor.setCorePoolSize(threads);
+                executor.setMaximumPoolSize(threads);
+            }
+        }
+        return executor;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
     private void checkAndAdd(Collection<TimeSeriesDataServiceResponse> data, TimeSeriesDataServiceResponse ts) {
         if (ts != null) {
             data.add(ts);
@@ -250,26 +328,27 @@ public class AquariusGetObservationDao extends AbstractAquariusDao
         return null;
     }
 
-    private TimeSeriesDataServiceResponse queryForTemporalFilter(String identifier, TemporalFilter temporalFilter,
-            AquariusConnector connection) throws OwsExceptionReport {
+    private List<TimeSeriesDataServiceResponse> queryForTemporalFilter(String identifier,
+            TemporalFilter temporalFilter, AquariusConnector connection) throws OwsExceptionReport {
         switch (temporalFilter.getOperator()) {
             case TM_During:
                 if (temporalFilter.getTime() instanceof TimePeriod) {
-                    return connection.getTimeSeriesData(identifier, ((TimePeriod) temporalFilter.getTime()).getStart(),
-                            ((TimePeriod) temporalFilter.getTime()).getEnd());
+                    return timeSeriesCache.getTimeSeriesData(identifier,
+                            ((TimePeriod) temporalFilter.getTime()).getStart(),
+                            ((TimePeriod) temporalFilter.getTime()).getEnd(), connection);
                 }
                 break;
             case TM_Equals:
                 if (temporalFilter.getTime() instanceof TimeInstant) {
-                    return connection.getTimeSeriesData(identifier,
+                    return timeSeriesCache.getTimeSeriesData(identifier,
                             ((TimeInstant) temporalFilter.getTime()).getValue(),
-                            ((TimeInstant) temporalFilter.getTime()).getValue());
+                            ((TimeInstant) temporalFilter.getTime()).getValue(), connection);
                 }
                 break;
             default:
                 break;
         }
-        return null;
+        return Collections.emptyList();
     }
 
     private String getProcedureDescriptionFormat(String responseFormat) {
@@ -354,9 +433,13 @@ public class AquariusGetObservationDao extends AbstractAquariusDao
 
     private List<DataEntity<?>> getData(Date start, Date end, DatasetEntity series, AquariusConnector connector)
             throws OwsExceptionReport {
-        TimeSeriesDataServiceResponse timeSeriesData =
-                connector.getTimeSeriesData(series.getIdentifier(), new DateTime(start), new DateTime(end));
-        return convertTimeSeriesData(timeSeriesData, series, new Counter());
+        List<DataEntity<?>> data = new LinkedList<>();
+        Counter counter = new Counter();
+        for (TimeSeriesDataServiceResponse timeSeriesData : timeSeriesCache.getTimeSeriesData(series.getIdentifier(),
+                new DateTime(start), new DateTime(end), connector)) {
+            data.addAll(convertTimeSeriesData(timeSeriesData, series, counter));
+        }
+        return data;
     }
 
     private List<DataEntity<?>> convertTimeSeriesData(TimeSeriesDataServiceResponse original, DatasetEntity dataset,
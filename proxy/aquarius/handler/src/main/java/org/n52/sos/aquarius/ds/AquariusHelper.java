@@ -34,13 +34,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -114,13 +114,17 @@ public class AquariusHelper extends AbstractProxyHelper implements Constructable
 
     private static final String UPDATE_COUNTER = "proxy.aquarius.update.counter";
 
+    private static final String HARVEST_THREADS = "proxy.aquarius.harvest.threads";
+
+    private static final String REQUEST_THREADS = "proxy.aquarius.request.threads";
+
     private ObjectMapper om;
 
-    private Map<String, ParameterMetadata> parameters = new HashMap<>();
+    private final Map<String, ParameterMetadata> parameters = new ConcurrentHashMap<>();
 
-    private Map<String, LocationDataServiceResponse> locations = new HashMap<>();
+    private final Map<String, LocationDataServiceResponse> locations = new ConcurrentHashMap<>();
 
-    private Map<String, TimeSeriesDescription> datasets = new HashMap<>();
+    private final Map<String, TimeSeriesDescription> datasets = new ConcurrentHashMap<>();
 
     private boolean applyRounding = Boolean.TRUE.booleanValue();
 
@@ -160,6 +164,10 @@ public class AquariusHelper extends AbstractProxyHelper implements Constructable
 
     private Integer updateCounter = 50;
 
+    private int harvestThreads = 4;
+
+    private int requestThreads = 4;
+
     @Setting(APPLY_ROUNDING)
     public AquariusHelper setApplyRoundig(boolean applyRounding) {
         this.applyRounding = applyRounding;
@@ -251,6 +259,18 @@ public class AquariusHelper extends AbstractProxyHelper implements Constructable
         return this;
     }
 
+    @Setting(HARVEST_THREADS)
+    public AquariusHelper setHarvestThreads(Integer harvestThreads) {
+        this.harvestThreads = harvestThreads != null && harvestThreads > 0 ? harvestThreads : 1;
+        return this;
+    }
+
+    @Setting(REQUEST_THREADS)
+    public AquariusHelper setRequestThreads(Integer requestThreads) {
+        this.requestThreads = requestThreads != null && requestThreads > 0 ? requestThreads : 1;
+        return this;
+    }
+
     public void init() {
         try {
             this.om = JsonMapper.builder().findAndAddModules().build();
@@ -313,6 +333,14 @@ public class AquariusHelper extends AbstractProxyHelper implements Constructable
         return updateCounter;
     }
 
+    public int getHarvestThreads() {
+        return harvestThreads;
+    }
+
+    public int getRequestThreads() {
+        return requestThreads;
+    }
+
     private boolean isSetExtendedAttributeTimeSeriesKey() {
         return extendedAttributeTimeSeriesKey != null && !extendedAttributeTimeSeriesKey.isEmpty();
     }
@@ -364,7 +392,7 @@ public class AquariusHelper extends AbstractProxyHelper implements Constructable
     }
 
     public ParameterMetadata getParameter(String parameterId) {
-        return parameters.get(parameterId);
+        return parameterId != null ? parameters.get(parameterId) : null;
     }
 
     @Setting(PUBLISHED)
@@ -380,7 +408,7 @@ public class AquariusHelper extends AbstractProxyHelper implements Constructable
     }
 
     public AquariusHelper addParameter(ParameterMetadata parameter) {
-        if (parameter != null) {
+        if (parameter != null && parameter.getIdentifier() != null) {
             parameters.put(parameter.getIdentifier(), parameter);
         }
         return this;
@@ -394,15 +422,15 @@ public class AquariusHelper extends AbstractProxyHelper implements Constructable
     }
 
     public boolean hasLocation(String locationId) {
-        return locations.containsKey(locationId);
+        return locationId != null && locations.containsKey(locationId);
     }
 
     public LocationDataServiceResponse getLocation(String locationId) {
-        return locations.get(locationId);
+        return locationId != null ? locations.get(locationId) : null;
     }
 
     public AquariusHelper addLocation(LocationDataServiceResponse location) {
-        if (location != null) {
+        if (location != null && location.getIdentifier() != null) {
             locations.put(location.getIdentifier(), location);
         }
         return this;
@@ -416,18 +444,18 @@ public class AquariusHelper extends AbstractProxyHelper implements Constructable
     }
 
     public TimeSeriesDescription getDataset(String timeSeriesIdentifier) {
-        return datasets.get(timeSeriesIdentifier);
+        return timeSeriesIdentifier != null ? datasets.get(timeSeriesIdentifier) : null;
     }
 
     public AquariusHelper addDataset(TimeSeriesDescription timeSeries) {
-        if (timeSeries != null) {
+        if (timeSeries != null && timeSeries.getUniqueId() != null) {
             datasets.put(timeSeries.getUniqueId(), timeSeries);
         }
         return this;
     }
 
     public boolean hasDataset(String dataSetId) {
-        return datasets.containsKey(dataSetId);
+        return dataSetId != null && datasets.containsKey(dataSetId);
     }
 
     public LocationDescriptionListServiceRequest getLocationDescriptionListRequest(String locationIdentifier) {
@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.aquarius.ds;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.n52.faroe.annotation.Configurable;
+import org.n52.faroe.annotation.Setting;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDataServiceResponse;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesPoint;
+
+/**
+ * In-memory cache for the time series data of the Aquarius proxy. The cache is keyed by the time series unique id
+ * and holds the responses of the already queried time ranges as segments. Only the parts of a requested time range
+ * which are not covered by a segment are queried from the Aquarius server.
+ *
+ * Segments expire after the configured time to live, so appended or corrected values and changed Aquarius settings
+ * become visible after this time. Only bounded time ranges are cached. The cache is limited by the number of time
+ * series and by the total number of cached points, the least recently used time series are removed first.
+ *
+ * @since 6.1.2
+ */
+@Configurable
+public class AquariusTimeSeriesCache implements AquariusTimeHelper {
+
+    public static final String CACHE_TTL = "proxy.aquarius.cache.ttl";
+
+    public static final String CACHE_SIZE = "proxy.aquarius.cache.size";
+
+    public static final String CACHE_POINTS = "proxy.aquarius.cache.points";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AquariusTimeSeriesCache.class);
+
+    private final Clock clock;
+
+    private final Map<String, CachedTimeSeries> timeSeries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private volatile long ttl = 300;
+
+    private int size = 100;
+
+    private long maxPoints = 1000000;
+
+    public AquariusTimeSeriesCache() {
+        this(Clock.systemUTC());
+    }
+
+    AquariusTimeSeriesCache(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Setting(CACHE_TTL)
+    public AquariusTimeSeriesCache setTtl(Integer ttl) {
+        this.ttl = ttl != null && ttl > 0 ? ttl : 0;
+        if (!isEnabled()) {
+            clear();
+        }
+        return this;
+    }
+
+    @Setting(CACHE_SIZE)
+    public synchronized AquariusTimeSeriesCache setSize(Integer size) {
+        this.size = size != null && size > 0 ? size : 0;
+        evict();
+        return this;
+    }
+
+    @Setting(CACHE_POINTS)
+    public synchronized AquariusTimeSeriesCache setMaxPoints(Integer maxPoints) {
+        this.maxPoints = maxPoints != null && maxPoints > 0 ? maxPoints : 0;
+        evict();
+        return this;
+    }
+
+    public boolean isEnabled() {
+        return ttl > 0 && size > 0 && maxPoints > 0;
+    }
+
+    public synchronized void clear() {
+        timeSeries.clear();
+    }
+
+    /**
+     * Get the time series data for the time range. Bounded time ranges are answered from the cached segments and
+     * only the uncovered parts are queried from the connector, open time ranges are always queried.
+     *
+     * @param uniqueId
+     *            the time series unique id
+     * @param from
+     *            the start of the time range (inclusive)
+     * @param to
+     *            the end of the time range (inclusive)
+     * @param connector
+     *            the connector to query missing time ranges
+     * @return the time series data, one response for each segment that overlaps the time range with the points
+     *         restricted to the time range
+     * @throws OwsExceptionReport
+     *             if the query of a missing time range fails
+     */
+    public List<TimeSeriesDataServiceResponse> getTimeSeriesData(String uniqueId, DateTime from, DateTime to,
+            AquariusConnector connector) throws OwsExceptionReport {
+        if (!isEnabled() || uniqueId == null || from == null || to == null || to.isBefore(from)) {
+            return singleton(connector.getTimeSeriesData(uniqueId, from, to));
+        }
+        CachedTimeSeries cached = getCachedTimeSeries(uniqueId);
+        List<TimeSeriesDataServiceResponse> responses;
+        synchronized (cached) {
+            Instant start = toInstant(from);
+            Instant end = toInstant(to);
+            cached.expire(clock.instant().minusSeconds(ttl));
+            for (Segment gap : cached.getGaps(start, end)) {
+                LOGGER.debug("Query missing time range {}/{} of time series {}", gap.getStart(), gap.getEnd(),
+                        uniqueId);
+                TimeSeriesDataServiceResponse response =
+                        connector.getTimeSeriesData(uniqueId, toDateTime(gap.getStart()), toDateTime(gap.getEnd()));
+                if (response == null) {
+                    // do not cache failed queries
+                    return singleton(connector.getTimeSeriesData(uniqueId, from, to));
+                }
+                cached.add(new Segment(gap.getStart(), gap.getEnd(), response, clock.instant()));
+            }
+            responses = cached.get(start, end);
+        }
+        evict();
+        return responses;
+    }
+
+    private synchronized CachedTimeSeries getCachedTimeSeries(String uniqueId) {
+        CachedTimeSeries cached = timeSeries.computeIfAbsent(uniqueId, k -> new CachedTimeSeries());
+        evict();
+        return cached;
+    }
+
+    private synchronized void evict() {
+        long points = timeSeries.values().stream().mapToLong(CachedTimeSeries::getPoints).sum();
+        Iterator<CachedTimeSeries> eldest = timeSeries.values().iterator();
+        while (eldest.hasNext() && (timeSeries.size() > size || points > maxPoints)) {
+            points -= eldest.next().getPoints();
+            eldest.remove();
+        }
+    }
+
+    private static Instant toInstant(DateTime time) {
+        return time.toDate().toInstant();
+    }
+
+    private static List<TimeSeriesDataServiceResponse> singleton(TimeSeriesDataServiceResponse response) {
+        return response != null ? Collections.singletonList(response) : Collections.emptyList();
+    }
+
+    private static Instant getTime(TimeSeriesPoint point) {
+        return point != null && point.getTimestamp() != null ? point.getTimestamp().getDateTimeOffset() : null;
+    }
+
+    private static class CachedTimeSeries {
+
+        private final List<Segment> segments = new ArrayList<>();
+
+        // read by the eviction without holding the lock of this time series
+        private volatile long points;
+
+        long getPoints() {
+            return points;
+        }
+
+        void expire(Instant expiry) {
+            if (segments.removeIf(s -> s.getCreated().isBefore(expiry))) {
+                points = segments.stream().mapToLong(s -> s.getPoints().size()).sum();
+            }
+        }
+
+        void add(Segment segment) {
+            segments.add(segment);
+            segments.sort(Comparator.comparing(Segment::getStart));
+            points += segment.getPoints().size();
+        }
+
+        List<Segment> getGaps(Instant start, Instant end) {
+            List<Segment> gaps = new LinkedList<>();
+            Instant cursor = start;
+            boolean overlapped = false;
+            for (Segment segment : segments) {
+                if (segment.getStart().isAfter(end)) {
+                    break;
+                }
+                if (segment.getEnd().isBefore(cursor)) {
+                    continue;
+                }
+                if (segment.getStart().isAfter(cursor)) {
+                    gaps.add(new Segment(cursor, segment.getStart()));
+                }
+                if (segment.getEnd().isAfter(cursor)) {
+                    cursor = segment.getEnd();
+                }
+                overlapped = true;
+            }
+            if (!overlapped) {
+                gaps.add(new Segment(start, end));
+            } else if (cursor.isBefore(end)) {
+                gaps.add(new Segment(cursor, end));
+            }
+            return gaps;
+        }
+
+        List<TimeSeriesDataServiceResponse> get(Instant start, Instant end) {
+            List<TimeSeriesDataServiceResponse> responses = new LinkedList<>();
+            Instant last = null;
+            for (Segment segment : segments) {
+                if (!segment.getStart().isAfter(end) && !segment.getEnd().isBefore(start)) {
+                    ArrayList<TimeSeriesPoint> points = new ArrayList<>();
+                    for (TimeSeriesPoint point : segment.getPoints()) {
+                        Instant time = getTime(point);
+                        // adjacent segments share the points at their common boundary
+                        if (time == null || !time.isBefore(start) && !time.isAfter(end)
+                                && (last == null || time.isAfter(last))) {
+                            points.add(point);
+                            last = time != null ? time : last;
+                        }
+                    }
+                    responses.add(segment.copy(points));
+                }
+            }
+            return responses;
+        }
+
+    }
+
+    private static class Segment {
+
+        private final Instant start;
+
+        private final Instant end;
+
+        private final TimeSeriesDataServiceResponse response;
+
+        private final Instant created;
+
+        Segment(Instant start, Instant end) {
+            this(start, end, null, null);
+        }
+
+        Segment(Instant start, Instant end, TimeSeriesDataServiceResponse response, Instant created) {
+            this.start = start;
+            this.end = end;
+            this.response = response;
+            this.created = created;
+        }
+
+        Instant getStart() {
+            return start;
+        }
+
+        Instant getEnd() {
+            return end;
+        }
+
+        Instant getCreated() {
+            return created;
+        }
+
+        List<TimeSeriesPoint> getPoints() {
+            return response.getPoints() != null ? response.getPoints() : Collections.emptyList();
+        }
+
+        TimeSeriesDataServiceResponse copy(ArrayList<TimeSeriesPoint> points) {
+            return new TimeSeriesDataServiceResponse().setUniqueId(response.getUniqueId())
+                    .setParameter(response.getParameter()).setLabel(response.getLabel())
+                    .setLocationIdentifier(response.getLocationIdentifier()).setUnit(response.getUnit())
+                    .setNumPoints((long) points.size()).setApprovals(response.getApprovals())
+                    .setQualifiers(response.getQualifiers()).setMethods(response.getMethods())
+                    .setGrades(response.getGrades()).setGapTolerances(response.getGapTolerances())
+                    .setInterpolationTypes(response.getInterpolationTypes()).setNotes(response.getNotes())
+                    .setTimeRange(response.getTimeRange()).setPoints(points);
+        }
+
+    }
+
+}
@@ -29,7 +29,6 @@ package org.n52.sos.aquarius.harvest;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -37,7 +36,6 @@ import java.util.Set;
 import javax.inject.Inject;
 
 import org.hibernate.Hibernate;
-import org.n52.series.db.beans.CategoryEntity;
 import org.n52.series.db.beans.DataEntity;
 import org.n52.series.db.beans.DatasetEntity;
 import org.n52.series.db.beans.FeatureEntity;
@@ -54,6 +52,7 @@ import org.n52.sos.aquarius.dao.AquariusGetObservationDao;
 import org.n52.sos.aquarius.ds.AquariusConnector;
 import org.n52.sos.aquarius.ds.AquariusHelper;
 import org.n52.sos.aquarius.ds.Point;
+import org.n52.sos.aquarius.harvest.AquariusHarvestFetcher.HarvestedTimeSeries;
 import org.n52.sos.proxy.harvest.AbstractHarvester;
 import org.n52.sos.proxy.harvest.AbstractProxyHelper;
 import org.slf4j.Logger;
@@ -73,58 +72,16 @@ import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.Unit
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
-@SuppressFBWarnings({ "EI_EXPOSE_REP", "MS_MUTABLE_COLLECTION" })
+@SuppressFBWarnings({ "EI_EXPOSE_REP" })
 public abstract class AbstractAquariusHarvester extends AbstractHarvester implements AquariusEntityBuilder {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractAquariusHarvester.class);
 
     private static final String UNKNOWN = "Unknown";
 
-    private static final Map<String, ProcedureEntity> PROCEDURES = new HashMap<>();
-
-    private static final Map<String, PhenomenonEntity> PHENOMEON = new HashMap<>();
-
-    private static final Map<String, CategoryEntity> CATEGORIES = new HashMap<>();
-
-    private static final Map<String, OfferingEntity> OFFERINGS = new HashMap<>();
-
-    private static final Map<String, FeatureEntity> FEATURES = new HashMap<>();
-
-    private static final Map<String, PlatformEntity> PLATFORMS = new HashMap<>();
-
-    private static final Map<String, ParameterMetadata> PARAMETERS = new HashMap<>();
-
-    private static final Map<String, UnitMetadata> UNITS = new HashMap<>();
-
-    private static final Map<String, LocationDataServiceResponse> LOCATIONS = new HashMap<>();
-
     @Inject
     private AquariusHelper aquariusHelper;
 
-    protected void clearMaps() {
-        PROCEDURES.clear();
-        PHENOMEON.clear();
-        CATEGORIES.clear();
-        OFFERINGS.clear();
-        PARAMETERS.clear();
-        FEATURES.clear();
-        PLATFORMS.clear();
-        LOCATIONS.clear();
-        UNITS.clear();
-    }
-
-    protected Map<String, PlatformEntity> getPlatforms() {
-        return PLATFORMS;
-    }
-
-    protected Map<String, FeatureEntity> getFeatures() {
-        return FEATURES;
-    }
-
-    protected Map<String, ProcedureEntity> getProcedures() {
-        return PROCEDURES;
-    }
-
     public AquariusHelper getAquariusHelper() {
         return aquariusHelper;
     }
@@ -168,17 +125,17 @@ public abstract class AbstractAquariusHarvester extends AbstractHarvester implem
         }
     }
 
-    protected Map<String, LocationDataServiceResponse> getLocations(AquariusConnector connector)
-            throws OwsExceptionReport {
-        return getLocations(getAquariusHelper().getLocationDescriptionListRequest(), connector);
+    protected Map<String, LocationDataServiceResponse> getLocations(AquariusConnector connector,
+            AquariusHarvestRun run) throws OwsExceptionReport {
+        return getLocations(getAquariusHelper().getLocationDescriptionListRequest(), connector, run);
     }
 
     private Map<String, LocationDataServiceResponse> getLocations(LocationDescriptionListServiceRequest request,
-            AquariusConnector connector) throws OwsExceptionReport {
+            AquariusConnector connector, AquariusHarvestRun run) throws OwsExceptionReport {
         for (String location : connector.getLocationDescriptions(request)) {
-            getLocation(location, connector);
+            getLocation(location, connector, run);
         }
-        return Collections.unmodifiableMap(LOCATIONS);
+        return Collections.unmodifiableMap(run.getLocations());
     }
 
     protected Set<String> getLocationIds(AquariusConnector connector) throws OwsExceptionReport {
@@ -188,40 +145,43 @@ public abstract class AbstractAquariusHarvester extends AbstractHarvester implem
         return connector.getLocationDescriptions(getAquariusHelper().getLocationDescriptionListRequest());
     }
 
-    protected LocationDataServiceResponse getLocation(String locationIdentifier, AquariusConnector connector)
-            throws OwsExceptionReport {
-        if (!this.LOCATIONS.containsKey(locationIdentifier)) {
+    protected LocationDataServiceResponse getLocation(String locationIdentifier, AquariusConnector connector,
+            AquariusHarvestRun run) throws OwsExceptionReport {
+        LocationDataServiceResponse location = run.getLocation(locationIdentifier);
+        if (location == null) {
             LOGGER.debug("Querying location '{}'!", locationIdentifier);
-            AbstractAquariusHarvester.LOCATIONS.put(locationIdentifier,
-                    connector.getLocation(getAquariusHelper().getLocationData(locationIdentifier)));
+            location = connector.getLocation(getAquariusHelper().getLocationData(locationIdentifier));
+            run.addLocation(locationIdentifier, location);
         }
-        return this.LOCATIONS.get(locationIdentifier);
+        return location;
     }
 
-    protected Map<String, ParameterMetadata> getParameterList(AquariusConnector connector) throws OwsExceptionReport {
+    protected Map<String, ParameterMetadata> getParameterList(AquariusConnector connector, AquariusHarvestRun run)
+            throws OwsExceptionReport {
         LOGGER.debug("Query parameters");
-        Map<String, ParameterMetadata> paramMap = new HashMap<>();
         ParameterListServiceResponse params = connector.getParameterList();
         if (params.getParameters() != null) {
             for (ParameterMetadata param : params.getParameters()) {
-                paramMap.put(param.getIdentifier(), param);
+                if (param.getIdentifier() != null) {
+                    run.getParameters().put(param.getIdentifier(), param);
+                }
             }
         }
-        AbstractAquariusHarvester.PARAMETERS.putAll(paramMap);
-        return Collections.unmodifiableMap(PARAMETERS);
+        return Collections.unmodifiableMap(run.getParameters());
     }
 
-    protected Map<String, UnitMetadata> getUnitList(AquariusConnector connector) throws OwsExceptionReport {
+    protected Map<String, UnitMetadata> getUnitList(AquariusConnector connector, AquariusHarvestRun run)
+            throws OwsExceptionReport {
         LOGGER.debug("Query units");
-        Map<String, UnitMetadata> unitMap = new HashMap<>();
         UnitListServiceResponse us = connector.getUnitList();
         if (us.getUnits() != null) {
             for (UnitMetadata unit : us.getUnits()) {
-                unitMap.put(unit.getIdentifier(), unit);
+                if (unit.getIdentifier() != null) {
+                    run.getUnits().put(unit.getIdentifier(), unit);
+                }
             }
         }
-        AbstractAquariusHarvester.UNITS.putAll(unitMap);
-        return Collections.unmodifiableMap(UNITS);
+        return Collections.unmodifiableMap(run.getUnits());
     }
 
     protected Set<TimeSeriesDescription> getTimeSeries(AquariusConnector connector) throws OwsExceptionReport {
@@ -234,39 +194,27 @@ public abstract class AbstractAquariusHarvester extends AbstractHarvester implem
         return set;
     }
 
-    protected Set<TimeSeriesDescription> getTimeSeries(String locationIdentifier, AquariusConnector connector)
-            throws OwsExceptionReport {
-        Set<TimeSeriesDescription> set = new HashSet<>();
-        for (TimeSeriesDescription timeSeries : connector.getTimeSeriesDescriptions(getAquariusHelper()
-                .getGetTimeSeriesDescriptionListRequest().setLocationIdentifier(locationIdentifier))) {
-            set.add(timeSeries);
-            getAquariusHelper().addDataset(timeSeries);
-        }
-        return set;
-    }
-
-    protected void harvestDatasets(LocationDataServiceResponse location, TimeSeriesDescription timeSeries,
+    protected void harvestDatasets(LocationDataServiceResponse location, HarvestedTimeSeries harvested,
             FeatureEntity feature, ProcedureEntity procedure, PlatformEntity platform, ServiceEntity service,
-            AquariusConnector connector) {
-        if (feature.isSetGeometry()) {
+            AquariusHarvestRun run) {
+        TimeSeriesDescription timeSeries = harvested.getTimeSeries();
+        if (feature.isSetGeometry() && !harvested.isFailed()) {
             try {
                 if (getAquariusHelper().checkForData(timeSeries)) {
+                    ParameterMetadata parameter = run.getParameter(timeSeries.getParameter());
                     OfferingEntity offering =
-                            createOffering(OFFERINGS, timeSeries, procedure, service, getAquariusHelper());
+                            createOffering(run.getOfferings(), timeSeries, procedure, service, getAquariusHelper());
                     DatasetEntity dataset = createDataset(procedure, offering, feature, platform, timeSeries,
-                            PARAMETERS.get(timeSeries.getParameter()), UNITS.get(timeSeries.getUnit()), service);
+                            parameter, run.getUnit(timeSeries.getUnit()), service);
                     if (dataset != null) {
                         getAquariusHelper().addLocation(location);
-                        getAquariusHelper().addParameter(PARAMETERS.get(timeSeries.getParameter()));
-                        PhenomenonEntity phen =
-                                createPhenomenon(PARAMETERS.get(timeSeries.getParameter()), PHENOMEON, service);
+                        getAquariusHelper().addParameter(parameter);
+                        PhenomenonEntity phen = createPhenomenon(parameter, run.getPhenomena(), service);
                         dataset.setPhenomenon(phen);
-                        dataset.setCategory(createCategory(phen, CATEGORIES, service));
-                        TimeSeriesDataServiceResponse firstTimeSeriesData =
-                                connector.getTimeSeriesDataFirstPoint(timeSeries.getUniqueId());
-                        addParameter(dataset, timeSeries, firstTimeSeriesData);
+                        dataset.setCategory(createCategory(phen, run.getCategories(), service));
+                        addParameter(dataset, timeSeries, harvested.getFirstPoint());
                         DatasetEntity insertDataset = getCRUDRepository().insertDataset(dataset);
-                        updateFirstLastObservation(insertDataset, firstTimeSeriesData, timeSeries, connector);
+                        updateDataset(insertDataset, harvested.getFirstPoint(), harvested.getLastPoint());
                     }
                 }
             } catch (Exception e) {
@@ -287,20 +235,6 @@ public abstract class AbstractAquariusHarvester extends AbstractHarvester implem
         return location != null && location.getLatitude() != null && location.getLongitude() != null;
     }
 
-    protected void updateFirstLastObservation(DatasetEntity dataset, TimeSeriesDescription timeSeries,
-            AquariusConnector connector) throws OwsExceptionReport {
-        TimeSeriesDataServiceResponse firstTimeSeriesData =
-                connector.getTimeSeriesDataFirstPoint(timeSeries.getUniqueId());
-        updateFirstLastObservation(dataset, firstTimeSeriesData, timeSeries, connector);
-    }
-
-    private void updateFirstLastObservation(DatasetEntity dataset, TimeSeriesDataServiceResponse firstTimeSeriesData,
-            TimeSeriesDescription timeSeries, AquariusConnector connector) throws OwsExceptionReport {
-        TimeSeriesDataServiceResponse lastTimeSeriesData =
-                connector.getTimeSeriesDataLastPoint(timeSeries.getUniqueId());
-        updateDataset(dataset, firstTimeSeriesData, lastTimeSeriesData);
-    }
-
     protected void updateDataset(DatasetEntity entity, TimeSeriesDataServiceResponse firstTimeSeriesData,
             TimeSeriesDataServiceResponse lastTimeSeriesDataLast) {
         if (firstTimeSeriesData != null) {
@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.aquarius.harvest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.n52.janmayen.GroupedAndNamedThreadFactory;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.aquarius.ds.AquariusConnector;
+import org.n52.sos.aquarius.ds.AquariusHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.LocationDataServiceResponse;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDataServiceResponse;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDescription;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDescriptionListByUniqueIdServiceRequest;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDescriptionListByUniqueIdServiceResponse;
+import com.google.common.collect.Lists;
+
+/**
+ * Loads the remote metadata required for harvesting (locations, time series descriptions and the first and last
+ * points of each time series) concurrently on a bounded thread pool. Only the remote requests are executed in
+ * parallel, the database is written by the caller, so the results are returned in the order of the requested
+ * identifiers.
+ *
+ * @since 6.1.2
+ */
+public class AquariusHarvestFetcher implements AutoCloseable {
+
+    /**
+     * Maximum number of unique ids per {@link TimeSeriesDescriptionListByUniqueIdServiceRequest}.
+     */
+    public static final int UNIQUE_ID_BATCH_SIZE = 50;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AquariusHarvestFetcher.class);
+
+    private final AquariusConnector connector;
+
+    private final AquariusHelper aquariusHelper;
+
+    private final ExecutorService executor;
+
+    public AquariusHarvestFetcher(AquariusConnector connector, AquariusHelper aquariusHelper) {
+        this(connector, aquariusHelper, aquariusHelper.getHarvestThreads());
+    }
+
+    public AquariusHarvestFetcher(AquariusConnector connector, AquariusHelper aquariusHelper, int threads) {
+        this.connector = Objects.requireNonNull(connector, "connector");
+        this.aquariusHelper = Objects.requireNonNull(aquariusHelper, "aquariusHelper");
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads),
+                new GroupedAndNamedThreadFactory("aquarius-harvest"));
+    }
+
+    /**
+     * Load the locations, their time series and the first and last points of the time series.
+     *
+     * @param identifiers
+     *            the location identifiers
+     * @param run
+     *            the current harvesting run, used to cache the loaded locations
+     * @return the loaded locations in the order of the identifiers, locations which could not be loaded are
+     *         omitted
+     */
+    public List<HarvestedLocation> fetchLocations(Collection<String> identifiers, AquariusHarvestRun run) {
+        List<CompletableFuture<HarvestedLocation>> futures = identifiers.stream()
+                .filter(identifier -> identifier != null && !identifier.isEmpty())
+                .map(identifier -> fetchLocation(identifier, run))
+                .collect(Collectors.toList());
+        return futures.stream().map(CompletableFuture::join).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Load the first and last points of the time series.
+     *
+     * @param timeSeries
+     *            the time series
+     * @return the time series with their first and last points in the order of the time series
+     */
+    public List<HarvestedTimeSeries> fetchTimeSeries(Collection<TimeSeriesDescription> timeSeries) {
+        return fetchTimeSeries(timeSeries, t -> false);
+    }
+
+    /**
+     * Load the first and last points of the time series.
+     *
+     * @param timeSeries
+     *            the time series
+     * @param skipDataCheck
+     *            selects the time series whose points are loaded even if they do not pass the
+     *            {@link AquariusHelper#checkForData(TimeSeriesDescription)}, e.g. the time series of existing datasets
+     * @return the time series with their first and last points in the order of the time series
+     */
+    public List<HarvestedTimeSeries> fetchTimeSeries(Collection<TimeSeriesDescription> timeSeries,
+            Predicate<TimeSeriesDescription> skipDataCheck) {
+        return join(timeSeries.stream().filter(Objects::nonNull)
+                .map(t -> fetchPoints(t, !skipDataCheck.test(t)))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Load the time series descriptions for the unique ids, split into requests of at most
+     * {@value #UNIQUE_ID_BATCH_SIZE} ids which are sent concurrently.
+     *
+     * @param uniqueIds
+     *            the time series unique ids
+     * @return the time series descriptions
+     * @throws OwsExceptionReport
+     *             if a batch could not be loaded
+     */
+    public List<TimeSeriesDescription> fetchTimeSeriesDescriptions(Collection<String> uniqueIds)
+            throws OwsExceptionReport {
+        if (uniqueIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<CompletableFuture<List<TimeSeriesDescription>>> futures = new ArrayList<>();
+        for (List<String> ids : Lists.partition(new ArrayList<>(uniqueIds), UNIQUE_ID_BATCH_SIZE)) {
+            futures.add(CompletableFuture.supplyAsync(() -> queryTimeSeriesDescriptions(ids), executor));
+        }
+        try {
+            return join(futures).stream().flatMap(List::stream).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof OwsExceptionReport) {
+                throw (OwsExceptionReport) cause;
+            }
+            throw new NoApplicableCodeException().causedBy(cause)
+                    .withMessage("Error while querying the time series descriptions!");
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<HarvestedLocation> fetchLocation(String identifier, AquariusHarvestRun run) {
+        return CompletableFuture.supplyAsync(() -> queryLocation(identifier, run), executor)
+                .thenCompose(location -> location != null ? fetchLocationTimeSeries(location)
+                        : CompletableFuture.completedFuture(null))
+                .exceptionally(t -> {
+                    LOGGER.error(String.format("Error while harvesting data for location '%s'!", identifier),
+                            unwrap(t));
+                    return null;
+                });
+    }
+
+    private CompletableFuture<HarvestedLocation> fetchLocationTimeSeries(LocationDataServiceResponse location) {
+        if (location.getLatitude() == null || location.getLongitude() == null) {
+            return CompletableFuture.completedFuture(new HarvestedLocation(location, Collections.emptyList()));
+        }
+        return CompletableFuture.supplyAsync(() -> queryTimeSeries(location), executor).thenCompose(list -> {
+            List<CompletableFuture<HarvestedTimeSeries>> futures =
+                    list.stream().map(t -> fetchPoints(t, true)).collect(Collectors.toList());
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(v -> new HarvestedLocation(location, join(futures)));
+        });
+    }
+
+    private CompletableFuture<HarvestedTimeSeries> fetchPoints(TimeSeriesDescription timeSeries,
+            boolean checkForData) {
+        aquariusHelper.addDataset(timeSeries);
+        if (checkForData && !aquariusHelper.checkForData(timeSeries)) {
+            return CompletableFuture.completedFuture(new HarvestedTimeSeries(timeSeries, null, null));
+        }
+        CompletableFuture<TimeSeriesDataServiceResponse> first = CompletableFuture
+                .supplyAsync(() -> query(() -> connector.getTimeSeriesDataFirstPoint(timeSeries.getUniqueId())),
+                        executor);
+        CompletableFuture<TimeSeriesDataServiceResponse> last = CompletableFuture
+                .supplyAsync(() -> query(() -> connector.getTimeSeriesDataLastPoint(timeSeries.getUniqueId())),
+                        executor);
+        return first.thenCombine(last, (f, l) -> new HarvestedTimeSeries(timeSeries, f, l)).exceptionally(t -> {
+            LOGGER.error(String.format("Error harvesting timeseries '%s'!", timeSeries.getUniqueId()), unwrap(t));
+            return new HarvestedTimeSeries(timeSeries);
+        });
+    }
+
+    private LocationDataServiceResponse queryLocation(String identifier, AquariusHarvestRun run) {
+        LocationDataServiceResponse location = run.getLocation(identifier);
+        if (location == null) {
+            LOGGER.debug("Querying location '{}'!", identifier);
+            location = query(() -> connector.getLocation(aquariusHelper.getLocationData(identifier)));
+            run.addLocation(identifier, location);
+        }
+        return location;
+    }
+
+    private List<TimeSeriesDescription> queryTimeSeries(LocationDataServiceResponse location) {
+        // the same time series may be returned more than once, keep the first occurrence
+        Map<String, TimeSeriesDescription> timeSeries = new LinkedHashMap<>();
+        for (TimeSeriesDescription description : query(() -> connector.getTimeSeriesDescriptions(aquariusHelper
+                .getGetTimeSeriesDescriptionListRequest().setLocationIdentifier(location.getIdentifier())))) {
+            if (description != null) {
+                timeSeries.putIfAbsent(description.getUniqueId(), description);
+            }
+        }
+        return new ArrayList<>(timeSeries.values());
+    }
+
+    private List<TimeSeriesDescription> queryTimeSeriesDescriptions(List<String> uniqueIds) {
+        TimeSeriesDescriptionListByUniqueIdServiceResponse response = connector.getTimeSeriesDescriptionsByUniqueId(
+                new TimeSeriesDescriptionListByUniqueIdServiceRequest()
+                        .setTimeSeriesUniqueIds(new ArrayList<>(uniqueIds)));
+        if (response != null && response.getTimeSeriesDescriptions() != null) {
+            return response.getTimeSeriesDescriptions();
+        }
+        return Collections.emptyList();
+    }
+
+    private static <T> List<T> join(List<CompletableFuture<T>> futures) {
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    private static <T> T query(RemoteQuery<T> query) {
+        try {
+            return query.get();
+        } catch (OwsExceptionReport e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+    }
+
+    @FunctionalInterface
+    private interface RemoteQuery<T> {
+        T get() throws OwsExceptionReport;
+    }
+
+    /**
+     * A location with its time series.
+     */
+    public static final class HarvestedLocation {
+
+        private final LocationDataServiceResponse location;
+
+        private final List<HarvestedTimeSeries> timeSeries;
+
+        public HarvestedLocation(LocationDataServiceResponse location, List<HarvestedTimeSeries> timeSeries) {
+            this.location = location;
+            this.timeSeries = Collections.unmodifiableList(timeSeries);
+        }
+
+        public LocationDataServiceResponse getLocation() {
+            return location;
+        }
+
+        public List<HarvestedTimeSeries> getTimeSeries() {
+            return timeSeries;
+        }
+
+    }
+
+    /**
+     * A time series with its first and last points.
+     */
+    public static final class HarvestedTimeSeries {
+
+        private final TimeSeriesDescription timeSeries;
+
+        private final TimeSeriesDataServiceResponse firstPoint;
+
+        private final TimeSeriesDataServiceResponse lastPoint;
+
+        private final boolean failed;
+
+        public HarvestedTimeSeries(TimeSeriesDescription timeSeries, TimeSeriesDataServiceResponse firstPoint,
+                TimeSeriesDataServiceResponse lastPoint) {
+            this(timeSeries, firstPoint, lastPoint, false);
+        }
+
+        private HarvestedTimeSeries(TimeSeriesDescription timeSeries) {
+            this(timeSeries, null, null, true);
+        }
+
+        private HarvestedTimeSeries(TimeSeriesDescription timeSeries, TimeSeriesDataServiceResponse firstPoint,
+                TimeSeriesDataServiceResponse lastPoint, boolean failed) {
+            this.timeSeries = timeSeries;
+            this.firstPoint = firstPoint;
+            this.lastPoint = lastPoint;
+            this.failed = failed;
+        }
+
+        public TimeSeriesDescription getTimeSeries() {
+            return timeSeries;
+        }
+
+        public TimeSeriesDataServiceResponse getFirstPoint() {
+            return firstPoint;
+        }
+
+        public TimeSeriesDataServiceResponse getLastPoint() {
+            return lastPoint;
+        }
+
+        /**
+         * @return if the points of the time series could not be loaded
+         */
+        public boolean isFailed() {
+            return failed;
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.aquarius.harvest;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.n52.series.db.beans.CategoryEntity;
+import org.n52.series.db.beans.FeatureEntity;
+import org.n52.series.db.beans.OfferingEntity;
+import org.n52.series.db.beans.PhenomenonEntity;
+import org.n52.series.db.beans.PlatformEntity;
+import org.n52.series.db.beans.ProcedureEntity;
+
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.LocationDataServiceResponse;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.ParameterMetadata;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.UnitMetadata;
+
+/**
+ * State of a single Aquarius harvesting run. A new instance is created for each run so that concurrent or
+ * subsequent runs do not share the entities and remote metadata loaded by another run.
+ *
+ * @since 6.1.2
+ */
+public class AquariusHarvestRun {
+
+    private final Map<String, ProcedureEntity> procedures = new ConcurrentHashMap<>();
+
+    private final Map<String, PhenomenonEntity> phenomena = new ConcurrentHashMap<>();
+
+    private final Map<String, CategoryEntity> categories = new ConcurrentHashMap<>();
+
+    private final Map<String, OfferingEntity> offerings = new ConcurrentHashMap<>();
+
+    private final Map<String, FeatureEntity> features = new ConcurrentHashMap<>();
+
+    private final Map<String, PlatformEntity> platforms = new ConcurrentHashMap<>();
+
+    private final Map<String, ParameterMetadata> parameters = new ConcurrentHashMap<>();
+
+    private final Map<String, UnitMetadata> units = new ConcurrentHashMap<>();
+
+    private final Map<String, LocationDataServiceResponse> locations = new ConcurrentHashMap<>();
+
+    public Map<String, ProcedureEntity> getProcedures() {
+        return procedures;
+    }
+
+    public Map<String, PhenomenonEntity> getPhenomena() {
+        return phenomena;
+    }
+
+    public Map<String, CategoryEntity> getCategories() {
+        return categories;
+    }
+
+    public Map<String, OfferingEntity> getOfferings() {
+        return offerings;
+    }
+
+    public Map<String, FeatureEntity> getFeatures() {
+        return features;
+    }
+
+    public Map<String, PlatformEntity> getPlatforms() {
+        return platforms;
+    }
+
+    public Map<String, ParameterMetadata> getParameters() {
+        return parameters;
+    }
+
+    public ParameterMetadata getParameter(String identifier) {
+        return identifier != null ? parameters.get(identifier) : null;
+    }
+
+    public Map<String, UnitMetadata> getUnits() {
+        return units;
+    }
+
+    public UnitMetadata getUnit(String identifier) {
+        return identifier != null ? units.get(identifier) : null;
+    }
+
+    public Map<String, LocationDataServiceResponse> getLocations() {
+        return locations;
+    }
+
+    public LocationDataServiceResponse getLocation(String identifier) {
+        return identifier != null ? locations.get(identifier) : null;
+    }
+
+    public AquariusHarvestRun addLocation(String identifier, LocationDataServiceResponse location) {
+        if (identifier != null && location != null) {
+            locations.put(identifier, location);
+        }
+        return this;
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.aquarius.adapters.harvest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.sensorweb.server.helgoland.adapters.harvest.TemporalHarvesterResponse;
+import org.n52.series.db.beans.ServiceEntity;
+import org.n52.sos.aquarius.ds.AquariusConnector;
+import org.n52.sos.aquarius.ds.AquariusHelper;
+
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDescriptionListByUniqueIdServiceRequest;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDescriptionListByUniqueIdServiceResponse;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesUniqueIdListServiceRequest;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesUniqueIdListServiceResponse;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesUniqueIds;
+
+public class AquariusTemporalUpdaterTest {
+
+    @Test
+    public void failing_time_series_description_batch_is_logged() {
+        TemporalHarvesterResponse response = new TestUpdater().update(new FailingConnector(), DateTime.now());
+
+        Assertions.assertFalse(response.isprocessed());
+        Assertions.assertFalse(response.isSetNextToken());
+    }
+
+    private static class TestUpdater extends AquariusTemporalUpdater {
+
+        private final AquariusHelper aquariusHelper = new AquariusHelper();
+
+        @Override
+        public AquariusHelper getAquariusHelper() {
+            return aquariusHelper;
+        }
+
+        @Override
+        public ServiceEntity getOrInsertServiceEntity() {
+            return new ServiceEntity();
+        }
+
+    }
+
+    private static class FailingConnector extends AquariusConnector {
+
+        FailingConnector() {
+            super(null, null);
+        }
+
+        @Override
+        public TimeSeriesUniqueIdListServiceResponse getTimeSeriesUniqueIds(
+                TimeSeriesUniqueIdListServiceRequest request) {
+            return new TimeSeriesUniqueIdListServiceResponse().setNextToken(Instant.EPOCH)
+                    .setTimeSeriesUniqueIds(IntStream.range(0, 120)
+                            .mapToObj(i -> new TimeSeriesUniqueIds().setUniqueId("ts-" + i))
+                            .collect(Collectors.toCollection(ArrayList::new)));
+        }
+
+        @Override
+        public TimeSeriesDescriptionListByUniqueIdServiceResponse getTimeSeriesDescriptionsByUniqueId(
+                TimeSeriesDescriptionListByUniqueIdServiceRequest request) {
+            if (request.getTimeSeriesUniqueIds().contains("ts-7")) {
+                throw new IllegalStateException("time series descriptions not available");
+            }
+            return new TimeSeriesDescriptionListByUniqueIdServiceResponse()
+                    .setTimeSeriesDescriptions(new ArrayList<>());
+        }
+
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.aquarius.ds;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.DoubleWithDisplay;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.StatisticalDateTimeOffset;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDataServiceResponse;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesPoint;
+
+public class AquariusTimeSeriesCacheTest {
+
+    private static final String TS_1 = "ts-1";
+
+    private static final String TS_2 = "ts-2";
+
+    private static final DateTime BASE = new DateTime(2023, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private final MutableClock clock = new MutableClock();
+
+    private final FakeConnector connector = new FakeConnector();
+
+    private final AquariusTimeSeriesCache cache = new AquariusTimeSeriesCache(clock).setTtl(60).setSize(10);
+
+    @Test
+    public void repeated_query_is_answered_from_cache() throws OwsExceptionReport {
+        List<Integer> first = hours(query(TS_1, 0, 10));
+        List<Integer> second = hours(query(TS_1, 0, 10));
+
+        Assertions.assertEquals(range(0, 10), first);
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(List.of("ts-1 0/10"), connector.queries);
+    }
+
+    @Test
+    public void contained_range_is_answered_from_cache() throws OwsExceptionReport {
+        query(TS_1, 0, 10);
+
+        Assertions.assertEquals(range(3, 7), hours(query(TS_1, 3, 7)));
+        Assertions.assertEquals(range(4, 4), hours(query(TS_1, 4, 4)));
+        Assertions.assertEquals(1, connector.queries.size());
+    }
+
+    @Test
+    public void only_missing_ranges_are_queried() throws OwsExceptionReport {
+        query(TS_1, 0, 5);
+        query(TS_1, 10, 15);
+
+        Assertions.assertEquals(range(0, 20), hours(query(TS_1, 0, 20)));
+        Assertions.assertEquals(List.of("ts-1 0/5", "ts-1 10/15", "ts-1 5/10", "ts-1 15/20"), connector.queries);
+    }
+
+    @Test
+    public void expired_segments_are_queried_again() throws OwsExceptionReport {
+        query(TS_1, 0, 10);
+        clock.advance(Duration.ofSeconds(61));
+
+        Assertions.assertEquals(range(0, 10), hours(query(TS_1, 0, 10)));
+        Assertions.assertEquals(List.of("ts-1 0/10", "ts-1 0/10"), connector.queries);
+    }
+
+    @Test
+    public void least_recently_used_time_series_are_evicted() throws OwsExceptionReport {
+        cache.setSize(1);
+        query(TS_1, 0, 10);
+        query(TS_2, 0, 10);
+        query(TS_1, 0, 10);
+
+        Assertions.assertEquals(List.of("ts-1 0/10", "ts-2 0/10", "ts-1 0/10"), connector.queries);
+    }
+
+    @Test
+    public void least_recently_used_time_series_are_evicted_above_the_point_limit() throws OwsExceptionReport {
+        cache.setMaxPoints(15);
+        query(TS_1, 0, 10);
+        query(TS_1, 0, 10);
+        query(TS_2, 0, 5);
+        query(TS_2, 0, 5);
+        query(TS_1, 0, 10);
+
+        Assertions.assertEquals(List.of("ts-1 0/10", "ts-2 0/5", "ts-1 0/10"), connector.queries);
+    }
+
+    @Test
+    public void open_ranges_and_disabled_cache_are_not_cached() throws OwsExceptionReport {
+        cache.getTimeSeriesData(TS_1, null, null, connector);
+        cache.getTimeSeriesData(TS_1, null, null, connector);
+        cache.setTtl(0);
+        query(TS_1, 0, 10);
+        query(TS_1, 0, 10);
+
+        Assertions.assertEquals(4, connector.queries.size());
+    }
+
+    private List<TimeSeriesDataServiceResponse> query(String uniqueId, int from, int to) throws OwsExceptionReport {
+        return cache.getTimeSeriesData(uniqueId, BASE.plusHours(from), BASE.plusHours(to), connector);
+    }
+
+    private static List<Integer> hours(List<TimeSeriesDataServiceResponse> responses) {
+        List<Integer> hours = new ArrayList<>();
+        for (TimeSeriesDataServiceResponse response : responses) {
+            for (TimeSeriesPoint point : response.getPoints()) {
+                hours.add(hour(point.getTimestamp().getDateTimeOffset()));
+            }
+        }
+        return hours;
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> range = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            range.add(i);
+        }
+        return range;
+    }
+
+    private static int hour(Instant time) {
+        return (int) Duration.between(BASE.toDate().toInstant(), time).toHours();
+    }
+
+    private static class FakeConnector extends AquariusConnector {
+
+        private final List<String> queries = new ArrayList<>();
+
+        FakeConnector() {
+            super(null, null);
+        }
+
+        @Override
+        public TimeSeriesDataServiceResponse getTimeSeriesData(String timeSeriesUniqueId, DateTime queryFrom,
+                DateTime queryTo) {
+            DateTime from = queryFrom != null ? queryFrom : BASE;
+            DateTime to = queryTo != null ? queryTo : BASE.plusHours(24);
+            queries.add(queryFrom != null && queryTo != null
+                    ? String.format("%s %d/%d", timeSeriesUniqueId, hour(from.toDate().toInstant()),
+                            hour(to.toDate().toInstant()))
+                    : timeSeriesUniqueId);
+            ArrayList<TimeSeriesPoint> points = new ArrayList<>();
+            for (DateTime time = from; !time.isAfter(to); time = time.plusHours(1)) {
+                points.add(new TimeSeriesPoint()
+                        .setTimestamp(new StatisticalDateTimeOffset().setDateTimeOffset(time.toDate().toInstant()))
+                        .setValue(new DoubleWithDisplay().setNumeric((double) hour(time.toDate().toInstant()))));
+            }
+            return new TimeSeriesDataServiceResponse().setUniqueId(timeSeriesUniqueId)
+                    .setNumPoints((long) points.size()).setPoints(points);
+        }
+
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2023-06-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+    }
+
+}
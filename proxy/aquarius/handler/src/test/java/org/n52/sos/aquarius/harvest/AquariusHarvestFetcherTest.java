@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.aquarius.harvest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.aquarius.ds.AquariusConnector;
+import org.n52.sos.aquarius.ds.AquariusHelper;
+import org.n52.sos.aquarius.harvest.AquariusHarvestFetcher.HarvestedLocation;
+import org.n52.sos.aquarius.harvest.AquariusHarvestFetcher.HarvestedTimeSeries;
+
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.LocationDataServiceRequest;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.LocationDataServiceResponse;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDataServiceResponse;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDescription;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDescriptionListByUniqueIdServiceRequest;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDescriptionListByUniqueIdServiceResponse;
+import com.aquaticinformatics.aquarius.sdk.timeseries.servicemodels.Publish.TimeSeriesDescriptionServiceRequest;
+
+public class AquariusHarvestFetcherTest {
+
+    private static final long LATENCY = 10;
+
+    private static final int LOCATIONS = 12;
+
+    private static final int TIME_SERIES = 2;
+
+    private static final int THREADS = 8;
+
+    private static final long AWAIT_SECONDS = 10;
+
+    @Test
+    public void concurrent_fetch_uses_all_threads_and_returns_the_same_result() {
+        List<String> identifiers = locationIds(LOCATIONS);
+
+        FakeConnector sequentialConnector = new FakeConnector();
+        List<HarvestedLocation> sequential = fetch(sequentialConnector, identifiers, 1);
+
+        // the first calls wait until all threads of the pool are busy
+        FakeConnector concurrentConnector = new FakeConnector();
+        concurrentConnector.inFlight = new CountDownLatch(THREADS);
+        List<HarvestedLocation> concurrent = fetch(concurrentConnector, identifiers, THREADS);
+
+        Assertions.assertEquals(describe(sequential), describe(concurrent));
+        Assertions.assertEquals(1, sequentialConnector.getMaxActive());
+        Assertions.assertEquals(THREADS, concurrentConnector.getMaxActive());
+    }
+
+    @Test
+    public void results_keep_the_order_of_the_identifiers() {
+        List<String> identifiers = locationIds(LOCATIONS);
+        Collections.reverse(identifiers);
+        List<String> expected = new ArrayList<>();
+        for (String identifier : identifiers) {
+            for (int i = 0; i < TIME_SERIES; i++) {
+                expected.add(identifier + "|" + timeSeriesId(identifier, i) + "|first|last");
+            }
+        }
+        for (int run = 0; run < 3; run++) {
+            Assertions.assertEquals(expected, describe(fetch(new FakeConnector(), identifiers, THREADS)));
+        }
+    }
+
+    @Test
+    public void failures_are_isolated() {
+        FakeConnector connector = new FakeConnector();
+        connector.failingLocation = "loc-01";
+        connector.failingTimeSeries = timeSeriesId("loc-02", 1);
+        connector.locationWithoutCoordinates = "loc-03";
+
+        List<HarvestedLocation> locations = fetch(connector, locationIds(4), THREADS);
+
+        Assertions.assertEquals(3, locations.size());
+        Assertions.assertEquals("loc-00", locations.get(0).getLocation().getIdentifier());
+        Assertions.assertFalse(locations.get(1).getTimeSeries().get(0).isFailed());
+        Assertions.assertTrue(locations.get(1).getTimeSeries().get(1).isFailed());
+        Assertions.assertTrue(locations.get(2).getTimeSeries().isEmpty());
+    }
+
+    @Test
+    public void time_series_descriptions_are_requested_in_batches() throws OwsExceptionReport {
+        FakeConnector connector = new FakeConnector();
+        Set<String> uniqueIds = IntStream.range(0, 120).mapToObj(i -> "ts-" + i).collect(Collectors.toSet());
+        try (AquariusHarvestFetcher fetcher = new AquariusHarvestFetcher(connector, new AquariusHelper(), THREADS)) {
+            List<TimeSeriesDescription> descriptions = fetcher.fetchTimeSeriesDescriptions(uniqueIds);
+            Assertions.assertEquals(uniqueIds,
+                    descriptions.stream().map(TimeSeriesDescription::getUniqueId).collect(Collectors.toSet()));
+        }
+        Assertions.assertEquals(3, connector.getCalls());
+    }
+
+    @Test
+    public void failing_time_series_description_batch_is_reported() {
+        FakeConnector connector = new FakeConnector();
+        connector.failingTimeSeries = "ts-7";
+        List<String> uniqueIds = IntStream.range(0, 120).mapToObj(i -> "ts-" + i).collect(Collectors.toList());
+        try (AquariusHarvestFetcher fetcher = new AquariusHarvestFetcher(connector, new AquariusHelper(), THREADS)) {
+            OwsExceptionReport e = Assertions.assertThrows(OwsExceptionReport.class,
+                    () -> fetcher.fetchTimeSeriesDescriptions(uniqueIds));
+            Assertions.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void points_of_selected_time_series_are_fetched_without_data_check() {
+        List<TimeSeriesDescription> timeSeries = new ArrayList<>();
+        timeSeries.add(new TimeSeriesDescription().setUniqueId("existing"));
+        timeSeries.add(new TimeSeriesDescription().setUniqueId("new"));
+        try (AquariusHarvestFetcher fetcher =
+                new AquariusHarvestFetcher(new FakeConnector(), new AquariusHelper(), THREADS)) {
+            List<HarvestedTimeSeries> harvested =
+                    fetcher.fetchTimeSeries(timeSeries, t -> "existing".equals(t.getUniqueId()));
+            Assertions.assertEquals("first", harvested.get(0).getFirstPoint().getLabel());
+            Assertions.assertEquals("last", harvested.get(0).getLastPoint().getLabel());
+            Assertions.assertNull(harvested.get(1).getFirstPoint());
+            Assertions.assertNull(harvested.get(1).getLastPoint());
+        }
+    }
+
+    private static List<HarvestedLocation> fetch(FakeConnector connector, List<String> identifiers, int threads) {
+        try (AquariusHarvestFetcher fetcher = new AquariusHarvestFetcher(connector, new AquariusHelper(), threads)) {
+            return fetcher.fetchLocations(identifiers, new AquariusHarvestRun());
+        }
+    }
+
+    private static List<String> describe(List<HarvestedLocation> locations) {
+        List<String> description = new ArrayList<>();
+        for (HarvestedLocation location : locations) {
+            for (HarvestedTimeSeries timeSeries : location.getTimeSeries()) {
+                description.add(String.join("|", location.getLocation().getIdentifier(),
+                        timeSeries.getTimeSeries().getUniqueId(), timeSeries.getFirstPoint().getLabel(),
+                        timeSeries.getLastPoint().getLabel()));
+            }
+        }
+        return description;
+    }
+
+    private static List<String> locationIds(int count) {
+        return IntStream.range(0, count).mapToObj(i -> String.format("loc-%02d", i)).collect(Collectors.toList());
+    }
+
+    private static String timeSeriesId(String location, int index) {
+        return location + "-ts-" + index;
+    }
+
+    private static class FakeConnector extends AquariusConnector {
+
+        private final AtomicInteger active = new AtomicInteger();
+
+        private final AtomicInteger maxActive = new AtomicInteger();
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private String failingLocation;
+
+        private String failingTimeSeries;
+
+        private String locationWithoutCoordinates;
+
+        private CountDownLatch inFlight;
+
+        FakeConnector() {
+            super(null, null);
+        }
+
+        int getMaxActive() {
+            return maxActive.get();
+        }
+
+        int getCalls() {
+            return calls.get();
+        }
+
+        @Override
+        public LocationDataServiceResponse getLocation(LocationDataServiceRequest request) {
+            String identifier = request.getLocationIdentifier();
+            simulateLatency();
+            if (identifier.equals(failingLocation)) {
+                throw new IllegalStateException("location not available");
+            }
+            LocationDataServiceResponse location = new LocationDataServiceResponse().setIdentifier(identifier);
+            if (!identifier.equals(locationWithoutCoordinates)) {
+                location.setLatitude(52.0).setLongitude(7.0);
+            }
+            return location;
+        }
+
+        @Override
+        public List<TimeSeriesDescription> getTimeSeriesDescriptions(TimeSeriesDescriptionServiceRequest request) {
+            simulateLatency();
+            return IntStream.range(0, TIME_SERIES)
+                    .mapToObj(i -> timeSeries(timeSeriesId(request.getLocationIdentifier(), i)))
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public TimeSeriesDescriptionListByUniqueIdServiceResponse getTimeSeriesDescriptionsByUniqueId(
+                TimeSeriesDescriptionListByUniqueIdServiceRequest request) {
+            simulateLatency();
+            if (request.getTimeSeriesUniqueIds().contains(failingTimeSeries)) {
+                throw new IllegalStateException("time series descriptions not available");
+            }
+            return new TimeSeriesDescriptionListByUniqueIdServiceResponse()
+                    .setTimeSeriesDescriptions(request.getTimeSeriesUniqueIds().stream().map(this::timeSeries)
+                            .collect(Collectors.toCollection(ArrayList::new)));
+        }
+
+        @Override
+        public TimeSeriesDataServiceResponse getTimeSeriesDataFirstPoint(String timeSeriesUniqueId)
+                throws OwsExceptionReport {
+            return point(timeSeriesUniqueId, "first");
+        }
+
+        @Override
+        public TimeSeriesDataServiceResponse getTimeSeriesDataLastPoint(String timeSeriesUniqueId)
+                throws OwsExceptionReport {
+            return point(timeSeriesUniqueId, "last");
+        }
+
+        private TimeSeriesDataServiceResponse point(String timeSeriesUniqueId, String label)
+                throws OwsExceptionReport {
+            simulateLatency();
+            if (timeSeriesUniqueId.equals(failingTimeSeries)) {
+                throw new NoApplicableCodeException().withMessage("time series not available");
+            }
+            return new TimeSeriesDataServiceResponse().setUniqueId(timeSeriesUniqueId).setLabel(label);
+        }
+
+        private TimeSeriesDescription timeSeries(String uniqueId) {
+            return new TimeSeriesDescription().setUniqueId(uniqueId).setIdentifier(uniqueId)
+                    .setRawStartTime(Instant.EPOCH).setRawEndTime(Instant.EPOCH.plusSeconds(3600));
+        }
+
+        private void simulateLatency() {
+            calls.incrementAndGet();
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                if (inFlight != null) {
+                    inFlight.countDown();
+                    inFlight.await(AWAIT_SECONDS, TimeUnit.SECONDS);
+                }
+                Thread.sleep(LATENCY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+    }
+
+}
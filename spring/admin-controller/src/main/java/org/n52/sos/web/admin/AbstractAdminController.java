@@ -27,10 +27,13 @@
  */
 package org.n52.sos.web.admin;
 
+import java.util.Optional;
+
 import javax.inject.Inject;
 
 import org.n52.iceland.cache.ContentCacheController;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.sos.cache.CapabilitiesResponseCache;
 import org.n52.sos.cache.SosContentCache;
 import org.n52.sos.web.common.AbstractController;
 
@@ -42,11 +45,18 @@ public abstract class AbstractAdminController extends AbstractController {
 
     private ContentCacheController contentCacheController;
 
+    private Optional<CapabilitiesResponseCache> capabilitiesResponseCache = Optional.empty();
+
     @Inject
     public void setContentCacheController(ContentCacheController ctrl) {
         this.contentCacheController = ctrl;
     }
 
+    @Inject
+    public void setCapabilitiesResponseCache(Optional<CapabilitiesResponseCache> capabilitiesResponseCache) {
+        this.capabilitiesResponseCache = capabilitiesResponseCache;
+    }
+
     protected boolean cacheIsLoading() {
         return contentCacheController.isUpdateInProgress();
     }
@@ -65,6 +75,15 @@ public abstract class AbstractAdminController extends AbstractController {
         }).start();
     }
 
+    /**
+     * Clear the cached GetCapabilities responses. Has to be called after
+     * changes that are not reflected in the updateSequence, e.g. the
+     * activation of operations or edited capabilities extensions.
+     */
+    protected void clearCapabilitiesResponseCache() {
+        capabilitiesResponseCache.ifPresent(CapabilitiesResponseCache::clear);
+    }
+
     public ContentCacheController getContentCacheController() {
         return contentCacheController;
     }
@@ -116,6 +116,7 @@ public class AdminEncodingController extends AbstractAdminController {
         } else {
             throw new JSONException("Invalid JSON");
         }
+        clearCapabilitiesResponseCache();
     }
 
     protected ArrayNode getObservationEncodings() {
@@ -127,6 +127,7 @@ public class AdminExtensionController extends AbstractAdminController {
         } else {
             throw new JSONException("Invalid JSON");
         }
+        clearCapabilitiesResponseCache();
     }
 
     protected ArrayNode getExtendedCapabilitiesExtensions()
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.web.admin;
+
+import javax.inject.Inject;
+
+import org.n52.janmayen.Json;
+import org.n52.sos.service.metrics.Histogram;
+import org.n52.sos.service.metrics.RequestMetrics;
+import org.n52.sos.service.metrics.RequestMetricsSnapshot;
+import org.n52.sos.web.common.AbstractController;
+import org.n52.sos.web.common.ControllerConstants;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Provides the {@link RequestMetrics} of each operation and response format
+ * as JSON. Latencies are given in microseconds, response sizes in bytes.
+ *
+ * @since 6.1.2
+ */
+@Controller
+public class AdminMetricsController extends AbstractController {
+
+    private static final String COUNT = "count";
+
+    @Inject
+    private RequestMetrics requestMetrics;
+
+    @ResponseBody
+    @RequestMapping(value = ControllerConstants.Paths.ADMIN_METRICS,
+                    method = RequestMethod.GET,
+                    produces = "application/json; charset=UTF-8")
+    public String getMetrics() {
+        ObjectNode json = Json.nodeFactory().objectNode();
+        json.put("enabled", requestMetrics.isEnabled());
+        ArrayNode operations = json.putArray("operations");
+        for (RequestMetricsSnapshot snapshot : requestMetrics.getOperations()) {
+            ObjectNode operation = operations.addObject()
+                    .put("service", snapshot.getService())
+                    .put("version", snapshot.getVersion())
+                    .put("operation", snapshot.getOperation())
+                    .put("responseFormat", snapshot.getResponseFormat())
+                    .put("requests", snapshot.getRequests())
+                    .put("errors", snapshot.getErrors());
+            ObjectNode latencies = operation.putObject("latencies");
+            snapshot.getLatencies().forEach((phase, histogram) -> latencies.set(phase, toJson(histogram)));
+            if (snapshot.getResponseSize() != null) {
+                operation.set("responseSize", toJson(snapshot.getResponseSize()));
+            }
+        }
+        return Json.print(json);
+    }
+
+    @RequestMapping(value = ControllerConstants.Paths.ADMIN_METRICS_RESET, method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reset() {
+        requestMetrics.reset();
+    }
+
+    private ObjectNode toJson(Histogram.Snapshot histogram) {
+        ObjectNode json = Json.nodeFactory().objectNode()
+                .put(COUNT, histogram.getCount())
+                .put("mean", histogram.getMean())
+                .put("p50", histogram.getP50())
+                .put("p90", histogram.getP90())
+                .put("p99", histogram.getP99())
+                .put("max", histogram.getMax());
+        ArrayNode buckets = json.putArray("buckets");
+        long[] bounds = histogram.getBounds();
+        long[] counts = histogram.getCounts();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                ObjectNode bucket = buckets.addObject();
+                if (i < bounds.length) {
+                    bucket.put("le", bounds[i]);
+                }
+                bucket.put(COUNT, counts[i]);
+            }
+        }
+        return json;
+    }
+
+}
@@ -59,9 +59,13 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 @Controller
 public class AdminOperationController extends AbstractAdminController {
 
-    @Inject
     private RequestOperatorRepository requestOperatorRepository;
 
+    @Inject
+    public void setRequestOperatorRepository(RequestOperatorRepository requestOperatorRepository) {
+        this.requestOperatorRepository = requestOperatorRepository;
+    }
+
     @ResponseBody
     @ExceptionHandler(JSONException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -113,5 +117,6 @@ public class AdminOperationController extends AbstractAdminController {
         OwsServiceKey sokt = new OwsServiceKey(service, version);
         RequestOperatorKey rokt = new RequestOperatorKey(sokt, operation);
         this.requestOperatorRepository.setActive(rokt, active);
+        clearCapabilitiesResponseCache();
     }
 }
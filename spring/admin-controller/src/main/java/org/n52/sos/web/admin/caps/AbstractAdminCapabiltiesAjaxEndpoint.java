@@ -131,6 +131,7 @@ public class AbstractAdminCapabiltiesAjaxEndpoint extends AbstractAdminControlle
 
         if (change) {
             this.capabilitiesExtensionService.setActiveStaticCapabilities(id);
+            clearCapabilitiesResponseCache();
         }
     }
 
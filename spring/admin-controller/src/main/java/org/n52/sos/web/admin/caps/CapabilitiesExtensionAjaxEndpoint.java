@@ -101,6 +101,7 @@ public class CapabilitiesExtensionAjaxEndpoint extends AbstractAdminCapabiltiesA
         if (request.has(DISABLED_PROPERTY)) {
             getCapabilitiesExtensionService().disableCapabilitiesExtension(identifier,
                     request.path(DISABLED_PROPERTY).asBoolean());
+            clearCapabilitiesResponseCache();
         }
     }
 
@@ -115,6 +116,7 @@ public class CapabilitiesExtensionAjaxEndpoint extends AbstractAdminCapabiltiesA
 
         XmlObject.Factory.parse(extension);
         getCapabilitiesExtensionService().saveCapabilitiesExtension(identifier, extension);
+        clearCapabilitiesResponseCache();
     }
 
     public boolean contains(String name) {
@@ -141,6 +143,7 @@ public class CapabilitiesExtensionAjaxEndpoint extends AbstractAdminCapabiltiesA
     public void deleteCapabilitiesExtension(@PathVariable("identifier") String identifier)
             throws NoSuchExtensionException {
         getCapabilitiesExtensionService().deleteCapabiltiesExtension(identifier);
+        clearCapabilitiesResponseCache();
     }
 
     @ResponseBody
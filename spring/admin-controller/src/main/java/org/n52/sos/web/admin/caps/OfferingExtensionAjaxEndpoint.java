@@ -114,6 +114,7 @@ public class OfferingExtensionAjaxEndpoint extends AbstractAdminCapabiltiesAjaxE
         checkOffering(offeringId);
         XmlObject.Factory.parse(extensionContent);
         getCapabilitiesExtensionService().saveOfferingExtension(offeringId, extensionId, extensionContent);
+        clearCapabilitiesResponseCache();
     }
 
     @ResponseStatus(HttpStatus.NO_CONTENT)
@@ -127,6 +128,7 @@ public class OfferingExtensionAjaxEndpoint extends AbstractAdminCapabiltiesAjaxE
         if (request.has(DISABLED_PROPERTY)) {
             getCapabilitiesExtensionService().disableOfferingExtension(offeringId, extensionId,
                     request.path(DISABLED_PROPERTY).asBoolean());
+            clearCapabilitiesResponseCache();
         }
     }
 
@@ -138,5 +140,6 @@ public class OfferingExtensionAjaxEndpoint extends AbstractAdminCapabiltiesAjaxE
         final String offeringId = request.path(OFFERING).asText();
         final String extensionId = request.path(IDENTIFIER).asText();
         getCapabilitiesExtensionService().deleteOfferingExtension(offeringId, extensionId);
+        clearCapabilitiesResponseCache();
     }
 }
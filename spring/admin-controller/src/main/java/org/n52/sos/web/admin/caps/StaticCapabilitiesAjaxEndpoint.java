@@ -103,6 +103,7 @@ public class StaticCapabilitiesAjaxEndpoint extends AbstractAdminCapabiltiesAjax
             throw new XmlException("Not a Capabilities document!");
         }
         getCapabilitiesExtensionService().saveStaticCapabilities(identifier.trim(), document);
+        clearCapabilitiesResponseCache();
     }
 
     @ResponseStatus(HttpStatus.NO_CONTENT)
@@ -113,5 +114,6 @@ public class StaticCapabilitiesAjaxEndpoint extends AbstractAdminCapabiltiesAjax
             setSelectedStaticCapabilities(null);
         }
         getCapabilitiesExtensionService().deleteStaticCapabilities(identifier.trim());
+        clearCapabilitiesResponseCache();
     }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2012-2023 52°North Spatial Information Research GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.web.admin;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.iceland.request.operator.RequestOperatorKey;
+import org.n52.iceland.request.operator.RequestOperatorRepository;
+import org.n52.shetland.ogc.ows.service.GetCapabilitiesRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceKey;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.sos.SosConstants;
+import org.n52.sos.cache.CapabilitiesResponseCache;
+import org.n52.sos.cache.CapabilitiesResponseCache.Key;
+
+public class AdminOperationControllerTest {
+
+    private static final String SEQUENCE = "2020-01-01T00:00:00.000Z";
+
+    private CapabilitiesResponseCache cache;
+
+    private RequestOperatorRepository repository;
+
+    private AdminOperationController controller;
+
+    @Before
+    public void setUp() {
+        cache = new CapabilitiesResponseCache();
+        cache.setCacheSize(10);
+        repository = new RequestOperatorRepository();
+        controller = new AdminOperationController();
+        controller.setRequestOperatorRepository(repository);
+        controller.setCapabilitiesResponseCache(Optional.of(cache));
+    }
+
+    @Test
+    public void shouldClearCapabilitiesResponseCacheOnOperationActivation() throws Exception {
+        Key key = cache.createKey(request(), false);
+        cache.get(key, SEQUENCE);
+        cache.put(key, SEQUENCE, "<sos:Capabilities/>".getBytes(StandardCharsets.UTF_8));
+        assertThat(cache.get(key, SEQUENCE), is(notNullValue()));
+
+        controller.change("{\"service\":\"SOS\",\"version\":\"2.0.0\",\"operation\":\"GetObservation\","
+                + "\"active\":false}");
+
+        assertThat(repository.isActive(new RequestOperatorKey(
+                new OwsServiceKey(SosConstants.SOS, Sos2Constants.SERVICEVERSION),
+                SosConstants.Operations.GetObservation.name())), is(false));
+        assertThat(cache.get(key, SEQUENCE), is(nullValue()));
+        assertThat(cache.size(), is(0L));
+        // responses encoded before the change are not cached
+        cache.put(key, SEQUENCE, "<sos:Capabilities/>".getBytes(StandardCharsets.UTF_8));
+        assertThat(cache.get(cache.createKey(request(), false), SEQUENCE), is(nullValue()));
+    }
+
+    @Test
+    public void shouldWorkWithoutCapabilitiesResponseCache() throws Exception {
+        controller.setCapabilitiesResponseCache(Optional.empty());
+        controller.change("{\"service\":\"SOS\",\"version\":\"2.0.0\",\"operation\":\"GetObservation\","
+                + "\"active\":true}");
+    }
+
+    private GetCapabilitiesRequest request() {
+        GetCapabilitiesRequest request = new GetCapabilitiesRequest(SosConstants.SOS);
+        request.setVersion(Sos2Constants.SERVICEVERSION);
+        return request;
+    }
+
+}
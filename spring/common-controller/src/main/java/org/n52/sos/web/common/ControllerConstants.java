@@ -211,6 +211,10 @@ public interface ControllerConstants {
 
         String ADMIN_RELOAD_CAPABILITIES_CACHE = "/admin/cache/reload";
 
+        String ADMIN_METRICS = "/admin/metrics";
+
+        String ADMIN_METRICS_RESET = "/admin/metrics/reset";
+
         String ADMIN_DATABASE_UPDATE_SCRIPT = "/admin/datasource/updatescript";
 
         String ADMIN_DATABASE_REMOVE_TEST_DATA = "/admin/datasource/testdata/remove";